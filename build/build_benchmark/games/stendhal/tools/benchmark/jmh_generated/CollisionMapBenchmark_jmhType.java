@@ -0,0 +1,4 @@
+package games.stendhal.tools.benchmark.jmh_generated;
+public class CollisionMapBenchmark_jmhType extends CollisionMapBenchmark_jmhType_B3 {
+}
+
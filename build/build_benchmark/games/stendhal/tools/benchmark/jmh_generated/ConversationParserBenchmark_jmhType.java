@@ -0,0 +1,4 @@
+package games.stendhal.tools.benchmark.jmh_generated;
+public class ConversationParserBenchmark_jmhType extends ConversationParserBenchmark_jmhType_B3 {
+}
+
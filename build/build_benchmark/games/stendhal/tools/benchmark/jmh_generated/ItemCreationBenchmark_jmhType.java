@@ -0,0 +1,4 @@
+package games.stendhal.tools.benchmark.jmh_generated;
+public class ItemCreationBenchmark_jmhType extends ItemCreationBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package games.stendhal.tools.benchmark.jmh_generated;
+public class ItemStatsBenchmark_jmhType extends ItemStatsBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package games.stendhal.tools.benchmark.jmh_generated;
+public class LayerEncodeBenchmark_jmhType extends LayerEncodeBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package games.stendhal.tools.benchmark.jmh_generated;
+public class PathBenchmark_jmhType extends PathBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package games.stendhal.tools.benchmark.jmh_generated;
+public class TurnNotifierBenchmark_jmhType extends TurnNotifierBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package games.stendhal.tools.benchmark.jmh_generated;
+public class ZoneBenchmark_jmhType extends ZoneBenchmark_jmhType_B3 {
+}
+
@@ -106,6 +106,11 @@ public class StendhalClient extends ClientFramework {
 
 	/** The zone currently under loading. */
 	private Zone currentZone;
+	/**
+	 * Layers of the current zone, except the attributes. Used for rebuilding
+	 * the zone from the cache when the server sends only changed attributes.
+	 */
+	private final List<TransferContent> zoneLayers = new ArrayList<TransferContent>();
 
 	private JFrame splashScreen;
 
@@ -242,15 +247,30 @@ public class StendhalClient extends ClientFramework {
 		String oldZone = (currentZone != null) ? currentZone.getName() : null;
 
 		// Set the new area name
+		boolean hasLayers = false;
 		for (TransferContent item : items) {
 			final String name = item.name;
 			final int i = name.indexOf(".0_floor");
 			if (i > -1) {
 				currentZone = new Zone(name.substring(0, i));
+				hasLayers = true;
 				break;
 			}
 		}
 
+		if (hasLayers) {
+			rememberLayers(items);
+		} else if (isAttributeUpdate(items)) {
+			// Only the attributes changed. Rebuild the zone from the cached
+			// layers, like a transfer of the whole zone would.
+			final Zone oldData = currentZone;
+			currentZone = new Zone(oldData.getName());
+			if (!loadCachedLayers()) {
+				// Apply the attributes to the old zone data, as well as it can
+				currentZone = oldData;
+			}
+		}
+
 		// Is it just a reload for new coloring?
 		if (currentZone != null) {
 			boolean isZoneChange = !currentZone.getName().equals(oldZone);
@@ -301,6 +321,67 @@ public class StendhalClient extends ClientFramework {
 		return items;
 	}
 
+	/**
+	 * Remember the layers of a new zone, so that they can be found in the
+	 * cache later.
+	 *
+	 * @param items transferred contents
+	 */
+	private void rememberLayers(final List<TransferContent> items) {
+		zoneLayers.clear();
+		final String prefix = currentZone.getName() + ".";
+		for (final TransferContent item : items) {
+			if ((item.name != null) && item.name.startsWith(prefix)
+					&& !item.name.endsWith(".data_map")) {
+				zoneLayers.add(item);
+			}
+		}
+	}
+
+	/**
+	 * Check if transferred contents contain only new attributes for the
+	 * current zone.
+	 *
+	 * @param items transferred contents
+	 * @return <code>true</code> if the contents update the attributes of the
+	 * 	current zone without the other layers
+	 */
+	private boolean isAttributeUpdate(final List<TransferContent> items) {
+		if ((currentZone == null) || zoneLayers.isEmpty()) {
+			return false;
+		}
+		final String dataName = currentZone.getName() + ".data_map";
+		for (final TransferContent item : items) {
+			if (dataName.equals(item.name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Load the remembered layers of the current zone from the cache.
+	 *
+	 * @return <code>true</code> if all the layers were loaded
+	 */
+	private boolean loadCachedLayers() {
+		for (final TransferContent layer : zoneLayers) {
+			final InputStream is = cache.getItem(layer);
+			if (is == null) {
+				logger.warn("Layer " + layer.name + " is not in the cache");
+				return false;
+			}
+			try {
+				contentHandling(layer.name, is);
+				is.close();
+			} catch (final Exception e) {
+				logger.error("Failed to load cached layer " + layer.name, e);
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Add a listener to be called when the player changes zone.
 	 *
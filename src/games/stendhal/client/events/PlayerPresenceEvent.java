@@ -0,0 +1,40 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.client.events;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.client.World;
+import games.stendhal.client.entity.Entity;
+
+/**
+ * Players who logged on or off since the last presence event.
+ */
+class PlayerPresenceEvent extends Event<Entity> {
+	private static final Logger logger = Logger.getLogger(PlayerPresenceEvent.class);
+
+	@Override
+	public void execute() {
+		if (event.has("online")) {
+			for (String playerName : event.get("online").split(",")) {
+				logger.debug("Executing logon event for " + playerName);
+				World.get().addPlayerLoggingOn(playerName);
+			}
+		}
+		if (event.has("offline")) {
+			for (String playerName : event.get("offline").split(",")) {
+				logger.debug("Executing logout event for " + playerName);
+				World.get().removePlayerLoggingOut(playerName);
+			}
+		}
+	}
+}
@@ -26,6 +26,8 @@ public class CollisionDetection {
 
 	private int width;
 	private int height;
+	/** Counts the changes of the collision data. */
+	private int version;
 
 	/**
 	 * Clear the collision map.
@@ -53,6 +55,7 @@ public class CollisionDetection {
 
 		this.width = width;
 		this.height = height;
+		version++;
 
 		clear();
 	}
@@ -70,6 +73,7 @@ public class CollisionDetection {
 			return;
 		}
 		map.set(x, y);
+		version++;
 	}
 
 	/**
@@ -137,6 +141,18 @@ public class CollisionDetection {
 		return (x < 0) || (x + w > width) || (y < 0) || (y + h > height);
 	}
 
+	/**
+	 * Get a counter that changes every time the collision data is modified.
+	 * It can be used to check if data derived from the collision map is still
+	 * valid.
+	 *
+	 * @return
+	 *   Modification counter.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
 	/**
 	 * Get the width of the collision map.
 	 *
@@ -226,4 +242,25 @@ public class CollisionDetection {
 		}
 		return map.get(x, y);
 	}
+
+	/**
+	 * Check if there is collision on the line between two locations. The
+	 * locations on the line are the points of
+	 * {@link Line#renderLine(int, int, int, int)}.
+	 *
+	 * @param x1
+	 *   Start X coordinate.
+	 * @param y1
+	 *   Start Y coordinate.
+	 * @param x2
+	 *   End X coordinate.
+	 * @param y2
+	 *   End Y coordinate.
+	 * @return
+	 *   {@code true} if any location on the line is a collision tile, or
+	 *   outside the map, otherwise {@code false}.
+	 */
+	public boolean collidesOnLine(final int x1, final int y1, final int x2, final int y2) {
+		return map.collidesOnLine(x1, y1, x2, y2);
+	}
 }
@@ -15,19 +15,24 @@ package games.stendhal.common;
 
 
 import java.awt.geom.Rectangle2D;
-import java.util.BitSet;
+import java.util.Arrays;
 
 import games.stendhal.common.tiled.LayerDefinition;
 
 
 /**
- * A map containing collision information.
+ * A map containing collision information. The nodes are stored row by row
+ * in a bitmap of longs, so that rectangle tests can check up to 64 nodes of
+ * a row at once.
  */
 public class CollisionMap {
 
 	private final int width;
 	private final int height;
-	private final BitSet[] colls;
+	/** Number of longs used for a row. */
+	private final int rowWords;
+	/** Collision bits, row by row. Bit x % 64 of word x / 64 of a row is node x. */
+	private final long[] bits;
 
 	/**
 	 * Creates a new empty collision map.
@@ -40,11 +45,8 @@ public class CollisionMap {
 	public CollisionMap(final int width, final int height) {
 		this.width = width;
 		this.height = height;
-		colls = new BitSet[width];
-		for (int i = 0; i < width; i++) {
-			colls[i] = new BitSet();
-		}
-
+		rowWords = (width + 63) >>> 6;
+		bits = new long[rowWords * height];
 	}
 
 	/**
@@ -86,14 +88,18 @@ public class CollisionMap {
 	 * @param j
 	 *   Node Y coordinate.
 	 * @return
-	 *   {@code true} if node has collision.
+	 *   {@code true} if node has collision, {@code false} if it does not or
+	 *   is outside the map.
 	 */
 	public boolean get(final int i, final int j) {
-		return colls[i].get(j);
+		if (!contains(i, j)) {
+			return false;
+		}
+		return (bits[j * rowWords + (i >>> 6)] & (1L << i)) != 0;
 	}
 
 	/**
-	 * Sets a collision node.
+	 * Sets a collision node. Nodes outside the map are ignored.
 	 *
 	 * @param i
 	 *   Node X coordinate.
@@ -101,24 +107,34 @@ public class CollisionMap {
 	 *   Node Y coordinate.
 	 */
 	public void set(final int i, final int j) {
-		colls[i].set(j);
+		if (!contains(i, j)) {
+			return;
+		}
+		bits[j * rowWords + (i >>> 6)] |= 1L << i;
 	}
 
 	/**
-	 * Sets collision for a rectangle area.
+	 * Sets collision for a rectangle area. Parts of the area outside the map
+	 * are ignored.
 	 *
 	 * @param shape
 	 *   Area to be set.
 	 */
 	public void set(final Rectangle2D shape) {
-		int y = (int) shape.getY();
-		for (int x = (int) shape.getX(); x < shape.getX() + shape.getWidth(); x++) {
-			colls[x].set(y, (int) (y + shape.getHeight()));
+		final int y = (int) shape.getY();
+		final int x = (int) shape.getX();
+		final int endY = Math.min((int) (y + shape.getHeight()), height);
+		final int endX = Math.min((int) Math.ceil(shape.getX() + shape.getWidth()), width);
+		for (int row = Math.max(y, 0); row < endY; row++) {
+			final int offset = row * rowWords;
+			for (int i = Math.max(x, 0); i < endX; i++) {
+				bits[offset + (i >>> 6)] |= 1L << i;
+			}
 		}
 	}
 
 	/**
-	 * Removes collision from a node.
+	 * Removes collision from a node. Nodes outside the map are ignored.
 	 *
 	 * @param i
 	 *   Node X coordinate.
@@ -126,16 +142,33 @@ public class CollisionMap {
 	 *   Node Y coordinate.
 	 */
 	public void unset(final int i, final int k) {
-		colls[i].clear(k);
+		if (!contains(i, k)) {
+			return;
+		}
+		bits[k * rowWords + (i >>> 6)] &= ~(1L << i);
+	}
+
+	/**
+	 * Checks if a node is inside the map. The rows are padded to full longs,
+	 * so an X coordinate past the width would otherwise address padding bits
+	 * or the next row.
+	 *
+	 * @param i
+	 *   Node X coordinate.
+	 * @param j
+	 *   Node Y coordinate.
+	 * @return
+	 *   {@code true} if the node is inside the map.
+	 */
+	private boolean contains(final int i, final int j) {
+		return (i >= 0) && (i < width) && (j >= 0) && (j < height);
 	}
 
 	/**
 	 * Removes all collision from the map.
 	 */
 	public void clear() {
-		for (int i = 0; i < this.width; i++) {
-			colls[i].clear();
-		}
+		Arrays.fill(bits, 0L);
 	}
 
 	/**
@@ -161,12 +194,89 @@ public class CollisionMap {
 			return true;
 		}
 
-		final BitSet result = new BitSet();
-		for (int i = x; i < x + width; i++) {
-			result.or(colls[i]);
+		if (width <= 0) {
+			return false;
 		}
+		for (int row = y; row < y + height; row++) {
+			if (collidesInRow(row, x, x + width)) {
+				return true;
+			}
+		}
+		return false;
+	}
 
-		return !result.get(y, y + height).isEmpty();
+	/**
+	 * Checks for collision in a part of a row. The coordinates must be
+	 * inside the map.
+	 *
+	 * @param row
+	 *   Node Y coordinate.
+	 * @param from
+	 *   First node X coordinate.
+	 * @param to
+	 *   Node X coordinate after the last checked node. Must be greater than
+	 *   <code>from</code>.
+	 * @return
+	 *   {@code true} if collision is found in the span.
+	 */
+	private boolean collidesInRow(final int row, final int from, final int to) {
+		final int offset = row * rowWords;
+		final int first = offset + (from >>> 6);
+		final int last = offset + ((to - 1) >>> 6);
+		final long firstMask = -1L << from;
+		// shifting by -to keeps the bits below to % 64, or all bits at word ends
+		final long lastMask = -1L >>> -to;
+		if (first == last) {
+			return (bits[first] & firstMask & lastMask) != 0;
+		}
+		if ((bits[first] & firstMask) != 0) {
+			return true;
+		}
+		for (int i = first + 1; i < last; i++) {
+			if (bits[i] != 0) {
+				return true;
+			}
+		}
+		return (bits[last] & lastMask) != 0;
+	}
+
+	/**
+	 * Checks for collision on the line between two nodes. The nodes on the
+	 * line are the same as the points of
+	 * {@link Line#renderLine(int, int, int, int)}. Nodes outside the map
+	 * count as collision.
+	 *
+	 * @param x1
+	 *   Start node X coordinate.
+	 * @param y1
+	 *   Start node Y coordinate.
+	 * @param x2
+	 *   End node X coordinate.
+	 * @param y2
+	 *   End node Y coordinate.
+	 * @return
+	 *   {@code true} if any node on the line has collision.
+	 */
+	public boolean collidesOnLine(final int x1, final int y1, final int x2, final int y2) {
+		final int deltax = x2 - x1;
+		final int deltay = y2 - y1;
+		final int steps = Math.max(Math.abs(deltax), Math.abs(deltay));
+		if (steps == 0) {
+			return collidesOrOutside(x1, y1);
+		}
+		for (int step = 0; step <= steps; step++) {
+			if (collidesOrOutside(x1 + (deltax * step) / steps, y1 + (deltay * step) / steps)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean collidesOrOutside(final int x, final int y) {
+		if ((x < 0) || (x >= width) || (y < 0) || (y >= height)) {
+			return true;
+		}
+		return get(x, y);
 	}
 
 	/**
@@ -37,6 +37,14 @@ public class Testing {
 	public static final boolean COMBAT =
 			(System.getProperty("testing.combat") != null);
 
+	/** Cross-checks cached combat values against a full recalculation */
+	public static final boolean COMBAT_STATS =
+			(System.getProperty("testing.combatstats") != null);
+
+	/** Cross-checks item lookups by name against a scan of the slots */
+	public static final boolean INVENTORY =
+			(System.getProperty("testing.inventory") != null);
+
 	/** Testing switch for entity movement */
 	public static final boolean MOVEMENT =
 			(System.getProperty("testing.movement") != null);
@@ -36,6 +36,9 @@ public final class ConversationParser extends ErrorBuffer {
 	/** A cache to hold pre-parsed matching Sentences. */
 	private static Map<String, Sentence> matchingSentenceCache = new HashMap<String, Sentence>();
 
+	/** A cache to hold recently parsed Sentences. */
+	private static final SentenceCache sentenceCache = new SentenceCache(1024);
+
 	/** Tokenizer to split a sentence into words */
 	private final transient StringTokenizer tokenizer;
 
@@ -206,13 +209,34 @@ public final class ConversationParser extends ErrorBuffer {
 	}
 
 	/**
-	 * Parse the given text sentence.
+	 * Parse the given text sentence. Recently parsed sentences are taken from
+	 * a cache, and are shared between callers, so they must not be modified.
 	 *
 	 * @param text
 	 * @param ctx
 	 * @return the parsed text
 	 */
 	public static Sentence parse(final String text, final ConversationContext ctx) {
+		return sentenceCache.parse(text, ctx);
+	}
+
+	/**
+	 * Get the cache of parsed sentences.
+	 *
+	 * @return sentence cache
+	 */
+	public static SentenceCache getSentenceCache() {
+		return sentenceCache;
+	}
+
+	/**
+	 * Parse the given text sentence without using the sentence cache.
+	 *
+	 * @param text
+	 * @param ctx
+	 * @return a new parsed Sentence
+	 */
+	static Sentence parseText(final String text, final ConversationContext ctx) {
 		String txt;
 
 		if (text == null) {
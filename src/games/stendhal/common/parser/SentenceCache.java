@@ -0,0 +1,175 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.common.parser;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of parsed sentences, keyed by the raw text and the
+ * conversation context.
+ * <p>
+ * Players send the same few phrases over and over again, so most chat lines
+ * can be answered with a parsed sentence from this cache. The cached Sentence
+ * objects are shared between all callers and must not be modified. Parse
+ * results depend on the word list, so entries parsed before the word list
+ * changed are parsed again.
+ * <p>
+ * The cache can be used from several threads.
+ */
+public final class SentenceCache {
+	/** Longer texts are parsed every time. */
+	static final int MAX_TEXT_LENGTH = 128;
+
+	private final Map<Key, Entry> cache;
+	private long hits;
+	private long misses;
+
+	/**
+	 * Text and conversation context of a parse request.
+	 */
+	private static final class Key {
+		private final String text;
+		private final ConversationContext context;
+
+		private Key(final String text, final ConversationContext context) {
+			this.text = text;
+			this.context = context;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * text.hashCode() + context.hashCode();
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			return text.equals(other.text) && context.equals(other.context);
+		}
+	}
+
+	/**
+	 * A parsed sentence and the word list version it was parsed with.
+	 */
+	private static final class Entry {
+		private final Sentence sentence;
+		private final int wordListVersion;
+
+		private Entry(final Sentence sentence, final int wordListVersion) {
+			this.sentence = sentence;
+			this.wordListVersion = wordListVersion;
+		}
+	}
+
+	/**
+	 * Create a new SentenceCache.
+	 *
+	 * @param capacity maximum number of cached sentences
+	 */
+	SentenceCache(final int capacity) {
+		cache = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Key, Entry> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Get the parsed form of a text, parsing it if it is not cached yet.
+	 *
+	 * @param text text to parse
+	 * @param ctx conversation context. Contexts for matching are not cached,
+	 * 	because the sentences created with them get modified
+	 * @return parsed sentence
+	 */
+	Sentence parse(final String text, final ConversationContext ctx) {
+		if ((text == null) || (ctx == null) || ctx.isForMatching() || (text.length() > MAX_TEXT_LENGTH)) {
+			return ConversationParser.parseText(text, ctx);
+		}
+
+		// Use a private copy of the context, so that later changes of the
+		// callers' context can not affect the shared sentence.
+		final Key key = new Key(text, copyContext(ctx));
+		final int version = WordList.getInstance().getVersion();
+		synchronized (this) {
+			final Entry entry = cache.get(key);
+			if ((entry != null) && (entry.wordListVersion == version)) {
+				hits++;
+				return entry.sentence;
+			}
+			misses++;
+		}
+
+		// parse outside the lock
+		final Sentence sentence = ConversationParser.parseText(text, key.context);
+		final Entry entry = new Entry(sentence, version);
+		synchronized (this) {
+			cache.put(key, entry);
+		}
+		return sentence;
+	}
+
+	/**
+	 * Get the number of requests answered from the cache.
+	 *
+	 * @return number of cache hits
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Get the number of requests that needed parsing.
+	 *
+	 * @return number of cache misses
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Get the number of cached sentences.
+	 *
+	 * @return cache size
+	 */
+	public synchronized int getSize() {
+		return cache.size();
+	}
+
+	/**
+	 * Remove all cached sentences and reset the counters.
+	 */
+	public synchronized void clear() {
+		cache.clear();
+		hits = 0;
+		misses = 0;
+	}
+
+	private static ConversationContext copyContext(final ConversationContext ctx) {
+		final ConversationContext copy = new ConversationContext();
+		copy.setForMatching(ctx.isForMatching());
+		copy.setMergeExpressions(ctx.getMergeExpressions());
+		copy.setIgnoreIgnorable(ctx.getIgnoreIgnorable());
+		copy.setState(ctx.getState());
+		return copy;
+	}
+}
@@ -59,6 +59,9 @@ final public class WordList {
 	// We keep house holding the usage of registered subject names (see registerSubjectName).
 	private Map<String, Integer> subjectRefCount = new HashMap<String, Integer>();
 
+	/** Counts the changes that can affect parse results. */
+	private int version;
+
 	/** instance variable with package protection because of FindBugs hint */
 	static private WordList instance;
 
@@ -250,6 +253,7 @@ final public class WordList {
 	 */
 	private void addEntry(final String key, final WordEntry entry) {
 		words.put(trimWord(key), entry);
+		version++;
 
 		// store plural and associate with singular form
 		if ((entry.getPlurSing() != null)
@@ -524,10 +528,11 @@ final public class WordList {
 	 * @param typeString
 	 */
 	public void registerName(final String name, final String typeString) {
+		version++;
 		// parse item name without merging Expression entries
 		final ConversationContext ctx = new ConversationContext();
 		ctx.setMergeExpressions(false);
-		final Sentence parsed = ConversationParser.parse(name, ctx);
+		final Sentence parsed = ConversationParser.parseText(name, ctx);
 
 		Expression lastExpr = null;
 		boolean prepositionSeen = false;
@@ -613,10 +618,11 @@ final public class WordList {
 	 * @param name
 	 */
 	private void unregisterName(final String name) {
+		version++;
 		// parse item name without merging Expression entries
 		final ConversationContext ctx = new ConversationContext();
 		ctx.setMergeExpressions(false);
-		final Sentence parsed = ConversationParser.parse(name, ctx);
+		final Sentence parsed = ConversationParser.parseText(name, ctx);
 
 		// remove compound names
 		if (parsed.expressions.size() > 1) {
@@ -714,6 +720,7 @@ final public class WordList {
 			newEntry.setType(new ExpressionType(VERB_DYNAMIC));
 
 			words.put(key, newEntry);
+			version++;
 		/*
 		} else if (!checkNameCompatibleLastType(entry, ExpressionType.VERB)) {
 			logger.warn("verb name already registered with incompatible expression type: " +
@@ -747,6 +754,18 @@ final public class WordList {
 		return entry;
 	}
 
+	/**
+	 * Get a counter that changes every time the word list changes in a way
+	 * that can affect parse results. Words that are added while parsing
+	 * unknown input do not count, as they are parsed the same way
+	 * afterwards.
+	 *
+	 * @return modification counter
+	 */
+	int getVersion() {
+		return version;
+	}
+
 	/**
 	 * Return number of word entries.
 	 * @return number of entries
@@ -0,0 +1,125 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.server.core.config.ZonesXMLLoader.ZoneDesc;
+import games.stendhal.server.core.config.zone.ZoneMapCache;
+import games.stendhal.server.core.config.zone.ZoneMapData;
+import games.stendhal.server.core.engine.StendhalRPWorld;
+
+/**
+ * Loads zones in two stages. The maps are read and encoded on worker
+ * threads, and the zones are created and configured on the calling thread
+ * in the order they were added. Workers only run a limited number of maps
+ * ahead of the configuration, so that few prepared maps wait in memory.
+ */
+final class ParallelZoneLoader {
+	private static final Logger logger = Logger.getLogger(ParallelZoneLoader.class);
+
+	private final ZoneMapCache cache;
+	private final List<Task> tasks = new ArrayList<Task>();
+
+	/**
+	 * A zone to load.
+	 */
+	private static final class Task {
+		private final ZonesXMLLoader loader;
+		private final ZoneDesc desc;
+		private Future<ZoneMapData> map;
+
+		private Task(final ZonesXMLLoader loader, final ZoneDesc desc) {
+			this.loader = loader;
+			this.desc = desc;
+		}
+	}
+
+	/**
+	 * Creates a new ParallelZoneLoader.
+	 *
+	 * @param cache cache of prepared maps
+	 */
+	ParallelZoneLoader(final ZoneMapCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Adds zones to load.
+	 *
+	 * @param loader loader that configures the zones
+	 * @param zones zone descriptors
+	 */
+	void add(final ZonesXMLLoader loader, final List<ZoneDesc> zones) {
+		for (final ZoneDesc desc : zones) {
+			tasks.add(new Task(loader, desc));
+		}
+	}
+
+	/**
+	 * Loads all added zones.
+	 */
+	void run() {
+		final int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+		final ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+			final Thread thread = new Thread(runnable, "zone loader");
+			thread.setDaemon(true);
+			return thread;
+		});
+		final int ahead = 2 * threads;
+		int submitted = 0;
+		try {
+			for (int i = 0; i < tasks.size(); i++) {
+				while ((submitted < tasks.size()) && (submitted <= i + ahead)) {
+					submit(executor, tasks.get(submitted));
+					submitted++;
+				}
+				final Task task = tasks.get(i);
+				final String name = task.desc.getName();
+				final ZoneMapData map;
+				try {
+					map = task.map.get();
+				} catch (final ExecutionException e) {
+					logger.error("Error loading zone: " + name, e.getCause());
+					continue;
+				} finally {
+					task.map = null;
+				}
+
+				logger.info("Loading zone: " + name);
+				try {
+					task.loader.configure(task.desc, map);
+				} catch (final Exception e) {
+					logger.error("Error loading zone: " + name, e);
+				}
+			}
+		} catch (final InterruptedException e) {
+			logger.error("Interrupted while loading zones", e);
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+			tasks.clear();
+		}
+	}
+
+	private void submit(final ExecutorService executor, final Task task) {
+		final String file = StendhalRPWorld.MAPS_FOLDER + task.desc.getFile();
+		task.map = executor.submit(() -> cache.load(file));
+	}
+}
@@ -24,6 +24,8 @@ import org.apache.log4j.Logger;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
+import games.stendhal.server.core.config.zone.ZoneMapCache;
+
 /**
  * Load and configure zones via an XML configuration file.
  */
@@ -57,19 +59,21 @@ public class ZoneGroupsXMLLoader extends DefaultHandler {
 		final GroupsXMLLoader groupsLoader = new GroupsXMLLoader(uri);
 		final List<URI> zoneGroups = groupsLoader.load();
 
-		// Load each group
+		// Read each group, and load the zones of all groups together
+		final ParallelZoneLoader zoneLoader = new ParallelZoneLoader(ZoneMapCache.create());
 		for (final URI tempUri : zoneGroups) {
 			LOGGER.debug("Loading zone group [" + tempUri + "]");
 
 			final ZonesXMLLoader loader = new ZonesXMLLoader(tempUri);
 
 			try {
-				loader.load();
+				zoneLoader.add(loader, loader.readZones());
 			} catch (final SAXException ex) {
 				LOGGER.error("Error loading zone group: " + tempUri, ex);
 			} catch (final IOException ex) {
 				LOGGER.error("Error loading zone group: " + tempUri, ex);
 			}
 		}
+		zoneLoader.run();
 	}
 }
@@ -31,8 +31,6 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.xml.sax.SAXException;
 
-import games.stendhal.common.tiled.LayerDefinition;
-import games.stendhal.common.tiled.StendhalMapStructure;
 import games.stendhal.server.core.config.zone.AttributesXMLReader;
 import games.stendhal.server.core.config.zone.ConfiguratorXMLReader;
 import games.stendhal.server.core.config.zone.EntitySetupXMLReader;
@@ -40,9 +38,9 @@ import games.stendhal.server.core.config.zone.PortalSetupXMLReader;
 import games.stendhal.server.core.config.zone.RegionNameSubstitutionHelper;
 import games.stendhal.server.core.config.zone.SetupDescriptor;
 import games.stendhal.server.core.config.zone.SetupXMLReader;
-import games.stendhal.server.core.config.zone.TMXLoader;
+import games.stendhal.server.core.config.zone.ZoneMapCache;
+import games.stendhal.server.core.config.zone.ZoneMapData;
 import games.stendhal.server.core.engine.SingletonRepository;
-import games.stendhal.server.core.engine.StendhalRPWorld;
 import games.stendhal.server.core.engine.StendhalRPZone;
 
 /**
@@ -100,6 +98,24 @@ public final class ZonesXMLLoader {
 	 *             If the resource was not found.
 	 */
 	public void load() throws SAXException, IOException {
+		final ParallelZoneLoader zoneLoader = new ParallelZoneLoader(ZoneMapCache.create());
+		zoneLoader.add(this, readZones());
+		zoneLoader.run();
+	}
+
+	/**
+	 * Reads the descriptors of the zones to be loaded from the zone group
+	 * file.
+	 *
+	 * @return zone descriptors
+	 * @throws SAXException
+	 *             If a SAX error occurred.
+	 * @throws IOException
+	 *             If an I/O error occurred.
+	 * @throws FileNotFoundException
+	 *             If the resource was not found.
+	 */
+	List<ZoneDesc> readZones() throws SAXException, IOException {
 		final InputStream in = ZonesXMLLoader.class.getResourceAsStream(uri.getPath());
 
 		if (in == null) {
@@ -107,7 +123,7 @@ public final class ZonesXMLLoader {
 		}
 
 		try {
-			load(in);
+			return readZones(in);
 		} finally {
 			in.close();
 		}
@@ -125,6 +141,24 @@ public final class ZonesXMLLoader {
 	 *             If an I/O error occurred.
 	 */
 	protected void load(final InputStream in) throws SAXException, IOException {
+		final ParallelZoneLoader zoneLoader = new ParallelZoneLoader(ZoneMapCache.create());
+		zoneLoader.add(this, readZones(in));
+		zoneLoader.run();
+	}
+
+	/**
+	 * Reads the descriptors of the zones to be loaded from a config file.
+	 *
+	 * @param in
+	 *            The config file stream.
+	 * @return zone descriptors
+	 *
+	 * @throws SAXException
+	 *             If a SAX error occurred.
+	 * @throws IOException
+	 *             If an I/O error occurred.
+	 */
+	private List<ZoneDesc> readZones(final InputStream in) throws SAXException, IOException {
 		final Document doc = XMLUtil.parse(in);
 
 		// just to speed up starting of the server in while developing
@@ -134,9 +168,7 @@ public final class ZonesXMLLoader {
 		// if there is a problem with the zone
 		final String regex = System.getProperty("stendhal.zone.regex", ".*");
 
-		/*
-		 * Load each zone
-		 */
+		final List<ZoneDesc> zones = new ArrayList<ZoneDesc>();
 		for (final Element element : XMLUtil.getElements(doc.getDocumentElement(), "zone")) {
 			final ZoneDesc zdesc = readZone(element);
 
@@ -148,38 +180,41 @@ public final class ZonesXMLLoader {
 			if (!name.matches(regex) && !name.equals("int_semos_townhall") && !name.equals("int_semos_guard_house")) {
 				continue;
 			}
+			zones.add(zdesc);
+		}
+		return zones;
+	}
 
-			logger.info("Loading zone: " + name);
-
-			try {
-				final StendhalMapStructure zonedata = TMXLoader.load(StendhalRPWorld.MAPS_FOLDER
-						+ zdesc.getFile());
-
-				if (verifyMap(zdesc, zonedata)) {
-					final StendhalRPZone zone = load(zdesc, zonedata);
+	/**
+	 * Creates and configures a zone.
+	 *
+	 * @param zdesc zone descriptor
+	 * @param zonedata prepared map of the zone
+	 * @throws SAXException if any xml parsing error happened
+	 * @throws IOException if any IO error happened
+	 */
+	void configure(final ZoneDesc zdesc, final ZoneMapData zonedata) throws SAXException, IOException {
+		if (verifyMap(zdesc, zonedata)) {
+			final StendhalRPZone zone = load(zdesc, zonedata);
 
-					/*
-					 * Setup Descriptors
-					 */
-					final Iterator<SetupDescriptor> diter = zdesc.getDescriptors();
+			/*
+			 * Setup Descriptors
+			 */
+			final Iterator<SetupDescriptor> diter = zdesc.getDescriptors();
 
-					while (diter.hasNext()) {
-						diter.next().setup(zone);
-					}
-					// Zone configurators can add creatures, so this should be
-					// done after them
-					zone.calculateDangerLevel();
-				}
-			} catch (final Exception ex) {
-				logger.error("Error loading zone: " + name, ex);
+			while (diter.hasNext()) {
+				diter.next().setup(zone);
 			}
+			// Zone configurators can add creatures, so this should be
+			// done after them
+			zone.calculateDangerLevel();
 		}
 	}
 
 	private static final String[] REQUIRED_LAYERS = { "0_floor", "1_terrain",
 			"2_object", "objects", "collision", "protection" };
 
-	private boolean verifyMap(final ZoneDesc zdesc, final StendhalMapStructure zonedata) {
+	private boolean verifyMap(final ZoneDesc zdesc, final ZoneMapData zonedata) {
 		for (final String layer : REQUIRED_LAYERS) {
 			if (!zonedata.hasLayer(layer)) {
 				logger.error("Required layer " + layer + " missing in zone "
@@ -201,7 +236,7 @@ public final class ZonesXMLLoader {
 	 *
 	 *
 	 */
-	protected StendhalRPZone load(final ZoneDesc desc, final StendhalMapStructure zonedata)
+	protected StendhalRPZone load(final ZoneDesc desc, final ZoneMapData zonedata)
 			throws SAXException, IOException {
 		final String name = desc.getName();
 
@@ -212,24 +247,16 @@ public final class ZonesXMLLoader {
 			zone = createZone(desc, name);
 		}
 
-		zone.addTilesets(name + ".tilesets", zonedata.getTilesets());
-		zone.addLayer(name + ".0_floor", zonedata.getLayer("0_floor"));
-		zone.addLayer(name + ".1_terrain", zonedata.getLayer("1_terrain"));
-		zone.addLayer(name + ".2_object", zonedata.getLayer("2_object"));
-
-		// Roof layers are optional
-		loadOptionalLayer(zone, zonedata, "3_roof");
-		loadOptionalLayer(zone, zonedata, "4_roof_add");
-		// Effect layers are optional too
-		loadOptionalLayer(zone, zonedata, "blend_ground");
-		loadOptionalLayer(zone, zonedata, "blend_roof");
-		// alternative floor layer for clients that support parallax backgrounds
-		loadOptionalLayer(zone, zonedata, "0_floor_parallax");
+		zone.addTilesets(name + ".tilesets", zonedata.getEncodedTilesets());
+		// includes the optional roof, effect and parallax layers if present
+		for (final String layer : zonedata.getClientLayers()) {
+			zone.addLayer(name + "." + layer, zonedata.getEncodedLayer(layer));
+		}
 
 		zone.addCollisionLayer(name + ".collision",
-				zonedata.getLayer("collision"));
+				zonedata.getServerLayer("collision"), zonedata.getEncodedLayer("collision"));
 		zone.addProtectionLayer(name + ".protection",
-				zonedata.getLayer("protection"));
+				zonedata.getServerLayer("protection"), zonedata.getEncodedLayer("protection"));
 
 		if (desc.isInterior()) {
 			zone.setPosition();
@@ -252,27 +279,11 @@ public final class ZonesXMLLoader {
 			logger.error(e, e);
 		}
 
-		zone.populate(zonedata.getLayer("objects"));
+		zone.populate(zonedata.getServerLayer("objects"));
 
 		return zone;
 	}
 
-	/**
-	 * Load an optional layer, if present, to a zone.
-	 *
-	 * @param zone
-	 * @param zonedata
-	 * @param layerName
-	 * @throws IOException
-	 */
-	private void loadOptionalLayer(StendhalRPZone zone,
-			StendhalMapStructure zonedata, String layerName) throws IOException {
-		LayerDefinition layer = zonedata.getLayer(layerName);
-		if (layer != null) {
-			zone.addLayer(zone.getName() + "." + layerName, layer);
-		}
-	}
-
 	@SuppressWarnings("unchecked")
 	private StendhalRPZone createZone(final ZoneDesc desc, final String name)  {
 		try {
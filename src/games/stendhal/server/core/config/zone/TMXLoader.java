@@ -14,6 +14,7 @@ package games.stendhal.server.core.config.zone;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -292,26 +293,48 @@ public class TMXLoader {
 	}
 
 	public StendhalMapStructure readMap(final String filename) throws Exception {
+		return readMap(filename, openStream(filename));
+	}
+
+	/**
+	 * Reads a map from a stream.
+	 *
+	 * @param filename name of the map file, used for resolving references
+	 * 	to tilesets, and for recognizing compressed files
+	 * @param in stream with the content of the map file
+	 * @return map
+	 * @throws Exception if the map cannot be read
+	 */
+	public StendhalMapStructure readMap(final String filename, InputStream in) throws Exception {
 		xmlPath = filename.substring(0,
 				filename.lastIndexOf(File.separatorChar) + 1);
 
-		InputStream is = getClass().getClassLoader().getResourceAsStream(
-				filename);
-
-		if (is == null) {
-			final String xmlFile = makeUrl(filename);
-			// xmlPath = makeUrl(xmlPath);
-
-			final URL url = new URL(xmlFile);
-			is = url.openStream();
-		}
-
 		// Wrap with GZIP decoder for .tmx.gz files
 		if (filename.endsWith(".gz")) {
-			is = new GZIPInputStream(is);
+			in = new GZIPInputStream(in);
 		}
 
-		return unmarshal(is);
+		return unmarshal(in);
+	}
+
+	/**
+	 * Opens a map file.
+	 *
+	 * @param filename name of the map file, either a resource in the class
+	 * 	path or a file
+	 * @return stream with the content of the file, as it is stored
+	 * @throws IOException if the file cannot be opened
+	 */
+	public static InputStream openStream(final String filename) throws IOException {
+		final InputStream is = TMXLoader.class.getClassLoader().getResourceAsStream(
+				filename);
+
+		if (is != null) {
+			return is;
+		}
+		final String xmlFile = makeUrl(filename);
+		final URL url = new URL(xmlFile);
+		return url.openStream();
 	}
 
 	public static void main(final String[] args) throws Exception {
@@ -0,0 +1,261 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.config.zone;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import marauroa.common.crypto.Hash;
+import marauroa.common.net.InputSerializer;
+import marauroa.common.net.OutputSerializer;
+
+/**
+ * Loads the maps of the zones, and keeps the prepared maps in a cache
+ * directory. A cached map is used as long as the checksum of its TMX file
+ * is unchanged, so that unchanged maps need not be parsed again on the next
+ * server start.
+ * <p>
+ * The cache is in the directory <code>cache/zones</code> in the working
+ * directory of the server. It can be moved with
+ * <code>-Dstendhal.zone.cache=&lt;directory&gt;</code>, and disabled with
+ * <code>-Dstendhal.zone.cache=none</code>.
+ * <p>
+ * The cache files are trusted, so on systems with POSIX permissions the
+ * directory is created accessible by the owner only. The cache is disabled
+ * if the directory belongs to another user or can be written by others, and
+ * files belonging to another user are ignored.
+ */
+public final class ZoneMapCache {
+	private static final Logger logger = Logger.getLogger(ZoneMapCache.class);
+
+	/**
+	 * Version of the format of the cache files. Increase it on changes to
+	 * the format, or to the way maps are read or encoded.
+	 */
+	private static final int FORMAT_VERSION = 1;
+
+	/** Default cache directory, relative to the working directory. */
+	private static final String DEFAULT_DIRECTORY = "cache/zones";
+
+	/** Cache directory, or <code>null</code> if caching is disabled. */
+	private final File directory;
+
+	/**
+	 * Creates a new ZoneMapCache.
+	 *
+	 * @param directory cache directory, or <code>null</code> to disable
+	 * 	caching
+	 */
+	public ZoneMapCache(final File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Creates a ZoneMapCache configured by the system property
+	 * <code>stendhal.zone.cache</code>.
+	 *
+	 * @return ZoneMapCache
+	 */
+	public static ZoneMapCache create() {
+		final String dir = System.getProperty("stendhal.zone.cache", DEFAULT_DIRECTORY);
+		if ("none".equals(dir)) {
+			return new ZoneMapCache(null);
+		}
+		final File directory = new File(dir);
+		try {
+			if (!directory.isDirectory()) {
+				createDirectory(directory.toPath());
+			}
+			if (!isPrivate(directory.toPath())) {
+				logger.warn("Not using the zone cache directory " + directory
+						+ ", because it belongs to another user or can be written by others");
+				return new ZoneMapCache(null);
+			}
+		} catch (final IOException e) {
+			logger.warn("Cannot create the zone cache directory " + directory + ": " + e);
+			return new ZoneMapCache(null);
+		}
+		return new ZoneMapCache(directory);
+	}
+
+	/**
+	 * Creates a directory and its missing parents. The directory itself is
+	 * made accessible by the owner only, if the file system supports POSIX
+	 * permissions.
+	 *
+	 * @param directory directory to create
+	 * @throws IOException if the directory cannot be created
+	 */
+	private static void createDirectory(final Path directory) throws IOException {
+		final Path parent = directory.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		if (isPosix()) {
+			Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(
+					PosixFilePermissions.fromString("rwx------")));
+		} else {
+			Files.createDirectory(directory);
+		}
+	}
+
+	/**
+	 * Checks that a directory belongs to the user running the server, and
+	 * cannot be written by others. Without POSIX permissions, every
+	 * directory is accepted.
+	 *
+	 * @param directory directory to check
+	 * @return <code>true</code> if the directory can be trusted
+	 * @throws IOException if the attributes of the directory cannot be read
+	 */
+	static boolean isPrivate(final Path directory) throws IOException {
+		if (!isPosix()) {
+			return true;
+		}
+		final Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(directory);
+		return isOwnedByServer(directory)
+				&& !permissions.contains(PosixFilePermission.GROUP_WRITE)
+				&& !permissions.contains(PosixFilePermission.OTHERS_WRITE);
+	}
+
+	/**
+	 * Checks that a file belongs to the user running the server. Without
+	 * POSIX permissions, every file is accepted.
+	 *
+	 * @param file file to check
+	 * @return <code>true</code> if the file belongs to the server
+	 * @throws IOException if the owner of the file cannot be read
+	 */
+	private static boolean isOwnedByServer(final Path file) throws IOException {
+		if (!isPosix()) {
+			return true;
+		}
+		final UserPrincipal owner = Files.getOwner(file);
+		return owner.getName().equals(System.getProperty("user.name"));
+	}
+
+	private static boolean isPosix() {
+		return FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+	}
+
+	/**
+	 * Loads a map. This method is thread safe.
+	 *
+	 * @param filename name of the TMX file
+	 * @return prepared map
+	 * @throws Exception if the map cannot be read
+	 */
+	public ZoneMapData load(final String filename) throws Exception {
+		if (directory == null) {
+			return ZoneMapData.create(TMXLoader.load(filename));
+		}
+
+		final byte[] tmx = readFully(TMXLoader.openStream(filename));
+		final String checksum = checksum(tmx);
+		final File file = new File(directory, filename.replaceAll("[^A-Za-z0-9_.-]", "_") + ".cache");
+		final ZoneMapData cached = read(file, checksum);
+		if (cached != null) {
+			return cached;
+		}
+
+		final ZoneMapData data = ZoneMapData.create(new TMXLoader().readMap(filename,
+				new ByteArrayInputStream(tmx)));
+		write(file, checksum, data);
+		return data;
+	}
+
+	private static ZoneMapData read(final File file, final String checksum) {
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			if (!isOwnedByServer(file.toPath())) {
+				logger.warn("Ignoring zone cache file " + file + " of another user");
+				return null;
+			}
+		} catch (final IOException e) {
+			logger.warn("Cannot check the owner of zone cache file " + file + ": " + e);
+			return null;
+		}
+		try (InputStream stream = new BufferedInputStream(new FileInputStream(file))) {
+			final InputSerializer in = new InputSerializer(stream);
+			if ((in.readInt() != FORMAT_VERSION) || !checksum.equals(in.readString())) {
+				return null;
+			}
+			return ZoneMapData.readObject(in);
+		} catch (final IOException | RuntimeException e) {
+			logger.warn("Ignoring damaged zone cache file " + file + ": " + e);
+			return null;
+		}
+	}
+
+	private static void write(final File file, final String checksum, final ZoneMapData data) {
+		File temp = null;
+		try {
+			temp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+			try (OutputStream stream = new BufferedOutputStream(new FileOutputStream(temp))) {
+				final OutputSerializer out = new OutputSerializer(stream);
+				out.write(FORMAT_VERSION);
+				out.write(checksum);
+				data.writeObject(out);
+			}
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (final IOException e) {
+			logger.warn("Cannot write zone cache file " + file + ": " + e);
+			if (temp != null && !temp.delete()) {
+				temp.deleteOnExit();
+			}
+		}
+	}
+
+	private static byte[] readFully(final InputStream in) throws IOException {
+		try {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) >= 0) {
+				out.write(buffer, 0, read);
+			}
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+
+	private static String checksum(final byte[] data) {
+		try {
+			return Hash.toHexString(MessageDigest.getInstance("SHA-1").digest(data));
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
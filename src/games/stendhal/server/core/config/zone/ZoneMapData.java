@@ -0,0 +1,201 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.config.zone;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import games.stendhal.common.tiled.LayerDefinition;
+import games.stendhal.common.tiled.StendhalMapStructure;
+import games.stendhal.common.tiled.TileSetDefinition;
+import games.stendhal.server.core.engine.StendhalRPZone;
+import marauroa.common.net.InputSerializer;
+import marauroa.common.net.OutputSerializer;
+
+/**
+ * The map of a zone, prepared for adding it to a zone: the layers sent to
+ * the clients are encoded, and the layers used by the server are decoded.
+ * Preparing a map does not depend on the world, so it can be done in
+ * parallel to the loading of other zones.
+ */
+public final class ZoneMapData {
+	/** Layers sent to the client, in the order they are added to the zone. */
+	private static final String[] CLIENT_LAYERS = { "0_floor", "1_terrain",
+			"2_object", "3_roof", "4_roof_add", "blend_ground", "blend_roof",
+			"0_floor_parallax" };
+
+	private static final String COLLISION = "collision";
+	private static final String PROTECTION = "protection";
+	private static final String OBJECTS = "objects";
+
+	private final List<TileSetDefinition> tilesets;
+	private final byte[] encodedTilesets;
+	/** Encoded layers by layer name. */
+	private final Map<String, byte[]> layers;
+	private final StendhalMapStructure map;
+
+	private ZoneMapData(final StendhalMapStructure map, final byte[] encodedTilesets,
+			final Map<String, byte[]> layers) {
+		this.map = map;
+		this.tilesets = map.getTilesets();
+		this.encodedTilesets = encodedTilesets;
+		this.layers = layers;
+	}
+
+	/**
+	 * Prepares a parsed map.
+	 *
+	 * @param map map structure
+	 * @return prepared map
+	 * @throws IOException if encoding a layer fails
+	 */
+	public static ZoneMapData create(final StendhalMapStructure map) throws IOException {
+		final StendhalMapStructure serverMap = new StendhalMapStructure(map.getWidth(), map.getHeight());
+		for (final TileSetDefinition set : map.getTilesets()) {
+			serverMap.addTileset(set);
+		}
+
+		final Map<String, byte[]> layers = new LinkedHashMap<>();
+		for (final String name : CLIENT_LAYERS) {
+			final LayerDefinition layer = map.getLayer(name);
+			if (layer != null) {
+				layers.put(name, layer.encode());
+			}
+		}
+		for (final String name : new String[] { COLLISION, PROTECTION, OBJECTS }) {
+			final LayerDefinition layer = map.getLayer(name);
+			if (layer != null) {
+				layers.put(name, layer.encode());
+				layer.build();
+				serverMap.addLayer(layer);
+			}
+		}
+		return new ZoneMapData(serverMap, StendhalRPZone.encodeTilesets(map.getTilesets()), layers);
+	}
+
+	/**
+	 * Reads a map written by {@link #writeObject(OutputSerializer)}.
+	 *
+	 * @param in input
+	 * @return prepared map
+	 * @throws IOException if reading fails
+	 */
+	public static ZoneMapData readObject(final InputSerializer in) throws IOException {
+		final StendhalMapStructure map = new StendhalMapStructure(in.readInt(), in.readInt());
+		final int tilesetCount = in.readInt();
+		for (int i = 0; i < tilesetCount; i++) {
+			final TileSetDefinition set = new TileSetDefinition(null, null, 0);
+			set.readObject(in);
+			map.addTileset(set);
+		}
+		final byte[] encodedTilesets = in.readByteArray();
+
+		final Map<String, byte[]> layers = new LinkedHashMap<>();
+		final int layerCount = in.readInt();
+		for (int i = 0; i < layerCount; i++) {
+			final String name = in.readString();
+			final byte[] data = in.readByteArray();
+			layers.put(name, data);
+			if (COLLISION.equals(name) || PROTECTION.equals(name) || OBJECTS.equals(name)) {
+				try {
+					map.addLayer(LayerDefinition.decode(new ByteArrayInputStream(data)));
+				} catch (final ClassNotFoundException e) {
+					throw new IOException(e);
+				}
+			}
+		}
+		return new ZoneMapData(map, encodedTilesets, layers);
+	}
+
+	/**
+	 * Writes the map.
+	 *
+	 * @param out output
+	 * @throws IOException if writing fails
+	 */
+	public void writeObject(final OutputSerializer out) throws IOException {
+		out.write(map.getWidth());
+		out.write(map.getHeight());
+		out.write(tilesets.size());
+		for (final TileSetDefinition set : tilesets) {
+			set.writeObject(out);
+		}
+		out.write(encodedTilesets);
+		out.write(layers.size());
+		for (final Map.Entry<String, byte[]> entry : layers.entrySet()) {
+			out.write(entry.getKey());
+			out.write(entry.getValue());
+		}
+	}
+
+	/**
+	 * Checks if the map has a layer.
+	 *
+	 * @param name layer name
+	 * @return <code>true</code> if the layer exists
+	 */
+	public boolean hasLayer(final String name) {
+		return layers.containsKey(name);
+	}
+
+	/**
+	 * Gets the encoded tilesets to be sent to the client.
+	 *
+	 * @return tilesets encoded by {@link StendhalRPZone#encodeTilesets(List)}
+	 */
+	public byte[] getEncodedTilesets() {
+		return encodedTilesets;
+	}
+
+	/**
+	 * Gets the names of the layers sent to the client, in the order they
+	 * should be added to the zone. The collision and protection layers are
+	 * not included.
+	 *
+	 * @return layer names
+	 */
+	public List<String> getClientLayers() {
+		final List<String> names = new ArrayList<>();
+		for (final String name : CLIENT_LAYERS) {
+			if (layers.containsKey(name)) {
+				names.add(name);
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * Gets an encoded layer.
+	 *
+	 * @param name layer name
+	 * @return layer encoded by {@link LayerDefinition#encode()}, or
+	 * 	<code>null</code> if the map has no such layer
+	 */
+	public byte[] getEncodedLayer(final String name) {
+		return layers.get(name);
+	}
+
+	/**
+	 * Gets a layer used by the server: the collision, protection or objects
+	 * layer.
+	 *
+	 * @param name layer name
+	 * @return decoded layer, or <code>null</code>
+	 */
+	public LayerDefinition getServerLayer(final String name) {
+		return map.getLayer(name);
+	}
+}
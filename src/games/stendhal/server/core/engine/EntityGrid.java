@@ -0,0 +1,434 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import games.stendhal.server.entity.Entity;
+
+/**
+ * A uniform grid over the tiles of a zone, used to look up the entities
+ * occupying an area without walking through every object of the zone.
+ *
+ * Each cell covers a square of {@link #CELL_SIZE} tiles and keeps the entities
+ * whose area overlaps it. Entities outside the grid range (negative or very
+ * large coordinates) are kept in an overflow list that is checked by every
+ * query.
+ *
+ * The grid is not thread safe. StendhalRPZone accesses it only while holding
+ * its own lock.
+ */
+final class EntityGrid {
+	/** log2 of the cell size. */
+	private static final int CELL_SHIFT = 2;
+	/** Width and height of a cell in tiles. */
+	static final int CELL_SIZE = 1 << CELL_SHIFT;
+	/** Upper limit of cells per axis. Anything beyond goes to the overflow list. */
+	private static final int MAX_CELLS = 1024;
+
+	/** Cells in row major order. Lists are created on demand. */
+	private List<Entry>[] cells;
+	private int columns;
+	private int rows;
+	/** Entries that could not be placed in the grid. */
+	private final List<Entry> overflow = new ArrayList<Entry>();
+	/** Registered entities. */
+	private final Map<Entity, Entry> entries = new IdentityHashMap<Entity, Entry>();
+	/** Query counter used to skip entries spanning more than one cell. */
+	private int queryMark;
+
+	/**
+	 * Book keeping data of an indexed entity.
+	 */
+	private static final class Entry {
+		private final Entity entity;
+		private int minCol;
+		private int minRow;
+		private int maxCol;
+		private int maxRow;
+		private boolean outside;
+		private int mark;
+
+		private Entry(final Entity entity) {
+			this.entity = entity;
+		}
+	}
+
+	/**
+	 * Create a new empty grid.
+	 */
+	EntityGrid() {
+		allocate(0, 0);
+	}
+
+	/**
+	 * Make sure that the grid covers an area of the given size, so that
+	 * entities do not trigger rebuilding the grid when added.
+	 *
+	 * @param width width in tiles
+	 * @param height height in tiles
+	 */
+	void ensureCapacity(final int width, final int height) {
+		final int cols = Math.min(MAX_CELLS, (Math.max(width, 0) + CELL_SIZE - 1) >> CELL_SHIFT);
+		final int rws = Math.min(MAX_CELLS, (Math.max(height, 0) + CELL_SIZE - 1) >> CELL_SHIFT);
+		if ((cols > columns) || (rws > rows)) {
+			resize(Math.max(cols, columns), Math.max(rws, rows));
+		}
+	}
+
+	/**
+	 * Add an entity to the grid.
+	 *
+	 * @param entity entity
+	 */
+	void add(final Entity entity) {
+		if (entries.containsKey(entity)) {
+			update(entity);
+			return;
+		}
+		final Entry entry = new Entry(entity);
+		entries.put(entity, entry);
+		computeBounds(entry);
+		place(entry);
+	}
+
+	/**
+	 * Remove an entity from the grid.
+	 *
+	 * @param entity entity
+	 */
+	void remove(final Entity entity) {
+		final Entry entry = entries.remove(entity);
+		if (entry != null) {
+			unplace(entry);
+		}
+	}
+
+	/**
+	 * Update the cells of an entity after its position or size changed.
+	 *
+	 * @param entity entity
+	 */
+	void update(final Entity entity) {
+		final Entry entry = entries.get(entity);
+		if (entry == null) {
+			return;
+		}
+		final int minCol = entry.minCol;
+		final int minRow = entry.minRow;
+		final int maxCol = entry.maxCol;
+		final int maxRow = entry.maxRow;
+		final boolean outside = entry.outside;
+
+		computeBounds(entry);
+		if ((minCol == entry.minCol) && (minRow == entry.minRow) && (maxCol == entry.maxCol)
+				&& (maxRow == entry.maxRow) && (outside == entry.outside)) {
+			return;
+		}
+
+		final int newMinCol = entry.minCol;
+		final int newMinRow = entry.minRow;
+		final int newMaxCol = entry.maxCol;
+		final int newMaxRow = entry.maxRow;
+		final boolean newOutside = entry.outside;
+
+		// remove using the old bounds
+		entry.minCol = minCol;
+		entry.minRow = minRow;
+		entry.maxCol = maxCol;
+		entry.maxRow = maxRow;
+		entry.outside = outside;
+		unplace(entry);
+
+		entry.minCol = newMinCol;
+		entry.minRow = newMinRow;
+		entry.maxCol = newMaxCol;
+		entry.maxRow = newMaxRow;
+		entry.outside = newOutside;
+		place(entry);
+	}
+
+	/**
+	 * Check if an entity is registered in the grid.
+	 *
+	 * @param entity entity
+	 * @return <code>true</code> if the entity is indexed
+	 */
+	boolean contains(final Entity entity) {
+		return entries.containsKey(entity);
+	}
+
+	/**
+	 * Get the number of indexed entities.
+	 *
+	 * @return number of entities
+	 */
+	int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Find an entity that blocks another entity in an area.
+	 *
+	 * @param entity the entity that would be blocked. It is never returned itself
+	 * @param area the area to check
+	 * @return the first blocking entity, or <code>null</code> if there is none
+	 */
+	Entity getObstacle(final Entity entity, final Rectangle2D area) {
+		final int mark = nextMark();
+		final int minCol = Math.max(0, cellOf(area.getX()));
+		final int maxCol = Math.min(columns - 1, cellOf(area.getMaxX()));
+		final int minRow = Math.max(0, cellOf(area.getY()));
+		final int maxRow = Math.min(rows - 1, cellOf(area.getMaxY()));
+
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int col = minCol; col <= maxCol; col++) {
+				final List<Entry> cell = cells[row * columns + col];
+				if (cell != null) {
+					final Entity obstacle = findObstacle(cell, entity, area, mark);
+					if (obstacle != null) {
+						return obstacle;
+					}
+				}
+			}
+		}
+
+		return findObstacle(overflow, entity, area, mark);
+	}
+
+	/**
+	 * Find an entity containing a point.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return an entity at the position, or <code>null</code> if there is none
+	 */
+	Entity getEntityAt(final double x, final double y) {
+		final List<Entry> cell = cellAt(x, y);
+		if (cell != null) {
+			for (final Entry entry : cell) {
+				if (entry.entity.getArea().contains(x, y)) {
+					return entry.entity;
+				}
+			}
+		}
+		for (final Entry entry : overflow) {
+			if (entry.entity.getArea().contains(x, y)) {
+				return entry.entity;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Collect all entities of a given type containing a point.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @param clazz required type of the entities
+	 * @param result list where the found entities are added
+	 */
+	<T extends Entity> void collectEntitiesAt(final double x, final double y, final Class<T> clazz,
+			final List<? super T> result) {
+		final List<Entry> cell = cellAt(x, y);
+		if (cell != null) {
+			collectAt(cell, x, y, clazz, result);
+		}
+		collectAt(overflow, x, y, clazz, result);
+	}
+
+	/**
+	 * Collect all entities whose area intersects a rectangle.
+	 *
+	 * @param area area to check
+	 * @param result list where the found entities are added
+	 */
+	void collectIntersecting(final Rectangle2D area, final List<? super Entity> result) {
+		final int mark = nextMark();
+		final int minCol = Math.max(0, cellOf(area.getX()));
+		final int maxCol = Math.min(columns - 1, cellOf(area.getMaxX()));
+		final int minRow = Math.max(0, cellOf(area.getY()));
+		final int maxRow = Math.min(rows - 1, cellOf(area.getMaxY()));
+
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int col = minCol; col <= maxCol; col++) {
+				final List<Entry> cell = cells[row * columns + col];
+				if (cell != null) {
+					collectIntersecting(cell, area, mark, result);
+				}
+			}
+		}
+		collectIntersecting(overflow, area, mark, result);
+	}
+
+	private static Entity findObstacle(final List<Entry> list, final Entity entity, final Rectangle2D area,
+			final int mark) {
+		for (final Entry entry : list) {
+			if (entry.mark == mark) {
+				continue;
+			}
+			entry.mark = mark;
+			final Entity other = entry.entity;
+			if ((other != entity)
+					&& area.intersects(other.getX(), other.getY(), other.getWidth(), other.getHeight())
+					&& other.isObstacle(entity)) {
+				return other;
+			}
+		}
+		return null;
+	}
+
+	private static <T extends Entity> void collectAt(final List<Entry> list, final double x, final double y,
+			final Class<T> clazz, final List<? super T> result) {
+		for (final Entry entry : list) {
+			final Entity entity = entry.entity;
+			if (clazz.isInstance(entity) && entity.getArea().contains(x, y)) {
+				result.add(clazz.cast(entity));
+			}
+		}
+	}
+
+	private static void collectIntersecting(final List<Entry> list, final Rectangle2D area, final int mark,
+			final List<? super Entity> result) {
+		for (final Entry entry : list) {
+			if (entry.mark == mark) {
+				continue;
+			}
+			entry.mark = mark;
+			final Entity entity = entry.entity;
+			if (area.intersects(entity.getX(), entity.getY(), entity.getWidth(), entity.getHeight())) {
+				result.add(entity);
+			}
+		}
+	}
+
+	private int nextMark() {
+		queryMark++;
+		if (queryMark == 0) {
+			// wrapped around. Clear the old marks so that they can't match
+			for (final Entry entry : entries.values()) {
+				entry.mark = 0;
+			}
+			queryMark = 1;
+		}
+		return queryMark;
+	}
+
+	private List<Entry> cellAt(final double x, final double y) {
+		final int col = cellOf(x);
+		final int row = cellOf(y);
+		if ((col < 0) || (row < 0) || (col >= columns) || (row >= rows)) {
+			return null;
+		}
+		return cells[row * columns + col];
+	}
+
+	private static int cellOf(final double coordinate) {
+		return ((int) Math.floor(coordinate)) >> CELL_SHIFT;
+	}
+
+	private static void computeBounds(final Entry entry) {
+		final Rectangle2D area = entry.entity.getArea();
+		final int x1 = (int) Math.floor(area.getX());
+		final int y1 = (int) Math.floor(area.getY());
+		final int x2 = Math.max(x1, (int) Math.ceil(area.getMaxX()) - 1);
+		final int y2 = Math.max(y1, (int) Math.ceil(area.getMaxY()) - 1);
+
+		entry.minCol = x1 >> CELL_SHIFT;
+		entry.minRow = y1 >> CELL_SHIFT;
+		entry.maxCol = x2 >> CELL_SHIFT;
+		entry.maxRow = y2 >> CELL_SHIFT;
+		entry.outside = (entry.minCol < 0) || (entry.minRow < 0) || (entry.maxCol >= MAX_CELLS)
+				|| (entry.maxRow >= MAX_CELLS);
+	}
+
+	private void place(final Entry entry) {
+		if (entry.outside) {
+			overflow.add(entry);
+			return;
+		}
+		if ((entry.maxCol >= columns) || (entry.maxRow >= rows)) {
+			resize(Math.max(columns, entry.maxCol + 1), Math.max(rows, entry.maxRow + 1));
+			if (isPlaced(entry)) {
+				// resize() already filled in the cells
+				return;
+			}
+		}
+		for (int row = entry.minRow; row <= entry.maxRow; row++) {
+			for (int col = entry.minCol; col <= entry.maxCol; col++) {
+				final int index = row * columns + col;
+				List<Entry> cell = cells[index];
+				if (cell == null) {
+					cell = new ArrayList<Entry>(4);
+					cells[index] = cell;
+				}
+				cell.add(entry);
+			}
+		}
+	}
+
+	private boolean isPlaced(final Entry entry) {
+		final List<Entry> cell = cells[entry.minRow * columns + entry.minCol];
+		return (cell != null) && cell.contains(entry);
+	}
+
+	private void unplace(final Entry entry) {
+		if (entry.outside) {
+			overflow.remove(entry);
+			return;
+		}
+		for (int row = entry.minRow; row <= entry.maxRow; row++) {
+			for (int col = entry.minCol; col <= entry.maxCol; col++) {
+				final List<Entry> cell = cells[row * columns + col];
+				if (cell != null) {
+					cell.remove(entry);
+				}
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void allocate(final int cols, final int rws) {
+		columns = cols;
+		rows = rws;
+		cells = (List<Entry>[]) new List<?>[cols * rws];
+	}
+
+	/**
+	 * Rebuild the grid with new dimensions.
+	 *
+	 * @param cols new number of columns
+	 * @param rws new number of rows
+	 */
+	private void resize(final int cols, final int rws) {
+		allocate(cols, rws);
+		for (final Entry entry : entries.values()) {
+			if (!entry.outside) {
+				for (int row = entry.minRow; row <= entry.maxRow; row++) {
+					for (int col = entry.minCol; col <= entry.maxCol; col++) {
+						final int index = row * columns + col;
+						List<Entry> cell = cells[index];
+						if (cell == null) {
+							cell = new ArrayList<Entry>(4);
+							cells[index] = cell;
+						}
+						cell.add(entry);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,152 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import games.stendhal.server.core.engine.dbcommand.AbstractLogItemEventCommand;
+import games.stendhal.server.core.engine.dbcommand.LogItemEventBatchCommand;
+import games.stendhal.server.core.events.TurnListener;
+import games.stendhal.server.core.events.TurnNotifier;
+import marauroa.server.db.command.DBCommandPriority;
+import marauroa.server.db.command.DBCommandQueue;
+import marauroa.server.game.Statistics;
+
+/**
+ * Collects item log events and writes them to the database in batches.
+ * <p>
+ * The events of a turn are handed to the database queue together at the
+ * beginning of the next turn, or earlier if {@link #MAX_BATCH_SIZE} events
+ * have been collected. Batches are written in order, so the log entries of an
+ * item keep their order.
+ */
+public final class ItemLogWriter implements TurnListener {
+	/** Maximum number of events in one batch. */
+	static final int MAX_BATCH_SIZE = 500;
+
+	private static ItemLogWriter instance;
+
+	private List<AbstractLogItemEventCommand> buffer = new ArrayList<AbstractLogItemEventCommand>();
+	private boolean scheduled;
+
+	/** events that have not been handed to the database queue yet */
+	private final AtomicInteger queueDepth = new AtomicInteger();
+	private volatile long lastFlushLatency;
+	private volatile long maxFlushLatency;
+
+	/**
+	 * Get the ItemLogWriter instance.
+	 *
+	 * @return instance
+	 */
+	public static synchronized ItemLogWriter get() {
+		if (instance == null) {
+			instance = new ItemLogWriter();
+		}
+		return instance;
+	}
+
+	private ItemLogWriter() {
+		// singleton
+	}
+
+	/**
+	 * Adds an item event.
+	 *
+	 * @param command event to log
+	 */
+	public void add(final AbstractLogItemEventCommand command) {
+		command.setEnqueueTime(new Timestamp(System.currentTimeMillis()));
+		queueDepth.incrementAndGet();
+		boolean full;
+		synchronized (this) {
+			buffer.add(command);
+			full = buffer.size() >= MAX_BATCH_SIZE;
+			if (!full && !scheduled) {
+				scheduled = true;
+				TurnNotifier.get().notifyInTurns(0, this);
+			}
+		}
+		if (full) {
+			flush();
+		}
+	}
+
+	@Override
+	public void onTurnReached(final int currentTurn) {
+		synchronized (this) {
+			scheduled = false;
+		}
+		flush();
+	}
+
+	/**
+	 * Hands the collected events to the database queue.
+	 */
+	public void flush() {
+		final List<AbstractLogItemEventCommand> commands;
+		synchronized (this) {
+			if (buffer.isEmpty()) {
+				return;
+			}
+			commands = buffer;
+			buffer = new ArrayList<AbstractLogItemEventCommand>();
+		}
+		queueDepth.addAndGet(-commands.size());
+		DBCommandQueue.get().enqueue(new LogItemEventBatchCommand(commands, this), DBCommandPriority.LOW);
+		Statistics.getStatistics().set("Item log queue", queueDepth.get());
+	}
+
+	/**
+	 * Called by the database thread after a batch has been written.
+	 *
+	 * @param latency nanoseconds since the batch was handed to the database queue
+	 */
+	public void onWritten(final long latency) {
+		final long millis = TimeUnit.NANOSECONDS.toMillis(latency);
+		lastFlushLatency = millis;
+		if (millis > maxFlushLatency) {
+			maxFlushLatency = millis;
+		}
+	}
+
+	/**
+	 * Gets the number of events that have not been handed to the database queue yet.
+	 *
+	 * @return number of buffered events
+	 */
+	public int getQueueDepth() {
+		return queueDepth.get();
+	}
+
+	/**
+	 * Gets the time the last batch needed from being queued until it was written.
+	 *
+	 * @return latency in milliseconds
+	 */
+	public long getLastFlushLatency() {
+		return lastFlushLatency;
+	}
+
+	/**
+	 * Gets the longest time a batch needed from being queued until it was written.
+	 *
+	 * @return latency in milliseconds
+	 */
+	public long getMaxFlushLatency() {
+		return maxFlushLatency;
+	}
+}
@@ -0,0 +1,168 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import org.apache.log4j.Logger;
+
+import marauroa.common.game.IRPZone;
+
+/**
+ * Executes a per zone phase of the turn (like NPC logic) for all zones in
+ * parallel on a fork-join pool.
+ *
+ * Zones are processed independently. Everything a zone task does that
+ * affects another zone or global state (kills, game events, global messages,
+ * objects added to other zones) is put into a cross zone effects queue of
+ * the zone instead. After all zones have finished, the queues are applied on
+ * the turn thread in the order of the zones, so the outcome does not depend on
+ * the thread scheduling.
+ *
+ * Work whose follow-up depends on a change of zone, like NPC conversations
+ * and password portals, is queued as a whole, so that teleports and portal
+ * transfers report their real result. Placing an entity into or out of
+ * another zone directly from a zone task fails.
+ *
+ * This mode is optional and enabled with <code>parallel_zone_logic=true</code>
+ * in server.ini. The number of threads can be set with
+ * <code>parallel_zone_logic_threads</code>; it defaults to the number of
+ * available processors.
+ */
+public final class ParallelZoneLogic {
+	private static final Logger logger = Logger.getLogger(ParallelZoneLogic.class);
+
+	/** The zone task running on the current thread, if any. */
+	private static final ThreadLocal<ZoneTask> currentTask = new ThreadLocal<ZoneTask>();
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * A task running one phase for a single zone.
+	 */
+	private static final class ZoneTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final StendhalRPZone zone;
+		private final Task<StendhalRPZone> phase;
+		/** Cross zone effects in the order they were requested. */
+		private final List<Runnable> effects = new ArrayList<Runnable>();
+
+		private ZoneTask(final StendhalRPZone zone, final Task<StendhalRPZone> phase) {
+			this.zone = zone;
+			this.phase = phase;
+		}
+
+		@Override
+		protected void compute() {
+			currentTask.set(this);
+			try {
+				phase.execute(zone);
+			} catch (final RuntimeException e) {
+				logger.error("Error in parallel logic of zone " + zone.getName(), e);
+			} finally {
+				currentTask.remove();
+			}
+		}
+	}
+
+	/**
+	 * Create a new ParallelZoneLogic.
+	 *
+	 * @param threads number of worker threads
+	 */
+	public ParallelZoneLogic(final int threads) {
+		pool = new ForkJoinPool(Math.max(1, threads));
+	}
+
+	/**
+	 * Executes a phase for all zones in parallel and applies the cross zone
+	 * effects afterwards.
+	 *
+	 * @param zones zones to process
+	 * @param phase the work to do for each zone
+	 */
+	public void execute(final Iterable<IRPZone> zones, final Task<StendhalRPZone> phase) {
+		final List<ZoneTask> tasks = new ArrayList<ZoneTask>();
+		for (final IRPZone zone : zones) {
+			tasks.add(new ZoneTask((StendhalRPZone) zone, phase));
+		}
+
+		pool.invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				ForkJoinTask.invokeAll(tasks);
+			}
+		});
+
+		for (final ZoneTask task : tasks) {
+			for (final Runnable effect : task.effects) {
+				try {
+					effect.run();
+				} catch (final RuntimeException e) {
+					logger.error("Error in cross zone effect of zone " + task.zone.getName(), e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stops the worker threads.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Checks if the current thread is running the parallel logic of a zone.
+	 *
+	 * @return <code>true</code> if effects on other zones have to be deferred
+	 */
+	public static boolean isZoneTask() {
+		return currentTask.get() != null;
+	}
+
+	/**
+	 * Checks if a zone is handled by another task than the one running on the
+	 * current thread.
+	 *
+	 * @param zone zone to check
+	 * @return <code>true</code> if the current thread runs the parallel logic
+	 * 	of a zone and the given zone is a different one
+	 */
+	public static boolean isForeignZone(final StendhalRPZone zone) {
+		final ZoneTask task = currentTask.get();
+		return (task != null) && (task.zone != zone);
+	}
+
+	/**
+	 * Runs an effect that may touch other zones or global state. During the
+	 * parallel phase the effect is queued and applied after all zones have
+	 * finished; otherwise it is run immediately.
+	 *
+	 * @param effect effect to run
+	 */
+	public static void runCrossZone(final Runnable effect) {
+		final ZoneTask task = currentTask.get();
+		if (task != null) {
+			task.effects.add(effect);
+		} else {
+			effect.run();
+		}
+	}
+}
@@ -12,8 +12,11 @@
 package games.stendhal.server.core.engine;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import games.stendhal.common.NotificationType;
 import games.stendhal.common.filter.FilterCriteria;
@@ -31,9 +34,12 @@ public class PlayerList {
 	 */
 	public PlayerList() {
 		players = new ConcurrentHashMap<String, Player>();
+		buddyWatchers = new ConcurrentHashMap<String, Set<Player>>();
 	}
 
 	private final Map<String, Player> players;
+	/** Players in the list by the names on their buddy lists. */
+	private final ConcurrentMap<String, Set<Player>> buddyWatchers;
 
 	/**
 	 * Retrieve from this list a player specified by its name.
@@ -96,6 +102,70 @@ public class PlayerList {
 		}
 	}
 
+	/**
+	 * Calls the execute method of task for each player in this list who has
+	 * the named player on their buddy list.
+	 *
+	 * @param buddyName name of the buddy
+	 * @param task the task to execute
+	 */
+	public void forBuddyWatchersExecute(final String buddyName, final Task<Player> task) {
+		final Set<Player> watchers = buddyWatchers.get(buddyName);
+		if (watchers == null) {
+			return;
+		}
+		for (Player player : watchers) {
+			if (player.containsKey("buddies", buddyName)) {
+				task.execute(player);
+			}
+		}
+	}
+
+	/**
+	 * Tell the list that a player has added a buddy.
+	 *
+	 * @param player player whose buddy list changed
+	 * @param buddyName name of the new buddy
+	 */
+	public void onBuddyAdded(final Player player, final String buddyName) {
+		final String playerName = player.getName();
+		if ((playerName != null) && (players.get(playerName.toLowerCase()) == player)) {
+			watch(player, buddyName);
+		}
+	}
+
+	/**
+	 * Tell the list that a player has removed a buddy.
+	 *
+	 * @param player player whose buddy list changed
+	 * @param buddyName name of the removed buddy
+	 */
+	public void onBuddyRemoved(final Player player, final String buddyName) {
+		unwatch(player, buddyName);
+	}
+
+	private void watch(final Player player, final String buddyName) {
+		Set<Player> watchers = buddyWatchers.get(buddyName);
+		if (watchers == null) {
+			watchers = Collections.newSetFromMap(new ConcurrentHashMap<Player, Boolean>());
+			final Set<Player> old = buddyWatchers.putIfAbsent(buddyName, watchers);
+			if (old != null) {
+				watchers = old;
+			}
+		}
+		watchers.add(player);
+	}
+
+	private void unwatch(final Player player, final String buddyName) {
+		final Set<Player> watchers = buddyWatchers.get(buddyName);
+		if (watchers != null) {
+			watchers.remove(player);
+			if (watchers.isEmpty()) {
+				buddyWatchers.remove(buddyName, watchers);
+			}
+		}
+	}
+
 	/**
 	 * The amount of currently logged in players.
 	 *
@@ -114,7 +184,13 @@ public class PlayerList {
 		final String playerName = player.getName();
 
 		if (playerName != null) {
-			players.put(playerName.toLowerCase(), player);
+			final Player old = players.put(playerName.toLowerCase(), player);
+			if ((old != null) && (old != player)) {
+				unwatchAll(old);
+			}
+			for (String buddyName : player.getBuddies()) {
+				watch(player, buddyName);
+			}
 		} else {
 			throw new IllegalArgumentException("can't add player without name");
 		}
@@ -130,12 +206,22 @@ public class PlayerList {
 		final String playerName = player.getName();
 
 		if (playerName != null) {
-			return players.remove(playerName.toLowerCase()) != null;
+			final Player old = players.remove(playerName.toLowerCase());
+			if (old != null) {
+				unwatchAll(old);
+			}
+			return old != null;
 		} else {
 			throw new IllegalArgumentException("can't remove player without name");
 		}
 	}
 
+	private void unwatchAll(final Player player) {
+		for (String buddyName : player.getBuddies()) {
+			unwatch(player, buddyName);
+		}
+	}
+
 	/**
 	 * gets a mutable list of all players
 	 *
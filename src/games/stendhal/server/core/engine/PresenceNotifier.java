@@ -0,0 +1,174 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.events.PlayerLoggedOnEvent;
+import games.stendhal.server.events.PlayerLoggedOutEvent;
+import games.stendhal.server.events.PlayerPresenceEvent;
+
+/**
+ * Keeps the lists of online player names on the clients up to date. Logins
+ * and logouts are collected during a turn, and at the end of the turn each
+ * online player gets a single event describing the changes. Players who
+ * logged in during the turn get the names of all the players online, once
+ * their client has told its version. Until then it is not known which kind
+ * of events the client understands.
+ * <p>
+ * Ghosts are visible only to other ghosts.
+ */
+final class PresenceNotifier {
+	/**
+	 * Clients newer than this understand PlayerPresenceEvents. This is the
+	 * last release, so that the clients of the current development version
+	 * get them.
+	 */
+	private static final String PRESENCE_EVENT_VERSION = "1.48";
+	/**
+	 * Turns to wait for a new player's client to tell its version. Clients
+	 * that do not do it in this time are treated as old ones.
+	 */
+	static final int VERSION_WAIT_TURNS = 100;
+
+	/**
+	 * Changes during the current turn in the order they happened. The value
+	 * is the player who logged in, or <code>null</code> for a logout.
+	 */
+	private final Map<String, Player> changes = new LinkedHashMap<String, Player>();
+	/**
+	 * New players whose client version is not yet known, and the turns left
+	 * to wait for it.
+	 */
+	private final Map<Player, Integer> waiting = new IdentityHashMap<Player, Integer>();
+
+	/**
+	 * Record a login.
+	 *
+	 * @param player player who logged in
+	 */
+	void onLogin(final Player player) {
+		final String name = player.getName();
+		// keep the changes in the order of the latest change
+		changes.remove(name);
+		changes.put(name, player);
+	}
+
+	/**
+	 * Record a logout.
+	 *
+	 * @param player player who logged out
+	 */
+	void onLogout(final Player player) {
+		final String name = player.getName();
+		changes.remove(name);
+		changes.put(name, null);
+		waiting.remove(player);
+	}
+
+	/**
+	 * Send the changes of the turn to the players.
+	 *
+	 * @param players online players
+	 */
+	void flush(final PlayerList players) {
+		if (changes.isEmpty() && waiting.isEmpty()) {
+			return;
+		}
+		final List<String> online = new ArrayList<String>();
+		final List<String> offline = new ArrayList<String>();
+		for (final Player recipient : players.getAllPlayers()) {
+			if ((changes.get(recipient.getName()) == recipient) || waiting.containsKey(recipient)) {
+				if (!isVersionKnown(recipient)) {
+					// the full list is sent later, so the changes are not needed
+					continue;
+				}
+				// new on the server; tell about everyone
+				for (final Player other : players.getAllPlayers()) {
+					if (isVisible(other, recipient)) {
+						online.add(other.getName());
+					}
+				}
+			} else {
+				for (final Map.Entry<String, Player> change : changes.entrySet()) {
+					final Player subject = change.getValue();
+					if (subject == null) {
+						offline.add(change.getKey());
+					} else if (isVisible(subject, recipient)) {
+						online.add(change.getKey());
+					}
+				}
+			}
+			deliver(recipient, online, offline);
+			online.clear();
+			offline.clear();
+		}
+		changes.clear();
+	}
+
+	/**
+	 * Check if the kind of events a new player's client understands is known.
+	 * Players whose client does not tell its version in time are treated as
+	 * having an old client.
+	 *
+	 * @param player new player
+	 * @return <code>true</code> if the list of online players can be sent
+	 */
+	private boolean isVersionKnown(final Player player) {
+		if (player.getClientVersion() == null) {
+			final Integer turnsLeft = waiting.get(player);
+			if (turnsLeft == null) {
+				waiting.put(player, VERSION_WAIT_TURNS);
+				return false;
+			}
+			if (turnsLeft > 0) {
+				waiting.put(player, turnsLeft - 1);
+				return false;
+			}
+		}
+		waiting.remove(player);
+		return true;
+	}
+
+	/**
+	 * Check if a player should be on the online list of another.
+	 *
+	 * @param subject player on the list
+	 * @param recipient owner of the list
+	 * @return <code>true</code> if recipient can see subject
+	 */
+	private boolean isVisible(final Player subject, final Player recipient) {
+		return !subject.isGhost() || recipient.isGhost() || (subject == recipient);
+	}
+
+	private void deliver(final Player recipient, final List<String> online, final List<String> offline) {
+		if (online.isEmpty() && offline.isEmpty()) {
+			return;
+		}
+		if (recipient.isClientNewerThan(PRESENCE_EVENT_VERSION)) {
+			recipient.addEvent(new PlayerPresenceEvent(online, offline));
+		} else {
+			for (final String name : online) {
+				recipient.addEvent(new PlayerLoggedOnEvent(name));
+			}
+			for (final String name : offline) {
+				recipient.addEvent(new PlayerLoggedOutEvent(name));
+			}
+		}
+		recipient.notifyWorldAboutChanges();
+	}
+}
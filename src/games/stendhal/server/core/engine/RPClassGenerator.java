@@ -80,6 +80,7 @@ import games.stendhal.server.events.HealedEvent;
 import games.stendhal.server.events.ImageEffectEvent;
 import games.stendhal.server.events.PlayerLoggedOnEvent;
 import games.stendhal.server.events.PlayerLoggedOutEvent;
+import games.stendhal.server.events.PlayerPresenceEvent;
 import games.stendhal.server.events.PrivateTextEvent;
 import games.stendhal.server.events.ProgressStatusEvent;
 import games.stendhal.server.events.ReachedAchievementEvent;
@@ -333,6 +334,10 @@ public class RPClassGenerator {
 			PlayerLoggedOutEvent.generateRPClass();
 		}
 
+		if (!RPClass.hasRPClass(Events.PLAYER_PRESENCE)) {
+			PlayerPresenceEvent.generateRPClass();
+		}
+
 		if (!RPClass.hasRPClass(Events.REACHED_ACHIEVEMENT)) {
 			ReachedAchievementEvent.generateRPClass();
 		}
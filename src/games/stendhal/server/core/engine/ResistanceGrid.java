@@ -0,0 +1,342 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import games.stendhal.server.entity.Entity;
+
+/**
+ * Per tile resistance of the entities in a zone, kept up to date as entities
+ * are added, removed, moved, stopped or change their resistance.
+ * <p>
+ * The resistance of several entities on the same tile adds up like
+ * probabilities, the same way the path finder always combined them. Stopped
+ * and moving entities are kept in separate layers, because the path finder
+ * only considers stopped ones.
+ * <p>
+ * The values are the resistance the entities have on an entity with full
+ * resistance (100). For other entities the combined resistance depends on
+ * each single entity and can not be derived from the grid.
+ */
+public final class ResistanceGrid {
+	/** Resistance that corresponds to collision */
+	public static final int COLLISION = 100;
+
+	private final Layer stopped = new Layer();
+	private final Layer moving = new Layer();
+	private final Map<Entity, Contribution> contributions = new IdentityHashMap<Entity, Contribution>();
+	/** Reused for checking if the data of an entity has changed. */
+	private final Contribution scratch = new Contribution();
+	private int width;
+	private int height;
+	/** Counts the changes of the stopped layer. */
+	private int stoppedVersion;
+
+	/** Size of the blocks for which changes of the stopped blockers are tracked. */
+	private static final int BLOCK_SIZE = 16;
+	/** Number of blocks in a row. */
+	private int blockColumns;
+	/**
+	 * The value of <code>blockerChanges</code> at the last change of the
+	 * stopped entities with full resistance in each block.
+	 */
+	private int[] blockerStamps = new int[0];
+	/** Counts the changes of stopped entities with full resistance. */
+	private int blockerChanges;
+
+	/**
+	 * Resistance data of one layer.
+	 */
+	private static final class Layer {
+		/** Number of entities with full resistance on each tile. */
+		private int[] blockers = new int[0];
+		/** Number of entities with partial resistance on each tile. */
+		private int[] partial = new int[0];
+		/** Product of the passabilities of the partially resisting entities. */
+		private double[] passability = new double[0];
+
+		private void allocate(final int size) {
+			blockers = new int[size];
+			partial = new int[size];
+			passability = new double[size];
+			Arrays.fill(passability, 1.0);
+		}
+
+		private void apply(final Contribution c, final int width, final boolean add) {
+			final double factor = (COLLISION - c.resistance) / (double) COLLISION;
+			for (int y = c.minY; y < c.maxY; y++) {
+				for (int x = c.minX; x < c.maxX; x++) {
+					final int index = x + y * width;
+					if (c.resistance >= COLLISION) {
+						blockers[index] += add ? 1 : -1;
+					} else if (add) {
+						partial[index]++;
+						passability[index] *= factor;
+					} else if (--partial[index] == 0) {
+						// avoid accumulating rounding errors
+						passability[index] = 1.0;
+					} else {
+						passability[index] /= factor;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * The tiles covered by an entity and its resistance at the time it was
+	 * last recorded.
+	 */
+	private static final class Contribution {
+		private int minX, minY, maxX, maxY;
+		private int resistance;
+		private Layer layer;
+
+		private boolean covers(final int x, final int y) {
+			return (x >= minX) && (x < maxX) && (y >= minY) && (y < maxY);
+		}
+	}
+
+	/**
+	 * Make sure the grid covers an area of the given size.
+	 *
+	 * @param width width of the zone
+	 * @param height height of the zone
+	 */
+	void ensureCapacity(final int width, final int height) {
+		if ((width <= this.width) && (height <= this.height)) {
+			return;
+		}
+		this.width = Math.max(width, this.width);
+		this.height = Math.max(height, this.height);
+		stopped.allocate(this.width * this.height);
+		moving.allocate(this.width * this.height);
+		stoppedVersion++;
+		blockColumns = (this.width + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		blockerStamps = new int[blockColumns * ((this.height + BLOCK_SIZE - 1) / BLOCK_SIZE)];
+		Arrays.fill(blockerStamps, ++blockerChanges);
+		for (final Map.Entry<Entity, Contribution> entry : contributions.entrySet()) {
+			record(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Add an entity, or update its data if it is already known.
+	 *
+	 * @param entity entity
+	 */
+	void add(final Entity entity) {
+		if (contributions.containsKey(entity)) {
+			update(entity);
+			return;
+		}
+		final Contribution c = new Contribution();
+		contributions.put(entity, c);
+		record(entity, c);
+	}
+
+	/**
+	 * Update the data of an entity after its position, size, movement or
+	 * resistance may have changed. Unknown entities are ignored.
+	 *
+	 * @param entity entity
+	 */
+	void update(final Entity entity) {
+		final Contribution c = contributions.get(entity);
+		if ((c == null) || isCurrent(entity, c)) {
+			return;
+		}
+		unrecord(c);
+		record(entity, c);
+	}
+
+	/**
+	 * Remove an entity.
+	 *
+	 * @param entity entity
+	 */
+	void remove(final Entity entity) {
+		final Contribution c = contributions.remove(entity);
+		if (c != null) {
+			unrecord(c);
+		}
+	}
+
+	/**
+	 * Get a counter that changes every time the resistance of the stopped
+	 * entities changes. It can be used to check if data derived from the
+	 * stopped layer, like found paths, is still valid.
+	 *
+	 * @return modification counter
+	 */
+	public int getStoppedVersion() {
+		return stoppedVersion;
+	}
+
+	/**
+	 * Get a stamp of the stopped entities with full resistance within an
+	 * area. It increases every time such an entity in or near the area
+	 * starts or stops blocking, so it can be used to check if data derived
+	 * from the blocked tiles of the area is still valid.
+	 *
+	 * @param x x coordinate of the area
+	 * @param y y coordinate of the area
+	 * @param w width of the area
+	 * @param h height of the area
+	 * @return modification stamp
+	 */
+	public int getBlockerStamp(final int x, final int y, final int w, final int h) {
+		final int minX = Math.max(0, x) / BLOCK_SIZE;
+		final int minY = Math.max(0, y) / BLOCK_SIZE;
+		final int maxX = Math.min(width - 1, x + w - 1) / BLOCK_SIZE;
+		final int maxY = Math.min(height - 1, y + h - 1) / BLOCK_SIZE;
+		int stamp = 0;
+		for (int by = minY; by <= maxY; by++) {
+			for (int bx = minX; bx <= maxX; bx++) {
+				stamp = Math.max(stamp, blockerStamps[bx + by * blockColumns]);
+			}
+		}
+		return stamp;
+	}
+
+	/**
+	 * Get the combined resistance of the entities on a tile.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @param withMoving if <code>true</code>, moving entities are included,
+	 * 	otherwise only stopped ones
+	 * @param exclude entity to leave out, usually the asking entity itself.
+	 * 	May be <code>null</code>
+	 * @return resistance between 0 and 100. Positions outside the zone have no
+	 * 	entity resistance
+	 */
+	public int getResistance(final int x, final int y, final boolean withMoving, final Entity exclude) {
+		if ((x < 0) || (y < 0) || (x >= width) || (y >= height)) {
+			return 0;
+		}
+		final int index = x + y * width;
+		int blockers = stopped.blockers[index];
+		double passability = stopped.passability[index];
+		if (withMoving) {
+			blockers += moving.blockers[index];
+			passability *= moving.passability[index];
+		}
+		if (exclude != null) {
+			final Contribution c = contributions.get(exclude);
+			if ((c != null) && (c.layer != null) && (withMoving || (c.layer == stopped)) && c.covers(x, y)) {
+				if (c.resistance >= COLLISION) {
+					blockers--;
+				} else {
+					passability /= (COLLISION - c.resistance) / (double) COLLISION;
+				}
+			}
+		}
+		if (blockers > 0) {
+			return COLLISION;
+		}
+		// the small offset compensates rounding errors of the products
+		return COLLISION - (int) Math.min(COLLISION, passability * COLLISION + 1e-6);
+	}
+
+	/**
+	 * Compute the current data of an entity.
+	 *
+	 * @param entity entity
+	 * @param c data to fill
+	 */
+	private void compute(final Entity entity, final Contribution c) {
+		final int resistance = entity.getResistance();
+		c.resistance = resistance;
+		if (resistance <= 0) {
+			c.layer = null;
+			return;
+		}
+		c.layer = entity.stopped() ? stopped : moving;
+		final double x = entity.getX();
+		final double y = entity.getY();
+		c.minX = (int) Math.max(0, x);
+		c.maxX = (int) Math.min(width, x + entity.getWidth());
+		c.minY = (int) Math.max(0, y);
+		c.maxY = (int) Math.min(height, y + entity.getHeight());
+	}
+
+	/**
+	 * Compute the data of an entity and add it to its layer.
+	 *
+	 * @param entity entity
+	 * @param c data of the entity
+	 */
+	private void record(final Entity entity, final Contribution c) {
+		compute(entity, c);
+		if (c.layer != null) {
+			c.layer.apply(c, width, true);
+			if (c.layer == stopped) {
+				stoppedVersion++;
+				stampBlockers(c);
+			}
+		}
+	}
+
+	/**
+	 * Remove the recorded data of an entity from its layer.
+	 *
+	 * @param c data of the entity
+	 */
+	private void unrecord(final Contribution c) {
+		if (c.layer != null) {
+			c.layer.apply(c, width, false);
+			if (c.layer == stopped) {
+				stoppedVersion++;
+				stampBlockers(c);
+			}
+		}
+	}
+
+	/**
+	 * Record a change of the stopped blockers in the blocks covered by an
+	 * entity.
+	 *
+	 * @param c data of the entity
+	 */
+	private void stampBlockers(final Contribution c) {
+		if ((c.resistance < COLLISION) || (c.minX >= c.maxX) || (c.minY >= c.maxY)) {
+			return;
+		}
+		blockerChanges++;
+		for (int by = c.minY / BLOCK_SIZE; by <= (c.maxY - 1) / BLOCK_SIZE; by++) {
+			for (int bx = c.minX / BLOCK_SIZE; bx <= (c.maxX - 1) / BLOCK_SIZE; bx++) {
+				blockerStamps[bx + by * blockColumns] = blockerChanges;
+			}
+		}
+	}
+
+	/**
+	 * Check if the recorded data of an entity is still valid.
+	 *
+	 * @param entity entity
+	 * @param c recorded data
+	 * @return <code>true</code> if nothing has changed
+	 */
+	private boolean isCurrent(final Entity entity, final Contribution c) {
+		compute(entity, scratch);
+		if (scratch.layer == null) {
+			return c.layer == null;
+		}
+		return (scratch.layer == c.layer) && (scratch.resistance == c.resistance)
+				&& (scratch.minX == c.minX) && (scratch.maxX == c.maxX)
+				&& (scratch.minY == c.minY) && (scratch.maxY == c.maxY);
+	}
+}
@@ -17,6 +17,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -36,6 +37,9 @@ import games.stendhal.server.core.account.AccountCreator;
 import games.stendhal.server.core.account.CharacterCreator;
 import games.stendhal.server.core.engine.db.StendhalWebsiteDAO;
 import games.stendhal.server.core.engine.dbcommand.SetOnlineStatusCommand;
+import games.stendhal.server.core.engine.profiler.TickPhase;
+import games.stendhal.server.core.engine.profiler.TickProfiler;
+import games.stendhal.server.core.engine.profiler.TickProfilerHttpServer;
 import games.stendhal.server.core.engine.transformer.PlayerTransformer;
 import games.stendhal.server.core.events.TurnListener;
 import games.stendhal.server.core.events.TurnNotifier;
@@ -46,11 +50,10 @@ import games.stendhal.server.core.scripting.ScriptRunner;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.RPEntity;
 import games.stendhal.server.entity.npc.NPCList;
+import games.stendhal.server.entity.npc.SpeakerNPC;
 import games.stendhal.server.entity.npc.behaviour.impl.OutfitChangerBehaviour.ExpireOutfit;
 import games.stendhal.server.entity.player.AfkTimeouter;
 import games.stendhal.server.entity.player.Player;
-import games.stendhal.server.events.PlayerLoggedOnEvent;
-import games.stendhal.server.events.PlayerLoggedOutEvent;
 import games.stendhal.server.extension.StendhalServerExtension;
 import marauroa.common.Configuration;
 import marauroa.common.Pair;
@@ -106,6 +109,42 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 
 	private LinkedList<marauroa.server.game.rp.GameEvent> gameEvents = new LinkedList<>();
 
+	/** executes the zone logic in parallel, <code>null</code> if disabled */
+	private ParallelZoneLogic parallelZoneLogic;
+
+	/** serves the tick profiler reports, <code>null</code> if disabled */
+	private TickProfilerHttpServer tickProfilerHttpServer;
+
+	/** collects logins and logouts for updating the online lists */
+	private final PresenceNotifier presenceNotifier = new PresenceNotifier();
+
+	/** runs the pre-logic of the SpeakerNPCs of a zone */
+	private static final Task<StendhalRPZone> SPEAKER_NPC_PRE_LOGIC = new Task<StendhalRPZone>() {
+		@Override
+		public void execute(final StendhalRPZone zone) {
+			zone.speakerNPCPreLogic();
+		}
+	};
+
+	/** runs the pre-logic of a zone */
+	private static final Task<StendhalRPZone> ZONE_PRE_LOGIC = new Task<StendhalRPZone>() {
+		@Override
+		public void execute(final StendhalRPZone zone) {
+			zone.preLogic();
+		}
+	};
+
+	/** runs the logic of a zone */
+	private static final Task<StendhalRPZone> ZONE_LOGIC = new Task<StendhalRPZone>() {
+		@Override
+		public void execute(final StendhalRPZone zone) {
+			final TickProfiler profiler = TickProfiler.get();
+			final long start = profiler.start();
+			zone.logic();
+			profiler.zone(zone.getName(), start);
+		}
+	};
+
 
 	/**
 	 * gets the singleton instance of StendhalRPRuleProcessor
@@ -189,6 +228,17 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 				logger.info("No server extensions configured in ini file.");
 			}
 
+			if (Boolean.parseBoolean(config.get("parallel_zone_logic", "false"))) {
+				final int threads = config.getInt("parallel_zone_logic_threads",
+						Runtime.getRuntime().availableProcessors());
+				logger.info("Running zone logic in parallel on " + threads + " threads.");
+				setParallelZoneLogic(new ParallelZoneLogic(threads));
+			}
+
+			if (Boolean.parseBoolean(config.get("tick_profiler", "false"))) {
+				startTickProfiler(config);
+			}
+
 			// Remove online info from database.
 			DAORegister.get().get(StendhalWebsiteDAO.class).clearOnlineStatus();
 		} catch (final Exception e) {
@@ -223,9 +273,75 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 	 * @param killer
 	 */
 	public void killRPEntity(final RPEntity entity, final Entity killer) {
+		if (ParallelZoneLogic.isZoneTask()) {
+			ParallelZoneLogic.runCrossZone(new Runnable() {
+				@Override
+				public void run() {
+					killRPEntity(entity, killer);
+				}
+			});
+			return;
+		}
 		entityToKill.add(new Pair<RPEntity, Entity>(entity, killer));
 	}
 
+	/**
+	 * Enables the tick profiler and its reports.
+	 *
+	 * @param config server configuration
+	 */
+	private void startTickProfiler(final Configuration config) {
+		final TickProfiler profiler = TickProfiler.get();
+		final int turnLength = config.getInt("turn_length", 300);
+		profiler.enable(config.getInt("tick_profiler_slow_turn_ms", turnLength),
+				config.getInt("tick_profiler_history", 20));
+		profiler.registerMBean();
+		final int port = config.getInt("tick_profiler_http_port", 0);
+		setTickProfilerHttpServer(null);
+		if (port > 0) {
+			try {
+				setTickProfilerHttpServer(new TickProfilerHttpServer(profiler, port));
+			} catch (final IOException e) {
+				logger.error("Cannot start the tick profiler HTTP server on port " + port, e);
+			}
+		}
+		logger.info("Tick profiler enabled.");
+	}
+
+	/**
+	 * Enables or disables running the zone logic in parallel.
+	 *
+	 * @param parallelZoneLogic executor for the zone logic, or <code>null</code>
+	 * 	to run all zones on the turn thread
+	 */
+	public void setParallelZoneLogic(final ParallelZoneLogic parallelZoneLogic) {
+		if (this.parallelZoneLogic != null) {
+			this.parallelZoneLogic.shutdown();
+		}
+		this.parallelZoneLogic = parallelZoneLogic;
+	}
+
+	/**
+	 * Stops the threads of the rule processor when the server shuts down.
+	 */
+	public void shutdown() {
+		setParallelZoneLogic(null);
+		setTickProfilerHttpServer(null);
+	}
+
+	/**
+	 * Sets the HTTP server of the tick profiler reports. A previous server
+	 * is stopped, so that it does not keep its port and thread.
+	 *
+	 * @param server server, or <code>null</code> to stop serving the reports
+	 */
+	private void setTickProfilerHttpServer(final TickProfilerHttpServer server) {
+		if (tickProfilerHttpServer != null) {
+			tickProfilerHttpServer.stop();
+		}
+		tickProfilerHttpServer = server;
+	}
+
 	/**
 	 * Checks whether the given RPEntity has been killed this turn.
 	 *
@@ -245,8 +361,20 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 		return null;
 	}
 
+	/**
+	 * Called after the "text" attribute of a player has been set. The
+	 * SpeakerNPCs near the player get notified, and the text is removed at
+	 * the beginning of the next turn, after the NPCs had a chance to react.
+	 *
+	 * @param player
+	 *            The player who spoke
+	 */
 	public void removePlayerText(final Player player) {
 		playersRmText.add(player);
+		final StendhalRPZone zone = player.getZone();
+		if (zone != null) {
+			zone.notifySpeech(player);
+		}
 	}
 
 	/**
@@ -274,14 +402,23 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 		CommandCenter.execute(caster, action);
 	}
 
+	/**
+	 * Gets the number of the current turn.
+	 *
+	 * @return current turn, or 0 if the server manager is not set yet
+	 */
 	public int getTurn() {
+		if (rpman == null) {
+			return 0;
+		}
 		return rpman.getTurn();
 	}
 
 	/** Notify it when a new turn happens. */
 	@Override
 	public synchronized void beginTurn() {
-		final long start = System.nanoTime();
+		final TickProfiler profiler = TickProfiler.get();
+		long time = profiler.beginTurn(getTurn());
 
 		try {
 			destroyObsoleteZones();
@@ -294,37 +431,42 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 		} catch (final Exception e) {
 			logger.error("error in beginTurn", e);
 		}
+		time = profiler.phase(TickPhase.HOUSEKEEPING, time);
 
 		try {
 			handleKilledEntities();
 		} catch (final Exception e) {
 			logger.error("error in beginTurn", e);
 		}
+		time = profiler.phase(TickPhase.KILLED_ENTITIES, time);
 
 		try {
 			executePlayerLogic();
 		} catch (final Exception e) {
 			logger.error("error in beginTurn", e);
 		}
+		time = profiler.phase(TickPhase.PLAYER_LOGIC, time);
 
 		try {
 			executeNPCsPreLogic();
 		} catch (final Exception e) {
 			logger.error("error in beginTurn", e);
 		}
+		time = profiler.phase(TickPhase.NPC_PRE_LOGIC, time);
 
 		try {
 			executeZonePreLogic();
 		} catch (final Exception e) {
 			logger.error("error in beginTurn", e);
 		}
+		time = profiler.phase(TickPhase.ZONE_PRE_LOGIC, time);
 
 		try {
 			handlePlayersRmTexts();
 		} catch (final Exception e) {
 			logger.error("error in beginTurn", e);
 		}
-		logger.debug("Begin turn: " + (System.nanoTime() - start) / 1000000.0);
+		profiler.phase(TickPhase.TEXT_CLEANUP, time);
 	}
 
 	private void destroyObsoleteZones() {
@@ -353,14 +495,38 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 	}
 
 	protected void executeNPCsPreLogic() {
+		if (parallelZoneLogic != null) {
+			parallelZoneLogic.execute(getAwakeZones(), SPEAKER_NPC_PRE_LOGIC);
+			return;
+		}
+
 		// SpeakerNPC logic
 		final NPCList npcList = SingletonRepository.getNPCList();
 		final Set<String> npcs = npcList.getNPCs();
-		for (final String npc : npcs) {
-			npcList.get(npc).preLogic();
+		for (final String name : npcs) {
+			final SpeakerNPC npc = npcList.get(name);
+			final StendhalRPZone zone = npc.getZone();
+			if ((zone == null) || !zone.isDormant()) {
+				npc.preLogic();
+			}
 		}
 	}
 
+	/**
+	 * Get the zones whose logic is run in this turn.
+	 *
+	 * @return zones that are not dormant
+	 */
+	private List<IRPZone> getAwakeZones() {
+		final List<IRPZone> zones = new ArrayList<IRPZone>();
+		for (final IRPZone zone : SingletonRepository.getRPWorld()) {
+			if (!((StendhalRPZone) zone).isDormant()) {
+				zones.add(zone);
+			}
+		}
+		return zones;
+	}
+
 	protected void executePlayerLogic() {
 		getOnlinePlayers().forAllPlayersExecute(new Task<Player>() {
 			@Override
@@ -375,7 +541,11 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 	}
 
 	protected void executeZonePreLogic() {
-		for (final IRPZone zoneI : SingletonRepository.getRPWorld()) {
+		if (parallelZoneLogic != null) {
+			parallelZoneLogic.execute(getAwakeZones(), ZONE_PRE_LOGIC);
+			return;
+		}
+		for (final IRPZone zoneI : getAwakeZones()) {
 			((StendhalRPZone) zoneI).preLogic();
 		}
 	}
@@ -403,12 +573,31 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 		final int currentTurn = getTurn();
 		try {
 
+			final TickProfiler profiler = TickProfiler.get();
+			long time = profiler.start();
 			SingletonRepository.getTurnNotifier().logic(currentTurn);
+			time = profiler.phase(TickPhase.TURN_NOTIFIER, time);
 
-			for (final IRPZone zoneI : SingletonRepository.getRPWorld()) {
-				final StendhalRPZone zone = (StendhalRPZone) zoneI;
-				zone.logic();
+			final List<IRPZone> zones = getAwakeZones();
+			if (parallelZoneLogic != null) {
+				parallelZoneLogic.execute(zones, ZONE_LOGIC);
+			} else {
+				for (final IRPZone zoneI : zones) {
+					ZONE_LOGIC.execute((StendhalRPZone) zoneI);
+				}
 			}
+			time = profiler.phase(TickPhase.ZONE_LOGIC, time);
+
+			// let empty zones fall asleep
+			for (final IRPZone zone : zones) {
+				((StendhalRPZone) zone).updateActivity(currentTurn);
+			}
+			time = profiler.phase(TickPhase.ZONE_ACTIVITY, time);
+
+			// tell the players who logged in or out during the turn
+			presenceNotifier.flush(getOnlinePlayers());
+			profiler.phase(TickPhase.PRESENCE, time);
+			profiler.endTurn();
 
 			// run registered object's logic method for this turn
 
@@ -495,7 +684,7 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 					DBCommand command = new SetOnlineStatusCommand(player.getName(), true);
 					DBCommandQueue.get().enqueue(command);
 				}
-				updatePlayerNameListForPlayersOnLogin(player);
+				presenceNotifier.onLogin(player);
 				String[] params = {};
 
 				new GameEvent(player.getName(), "login", params).raise();
@@ -594,7 +783,7 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 				if (!player.isGhost()) {
 					notifyOnlineStatus(false, player);
 				}
-				updatePlayerNameListForPlayersOnLogout(player);
+				presenceNotifier.onLogout(player);
 
 				Player.destroy(player);
 				getOnlinePlayers().remove(player);
@@ -650,7 +839,16 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 	 * @param message
 	 *            Message to tell all players
 	 */
-	public void tellAllPlayers(NotificationType notificationType, final String message) {
+	public void tellAllPlayers(final NotificationType notificationType, final String message) {
+		if (ParallelZoneLogic.isZoneTask()) {
+			ParallelZoneLogic.runCrossZone(new Runnable() {
+				@Override
+				public void run() {
+					tellAllPlayers(notificationType, message);
+				}
+			});
+			return;
+		}
 		onlinePlayers.tellAllOnlinePlayers(notificationType, message);
 	}
 
@@ -709,74 +907,41 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 	 */
 	public void notifyOnlineStatus(final boolean isOnline, final Player playerToNotifyAbout) {
 		if (instance != null) {
+			final String name = playerToNotifyAbout.getName();
 			if (isOnline) {
-				SingletonRepository.getRuleProcessor().getOnlinePlayers().forAllPlayersExecute(new Task<Player>() {
+				getOnlinePlayers().forBuddyWatchersExecute(name, new Task<Player>() {
 					@Override
 					public void execute(final Player player) {
-						player.notifyOnline(playerToNotifyAbout.getName());
+						player.notifyOnline(name);
 					}
 				});
 
 			} else {
-				SingletonRepository.getRuleProcessor().getOnlinePlayers().forAllPlayersExecute(new Task<Player>() {
+				getOnlinePlayers().forBuddyWatchersExecute(name, new Task<Player>() {
 					@Override
 					public void execute(final Player player) {
-						player.notifyOffline(playerToNotifyAbout.getName());
+						player.notifyOffline(name);
 					}
 				});
 			}
 		}
 	}
 
-	/**
-	 * Update all player's lists of online player names on login of a new player
-	 *
-	 * @param playerToNotifyAbout
-	 */
-	private void updatePlayerNameListForPlayersOnLogin(final Player playerToNotifyAbout) {
-		SingletonRepository.getRuleProcessor().getOnlinePlayers().forAllPlayersExecute(new Task<Player>() {
-			@Override
-			public void execute(final Player player) {
-				if(playerToNotifyAbout.isGhost()) {
-					playerToNotifyAbout.addEvent(new PlayerLoggedOnEvent(player.getName()));
-					playerToNotifyAbout.notifyWorldAboutChanges();
-					if (player.isGhost() && (player != playerToNotifyAbout)) {
-						player.addEvent(new PlayerLoggedOnEvent(playerToNotifyAbout.getName()));
-						player.notifyWorldAboutChanges();
-					}
-				} else {
-					player.addEvent(new PlayerLoggedOnEvent(playerToNotifyAbout.getName()));
-					player.notifyWorldAboutChanges();
-					if (!player.isGhost() && (player != playerToNotifyAbout)) {
-						playerToNotifyAbout.addEvent(new PlayerLoggedOnEvent(player.getName()));
-						playerToNotifyAbout.notifyWorldAboutChanges();
-					}
-				}
-			}
-		});
-	}
-
-	/**
-	 * Update all player's lists of online player names on login of a new player
-	 *
-	 * @param playerToNotifyAbout
-	 */
-	private void updatePlayerNameListForPlayersOnLogout(final Player playerToNotifyAbout) {
-		SingletonRepository.getRuleProcessor().getOnlinePlayers().forAllPlayersExecute(new Task<Player>() {
-			@Override
-			public void execute(final Player player) {
-				player.addEvent(new PlayerLoggedOutEvent(playerToNotifyAbout.getName()));
-				player.notifyWorldAboutChanges();
-			}
-		});
-	}
-
 	/**
 	 * Removes a zone (like a personalized vault).
 	 *
 	 * @param zone StendhalRPZone to remove
 	 */
 	public void removeZone(final StendhalRPZone zone) {
+		if (ParallelZoneLogic.isZoneTask()) {
+			ParallelZoneLogic.runCrossZone(new Runnable() {
+				@Override
+				public void run() {
+					removeZone(zone);
+				}
+			});
+			return;
+		}
 		zonesToRemove.add(zone);
 	}
 
@@ -805,7 +970,16 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 	 * @param event  event
 	 * @param params parameters
 	 */
-	public void logGameEvent(String source, String event, String... params) {
+	public void logGameEvent(final String source, final String event, final String... params) {
+		if (ParallelZoneLogic.isZoneTask()) {
+			ParallelZoneLogic.runCrossZone(new Runnable() {
+				@Override
+				public void run() {
+					logGameEvent(source, event, params);
+				}
+			});
+			return;
+		}
 		this.gameEvents.add(new marauroa.server.game.rp.GameEvent(source, event, params));
 
 		// we collect one second of game events and write them as batch to the database
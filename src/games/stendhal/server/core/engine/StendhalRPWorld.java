@@ -24,6 +24,7 @@ import org.apache.log4j.Logger;
 
 import games.stendhal.common.parser.WordList;
 import games.stendhal.server.core.config.ZoneGroupsXMLLoader;
+import games.stendhal.server.core.rp.KillLogAggregator;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.mapstuff.portal.OneWayPortalDestination;
 import games.stendhal.server.entity.mapstuff.portal.Portal;
@@ -169,6 +170,9 @@ public class StendhalRPWorld extends RPWorld {
 
 	@Override
 	public void onFinish() {
+		SingletonRepository.getRuleProcessor().shutdown();
+		KillLogAggregator.get().flush();
+		ItemLogWriter.get().flush();
 		super.onFinish();
 		new GameEvent("server system", "shutdown").raise();
 		try {
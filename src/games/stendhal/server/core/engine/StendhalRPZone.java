@@ -33,11 +33,9 @@ import java.util.regex.Pattern;
 
 import org.apache.log4j.Logger;
 
-import games.stendhal.common.CRC;
 import games.stendhal.common.CollisionDetection;
 import games.stendhal.common.Debug;
 import games.stendhal.common.Direction;
-import games.stendhal.common.Line;
 import games.stendhal.common.MathHelper;
 import games.stendhal.common.Rand;
 import games.stendhal.common.filter.FilterCriteria;
@@ -47,6 +45,7 @@ import games.stendhal.common.tiled.TileSetDefinition;
 import games.stendhal.server.core.config.zone.TeleportationRules;
 import games.stendhal.server.core.events.MovementListener;
 import games.stendhal.server.core.events.ZoneEnterExitListener;
+import games.stendhal.server.core.pathfinder.ZoneNavigation;
 import games.stendhal.server.core.rp.StendhalRPAction;
 import games.stendhal.server.core.rule.EntityManager;
 import games.stendhal.server.entity.ActiveEntity;
@@ -69,6 +68,7 @@ import games.stendhal.server.entity.mapstuff.spawner.PassiveEntityRespawnPoint;
 import games.stendhal.server.entity.mapstuff.spawner.PassiveEntityRespawnPointFactory;
 import games.stendhal.server.entity.mapstuff.spawner.SheepFood;
 import games.stendhal.server.entity.npc.NPC;
+import games.stendhal.server.entity.npc.SilentNPC;
 import games.stendhal.server.entity.npc.SpeakerNPC;
 import games.stendhal.server.entity.npc.TrainingDummy;
 import games.stendhal.server.entity.npc.TrainingDummyFactory;
@@ -97,8 +97,15 @@ public class StendhalRPZone extends MarauroaRPZone {
 
 	/** the logger instance. */
 	private static final Logger logger = Logger.getLogger(StendhalRPZone.class);
+	/**
+	 * Clients newer than this keep their map layers when they receive only
+	 * the attributes layer of the current zone. This is the last release, so
+	 * that the clients of the current development version are included.
+	 */
+	private static final String ATTRIBUTE_UPDATE_VERSION = "1.48";
 
-	private final List<TransferContent> contents;
+	/** Map layers sent to the clients. The data is kept in the ZoneContentStore. */
+	private final List<ZoneContentStore.Entry> contents;
 
 	/** Data layer for zone attributes. */
 	private ZoneAttributes attributes;
@@ -109,6 +116,9 @@ public class StendhalRPZone extends MarauroaRPZone {
 
 	private final List<NPC> npcs;
 
+	/** The SpeakerNPCs in the zone, which listen to chatting players. */
+	private final List<SpeakerNPC> speakerNPCs;
+
 	/**
 	 * The sheep foods in the zone.
 	 */
@@ -146,6 +156,15 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 */
 	private final Set<Item> itemsOnGround;
 
+	/** Spatial index of the entities in the zone. */
+	private final EntityGrid entityGrid;
+
+	/** Resistance of the entities on each tile. */
+	private final ResistanceGrid resistanceGrid;
+
+	/** Navigation data for path finding. Created when first needed. */
+	private ZoneNavigation navigation;
+
 	/** contains data to if a certain area is walkable. */
 	public CollisionDetection collisionMap;
 
@@ -167,16 +186,28 @@ public class StendhalRPZone extends MarauroaRPZone {
 	/** Zones that some event types propagate to from this one. */
 	private String associatedZones;
 
+	/** Number of turns an empty zone keeps running its logic. */
+	static final int COOL_DOWN_TURNS = 100;
+
+	/** Decides if the logic of the zone is run. */
+	private ZoneActivity activity = ZoneActivity.ACTIVE;
+
+	/** Number of turns the zone has been cooling down. */
+	private int coolDownTurns;
+
+	/** The last turn in which the logic was run before the zone became dormant. */
+	private int dormantSince;
 
 	public StendhalRPZone(final String name) {
 		super(name);
 
-		contents = new LinkedList<TransferContent>();
+		contents = new ArrayList<ZoneContentStore.Entry>();
 		entryPoint = null;
 		portals = new LinkedList<Portal>();
 		itemsOnGround = new HashSet<Item>();
 		bloods = new LinkedList<Blood>();
 		npcs = new LinkedList<NPC>();
+		speakerNPCs = new LinkedList<SpeakerNPC>();
 		sheepFoods = new LinkedList<SheepFood>();
 		respawnPoints = new LinkedList<CreatureRespawnPoint>();
 		plantGrowers = new LinkedList<PassiveEntityRespawnPoint>();
@@ -185,6 +216,8 @@ public class StendhalRPZone extends MarauroaRPZone {
 
 		movementListeners = new LinkedList<MovementListener>();
 		zoneListeners = new LinkedList<ZoneEnterExitListener>();
+		entityGrid = new EntityGrid();
+		resistanceGrid = new ResistanceGrid();
 
 		collisionMap = new CollisionDetection();
 		protectionMap = new CollisionDetection();
@@ -203,6 +236,8 @@ public class StendhalRPZone extends MarauroaRPZone {
 	public StendhalRPZone(final String name, final int width, final int height) {
 		this(name);
 		collisionMap.init(width, height);
+		entityGrid.ensureCapacity(width, height);
+		resistanceGrid.ensureCapacity(width, height);
 	}
 
 	public StendhalRPZone(final String name, final StendhalRPZone zone) {
@@ -366,11 +401,40 @@ public class StendhalRPZone extends MarauroaRPZone {
 		addToContent(name, byteContents);
 	}
 
+	/**
+	 * Adds a layer that has been encoded already.
+	 *
+	 * @param name layer name
+	 * @param encodedLayer layer encoded by {@link LayerDefinition#encode()}
+	 */
+	public void addLayer(final String name, final byte[] encodedLayer) {
+		addToContent(name, encodedLayer);
+	}
+
 	public void addTilesets(final String name, final List<TileSetDefinition> tilesets)
 			throws IOException {
-		/*
-		 * Serialize the tileset data to send it to client.
-		 */
+		addToContent(name, encodeTilesets(tilesets));
+	}
+
+	/**
+	 * Adds tilesets that have been encoded already.
+	 *
+	 * @param name content name
+	 * @param encodedTilesets tilesets encoded by {@link #encodeTilesets(List)}
+	 */
+	public void addTilesets(final String name, final byte[] encodedTilesets) {
+		addToContent(name, encodedTilesets);
+	}
+
+	/**
+	 * Serializes tileset data to send it to client. Tilesets containing the
+	 * logic of the server are skipped.
+	 *
+	 * @param tilesets tilesets of a map
+	 * @return serialized tilesets
+	 * @throws IOException in case of an serialization error
+	 */
+	public static byte[] encodeTilesets(final List<TileSetDefinition> tilesets) throws IOException {
 		final ByteArrayOutputStream array = new ByteArrayOutputStream();
 		final OutputSerializer out = new OutputSerializer(array);
 
@@ -390,33 +454,26 @@ public class StendhalRPZone extends MarauroaRPZone {
 			}
 		}
 
-		addToContent(name, array.toByteArray());
+		return array.toByteArray();
 	}
 
 	/**
-	 * Creates a new TransferContent for the specified data and adds it to the
+	 * Stores the specified data in the ZoneContentStore and adds it to the
 	 * contents list.
 	 * @param name
 	 * @param byteContents
 	 */
 	private void addToContent(final String name, final byte[] byteContents) {
 		// Remove old data by the same name if it exists
-		Iterator<TransferContent> it = contents.iterator();
+		Iterator<ZoneContentStore.Entry> it = contents.iterator();
 		while (it.hasNext()) {
-			if (name.equals(it.next().name)) {
+			if (name.equals(it.next().getName())) {
 				logger.info("Replacing old '" + name + "' layer.");
 				it.remove();
 			}
 		}
 
-		final TransferContent content = new TransferContent();
-		content.name = name;
-		content.cacheable = true;
-		logger.debug("Layer timestamp: " + Integer.toString(content.timestamp));
-		content.data = byteContents;
-		content.timestamp = CRC.cmpCRC(content.data);
-
-		contents.add(content);
+		contents.add(ZoneContentStore.get().put(name, byteContents));
 	}
 
 	/**
@@ -437,6 +494,33 @@ public class StendhalRPZone extends MarauroaRPZone {
 		}
 	}
 
+	/**
+	 * Send the changed zone attributes to the players on the zone. This is
+	 * meant for changes that do not touch the map layers, such as weather
+	 * and lighting. Clients that keep their layers on such updates get only
+	 * the attributes, older clients get all the zone contents.
+	 */
+	public void notifyAttributesChanged() {
+		if (getPlayers().isEmpty()) {
+			return;
+		}
+		final List<TransferContent> attributeContents = getAttributeContents();
+		List<TransferContent> allContents = null;
+		for (Player player : getPlayers()) {
+			if (player.isDisconnected() || !player.isClientNewerThan("0.97")) {
+				continue;
+			}
+			if (player.isClientNewerThan(ATTRIBUTE_UPDATE_VERSION)) {
+				StendhalRPAction.transferContent(player, attributeContents);
+			} else {
+				if (allContents == null) {
+					allContents = getContents();
+				}
+				StendhalRPAction.transferContent(player, allContents);
+			}
+		}
+	}
+
 	/**
 	 * Set zone attributes that should be passed to the client.
 	 *
@@ -459,8 +543,27 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 */
 	public void addCollisionLayer(final String name, final LayerDefinition collisionLayer)
 			throws IOException {
-		addToContent(name, collisionLayer.encode());
+		addCollisionLayer(name, collisionLayer, collisionLayer.encode());
+	}
+
+	/**
+	 * Sets collision information for this zone.
+	 *
+	 * @param name
+	 *   Layer name.
+	 * @param collisionLayer
+	 *   Layer definition.
+	 * @param encodedLayer
+	 *   The layer encoded by {@link LayerDefinition#encode()}.
+	 */
+	public void addCollisionLayer(final String name, final LayerDefinition collisionLayer,
+			final byte[] encodedLayer) {
+		addToContent(name, encodedLayer);
 		collisionMap.setCollisionData(collisionLayer);
+		synchronized (this) {
+			entityGrid.ensureCapacity(collisionMap.getWidth(), collisionMap.getHeight());
+			resistanceGrid.ensureCapacity(collisionMap.getWidth(), collisionMap.getHeight());
+		}
 	}
 
 	/**
@@ -473,7 +576,22 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 */
 	public void addProtectionLayer(final String name, final LayerDefinition protectionLayer)
 			throws IOException {
-		addToContent(name, protectionLayer.encode());
+		addProtectionLayer(name, protectionLayer, protectionLayer.encode());
+	}
+
+	/**
+	 * Sets protection information for this zone.
+	 *
+	 * @param name
+	 *   Layer name.
+	 * @param protectionLayer
+	 *   Layer definition.
+	 * @param encodedLayer
+	 *   The layer encoded by {@link LayerDefinition#encode()}.
+	 */
+	public void addProtectionLayer(final String name, final LayerDefinition protectionLayer,
+			final byte[] encodedLayer) {
+		addToContent(name, encodedLayer);
 		protectionMap.setCollisionData(protectionLayer);
 	}
 
@@ -837,18 +955,41 @@ public class StendhalRPZone extends MarauroaRPZone {
 		return collisionMap.getHeight();
 	}
 
+	/**
+	 * Gets the layers to be sent to the clients. The attributes come first,
+	 * so that the client has coloring information.
+	 *
+	 * @return a new list of contents
+	 */
 	public List<TransferContent> getContents() {
+		final List<TransferContent> list = new LinkedList<TransferContent>();
 		if (attributes != null) {
-			TransferContent attr = attributes.getContents();
-			// Remove old attributes, if needed
-			if (!contents.isEmpty() && (contents.get(0).name.equals(attr.name))) {
-				contents.remove(0);
+			list.add(attributes.getContents());
+		}
+		final ZoneContentStore store = ZoneContentStore.get();
+		for (final ZoneContentStore.Entry entry : contents) {
+			try {
+				list.add(store.createTransferContent(entry));
+			} catch (final IOException e) {
+				logger.error("Cannot read layer " + entry.getName(), e);
 			}
-			// Ensure the attributes comes first, so that the client has coloring
-			// information
-			contents.add(0, attr);
 		}
-		return contents;
+		return list;
+	}
+
+	/**
+	 * Gets the attributes layer alone, for updating clients that already have
+	 * the other layers of the zone.
+	 *
+	 * @return a new list containing the attributes, or an empty list if the
+	 * 	zone has no attributes
+	 */
+	public List<TransferContent> getAttributeContents() {
+		final List<TransferContent> list = new LinkedList<TransferContent>();
+		if (attributes != null) {
+			list.add(attributes.getContents());
+		}
+		return list;
 	}
 
 	public boolean isInProtectionArea(final Entity entity) {
@@ -900,13 +1041,55 @@ public class StendhalRPZone extends MarauroaRPZone {
 		add(object, null, expire);
 	}
 
+	/**
+	 * Adds an object to the zone.
+	 * <p>
+	 * While another zone runs its logic in parallel, the object gets its zone
+	 * relative ID immediately, but it becomes part of the zone only after all
+	 * zones have finished their logic.
+	 *
+	 * @param object object to add
+	 * @param player player who dropped the object, or <code>null</code>
+	 * @param expire <code>true</code> if an item should expire normally
+	 */
 	private synchronized void add(final RPObject object, final Player player, final boolean expire) {
 		/*
 		 * Assign [zone relative] ID info. TODO: Move up to MarauroaRPZone
 		 */
 		assignRPObjectID(object);
+
+		if (ParallelZoneLogic.isForeignZone(this)) {
+			// another zone is running its logic in parallel, add after it finished
+			ParallelZoneLogic.runCrossZone(new Runnable() {
+				@Override
+				public void run() {
+					addWithID(object, player, expire);
+				}
+			});
+			return;
+		}
+		addWithID(object, player, expire);
+	}
+
+	/**
+	 * Adds an object which already has its zone relative ID.
+	 *
+	 * @param object object to add
+	 * @param player player who dropped the object, or <code>null</code>
+	 * @param expire <code>true</code> if an item should expire normally
+	 */
+	private synchronized void addWithID(final RPObject object, final Player player, final boolean expire) {
 		super.add(object);
 
+		if (object instanceof Entity) {
+			entityGrid.add((Entity) object);
+			resistanceGrid.add((Entity) object);
+		}
+
+		if (keepsAwake(object)) {
+			wakeUp();
+		}
+
 		notifyAdded(object);
 
 		// Needs to be before adding an item, in case Item.onPutOnGround()
@@ -952,6 +1135,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 			playersAndFriends.add((BabyDragon) object);
 		} else if (object instanceof SpeakerNPC) {
 			SingletonRepository.getNPCList().add((SpeakerNPC) object);
+			speakerNPCs.add((SpeakerNPC) object);
 		} else if (object instanceof Portal) {
 			portals.add((Portal) object);
 		}
@@ -987,8 +1171,29 @@ public class StendhalRPZone extends MarauroaRPZone {
 		}
 	}
 
+	/**
+	 * Removes an object from the zone.
+	 * <p>
+	 * While another zone runs its logic in parallel, the object is removed
+	 * only after all zones have finished their logic. It stays in the zone
+	 * until then, and <code>null</code> is returned.
+	 *
+	 * @param id ID of the object
+	 * @return the removed object, or <code>null</code> if there was no such
+	 * 	object or the removal was deferred
+	 */
 	@Override
 	public synchronized RPObject remove(final RPObject.ID id) {
+		if (ParallelZoneLogic.isForeignZone(this)) {
+			// another zone is running its logic in parallel, remove after it finished
+			ParallelZoneLogic.runCrossZone(new Runnable() {
+				@Override
+				public void run() {
+					remove(id);
+				}
+			});
+			return null;
+		}
 
 		final RPObject object = get(id);
 		notifyRemoved(object);
@@ -1015,6 +1220,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 			playersAndFriends.remove(object);
 		} else if (object instanceof SpeakerNPC) {
 			SingletonRepository.getNPCList().remove(((SpeakerNPC) object).getName());
+			speakerNPCs.remove(object);
 		} else if (object instanceof Portal) {
 			portals.remove(object);
 		}
@@ -1028,6 +1234,11 @@ public class StendhalRPZone extends MarauroaRPZone {
 
 		super.remove(id);
 
+		if (object instanceof Entity) {
+			entityGrid.remove((Entity) object);
+			resistanceGrid.remove((Entity) object);
+		}
+
 		if (object instanceof Item) {
 			final Item item = (Item) object;
 			itemsOnGround.remove(item);
@@ -1043,7 +1254,8 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 * removes object from zone.
 	 *
 	 * @param object
-	 * @return the removed object
+	 * @return the removed object, or <code>null</code> if the removal was
+	 * 	deferred, see {@link #remove(RPObject.ID)}
 	 */
 	public synchronized RPObject remove(final RPObject object) {
 		if (object.isContained()) {
@@ -1051,6 +1263,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 
 			if (object instanceof SpeakerNPC) {
 				SingletonRepository.getNPCList().remove(((SpeakerNPC) object).getName());
+				speakerNPCs.remove(object);
 			}
 
 			if (object instanceof NPC) {
@@ -1067,7 +1280,60 @@ public class StendhalRPZone extends MarauroaRPZone {
 	@Override
 	public synchronized void modify(final RPObject object) {
 		// We modify the base container if the object changes.
-		super.modify(object.getBaseContainer());
+		final RPObject base = object.getBaseContainer();
+		super.modify(base);
+		if (base instanceof Entity) {
+			entityGrid.update((Entity) base);
+			// covers starting and stopping, which notify the world
+			resistanceGrid.update((Entity) base);
+		}
+	}
+
+	/**
+	 * Updates the spatial index after the position or size of an entity in
+	 * this zone changed.
+	 *
+	 * @param entity
+	 *            The entity that moved or was resized
+	 */
+	public synchronized void updateEntityArea(final Entity entity) {
+		entityGrid.update(entity);
+		resistanceGrid.update(entity);
+	}
+
+	/**
+	 * Updates the resistance data after the resistance of an entity in this
+	 * zone changed.
+	 *
+	 * @param entity
+	 *            The entity whose resistance changed
+	 */
+	public synchronized void updateEntityResistance(final Entity entity) {
+		resistanceGrid.update(entity);
+	}
+
+	/**
+	 * Get the navigation data used for path finding in this zone.
+	 *
+	 * @return navigation data
+	 */
+	public synchronized ZoneNavigation getNavigation() {
+		if (navigation == null) {
+			navigation = new ZoneNavigation(this);
+		}
+		return navigation;
+	}
+
+	/**
+	 * Get the resistance of the entities on the tiles of the zone. The grid
+	 * must only be accessed by the thread running the logic of the zone.
+	 *
+	 * @return resistance grid
+	 */
+	public ResistanceGrid getResistanceGrid() {
+		// the collision map may have been initialized directly
+		resistanceGrid.ensureCapacity(getWidth(), getHeight());
+		return resistanceGrid;
 	}
 
 	/**
@@ -1085,20 +1351,12 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 * @return true if there is a collision
 	 */
 	public boolean collidesOnLine(final int x1, final int y1, final int x2, final int y2) {
-		List<Point> points;
 		// Always draw the line to the same direction, so that if A to B
 		// collides, then so does B to A
 		if ((x1 < x2) || ((x1 == x2) && (y1 < y2))) {
-			points = Line.renderLine(x1, y1, x2, y2);
-		} else {
-			points = Line.renderLine(x2, y2, x1, y1);
-		}
-		for (final Point point : points) {
-			if (collides((int) point.getX(), (int) point.getY())) {
-				return true;
-			}
+			return collisionMap.collidesOnLine(x1, y1, x2, y2);
 		}
-		return false;
+		return collisionMap.collidesOnLine(x2, y2, x1, y1);
 	}
 
 	/**
@@ -1174,29 +1432,14 @@ public class StendhalRPZone extends MarauroaRPZone {
 		return false;
 	}
 
-	public boolean collidesObjects(final Entity entity, final Rectangle2D area) {
+	public synchronized boolean collidesObjects(final Entity entity, final Rectangle2D area) {
 		// For every other object in this zone, check whether it's in the
 		// way.
 		return getCollidingObject(entity, area) != null;
 	}
 
-	private Entity getCollidingObject(final Entity entity, final Rectangle2D area) {
-		for (final RPObject other : objects.values()) {
-			// Ignore same object
-			if (entity != other) {
-				final Entity otherEntity = (Entity) other;
-
-				// Check if the objects overlap
-				if (area.intersects(otherEntity.getX(), otherEntity.getY(), otherEntity.getWidth(), otherEntity.getHeight())) {
-					// Check if it's blocking
-					if (otherEntity.isObstacle(entity)) {
-						return otherEntity;
-					}
-				}
-			}
-		}
-
-		return null;
+	private synchronized Entity getCollidingObject(final Entity entity, final Rectangle2D area) {
+		return entityGrid.getObstacle(entity, area);
 	}
 
 	/**
@@ -1207,15 +1450,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 * @return the first entity found if there are more than one or null if there are none
 	 */
 	public synchronized Entity getEntityAt(final double x, final double y) {
-		for (final RPObject other : objects.values()) {
-			final Entity otherEntity = (Entity) other;
-
-			final Rectangle2D rect = otherEntity.getArea();
-			if (rect.contains(x, y)) {
-				return otherEntity;
-			}
-		}
-		return null;
+		return entityGrid.getEntityAt(x, y);
 	}
 
 	/**
@@ -1226,15 +1461,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 */
 	public synchronized List<Entity> getEntitiesAt(final double x, final double y) {
 		List<Entity> entities = new LinkedList<Entity>();
-
-		for (final RPObject other : objects.values()) {
-			final Entity entity = (Entity) other;
-
-			final Rectangle2D rect = entity.getArea();
-			if (rect.contains(x, y)) {
-				entities.add(entity);
-			}
-		}
+		entityGrid.collectEntitiesAt(x, y, Entity.class, entities);
 
 		return entities;
 	}
@@ -1248,18 +1475,20 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 */
 	public synchronized <T extends Entity> List<T> getEntitiesAt(final double x, final double y, Class<T> clazz) {
 		List<T> entities = new LinkedList<T>();
+		entityGrid.collectEntitiesAt(x, y, clazz, entities);
 
-		for (final RPObject other : objects.values()) {
-			final Entity entity = (Entity) other;
-			if (!clazz.isInstance(entity)) {
-				continue;
-			}
+		return entities;
+	}
 
-			final Rectangle2D rect = entity.getArea();
-			if (rect.contains(x, y)) {
-				entities.add(clazz.cast(entity));
-			}
-		}
+	/**
+	 * Finds all entities whose area intersects the given area.
+	 *
+	 * @param area the area to check
+	 * @return list of entities overlapping the area
+	 */
+	public synchronized List<Entity> getEntitiesIntersecting(final Rectangle2D area) {
+		List<Entity> entities = new ArrayList<Entity>();
+		entityGrid.collectIntersecting(area, entities);
 
 		return entities;
 	}
@@ -1425,6 +1654,25 @@ public class StendhalRPZone extends MarauroaRPZone {
 		}
 	}
 
+	/**
+	 * Notify the SpeakerNPCs within perception range of a player that the
+	 * player said something. The text is in the "text" attribute of the
+	 * player.
+	 *
+	 * @param player
+	 *            The player who spoke.
+	 */
+	public void notifySpeech(final Player player) {
+		for (final SpeakerNPC npc : speakerNPCs) {
+			// the NPC checks the exact range when it reacts
+			final int range = npc.getPerceptionRange() + 1;
+			if ((Math.abs(player.getX() - npc.getX()) < range)
+					&& (Math.abs(player.getY() - npc.getY()) < range)) {
+				npc.onPlayerSpoke(player);
+			}
+		}
+	}
+
 	public void addZoneEnterExitListener(final ZoneEnterExitListener listener) {
 		zoneListeners.add(listener);
 	}
@@ -1540,6 +1788,143 @@ public class StendhalRPZone extends MarauroaRPZone {
 		}
 	}
 
+	/**
+	 * Runs the pre-logic of the SpeakerNPCs in this zone. This is used instead
+	 * of the global NPC list when the zones are processed in parallel.
+	 */
+	public void speakerNPCPreLogic() {
+		for (final NPC npc : npcs) {
+			try {
+				if (npc instanceof SpeakerNPC) {
+					npc.preLogic();
+				}
+			} catch (final Exception e) {
+				logger.error("Error in npc pre-logic for zone " + getID().getID(), e);
+			}
+		}
+	}
+
+	/**
+	 * Get the activity state of the zone.
+	 *
+	 * @return activity state
+	 */
+	public ZoneActivity getActivity() {
+		return activity;
+	}
+
+	/**
+	 * Check if the per turn logic of the zone is currently skipped.
+	 *
+	 * @return <code>true</code> if the zone is dormant
+	 */
+	public boolean isDormant() {
+		return activity == ZoneActivity.DORMANT;
+	}
+
+	/**
+	 * Update the activity state at the end of a turn, after the logic of
+	 * the zone has run.
+	 *
+	 * @param turn the current turn
+	 */
+	public void updateActivity(final int turn) {
+		if (needsLogic()) {
+			activity = ZoneActivity.ACTIVE;
+		} else if (activity == ZoneActivity.ACTIVE) {
+			activity = ZoneActivity.COOLING_DOWN;
+			coolDownTurns = 0;
+		} else if (activity == ZoneActivity.COOLING_DOWN) {
+			coolDownTurns++;
+			if ((coolDownTurns >= COOL_DOWN_TURNS) && canSleep()) {
+				activity = ZoneActivity.DORMANT;
+				dormantSince = turn;
+			}
+		}
+	}
+
+	/**
+	 * Make a dormant zone active again, and catch up the turns in which its
+	 * logic was skipped. Respawns, plant growth and item expiry are turn
+	 * notifier events, and are not affected by dormancy.
+	 */
+	private void wakeUp() {
+		if (activity != ZoneActivity.DORMANT) {
+			return;
+		}
+		activity = ZoneActivity.ACTIVE;
+
+		final int turn = SingletonRepository.getRuleProcessor().getTurn();
+		for (final NPC npc : npcs) {
+			if (npc instanceof Creature) {
+				((Creature) npc).catchUp(dormantSince + 1, turn - 1);
+			}
+		}
+	}
+
+	/**
+	 * Check if there is anything in the zone that needs the zone logic.
+	 *
+	 * @return <code>true</code> if the zone must not become dormant
+	 */
+	private boolean needsLogic() {
+		if (!playersAndFriends.isEmpty()) {
+			return true;
+		}
+		for (final SpeakerNPC npc : speakerNPCs) {
+			if (npc.isTalking() || npc.isAllowedToActAlone()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Check if the logic of all NPCs of the zone can be skipped while there
+	 * are no players.
+	 *
+	 * @return <code>true</code> if the zone can become dormant
+	 */
+	private boolean canSleep() {
+		for (final NPC npc : npcs) {
+			if (!canSleep(npc)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Check if the logic of an NPC does nothing, or nothing that could not be
+	 * caught up, when there are no players in the zone. Domestic animals and
+	 * other NPCs keep doing things on their own.
+	 *
+	 * @param npc NPC to check
+	 * @return <code>true</code> if the NPC allows the zone to become dormant
+	 */
+	private static boolean canSleep(final NPC npc) {
+		if (npc instanceof SpeakerNPC) {
+			return !((SpeakerNPC) npc).isAllowedToActAlone();
+		}
+		return (npc instanceof SilentNPC)
+				|| ((npc instanceof Creature) && !(npc instanceof DomesticAnimal));
+	}
+
+	/**
+	 * Check if adding an object requires a dormant zone to run its logic
+	 * again.
+	 *
+	 * @param object added object
+	 * @return <code>true</code> if the zone has to wake up
+	 */
+	private static boolean keepsAwake(final RPObject object) {
+		if ((object instanceof Player) || (object instanceof AttackableCreature)) {
+			return true;
+		}
+		// includes sheep and pets
+		return (object instanceof NPC) && !canSleep((NPC) object);
+	}
+
 	public void preLogic() {
 		for (final NPC npc : npcs) {
 			try {
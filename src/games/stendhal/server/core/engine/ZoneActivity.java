@@ -0,0 +1,28 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+/**
+ * Activity state of a zone, which decides if the per turn logic of the zone
+ * is run.
+ */
+public enum ZoneActivity {
+	/** Players, or entities that need the zone logic, are in the zone. */
+	ACTIVE,
+	/** The zone has become empty recently. The logic still runs. */
+	COOLING_DOWN,
+	/**
+	 * The zone has been empty for a while. The logic is skipped until a
+	 * player enters, and then the skipped turns are caught up.
+	 */
+	DORMANT
+}
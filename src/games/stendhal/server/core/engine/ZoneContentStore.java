@@ -0,0 +1,232 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.common.CRC;
+import marauroa.common.net.message.TransferContent;
+
+/**
+ * Storage for the encoded map layers of the zones, which are sent to the
+ * clients. The layers are written to a cache file once, and read back when
+ * a client needs them, so that the layers of the zones nobody visits are not
+ * kept on the heap. Recently used layers are kept in a small cache bounded
+ * by size.
+ * <p>
+ * If the cache file cannot be used, the layers are kept in memory.
+ * <code>-Dstendhal.zone.contentstore=memory</code> keeps them in memory
+ * deliberately.
+ */
+public final class ZoneContentStore {
+	private static final Logger logger = Logger.getLogger(ZoneContentStore.class);
+
+	/** Default size of the cache of recently used layers in bytes. */
+	private static final int DEFAULT_CACHE_SIZE = 4 * 1024 * 1024;
+
+	private static ZoneContentStore instance;
+
+	/** Cache file, or <code>null</code> if the layers are kept in memory. */
+	private FileChannel channel;
+	/** End of the written data in the cache file. */
+	private long end;
+	/** Recently read layers. */
+	private final Map<Entry, byte[]> cache = new LinkedHashMap<>(16, 0.75f, true);
+	private final int cacheSize;
+	private int cachedBytes;
+
+	/**
+	 * A layer in the store. Entries are immutable, and can be shared by
+	 * zones.
+	 */
+	public static final class Entry {
+		private final String name;
+		private final int timestamp;
+		private final int length;
+		private final long position;
+		/** The data, if it is not in the cache file. */
+		private final byte[] data;
+
+		private Entry(final String name, final int timestamp, final int length,
+				final long position, final byte[] data) {
+			this.name = name;
+			this.timestamp = timestamp;
+			this.length = length;
+			this.position = position;
+			this.data = data;
+		}
+
+		/**
+		 * Gets the name of the layer.
+		 *
+		 * @return name
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Checks if the data of the layer is kept on the heap permanently.
+		 *
+		 * @return <code>true</code> if the layer is not in the cache file
+		 */
+		boolean isInMemory() {
+			return data != null;
+		}
+	}
+
+	/**
+	 * Gets the store shared by all zones.
+	 *
+	 * @return store
+	 */
+	public static synchronized ZoneContentStore get() {
+		if (instance == null) {
+			if ("memory".equals(System.getProperty("stendhal.zone.contentstore"))) {
+				instance = new ZoneContentStore(null, 0);
+			} else {
+				instance = new ZoneContentStore(createCacheFile(), DEFAULT_CACHE_SIZE);
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * Creates a new ZoneContentStore.
+	 *
+	 * @param file cache file, or <code>null</code> to keep the layers in memory.
+	 * 	The file is deleted when the virtual machine exits
+	 * @param cacheSize size of the cache of recently used layers in bytes
+	 */
+	ZoneContentStore(final File file, final int cacheSize) {
+		this.cacheSize = cacheSize;
+		if (file != null) {
+			try {
+				file.deleteOnExit();
+				@SuppressWarnings("resource")
+				final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+				raf.setLength(0);
+				channel = raf.getChannel();
+			} catch (final IOException e) {
+				logger.warn("Cannot use " + file + " for the zone layers, keeping them in memory", e);
+			}
+		}
+	}
+
+	private static File createCacheFile() {
+		try {
+			return File.createTempFile("stendhal-zones", ".cache");
+		} catch (final IOException e) {
+			logger.warn("Cannot create a cache file for the zone layers, keeping them in memory", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Stores a layer.
+	 *
+	 * @param name name of the layer
+	 * @param data encoded layer
+	 * @return entry for reading the layer
+	 */
+	public synchronized Entry put(final String name, final byte[] data) {
+		final int timestamp = CRC.cmpCRC(data);
+		if (channel != null) {
+			try {
+				final long position = end;
+				final ByteBuffer buffer = ByteBuffer.wrap(data);
+				while (buffer.hasRemaining()) {
+					channel.write(buffer, position + buffer.position());
+				}
+				end += data.length;
+				return new Entry(name, timestamp, data.length, position, null);
+			} catch (final IOException e) {
+				logger.error("Cannot write layer " + name + " to the cache file, keeping it in memory", e);
+			}
+		}
+		return new Entry(name, timestamp, data.length, -1, data);
+	}
+
+	/**
+	 * Creates a TransferContent for sending a layer to a client.
+	 *
+	 * @param entry stored layer
+	 * @return new TransferContent with the data of the layer
+	 * @throws IOException if the layer cannot be read from the cache file
+	 */
+	public TransferContent createTransferContent(final Entry entry) throws IOException {
+		final TransferContent content = new TransferContent();
+		content.name = entry.name;
+		content.cacheable = true;
+		content.timestamp = entry.timestamp;
+		content.data = read(entry);
+		return content;
+	}
+
+	/**
+	 * Reads the data of a layer.
+	 *
+	 * @param entry stored layer
+	 * @return encoded layer. The array must not be modified
+	 * @throws IOException if the layer cannot be read from the cache file
+	 */
+	synchronized byte[] read(final Entry entry) throws IOException {
+		if (entry.data != null) {
+			return entry.data;
+		}
+		byte[] data = cache.get(entry);
+		if (data != null) {
+			return data;
+		}
+
+		data = new byte[entry.length];
+		final ByteBuffer buffer = ByteBuffer.wrap(data);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, entry.position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of the cache file reading " + entry.name);
+			}
+		}
+		addToCache(entry, data);
+		return data;
+	}
+
+	private void addToCache(final Entry entry, final byte[] data) {
+		if (data.length > cacheSize) {
+			return;
+		}
+		cache.put(entry, data);
+		cachedBytes += data.length;
+		final Iterator<byte[]> it = cache.values().iterator();
+		while (cachedBytes > cacheSize) {
+			cachedBytes -= it.next().length;
+			it.remove();
+		}
+	}
+
+	/**
+	 * Gets the number of bytes in the cache of recently used layers.
+	 *
+	 * @return cached bytes
+	 */
+	synchronized int getCachedBytes() {
+		return cachedBytes;
+	}
+}
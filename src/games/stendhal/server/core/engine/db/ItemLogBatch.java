@@ -0,0 +1,90 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.db;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import games.stendhal.server.entity.RPEntity;
+import games.stendhal.server.util.StringUtils;
+
+/**
+ * Rows for the itemlog table, collected to be written with a batch
+ * insert. Log entries keep the order in which they were added.
+ */
+public class ItemLogBatch {
+
+	/**
+	 * A row of the itemlog table.
+	 */
+	static final class EntryRow {
+		final int itemid;
+		final String source;
+		final String event;
+		final String param1;
+		final String param2;
+		final String param3;
+		final String param4;
+		final Timestamp timedate;
+
+		EntryRow(final int itemid, final String source, final String event, final String param1,
+				final String param2, final String param3, final String param4, final Timestamp timedate) {
+			this.itemid = itemid;
+			this.source = source;
+			this.event = event;
+			this.param1 = param1;
+			this.param2 = param2;
+			this.param3 = param3;
+			this.param4 = param4;
+			this.timedate = timedate;
+		}
+	}
+
+	private final List<EntryRow> entries = new ArrayList<EntryRow>();
+
+	/**
+	 * Adds a log entry.
+	 *
+	 * @param timestamp timestamp
+	 * @param itemid logid of the item
+	 * @param player player object
+	 * @param event  name of event
+	 * @param param1 param 1
+	 * @param param2 param 2
+	 * @param param3 param 3
+	 * @param param4 param 4
+	 */
+	void addEntry(final Timestamp timestamp, final int itemid, final RPEntity player, final String event,
+			final String param1, final String param2, final String param3, final String param4) {
+		String playerName = null;
+		if (player != null) {
+			playerName = player.getName();
+		}
+		entries.add(new EntryRow(itemid, StringUtils.trimTo(playerName, 64), StringUtils.trimTo(event, 64),
+				StringUtils.trimTo(param1, 64), StringUtils.trimTo(param2, 64),
+				StringUtils.trimTo(param3, 64), StringUtils.trimTo(param4, 64), timestamp));
+	}
+
+	List<EntryRow> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * Gets the number of collected log entries.
+	 *
+	 * @return number of itemlog rows
+	 */
+	public int size() {
+		return entries.size();
+	}
+}
@@ -0,0 +1,109 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.db;
+
+/**
+ * A row of the kills table: who killed whom on which day.
+ */
+public final class KillLogKey {
+	private final String killed;
+	private final String killedType;
+	private final String killer;
+	private final String killerType;
+	private final String day;
+
+	/**
+	 * Creates a new KillLogKey.
+	 *
+	 * @param killed name of the killed entity
+	 * @param killedType type of the killed entity
+	 * @param killer name of the killer
+	 * @param killerType type of the killer
+	 * @param day day of the kill in the format yyyy-MM-dd
+	 */
+	public KillLogKey(final String killed, final String killedType,
+			final String killer, final String killerType, final String day) {
+		this.killed = killed;
+		this.killedType = killedType;
+		this.killer = killer;
+		this.killerType = killerType;
+		this.day = day;
+	}
+
+	/**
+	 * @return name of the killed entity
+	 */
+	public String getKilled() {
+		return killed;
+	}
+
+	/**
+	 * @return type of the killed entity
+	 */
+	public String getKilledType() {
+		return killedType;
+	}
+
+	/**
+	 * @return name of the killer
+	 */
+	public String getKiller() {
+		return killer;
+	}
+
+	/**
+	 * @return type of the killer
+	 */
+	public String getKillerType() {
+		return killerType;
+	}
+
+	/**
+	 * @return day of the kill in the format yyyy-MM-dd
+	 */
+	public String getDay() {
+		return day;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = String.valueOf(killed).hashCode();
+		result = 31 * result + String.valueOf(killedType).hashCode();
+		result = 31 * result + String.valueOf(killer).hashCode();
+		result = 31 * result + String.valueOf(killerType).hashCode();
+		return 31 * result + String.valueOf(day).hashCode();
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof KillLogKey)) {
+			return false;
+		}
+		final KillLogKey other = (KillLogKey) obj;
+		return equal(killed, other.killed) && equal(killedType, other.killedType)
+			&& equal(killer, other.killer) && equal(killerType, other.killerType)
+			&& equal(day, other.day);
+	}
+
+	private static boolean equal(final String a, final String b) {
+		return (a == null) ? (b == null) : a.equals(b);
+	}
+
+	@Override
+	public String toString() {
+		return "KillLogKey [killed=" + killed + ", killedType=" + killedType
+			+ ", killer=" + killer + ", killerType=" + killerType + ", day=" + day + "]";
+	}
+}
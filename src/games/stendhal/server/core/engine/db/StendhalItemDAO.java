@@ -26,7 +26,6 @@ import games.stendhal.server.core.engine.SingletonRepository;
 import games.stendhal.server.core.rule.EntityManager;
 import games.stendhal.server.core.rule.defaultruleset.DefaultItem;
 import games.stendhal.server.entity.RPEntity;
-import games.stendhal.server.util.StringUtils;
 import marauroa.common.game.RPObject;
 import marauroa.server.db.DBTransaction;
 
@@ -49,11 +48,28 @@ public class StendhalItemDAO {
 	 * @throws SQLException in case of a database error
 	 */
 	public void itemLogAssignIDIfNotPresent(final DBTransaction transaction, final RPObject item, Timestamp timestamp) throws SQLException {
+		final ItemLogBatch batch = new ItemLogBatch();
+		itemLogAssignIDIfNotPresent(transaction, batch, item, timestamp);
+		itemLogWrite(transaction, batch);
+	}
+
+	/**
+	 * Assigns the next logid to the specified item in case it does not already have one.
+	 * The item row is inserted at once, so that the database assigns the id.
+	 * The register entry is added to the batch.
+	 *
+	 * @param transaction database transaction
+	 * @param batch batch to add the rows to
+	 * @param item item
+	 * @param timestamp timestamp
+	 * @throws SQLException in case of a database error
+	 */
+	public void itemLogAssignIDIfNotPresent(final DBTransaction transaction, final ItemLogBatch batch, final RPObject item, Timestamp timestamp) throws SQLException {
 		if (item.has(ATTR_ITEM_LOGID)) {
 			return;
 		}
 
-		// insert row into
+		// insert row into item, the database assigns the id
 		String sql = "INSERT INTO item (name, timedate) VALUES ('[name]', '[timedate]')";
 		Map<String, Object> params = new HashMap<String, Object>();
 		params.put("name", item.get("name"));
@@ -62,21 +78,20 @@ public class StendhalItemDAO {
 
 		// get the insert id and store it into the item
 		item.put(ATTR_ITEM_LOGID, transaction.getLastInsertId("item", "id"));
-		itemLogInsertName(transaction, item, timestamp);
+		itemLogInsertName(batch, item, timestamp);
 	}
 
-
 	/**
 	 * Logs the name of the item on first.
 	 *
-	 * @param transaction
+	 * @param batch
 	 * @param item
 	 * @param timestamp timestamp
-	 * @throws SQLException
 	 */
-	private void itemLogInsertName(final DBTransaction transaction, final RPObject item, Timestamp timestamp) throws SQLException {
-		itemLogWriteEntry(transaction, timestamp, item, null, "register", getAttribute(item, "name"), getAttribute(item, "quantity"), getAttribute(item, "itemdata"), getAttribute(item, "bound"));
+	private void itemLogInsertName(final ItemLogBatch batch, final RPObject item, Timestamp timestamp) {
+		itemLogWriteEntry(batch, timestamp, item.getInt(ATTR_ITEM_LOGID), null, "register", getAttribute(item, "name"), getAttribute(item, "quantity"), getAttribute(item, "itemdata"), getAttribute(item, "bound"));
 	}
+
 	/**
 	 * writes a log entry
 	 *
@@ -111,25 +126,69 @@ public class StendhalItemDAO {
 	 * @throws SQLException in case of an database error
 	 */
 	public void itemLogWriteEntry(final DBTransaction transaction, Timestamp timestamp, final int itemid, final RPEntity player, final String event, final String param1, final String param2, final String param3, final String param4) throws SQLException {
-		String playerName = null;
-		if (player != null) {
-			playerName = player.getName();
-		}
-		final String query = "INSERT INTO itemlog (itemid, source, event, "
-			+ "param1, param2, param3, param4, timedate) VALUES ("
-			+ "[itemid], '[source]', '[event]', '[param1]', '[param2]', '[param3]', '[param4]', '[timedate]');";
+		final ItemLogBatch batch = new ItemLogBatch();
+		itemLogWriteEntry(batch, timestamp, itemid, player, event, param1, param2, param3, param4);
+		itemLogWrite(transaction, batch);
+	}
 
-		Map<String, Object> params = new HashMap<String, Object>();
-		params.put("itemid", itemid);
-		params.put("source", StringUtils.trimTo(playerName, 64));
-		params.put("event", StringUtils.trimTo(event, 64));
-		params.put("param1", StringUtils.trimTo(param1, 64));
-		params.put("param2", StringUtils.trimTo(param2, 64));
-		params.put("param3", StringUtils.trimTo(param3, 64));
-		params.put("param4", StringUtils.trimTo(param4, 64));
-		params.put("timedate", timestamp);
+	/**
+	 * adds a log entry to a batch
+	 *
+	 * @param batch batch to add the entry to
+	 * @param timestamp timestamp
+	 * @param item item
+	 * @param player player object
+	 * @param event  name of event
+	 * @param param1 param 1
+	 * @param param2 param 2
+	 * @param param3 param 3
+	 * @param param4 param 4
+	 */
+	public void itemLogWriteEntry(final ItemLogBatch batch, Timestamp timestamp, final RPObject item, final RPEntity player, final String event, final String param1, final String param2, final String param3, final String param4) {
+		itemLogWriteEntry(batch, timestamp, item.getInt(ATTR_ITEM_LOGID), player, event, param1, param2, param3, param4);
+	}
 
-		transaction.execute(query, params);
+	/**
+	 * adds a log entry to a batch
+	 *
+	 * @param batch batch to add the entry to
+	 * @param timestamp timestamp
+	 * @param itemid itemid of item
+	 * @param player player object
+	 * @param event  name of event
+	 * @param param1 param 1
+	 * @param param2 param 2
+	 * @param param3 param 3
+	 * @param param4 param 4
+	 */
+	public void itemLogWriteEntry(final ItemLogBatch batch, Timestamp timestamp, final int itemid, final RPEntity player, final String event, final String param1, final String param2, final String param3, final String param4) {
+		batch.addEntry(timestamp, itemid, player, event, param1, param2, param3, param4);
+	}
+
+	/**
+	 * writes the collected rows using batch inserts
+	 *
+	 * @param transaction DBTransaction
+	 * @param batch collected rows
+	 * @throws SQLException in case of an database error
+	 */
+	public void itemLogWrite(final DBTransaction transaction, final ItemLogBatch batch) throws SQLException {
+		if (!batch.getEntries().isEmpty()) {
+			final PreparedStatement stmt = transaction.prepareStatement("INSERT INTO itemlog (itemid, source, event, "
+					+ "param1, param2, param3, param4, timedate) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", null);
+			for (final ItemLogBatch.EntryRow row : batch.getEntries()) {
+				stmt.setInt(1, row.itemid);
+				stmt.setString(2, row.source);
+				stmt.setString(3, row.event);
+				stmt.setString(4, row.param1);
+				stmt.setString(5, row.param2);
+				stmt.setString(6, row.param3);
+				stmt.setString(7, row.param4);
+				stmt.setTimestamp(8, row.timedate);
+				stmt.addBatch();
+			}
+			stmt.executeBatch();
+		}
 	}
 
 	/**
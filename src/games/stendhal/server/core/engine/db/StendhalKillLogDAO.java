@@ -11,13 +11,13 @@
  ***************************************************************************/
 package games.stendhal.server.core.engine.db;
 
+import java.sql.Date;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.sql.Timestamp;
-import java.text.SimpleDateFormat;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
-import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.Killer;
 import games.stendhal.server.entity.creature.Creature;
 import games.stendhal.server.entity.player.Player;
@@ -31,36 +31,52 @@ import marauroa.server.db.DBTransaction;
 public class StendhalKillLogDAO {
 
 	/**
-	 * Logs a kill.
+	 * Logs aggregated kills. Existing rows are updated in one batch, and the
+	 * rows that did not exist yet are inserted in a second batch.
 	 *
 	 * @param transaction transaction
-	 * @param killed killed entity
-	 * @param killer killer
+	 * @param kills number of kills by kill log row
 	 * @throws SQLException in case of an database error
 	 */
-	public void logKill(final DBTransaction transaction, final Entity killed, final Killer killer, Timestamp timestamp) throws SQLException {
-		// try update in case we already have this combination
-		String query = "UPDATE kills SET cnt = cnt+1"
-			+ " WHERE killed = '[killed]' AND killed_type = '[killed_type]'"
-			+ " AND killer = '[killer]' AND killer_type = '[killer_type]'"
-			+ " AND day = '[day]';";
-
-		Map<String, Object> params = new HashMap<String, Object>();
-		params.put("killed", killed.getName());
-		params.put("killed_type", entityToType(killed));
-		params.put("killer", killer.getName());
-		params.put("killer_type", entityToType(killer));
-		params.put("day", new SimpleDateFormat("yyyy-MM-dd").format(timestamp));
+	public void logKills(final DBTransaction transaction, final Map<KillLogKey, Integer> kills) throws SQLException {
+		if (kills.isEmpty()) {
+			return;
+		}
+		final List<Map.Entry<KillLogKey, Integer>> entries = new ArrayList<Map.Entry<KillLogKey, Integer>>(kills.entrySet());
 
-		final int rowCount = transaction.execute(query, params);
+		PreparedStatement stmt = transaction.prepareStatement("UPDATE kills SET cnt = cnt + ?"
+				+ " WHERE killed = ? AND killed_type = ? AND killer = ? AND killer_type = ? AND day = ?", null);
+		for (final Map.Entry<KillLogKey, Integer> entry : entries) {
+			stmt.setInt(1, entry.getValue().intValue());
+			setKey(stmt, 2, entry.getKey());
+			stmt.addBatch();
+		}
+		final int[] rowCounts = stmt.executeBatch();
 
-		// in case we did not have this combination yet, make an insert
-		if (rowCount == 0) {
-			query = "INSERT INTO kills (killed, killed_type, killer, killer_type, day, cnt)"
-				+ " VALUES ('[killed]', '[killed_type]', '[killer]', '[killer_type]', '[day]', 1)";
-			transaction.execute(query, params);
+		// insert the combinations we did not have yet
+		stmt = transaction.prepareStatement("INSERT INTO kills (killed, killed_type, killer, killer_type, day, cnt)"
+				+ " VALUES (?, ?, ?, ?, ?, ?)", null);
+		boolean missing = false;
+		for (int i = 0; i < entries.size(); i++) {
+			if (rowCounts[i] == 0) {
+				final Map.Entry<KillLogKey, Integer> entry = entries.get(i);
+				setKey(stmt, 1, entry.getKey());
+				stmt.setInt(6, entry.getValue().intValue());
+				stmt.addBatch();
+				missing = true;
+			}
 		}
+		if (missing) {
+			stmt.executeBatch();
+		}
+	}
 
+	private void setKey(final PreparedStatement stmt, final int firstIndex, final KillLogKey key) throws SQLException {
+		stmt.setString(firstIndex, key.getKilled());
+		stmt.setString(firstIndex + 1, key.getKilledType());
+		stmt.setString(firstIndex + 2, key.getKiller());
+		stmt.setString(firstIndex + 3, key.getKillerType());
+		stmt.setDate(firstIndex + 4, Date.valueOf(key.getDay()));
 	}
 
 	/**
@@ -0,0 +1,65 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.dbcommand;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import games.stendhal.server.core.engine.ItemLogWriter;
+import games.stendhal.server.core.engine.db.ItemLogBatch;
+import games.stendhal.server.core.engine.db.StendhalItemDAO;
+import marauroa.server.db.DBTransaction;
+import marauroa.server.db.command.AbstractDBCommand;
+import marauroa.server.game.db.DAORegister;
+
+/**
+ * logs a batch of item events using batch inserts
+ */
+public class LogItemEventBatchCommand extends AbstractDBCommand {
+	private final List<AbstractLogItemEventCommand> commands;
+	private final ItemLogWriter writer;
+	private final long created = System.nanoTime();
+
+	/**
+	 * creates a new LogItemEventBatchCommand
+	 *
+	 * @param commands item events in the order they happened
+	 * @param writer writer to report the completion to
+	 */
+	public LogItemEventBatchCommand(List<AbstractLogItemEventCommand> commands, ItemLogWriter writer) {
+		this.commands = commands;
+		this.writer = writer;
+	}
+
+	@Override
+	public void execute(DBTransaction transaction) throws SQLException {
+		try {
+			ItemLogBatch batch = new ItemLogBatch();
+			for (AbstractLogItemEventCommand command : commands) {
+				command.log(transaction, batch);
+			}
+			DAORegister.get().get(StendhalItemDAO.class).itemLogWrite(transaction, batch);
+		} finally {
+			writer.onWritten(System.nanoTime() - created);
+		}
+	}
+
+	/**
+	 * returns a string suitable for debug output of this DBCommand.
+	 *
+	 * @return debug string
+	 */
+	@Override
+	public String toString() {
+		return "LogItemEventBatchCommand [size=" + commands.size() + "]";
+	}
+}
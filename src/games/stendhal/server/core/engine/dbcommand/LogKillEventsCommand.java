@@ -1,5 +1,5 @@
 /***************************************************************************
- *                    (C) Copyright 2007-2010 - Stendhal                   *
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
  ***************************************************************************
  ***************************************************************************
  *                                                                         *
@@ -12,39 +12,35 @@
 package games.stendhal.server.core.engine.dbcommand;
 
 import java.sql.SQLException;
+import java.util.Map;
 
+import games.stendhal.server.core.engine.db.KillLogKey;
 import games.stendhal.server.core.engine.db.StendhalKillLogDAO;
-import games.stendhal.server.entity.Entity;
-import games.stendhal.server.entity.Killer;
 import marauroa.server.db.DBTransaction;
 import marauroa.server.db.command.AbstractDBCommand;
 import marauroa.server.game.db.DAORegister;
 
 /**
- * logs kill events
- *
- * @author hendrik
+ * logs aggregated kill counts
  */
-public class LogKillEventCommand extends AbstractDBCommand {
+public class LogKillEventsCommand extends AbstractDBCommand {
 
-	private Entity frozenKilled;
-	private Killer frozenKiller;
+	private final Map<KillLogKey, Integer> kills;
 
 	/**
-	 * creates a new LogKillEventCommand
+	 * creates a new LogKillEventsCommand
 	 *
-	 * @param killed killed entity
-	 * @param killer killer entity
+	 * @param kills number of kills by kill log row. The map is owned by
+	 * 	the command afterwards
 	 */
-	public LogKillEventCommand(Entity killed, Killer killer) {
-		this.frozenKilled = (Entity) killed.clone();
-		this.frozenKiller = (Killer) killer.clone();
+	public LogKillEventsCommand(Map<KillLogKey, Integer> kills) {
+		this.kills = kills;
 	}
 
 	@Override
 	public void execute(DBTransaction transaction) throws SQLException {
 		StendhalKillLogDAO killLog = DAORegister.get().get(StendhalKillLogDAO.class);
-		killLog.logKill(transaction, frozenKilled, frozenKiller, getEnqueueTime());
+		killLog.logKills(transaction, kills);
 	}
 
 	/**
@@ -54,7 +50,6 @@ public class LogKillEventCommand extends AbstractDBCommand {
 	 */
 	@Override
 	public String toString() {
-		return "LogKillEventCommand [frozenKilled=" + frozenKilled
-				+ ", frozenKiller=" + frozenKiller + "]";
+		return "LogKillEventsCommand [kills=" + kills + "]";
 	}
 }
@@ -15,6 +15,7 @@ import java.sql.SQLException;
 
 import com.google.common.base.MoreObjects;
 
+import games.stendhal.server.core.engine.db.ItemLogBatch;
 import games.stendhal.server.core.engine.db.StendhalItemDAO;
 import games.stendhal.server.entity.RPEntity;
 import marauroa.common.game.RPObject;
@@ -49,19 +50,19 @@ public class LogMergeItemEventCommand extends AbstractLogItemEventCommand {
 	}
 
 	@Override
-	protected void log(DBTransaction transaction) throws SQLException {
+	protected void log(DBTransaction transaction, ItemLogBatch batch) throws SQLException {
 		StendhalItemDAO stendhalItemDAO = DAORegister.get().get(StendhalItemDAO.class);
-		stendhalItemDAO.itemLogAssignIDIfNotPresent(transaction, liveOldItem, getEnqueueTime());
-		stendhalItemDAO.itemLogAssignIDIfNotPresent(transaction, liveOutlivingItem, getEnqueueTime());
+		stendhalItemDAO.itemLogAssignIDIfNotPresent(transaction, batch, liveOldItem, getEnqueueTime());
+		stendhalItemDAO.itemLogAssignIDIfNotPresent(transaction, batch, liveOutlivingItem, getEnqueueTime());
 
 		final String oldQuantity = getQuantity(frozenOldItem);
 		final String oldOutlivingQuantity = getQuantity(frozenOutlivingItem);
 		final String newQuantity = Integer.toString(Integer.parseInt(oldQuantity) + Integer.parseInt(oldOutlivingQuantity));
 
-		stendhalItemDAO.itemLogWriteEntry(transaction, getEnqueueTime(), liveOldItem.getInt(StendhalItemDAO.ATTR_ITEM_LOGID), player, "merge in",
+		stendhalItemDAO.itemLogWriteEntry(batch, getEnqueueTime(), liveOldItem.getInt(StendhalItemDAO.ATTR_ITEM_LOGID), player, "merge in",
 				liveOutlivingItem.get(StendhalItemDAO.ATTR_ITEM_LOGID), oldQuantity,
 				oldOutlivingQuantity, newQuantity);
-		stendhalItemDAO.itemLogWriteEntry(transaction, getEnqueueTime(), liveOutlivingItem.getInt(StendhalItemDAO.ATTR_ITEM_LOGID), player, "merged in",
+		stendhalItemDAO.itemLogWriteEntry(batch, getEnqueueTime(), liveOutlivingItem.getInt(StendhalItemDAO.ATTR_ITEM_LOGID), player, "merged in",
 				liveOldItem.get(StendhalItemDAO.ATTR_ITEM_LOGID), oldOutlivingQuantity,
 				oldQuantity, newQuantity);
 	}
@@ -15,6 +15,7 @@ import java.sql.SQLException;
 
 import com.google.common.base.MoreObjects;
 
+import games.stendhal.server.core.engine.db.ItemLogBatch;
 import games.stendhal.server.core.engine.db.StendhalItemDAO;
 import games.stendhal.server.entity.RPEntity;
 import marauroa.common.game.RPObject;
@@ -60,14 +61,14 @@ public class LogSimpleItemEventCommand extends AbstractLogItemEventCommand {
 
 
 	@Override
-	protected void log(final DBTransaction transaction) throws SQLException {
+	protected void log(final DBTransaction transaction, final ItemLogBatch batch) throws SQLException {
 		// don't log the destruction of items that have not been logged prior.
 		if (event.equals("destroy") && !item.has("logid")) {
 			return;
 		}
 		StendhalItemDAO stendhalItemDAO = DAORegister.get().get(StendhalItemDAO.class);
-		stendhalItemDAO.itemLogAssignIDIfNotPresent(transaction, item, getEnqueueTime());
-		stendhalItemDAO.itemLogWriteEntry(transaction, getEnqueueTime(), item, player, event, param1, param2, param3, param4);
+		stendhalItemDAO.itemLogAssignIDIfNotPresent(transaction, batch, item, getEnqueueTime());
+		stendhalItemDAO.itemLogWriteEntry(batch, getEnqueueTime(), item, player, event, param1, param2, param3, param4);
 	}
 
 	/**
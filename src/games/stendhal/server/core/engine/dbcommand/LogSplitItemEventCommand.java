@@ -15,6 +15,7 @@ import java.sql.SQLException;
 
 import com.google.common.base.MoreObjects;
 
+import games.stendhal.server.core.engine.db.ItemLogBatch;
 import games.stendhal.server.core.engine.db.StendhalItemDAO;
 import games.stendhal.server.entity.RPEntity;
 import marauroa.common.game.RPObject;
@@ -49,18 +50,18 @@ public class LogSplitItemEventCommand extends AbstractLogItemEventCommand {
 	}
 
 	@Override
-	protected void log(DBTransaction transaction) throws SQLException {
+	protected void log(DBTransaction transaction, ItemLogBatch batch) throws SQLException {
 		StendhalItemDAO stendhalItemDAO = DAORegister.get().get(StendhalItemDAO.class);
-		stendhalItemDAO.itemLogAssignIDIfNotPresent(transaction, liveItem, getEnqueueTime());
-		stendhalItemDAO.itemLogAssignIDIfNotPresent(transaction, liveNewItem, getEnqueueTime());
+		stendhalItemDAO.itemLogAssignIDIfNotPresent(transaction, batch, liveItem, getEnqueueTime());
+		stendhalItemDAO.itemLogAssignIDIfNotPresent(transaction, batch, liveNewItem, getEnqueueTime());
 
 		final String outlivingQuantity = getQuantity(frozenItem);
 		final String newQuantity = getQuantity(frozenNewItem);
 		final String oldQuantity = Integer.toString(Integer.parseInt(outlivingQuantity) + Integer.parseInt(newQuantity));
-		stendhalItemDAO.itemLogWriteEntry(transaction, getEnqueueTime(), liveItem.getInt(StendhalItemDAO.ATTR_ITEM_LOGID), player, "split out",
+		stendhalItemDAO.itemLogWriteEntry(batch, getEnqueueTime(), liveItem.getInt(StendhalItemDAO.ATTR_ITEM_LOGID), player, "split out",
 				liveNewItem.get(StendhalItemDAO.ATTR_ITEM_LOGID), oldQuantity,
 				outlivingQuantity, newQuantity);
-		stendhalItemDAO.itemLogWriteEntry(transaction, getEnqueueTime(), liveNewItem.getInt(StendhalItemDAO.ATTR_ITEM_LOGID), player, "splitted out",
+		stendhalItemDAO.itemLogWriteEntry(batch, getEnqueueTime(), liveNewItem.getInt(StendhalItemDAO.ATTR_ITEM_LOGID), player, "splitted out",
 				liveItem.get(StendhalItemDAO.ATTR_ITEM_LOGID), oldQuantity,
 				newQuantity, outlivingQuantity);
 
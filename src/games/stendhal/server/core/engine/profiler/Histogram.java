@@ -0,0 +1,116 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.profiler;
+
+/**
+ * Distribution of durations in buckets of powers of two, starting from one
+ * microsecond. Recording does not allocate.
+ */
+final class Histogram {
+	/** Durations below 2^SHIFT ns go into the first bucket. */
+	private static final int SHIFT = 10;
+	private static final int BUCKETS = 32;
+
+	private final long[] counts = new long[BUCKETS];
+	private long count;
+	private long total;
+	private long max;
+
+	/**
+	 * Record a duration.
+	 *
+	 * @param nanos duration in nanoseconds
+	 */
+	void record(final long nanos) {
+		final long value = Math.max(0, nanos);
+		final int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value >>> SHIFT));
+		counts[bucket]++;
+		count++;
+		total += value;
+		if (value > max) {
+			max = value;
+		}
+	}
+
+	/**
+	 * Forget the recorded durations.
+	 */
+	void clear() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = 0;
+		}
+		count = 0;
+		total = 0;
+		max = 0;
+	}
+
+	/**
+	 * Get the number of recorded durations.
+	 *
+	 * @return count
+	 */
+	long getCount() {
+		return count;
+	}
+
+	/**
+	 * Get the sum of the recorded durations.
+	 *
+	 * @return total in nanoseconds
+	 */
+	long getTotal() {
+		return total;
+	}
+
+	/**
+	 * Get the longest recorded duration.
+	 *
+	 * @return maximum in nanoseconds
+	 */
+	long getMax() {
+		return max;
+	}
+
+	/**
+	 * Get the mean of the recorded durations.
+	 *
+	 * @return mean in nanoseconds, or 0 if nothing has been recorded
+	 */
+	double getMean() {
+		if (count == 0) {
+			return 0;
+		}
+		return ((double) total) / count;
+	}
+
+	/**
+	 * Get an upper bound for a percentile of the recorded durations.
+	 *
+	 * @param fraction percentile as a fraction, for example 0.99
+	 * @return upper limit of the bucket containing the percentile, but at
+	 * 	most the maximum, in nanoseconds
+	 */
+	long getPercentile(final double fraction) {
+		if (count == 0) {
+			return 0;
+		}
+		final long rank = (long) Math.ceil(fraction * count);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(max, (1L << (SHIFT + i)) - 1);
+			}
+		}
+		return max;
+	}
+}
@@ -0,0 +1,53 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.profiler;
+
+/**
+ * The parts of a turn measured by the {@link TickProfiler}.
+ */
+public enum TickPhase {
+	/** removing obsolete zones and updating the statistics */
+	HOUSEKEEPING("housekeeping"),
+	/** handling killed entities */
+	KILLED_ENTITIES("killed entities"),
+	/** player logic */
+	PLAYER_LOGIC("player logic"),
+	/** pre-logic of the SpeakerNPCs */
+	NPC_PRE_LOGIC("NPC pre-logic"),
+	/** pre-logic of the zones */
+	ZONE_PRE_LOGIC("zone pre-logic"),
+	/** removing the texts players said in the previous turn */
+	TEXT_CLEANUP("text cleanup"),
+	/** turn listeners */
+	TURN_NOTIFIER("turn notifier"),
+	/** logic of the zones */
+	ZONE_LOGIC("zone logic"),
+	/** updating the activity of the zones */
+	ZONE_ACTIVITY("zone activity"),
+	/** sending logins and logouts */
+	PRESENCE("presence");
+
+	private final String label;
+
+	private TickPhase(final String label) {
+		this.label = label;
+	}
+
+	/**
+	 * Get the name of the phase for reports.
+	 *
+	 * @return human readable name
+	 */
+	public String getLabel() {
+		return label;
+	}
+}
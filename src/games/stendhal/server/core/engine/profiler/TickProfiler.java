@@ -0,0 +1,551 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.profiler;
+
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.server.core.events.TurnListener;
+
+/**
+ * Measures where the time of the turns goes. The rule processor reports the
+ * duration of each {@link TickPhase}, the zones the duration of their logic,
+ * and the TurnNotifier the duration of each turn listener. The profiler keeps
+ * histograms of the turns and phases, totals of the zones and of the turn
+ * listener classes, and details of the latest turns that were slower than a
+ * limit.
+ * <p>
+ * The profiler is disabled by default, and then costs a field read per
+ * measuring point. It is enabled with <code>tick_profiler=true</code> in
+ * server.ini. The statistics are available through JMX and, if
+ * <code>tick_profiler_http_port</code> is set, as text from a HTTP server
+ * listening on the loopback interface.
+ * <p>
+ * Recording happens on the turn thread, except that the zone logic may run on
+ * the threads of ParallelZoneLogic. The reports can be read from any thread.
+ */
+public final class TickProfiler implements TickProfilerMBean {
+	private static final Logger logger = Logger.getLogger(TickProfiler.class);
+
+	/** Number of zones and turn listeners kept for each slow turn. */
+	private static final int SLOW_TURN_TOP = 5;
+	/** Number of zones and turn listener classes in the reports. */
+	private static final int REPORT_TOP = 15;
+	private static final double NANOS_PER_MILLI = 1000000.0;
+
+	private static final TickProfiler instance = new TickProfiler();
+
+	/** Guards all statistics. */
+	private final Object lock = new Object();
+	private volatile boolean enabled;
+	private long slowTurnNanos = 300 * 1000000L;
+
+	private final Histogram turnHistogram = new Histogram();
+	private final Histogram[] phaseHistograms = new Histogram[TickPhase.values().length];
+	private final Map<String, Timing> zoneTimings = new HashMap<String, Timing>();
+	private final Map<String, Timing> listenerTimings = new HashMap<String, Timing>();
+	private long overruns;
+
+	/** The latest slow turns; a ring buffer. */
+	private SlowTurn[] slowTurns = new SlowTurn[20];
+	private int nextSlowTurn;
+
+	// the current turn
+	private int turn;
+	private final long[] phaseNanos = new long[TickPhase.values().length];
+	private final TopList turnZones = new TopList(SLOW_TURN_TOP);
+	private final TopList turnListeners = new TopList(SLOW_TURN_TOP);
+
+	/**
+	 * Total and maximum durations of something measured repeatedly.
+	 */
+	private static final class Timing {
+		private long count;
+		private long total;
+		private long max;
+
+		private void record(final long nanos) {
+			count++;
+			total += nanos;
+			if (nanos > max) {
+				max = nanos;
+			}
+		}
+	}
+
+	/**
+	 * The most expensive names of a turn. Small enough for linear search.
+	 */
+	private static final class TopList {
+		private final String[] names;
+		private final long[] nanos;
+		private int size;
+
+		private TopList(final int capacity) {
+			names = new String[capacity];
+			nanos = new long[capacity];
+		}
+
+		private void offer(final String name, final long time) {
+			int pos = size;
+			if (size == names.length) {
+				if (time <= nanos[size - 1]) {
+					return;
+				}
+				pos = size - 1;
+			} else {
+				size++;
+			}
+			while ((pos > 0) && (nanos[pos - 1] < time)) {
+				names[pos] = names[pos - 1];
+				nanos[pos] = nanos[pos - 1];
+				pos--;
+			}
+			names[pos] = name;
+			nanos[pos] = time;
+		}
+
+		private void clear() {
+			for (int i = 0; i < size; i++) {
+				names[i] = null;
+			}
+			size = 0;
+		}
+
+		private String describe() {
+			final StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < size; i++) {
+				if (i > 0) {
+					sb.append(", ");
+				}
+				sb.append(names[i]).append(' ').append(millis(nanos[i]));
+			}
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * Details of a slow turn.
+	 */
+	private static final class SlowTurn {
+		private final long time;
+		private final int turn;
+		private final long nanos;
+		private final long[] phases;
+		private final String zones;
+		private final String listeners;
+
+		private SlowTurn(final int turn, final long nanos, final long[] phases,
+				final String zones, final String listeners) {
+			this.time = System.currentTimeMillis();
+			this.turn = turn;
+			this.nanos = nanos;
+			this.phases = phases;
+			this.zones = zones;
+			this.listeners = listeners;
+		}
+
+		@Override
+		public String toString() {
+			final StringBuilder sb = new StringBuilder();
+			sb.append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.ENGLISH).format(new Date(time)));
+			sb.append(" turn ").append(turn).append(": ").append(millis(nanos));
+			for (final TickPhase phase : TickPhase.values()) {
+				if (phases[phase.ordinal()] > 0) {
+					sb.append("; ").append(phase.getLabel()).append(' ')
+						.append(millis(phases[phase.ordinal()]));
+				}
+			}
+			if (!zones.isEmpty()) {
+				sb.append("; zones: ").append(zones);
+			}
+			if (!listeners.isEmpty()) {
+				sb.append("; turn listeners: ").append(listeners);
+			}
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * Get the profiler.
+	 *
+	 * @return the profiler instance
+	 */
+	public static TickProfiler get() {
+		return instance;
+	}
+
+	private TickProfiler() {
+		for (int i = 0; i < phaseHistograms.length; i++) {
+			phaseHistograms[i] = new Histogram();
+		}
+	}
+
+	/**
+	 * Enable profiling.
+	 *
+	 * @param slowTurnMillis turns longer than this are counted as overruns,
+	 * 	and their details are kept
+	 * @param keptSlowTurns number of slow turns to keep
+	 */
+	public void enable(final long slowTurnMillis, final int keptSlowTurns) {
+		synchronized (lock) {
+			slowTurnNanos = slowTurnMillis * 1000000L;
+			slowTurns = new SlowTurn[Math.max(1, keptSlowTurns)];
+			nextSlowTurn = 0;
+			enabled = true;
+		}
+	}
+
+	/**
+	 * Disable profiling. The statistics are kept.
+	 */
+	public void disable() {
+		enabled = false;
+	}
+
+	/**
+	 * Check if the profiler is recording.
+	 *
+	 * @return <code>true</code> if enabled
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Register the profiler as a JMX bean.
+	 */
+	public void registerMBean() {
+		try {
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			final ObjectName name = new ObjectName("games.stendhal.server:type=TickProfiler");
+			if (!server.isRegistered(name)) {
+				server.registerMBean(this, name);
+			}
+		} catch (final JMException e) {
+			logger.error("Cannot register the tick profiler", e);
+		}
+	}
+
+	/**
+	 * Start a new turn.
+	 *
+	 * @param currentTurn turn number
+	 * @return start time for measuring the first phase, or 0 if the profiler
+	 * 	is disabled
+	 */
+	public long beginTurn(final int currentTurn) {
+		if (!enabled) {
+			return 0;
+		}
+		synchronized (lock) {
+			turn = currentTurn;
+			for (int i = 0; i < phaseNanos.length; i++) {
+				phaseNanos[i] = 0;
+			}
+			turnZones.clear();
+			turnListeners.clear();
+		}
+		return System.nanoTime();
+	}
+
+	/**
+	 * Get the start time for measuring a phase.
+	 *
+	 * @return current time, or 0 if the profiler is disabled
+	 */
+	public long start() {
+		if (!enabled) {
+			return 0;
+		}
+		return System.nanoTime();
+	}
+
+	/**
+	 * Record the end of a phase.
+	 *
+	 * @param phase finished phase
+	 * @param start start time of the phase
+	 * @return end time of the phase, for measuring the next phase, or 0 if
+	 * 	the profiler is disabled
+	 */
+	public long phase(final TickPhase phase, final long start) {
+		if (!enabled) {
+			return 0;
+		}
+		final long now = System.nanoTime();
+		recordPhase(phase, now - start);
+		return now;
+	}
+
+	/**
+	 * Record time spent in a phase.
+	 *
+	 * @param phase phase
+	 * @param nanos duration
+	 */
+	void recordPhase(final TickPhase phase, final long nanos) {
+		synchronized (lock) {
+			phaseNanos[phase.ordinal()] += nanos;
+		}
+	}
+
+	/**
+	 * Record the duration of the logic of a zone.
+	 *
+	 * @param zoneName name of the zone
+	 * @param start start time of the zone logic
+	 */
+	public void zone(final String zoneName, final long start) {
+		if (!enabled) {
+			return;
+		}
+		recordZone(zoneName, System.nanoTime() - start);
+	}
+
+	/**
+	 * Record the duration of the logic of a zone.
+	 *
+	 * @param zoneName name of the zone
+	 * @param nanos duration
+	 */
+	void recordZone(final String zoneName, final long nanos) {
+		synchronized (lock) {
+			Timing timing = zoneTimings.get(zoneName);
+			if (timing == null) {
+				timing = new Timing();
+				zoneTimings.put(zoneName, timing);
+			}
+			timing.record(nanos);
+			turnZones.offer(zoneName, nanos);
+		}
+	}
+
+	/**
+	 * Record the duration of a turn listener.
+	 *
+	 * @param listener turn listener
+	 * @param start time when the listener was called
+	 */
+	public void listener(final TurnListener listener, final long start) {
+		if (!enabled) {
+			return;
+		}
+		recordListener(listener.getClass().getName(), System.nanoTime() - start);
+	}
+
+	/**
+	 * Record the duration of a turn listener.
+	 *
+	 * @param className class of the listener
+	 * @param nanos duration
+	 */
+	void recordListener(final String className, final long nanos) {
+		synchronized (lock) {
+			Timing timing = listenerTimings.get(className);
+			if (timing == null) {
+				timing = new Timing();
+				listenerTimings.put(className, timing);
+			}
+			timing.record(nanos);
+			turnListeners.offer(className, nanos);
+		}
+	}
+
+	/**
+	 * Finish the current turn.
+	 */
+	public void endTurn() {
+		if (!enabled) {
+			return;
+		}
+		synchronized (lock) {
+			long total = 0;
+			for (int i = 0; i < phaseNanos.length; i++) {
+				total += phaseNanos[i];
+				phaseHistograms[i].record(phaseNanos[i]);
+			}
+			turnHistogram.record(total);
+			if (total > slowTurnNanos) {
+				overruns++;
+				slowTurns[nextSlowTurn] = new SlowTurn(turn, total, phaseNanos.clone(),
+						turnZones.describe(), turnListeners.describe());
+				nextSlowTurn = (nextSlowTurn + 1) % slowTurns.length;
+				logger.warn("Slow turn " + turn + ": " + millis(total));
+			}
+		}
+	}
+
+	@Override
+	public long getTurns() {
+		synchronized (lock) {
+			return turnHistogram.getCount();
+		}
+	}
+
+	@Override
+	public long getOverruns() {
+		synchronized (lock) {
+			return overruns;
+		}
+	}
+
+	@Override
+	public long getSlowTurnMillis() {
+		synchronized (lock) {
+			return slowTurnNanos / 1000000L;
+		}
+	}
+
+	@Override
+	public double getMeanTurnMillis() {
+		synchronized (lock) {
+			return turnHistogram.getMean() / NANOS_PER_MILLI;
+		}
+	}
+
+	@Override
+	public double getMaxTurnMillis() {
+		synchronized (lock) {
+			return turnHistogram.getMax() / NANOS_PER_MILLI;
+		}
+	}
+
+	@Override
+	public String[] getPhases() {
+		synchronized (lock) {
+			final String[] result = new String[phaseHistograms.length + 1];
+			result[0] = describe("turn", turnHistogram);
+			for (final TickPhase phase : TickPhase.values()) {
+				result[phase.ordinal() + 1] = describe(phase.getLabel(), phaseHistograms[phase.ordinal()]);
+			}
+			return result;
+		}
+	}
+
+	@Override
+	public String[] getSlowestZones() {
+		synchronized (lock) {
+			return describeTop(zoneTimings);
+		}
+	}
+
+	@Override
+	public String[] getSlowestTurnListeners() {
+		synchronized (lock) {
+			return describeTop(listenerTimings);
+		}
+	}
+
+	@Override
+	public String[] getSlowTurns() {
+		synchronized (lock) {
+			final List<String> result = new ArrayList<String>();
+			for (int i = 0; i < slowTurns.length; i++) {
+				final SlowTurn slow = slowTurns[(nextSlowTurn + i) % slowTurns.length];
+				if (slow != null) {
+					result.add(slow.toString());
+				}
+			}
+			return result.toArray(new String[result.size()]);
+		}
+	}
+
+	@Override
+	public String getReport() {
+		final StringBuilder sb = new StringBuilder();
+		synchronized (lock) {
+			sb.append("Turns: ").append(turnHistogram.getCount())
+				.append(", slower than ").append(slowTurnNanos / 1000000L)
+				.append(" ms: ").append(overruns)
+				.append(enabled ? "" : " (disabled)").append('\n');
+			sb.append("\nPhases (mean, p50, p99, max):\n");
+			appendLines(sb, getPhases());
+			sb.append("\nZones by total logic time (calls, total, mean, max):\n");
+			appendLines(sb, getSlowestZones());
+			sb.append("\nTurn listeners by total time (calls, total, mean, max):\n");
+			appendLines(sb, getSlowestTurnListeners());
+			sb.append("\nLatest slow turns:\n");
+			appendLines(sb, getSlowTurns());
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public void reset() {
+		synchronized (lock) {
+			turnHistogram.clear();
+			for (final Histogram histogram : phaseHistograms) {
+				histogram.clear();
+			}
+			zoneTimings.clear();
+			listenerTimings.clear();
+			overruns = 0;
+			for (int i = 0; i < slowTurns.length; i++) {
+				slowTurns[i] = null;
+			}
+			nextSlowTurn = 0;
+		}
+	}
+
+	private static void appendLines(final StringBuilder sb, final String[] lines) {
+		for (final String line : lines) {
+			sb.append("  ").append(line).append('\n');
+		}
+	}
+
+	private static String describe(final String name, final Histogram histogram) {
+		return String.format(Locale.ENGLISH, "%-16s %10.3f %10.3f %10.3f %10.3f", name,
+				histogram.getMean() / NANOS_PER_MILLI,
+				histogram.getPercentile(0.5) / NANOS_PER_MILLI,
+				histogram.getPercentile(0.99) / NANOS_PER_MILLI,
+				histogram.getMax() / NANOS_PER_MILLI);
+	}
+
+	private static String[] describeTop(final Map<String, Timing> timings) {
+		final List<Map.Entry<String, Timing>> entries = new ArrayList<Map.Entry<String, Timing>>(timings.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<String, Timing>>() {
+			@Override
+			public int compare(final Map.Entry<String, Timing> a, final Map.Entry<String, Timing> b) {
+				return Long.compare(b.getValue().total, a.getValue().total);
+			}
+		});
+		final int size = Math.min(REPORT_TOP, entries.size());
+		final String[] result = new String[size];
+		for (int i = 0; i < size; i++) {
+			final Timing timing = entries.get(i).getValue();
+			result[i] = String.format(Locale.ENGLISH, "%-40s %8d %10.3f %10.3f %10.3f",
+					entries.get(i).getKey(), timing.count, timing.total / NANOS_PER_MILLI,
+					timing.total / NANOS_PER_MILLI / timing.count, timing.max / NANOS_PER_MILLI);
+		}
+		return result;
+	}
+
+	private static String millis(final long nanos) {
+		return String.format(Locale.ENGLISH, "%.3f ms", nanos / NANOS_PER_MILLI);
+	}
+}
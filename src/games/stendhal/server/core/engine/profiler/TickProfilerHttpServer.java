@@ -0,0 +1,89 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.profiler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.log4j.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves the report of the {@link TickProfiler} as plain text. The server
+ * listens only on the loopback interface; use an ssh tunnel or a reverse
+ * proxy to read it remotely.
+ */
+public final class TickProfilerHttpServer {
+	private static final Logger logger = Logger.getLogger(TickProfilerHttpServer.class);
+
+	private final HttpServer server;
+
+	/**
+	 * Create and start a server.
+	 *
+	 * @param profiler profiler to report
+	 * @param port port to listen on, or 0 for any free port
+	 * @throws IOException if the port cannot be opened
+	 */
+	public TickProfilerHttpServer(final TickProfiler profiler, final int port) throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(final HttpExchange exchange) throws IOException {
+				try {
+					final byte[] body;
+					if ("/reset".equals(exchange.getRequestURI().getPath())
+							&& "POST".equals(exchange.getRequestMethod())) {
+						profiler.reset();
+						body = "reset\n".getBytes(StandardCharsets.UTF_8);
+					} else {
+						body = profiler.getReport().getBytes(StandardCharsets.UTF_8);
+					}
+					exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+					exchange.sendResponseHeaders(200, body.length);
+					final OutputStream out = exchange.getResponseBody();
+					try {
+						out.write(body);
+					} finally {
+						out.close();
+					}
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		server.start();
+		logger.info("Tick profiler report available at http://localhost:" + getPort() + "/");
+	}
+
+	/**
+	 * Get the port the server listens on.
+	 *
+	 * @return port
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Stop the server.
+	 */
+	public void stop() {
+		server.stop(0);
+	}
+}
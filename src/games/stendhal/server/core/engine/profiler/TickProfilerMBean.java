@@ -0,0 +1,72 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.profiler;
+
+/**
+ * JMX view of the {@link TickProfiler}. Times are in milliseconds.
+ */
+public interface TickProfilerMBean {
+	/**
+	 * @return number of profiled turns
+	 */
+	long getTurns();
+
+	/**
+	 * @return number of turns that took longer than the slow turn limit
+	 */
+	long getOverruns();
+
+	/**
+	 * @return limit for slow turns
+	 */
+	long getSlowTurnMillis();
+
+	/**
+	 * @return mean duration of the turns
+	 */
+	double getMeanTurnMillis();
+
+	/**
+	 * @return duration of the slowest turn
+	 */
+	double getMaxTurnMillis();
+
+	/**
+	 * @return statistics of each phase of the turn
+	 */
+	String[] getPhases();
+
+	/**
+	 * @return zones with the most expensive logic
+	 */
+	String[] getSlowestZones();
+
+	/**
+	 * @return turn listeners that took the most time
+	 */
+	String[] getSlowestTurnListeners();
+
+	/**
+	 * @return the latest slow turns, oldest first
+	 */
+	String[] getSlowTurns();
+
+	/**
+	 * @return all statistics as text
+	 */
+	String getReport();
+
+	/**
+	 * Clear the statistics.
+	 */
+	void reset();
+}
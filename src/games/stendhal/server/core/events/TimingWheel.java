@@ -0,0 +1,357 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.events;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A hierarchical timing wheel storing the pending TurnNotifications.
+ *
+ * The wheel has four levels of 256 slots each. Level 0 holds the
+ * notifications of the next 256 turns, one slot per turn. Each higher level
+ * covers a 256 times longer period; its slots are redistributed to the lower
+ * levels when the turn counter reaches them. Adding and removing a
+ * notification is O(1), advancing by one turn costs O(1) plus the number of
+ * notifications due or moved down from a higher level.
+ *
+ * Notifications for turns that have been skipped without being reached (for
+ * example when the turn counter jumps) are moved to an extra list of overdue
+ * notifications. They are delivered with the notifications of the turn the
+ * counter jumped to, so that they are not lost.
+ *
+ * The wheel is not thread safe. TurnNotifier synchronizes the access.
+ */
+final class TimingWheel {
+	private static final int LEVELS = 4;
+	private static final int SLOT_BITS = 8;
+	private static final int SLOTS = 1 << SLOT_BITS;
+	private static final int SLOT_MASK = SLOTS - 1;
+	/** Pseudo level for the overdue notifications. */
+	private static final int OVERDUE = LEVELS;
+
+	private final TurnNotification[][] heads = new TurnNotification[LEVELS + 1][];
+	private final TurnNotification[][] tails = new TurnNotification[LEVELS + 1][];
+
+	/** First notification of every listener with pending notifications. */
+	private final Map<TurnListener, TurnNotification> byListener = new HashMap<TurnListener, TurnNotification>();
+
+	/** The last turn the wheel was advanced to. */
+	private int now;
+	/** Number of pending notifications. */
+	private int size;
+
+	/**
+	 * Create a new TimingWheel.
+	 *
+	 * @param now the current turn
+	 */
+	TimingWheel(final int now) {
+		for (int level = 0; level < LEVELS; level++) {
+			heads[level] = new TurnNotification[SLOTS];
+			tails[level] = new TurnNotification[SLOTS];
+		}
+		heads[OVERDUE] = new TurnNotification[1];
+		tails[OVERDUE] = new TurnNotification[1];
+		this.now = now;
+	}
+
+	/**
+	 * Get the number of pending notifications.
+	 *
+	 * @return number of notifications
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Get the turn the wheel was last advanced to.
+	 *
+	 * @return turn number
+	 */
+	int getNow() {
+		return now;
+	}
+
+	/**
+	 * Find a pending notification of a listener at a given turn.
+	 *
+	 * @param listener listener
+	 * @param turn turn
+	 * @return the notification, or <code>null</code> if there is none
+	 */
+	TurnNotification find(final TurnListener listener, final int turn) {
+		for (TurnNotification n = byListener.get(listener); n != null; n = n.nextOfListener) {
+			if (n.turn == turn) {
+				return n;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Get the first pending notification of a listener. The others can be
+	 * reached via <code>nextOfListener</code>.
+	 *
+	 * @param listener listener
+	 * @return first notification, or <code>null</code> if there is none
+	 */
+	TurnNotification first(final TurnListener listener) {
+		return byListener.get(listener);
+	}
+
+	/**
+	 * Add a notification to the wheel.
+	 *
+	 * @param notification new notification
+	 */
+	void add(final TurnNotification notification) {
+		final TurnNotification first = byListener.put(notification.listener, notification);
+		notification.nextOfListener = first;
+		if (first != null) {
+			first.prevOfListener = notification;
+		}
+		notification.pending = true;
+		place(notification);
+		size++;
+	}
+
+	/**
+	 * Remove a pending notification from the wheel.
+	 *
+	 * @param notification notification to remove
+	 */
+	void remove(final TurnNotification notification) {
+		if (!notification.pending) {
+			return;
+		}
+		unlinkSlot(notification);
+		unlinkListener(notification);
+		size--;
+	}
+
+	/**
+	 * Remove all pending notifications of a listener.
+	 *
+	 * @param listener listener
+	 */
+	void removeAll(final TurnListener listener) {
+		TurnNotification n = byListener.get(listener);
+		while (n != null) {
+			final TurnNotification next = n.nextOfListener;
+			remove(n);
+			n = next;
+		}
+	}
+
+	/**
+	 * Remove all notifications.
+	 */
+	void clear() {
+		for (int level = 0; level <= LEVELS; level++) {
+			final TurnNotification[] levelHeads = heads[level];
+			for (int slot = 0; slot < levelHeads.length; slot++) {
+				for (TurnNotification n = levelHeads[slot]; n != null; n = n.next) {
+					n.pending = false;
+				}
+				levelHeads[slot] = null;
+				tails[level][slot] = null;
+			}
+		}
+		byListener.clear();
+		size = 0;
+	}
+
+	/**
+	 * Advance the wheel to a turn and take out the notifications due at that
+	 * turn, preceded by the overdue notifications of skipped turns. The
+	 * notifications are returned as a list linked by their <code>next</code>
+	 * field and are no longer pending.
+	 *
+	 * @param turn the new current turn
+	 * @return first due notification, or <code>null</code> if there is none
+	 */
+	TurnNotification advance(final int turn) {
+		if (turn != now + 1) {
+			// the notifications of the skipped turns become overdue
+			rebase(turn);
+		}
+		now = turn;
+
+		if ((now & SLOT_MASK) == 0) {
+			for (int level = 1; level < LEVELS; level++) {
+				cascade(level);
+				if (((now >> (SLOT_BITS * level)) & SLOT_MASK) != 0) {
+					break;
+				}
+			}
+		}
+
+		final int slot = now & SLOT_MASK;
+		TurnNotification due = heads[0][slot];
+		heads[0][slot] = null;
+		tails[0][slot] = null;
+
+		// deliver the notifications of skipped turns first
+		final TurnNotification overdue = heads[OVERDUE][0];
+		if (overdue != null) {
+			final TurnNotification overdueTail = tails[OVERDUE][0];
+			heads[OVERDUE][0] = null;
+			tails[OVERDUE][0] = null;
+			overdueTail.next = due;
+			if (due != null) {
+				due.prev = overdueTail;
+			}
+			due = overdue;
+		}
+		for (TurnNotification n = due; n != null; n = n.next) {
+			unlinkListener(n);
+			size--;
+		}
+		return due;
+	}
+
+	/**
+	 * Create a snapshot of the pending notifications sorted by turn.
+	 *
+	 * @return map of turn to the listeners notified at that turn
+	 */
+	Map<Integer, Set<TurnListener>> snapshot() {
+		final Map<Integer, Set<TurnListener>> res = new TreeMap<Integer, Set<TurnListener>>();
+		for (int level = 0; level <= LEVELS; level++) {
+			for (final TurnNotification head : heads[level]) {
+				for (TurnNotification n = head; n != null; n = n.next) {
+					Set<TurnListener> set = res.get(Integer.valueOf(n.turn));
+					if (set == null) {
+						set = new LinkedHashSet<TurnListener>();
+						res.put(Integer.valueOf(n.turn), set);
+					}
+					set.add(n.listener);
+				}
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Move the notifications of a higher level slot to the lower levels.
+	 *
+	 * @param level level
+	 */
+	private void cascade(final int level) {
+		final int slot = (now >> (SLOT_BITS * level)) & SLOT_MASK;
+		TurnNotification n = heads[level][slot];
+		heads[level][slot] = null;
+		tails[level][slot] = null;
+		while (n != null) {
+			final TurnNotification next = n.next;
+			place(n);
+			n = next;
+		}
+	}
+
+	/**
+	 * Re-sort all notifications relative to a new current turn. This is only
+	 * needed when the turn counter does not advance one by one.
+	 *
+	 * @param base new current turn
+	 */
+	private void rebase(final int base) {
+		final List<TurnNotification> all = new ArrayList<TurnNotification>(size);
+		for (int level = 0; level <= LEVELS; level++) {
+			final TurnNotification[] levelHeads = heads[level];
+			for (int slot = 0; slot < levelHeads.length; slot++) {
+				for (TurnNotification n = levelHeads[slot]; n != null; n = n.next) {
+					all.add(n);
+				}
+				levelHeads[slot] = null;
+				tails[level][slot] = null;
+			}
+		}
+		now = base;
+		for (final TurnNotification n : all) {
+			place(n);
+		}
+	}
+
+	/**
+	 * Put a notification into the slot matching its turn.
+	 *
+	 * @param n notification
+	 */
+	private void place(final TurnNotification n) {
+		final long delta = (long) n.turn - now;
+		if (delta < 0) {
+			n.level = OVERDUE;
+			n.slot = 0;
+		} else if (delta < SLOTS) {
+			n.level = 0;
+			n.slot = n.turn & SLOT_MASK;
+		} else {
+			int level = 1;
+			while ((level < LEVELS - 1) && (delta >= (1L << (SLOT_BITS * (level + 1))))) {
+				level++;
+			}
+			n.level = level;
+			n.slot = (n.turn >> (SLOT_BITS * level)) & SLOT_MASK;
+		}
+
+		final TurnNotification tail = tails[n.level][n.slot];
+		n.prev = tail;
+		n.next = null;
+		if (tail == null) {
+			heads[n.level][n.slot] = n;
+		} else {
+			tail.next = n;
+		}
+		tails[n.level][n.slot] = n;
+	}
+
+	private void unlinkSlot(final TurnNotification n) {
+		if (n.prev == null) {
+			heads[n.level][n.slot] = n.next;
+		} else {
+			n.prev.next = n.next;
+		}
+		if (n.next == null) {
+			tails[n.level][n.slot] = n.prev;
+		} else {
+			n.next.prev = n.prev;
+		}
+		n.prev = null;
+		n.next = null;
+	}
+
+	private void unlinkListener(final TurnNotification n) {
+		if (n.prevOfListener == null) {
+			if (n.nextOfListener == null) {
+				byListener.remove(n.listener);
+			} else {
+				byListener.put(n.listener, n.nextOfListener);
+			}
+		} else {
+			n.prevOfListener.nextOfListener = n.nextOfListener;
+		}
+		if (n.nextOfListener != null) {
+			n.nextOfListener.prevOfListener = n.prevOfListener;
+		}
+		n.prevOfListener = null;
+		n.nextOfListener = null;
+		n.pending = false;
+	}
+}
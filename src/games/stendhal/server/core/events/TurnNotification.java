@@ -0,0 +1,92 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.events;
+
+/**
+ * A pending notification registered at the TurnNotifier. It can be used to
+ * cancel exactly this notification without searching for the listener.
+ */
+public final class TurnNotification {
+	/** The notifier this notification is registered at. */
+	private final TurnNotifier notifier;
+	/** The listener to notify. */
+	final TurnListener listener;
+	/** The turn at which the listener should be notified. */
+	final int turn;
+	/** <code>true</code> while the notification is waiting in the wheel. */
+	boolean pending;
+
+	/** Wheel level and slot of the notification. */
+	int level;
+	int slot;
+	/** Neighbours in the wheel slot. */
+	TurnNotification prev;
+	TurnNotification next;
+	/** Neighbours in the list of notifications of the same listener. */
+	TurnNotification prevOfListener;
+	TurnNotification nextOfListener;
+
+	/**
+	 * Create a new TurnNotification.
+	 *
+	 * @param notifier notifier the notification belongs to
+	 * @param listener listener to notify
+	 * @param turn turn at which the listener is notified
+	 */
+	TurnNotification(final TurnNotifier notifier, final TurnListener listener, final int turn) {
+		this.notifier = notifier;
+		this.listener = listener;
+		this.turn = turn;
+	}
+
+	/**
+	 * Get the listener that will be notified.
+	 *
+	 * @return listener
+	 */
+	public TurnListener getListener() {
+		return listener;
+	}
+
+	/**
+	 * Get the turn at which the listener will be notified.
+	 *
+	 * @return turn number
+	 */
+	public int getTurn() {
+		return turn;
+	}
+
+	/**
+	 * Check if the notification is still waiting to be delivered.
+	 *
+	 * @return <code>true</code>, if the listener has neither been notified nor
+	 * 	the notification been cancelled
+	 */
+	public boolean isPending() {
+		return pending;
+	}
+
+	/**
+	 * Cancel the notification. Other notifications of the same listener are
+	 * not affected. Cancelling a notification that is no longer pending does
+	 * nothing.
+	 */
+	public void cancel() {
+		notifier.cancel(this);
+	}
+
+	@Override
+	public String toString() {
+		return "TurnNotification [turn=" + turn + ", listener=" + listener + "]";
+	}
+}
@@ -12,11 +12,7 @@
  ***************************************************************************/
 package games.stendhal.server.core.events;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
+import java.util.AbstractMap;
 import java.util.Map;
 import java.util.Set;
 
@@ -24,6 +20,7 @@ import org.apache.log4j.Logger;
 
 import games.stendhal.server.core.engine.SingletonRepository;
 import games.stendhal.server.core.engine.StendhalRPWorld;
+import games.stendhal.server.core.engine.profiler.TickProfiler;
 
 /**
  * Other classes can register here to be notified at some time in the future.
@@ -40,15 +37,23 @@ public final class TurnNotifier {
 	private int currentTurn = -1;
 
 	/**
-	 * This Map maps each turn to the set of all events that will take place at
-	 * this turn. Turns at which no event should take place needn't be
-	 * registered here.
+	 * The pending notifications sorted into a hierarchical timing wheel. Turns
+	 * at which no event should take place do not cost anything.
 	 */
-	private final Map<Integer, Set<TurnListener>> register = new HashMap<Integer, Set<TurnListener>>();
+	private final TimingWheel register = new TimingWheel(currentTurn);
 
 	/** Used for multi-threading synchronization. * */
 	private final Object sync = new Object();
 
+	/** Number of listeners notified in the last turn. */
+	private int listenersFiredLastTurn;
+
+	/** Time spent notifying listeners in the last turn in nanoseconds. */
+	private long nanosSpentLastTurn;
+
+	/** Total number of listeners notified. */
+	private long listenersFiredTotal;
+
 
 	/**
 	 * Return the TurnNotifier instance.
@@ -85,35 +90,40 @@ public final class TurnNotifier {
 
 		this.currentTurn = currentTurn;
 
-		// get and remove the set for this turn
-		Set<TurnListener> set = null;
+		// advance the wheel and take out the notifications of this turn
+		TurnNotification due;
 		synchronized (sync) {
-			set = register.remove(Integer.valueOf(currentTurn));
+			due = register.advance(currentTurn);
 		}
 
 		if (logger.isDebugEnabled()) {
 			final StringBuilder os = new StringBuilder();
 			os.append("register: " + register.size() + "\n");
-			int setSize;
-			if (set != null) {
-				setSize = set.size();
-			} else {
-				setSize = 0;
+			int setSize = 0;
+			for (TurnNotification n = due; n != null; n = n.next) {
+				setSize++;
 			}
 			os.append("set: " + setSize + "\n");
 			logger.info(os);
 		}
 
-		if (set != null) {
-			for (final TurnListener turnListener : set) {
-
-				try {
-					turnListener.onTurnReached(currentTurn);
-				} catch (final RuntimeException e) {
-					logger.error("Exception in " + turnListener, e);
-				}
+		final TickProfiler profiler = TickProfiler.get();
+		final long start = System.nanoTime();
+		int fired = 0;
+		for (TurnNotification n = due; n != null; n = n.next) {
+			final TurnListener turnListener = n.listener;
+			fired++;
+			final long listenerStart = profiler.start();
+			try {
+				turnListener.onTurnReached(currentTurn);
+			} catch (final RuntimeException e) {
+				logger.error("Exception in " + turnListener, e);
 			}
+			profiler.listener(turnListener, listenerStart);
 		}
+		nanosSpentLastTurn = System.nanoTime() - start;
+		listenersFiredLastTurn = fired;
+		listenersFiredTotal += fired;
 	}
 
 	/**
@@ -123,10 +133,11 @@ public final class TurnNotifier {
 	 *            the number of turns to wait before notifying
 	 * @param turnListener
 	 *            the object to notify
+	 * @return handle of the notification, or <code>null</code> if it was rejected
 	 */
 
-	public void notifyInTurns(final int diff, final TurnListener turnListener) {
-		notifyAtTurn(currentTurn + diff + 1, turnListener);
+	public TurnNotification notifyInTurns(final int diff, final TurnListener turnListener) {
+		return notifyAtTurn(currentTurn + diff + 1, turnListener);
 	}
 
 	/**
@@ -136,9 +147,10 @@ public final class TurnNotifier {
 	 *            the number of seconds to wait before notifying
 	 * @param turnListener
 	 *            the object to notify
+	 * @return handle of the notification, or <code>null</code> if it was rejected
 	 */
-	public void notifyInSeconds(final int sec, final TurnListener turnListener) {
-		notifyInTurns(SingletonRepository.getRPWorld().getTurnsInSeconds(sec),
+	public TurnNotification notifyInSeconds(final int sec, final TurnListener turnListener) {
+		return notifyInTurns(SingletonRepository.getRPWorld().getTurnsInSeconds(sec),
 				turnListener);
 	}
 
@@ -149,12 +161,13 @@ public final class TurnNotifier {
 	 *            the number of the turn
 	 * @param turnListener
 	 *            the object to notify
+	 * @return handle of the notification, or <code>null</code> if it was rejected
 	 */
 
-	public void notifyAtTurn(final int turn, final TurnListener turnListener) {
+	public TurnNotification notifyAtTurn(final int turn, final TurnListener turnListener) {
 		if (turnListener == null) {
 			logger.error("Trying to notify null-object", new Throwable());
-			return;
+			return null;
 		}
 
 		if (logger.isDebugEnabled()) {
@@ -173,19 +186,29 @@ public final class TurnNotifier {
 			logger.error("requested turn " + turn
 					+ " is in the past. Current turn is " + currentTurn,
 					new IllegalArgumentException("turn"));
-			return;
+			return null;
 		}
 
 		synchronized (sync) {
-			// do we have other events for this turn?
-			final Integer turnInt = Integer.valueOf(turn);
-			Set<TurnListener> set = register.get(turnInt);
-			if (set == null) {
-				set = new HashSet<TurnListener>();
-				register.put(turnInt, set);
+			// is the listener already registered for this turn?
+			TurnNotification notification = register.find(turnListener, turn);
+			if (notification == null) {
+				notification = new TurnNotification(this, turnListener, turn);
+				register.add(notification);
 			}
-			// add it to the list
-			set.add(turnListener);
+			return notification;
+		}
+	}
+
+	/**
+	 * Cancels a single notification.
+	 *
+	 * @param notification
+	 *            the notification to cancel
+	 */
+	void cancel(final TurnNotification notification) {
+		synchronized (sync) {
+			register.remove(notification);
 		}
 	}
 
@@ -198,18 +221,8 @@ public final class TurnNotifier {
 
 	public void dontNotify(final TurnListener turnListener) {
 		// all events that are equal to this one should be forgotten.
-		// TurnEvent turnEvent = new TurnEvent(turnListener);
-		for (final Map.Entry<Integer, Set<TurnListener>> mapEntry : register.entrySet()) {
-			final Set<TurnListener> set = mapEntry.getValue();
-			// We don't remove directly, but first store in this
-			// set. This is to avoid ConcurrentModificationExceptions.
-			final Set<TurnListener> toBeRemoved = new HashSet<TurnListener>();
-			if (set.contains(turnListener)) {
-					toBeRemoved.add(turnListener);
-			}
-			for (final TurnListener event : toBeRemoved) {
-				set.remove(event);
-			}
+		synchronized (sync) {
+			register.removeAll(turnListener);
 		}
 	}
 
@@ -224,23 +237,16 @@ public final class TurnNotifier {
 
 	public int getRemainingTurns(final TurnListener turnListener) {
 		// all events match that are equal to this.
-		// TurnEvent turnEvent = new TurnEvent(turnListener);
-		// the HashMap is unsorted, so we need to run through
-		// all of it.
-		final List<Integer> matchingTurns = new ArrayList<Integer>();
-		for (final Map.Entry<Integer, Set<TurnListener>> mapEntry : register.entrySet()) {
-			final Set<TurnListener> set = mapEntry.getValue();
-			for (final TurnListener currentEvent : set) {
-				if (currentEvent.equals(turnListener)) {
-					matchingTurns.add(mapEntry.getKey());
-				}
+		synchronized (sync) {
+			TurnNotification n = register.first(turnListener);
+			if (n == null) {
+				return -1;
 			}
-		}
-		if (matchingTurns.size() > 0) {
-			Collections.sort(matchingTurns);
-			return matchingTurns.get(0).intValue() - currentTurn;
-		} else {
-			return -1;
+			int turn = n.turn;
+			for (n = n.nextOfListener; n != null; n = n.nextOfListener) {
+				turn = Math.min(turn, n.turn);
+			}
+			return turn - currentTurn;
 		}
 	}
 
@@ -260,12 +266,65 @@ public final class TurnNotifier {
 
 	/**
 	 * Returns the list of events. Note this is only for debugging the
-	 * TurnNotifier
+	 * TurnNotifier. The returned map is a snapshot, except for clear()
+	 * which removes all pending notifications.
 	 *
 	 * @return eventList
 	 */
 	public Map<Integer, Set<TurnListener>> getEventListForDebugging() {
-		return register;
+		return new AbstractMap<Integer, Set<TurnListener>>() {
+			@Override
+			public Set<Map.Entry<Integer, Set<TurnListener>>> entrySet() {
+				synchronized (sync) {
+					return register.snapshot().entrySet();
+				}
+			}
+
+			@Override
+			public void clear() {
+				synchronized (sync) {
+					register.clear();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns the number of pending notifications.
+	 *
+	 * @return number of notifications waiting for their turn
+	 */
+	public int getPendingCount() {
+		synchronized (sync) {
+			return register.size();
+		}
+	}
+
+	/**
+	 * Returns the number of listeners notified in the last turn.
+	 *
+	 * @return number of notified listeners
+	 */
+	public int getListenersFiredLastTurn() {
+		return listenersFiredLastTurn;
+	}
+
+	/**
+	 * Returns the time spent notifying listeners in the last turn.
+	 *
+	 * @return time in nanoseconds
+	 */
+	public long getNanosSpentLastTurn() {
+		return nanosSpentLastTurn;
+	}
+
+	/**
+	 * Returns the total number of listeners notified since server start.
+	 *
+	 * @return number of notified listeners
+	 */
+	public long getListenersFiredTotal() {
+		return listenersFiredTotal;
 	}
 
 	/**
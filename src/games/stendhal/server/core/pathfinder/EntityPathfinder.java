@@ -12,9 +12,10 @@
  ***************************************************************************/
 package games.stendhal.server.core.pathfinder;
 
-import java.awt.Point;
 import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
 
+import games.stendhal.server.core.engine.ResistanceGrid;
 import games.stendhal.server.core.engine.StendhalRPZone;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.mapstuff.portal.Portal;
@@ -42,6 +43,16 @@ class EntityPathfinder extends games.stendhal.server.core.pathfinder.Pathfinder
 
 	private final boolean checkEntities;
 
+	/**
+	 * Reusable resistance data of each thread.
+	 */
+	private static final ThreadLocal<ResistanceMap> resistanceMaps = new ThreadLocal<ResistanceMap>() {
+		@Override
+		protected ResistanceMap initialValue() {
+			return new ResistanceMap();
+		}
+	};
+
 	/**
 	 * Contains the resistance data for entities.
 	 */
@@ -59,84 +70,151 @@ class EntityPathfinder extends games.stendhal.server.core.pathfinder.Pathfinder
 	protected void init() {
 		super.init();
 		if (checkEntities) {
-			createEntityCollisionMap();
+			resistanceMap = resistanceMaps.get();
+			if (entity.getResistance() == ResistanceGrid.COLLISION) {
+				createLocalCollisionMap();
+			} else {
+				createEntityCollisionMap();
+			}
 		}
 	}
 
 	/**
-	 * Creates resistance data for entities.
+	 * Creates resistance data for entities by checking every entity in the
+	 * zone.
 	 * <p>The positions with entities are only
 	 * considered as not valid if they:
 	 * <li> are next to the start position or
 	 * <li> have stopped
 	 */
 	private void createEntityCollisionMap() {
-		Point targetPoint = new Point(goalNode.getX(), goalNode.getY());
-		resistanceMap = new ResistanceMap(zone.getWidth(), zone.getHeight());
+		resistanceMap.reset(zone.getWidth(), zone.getHeight(), null, null);
 		for (final RPObject obj : zone) {
-			final Entity otherEntity = (Entity) obj;
-			if (!entity.getID().equals(otherEntity.getID())
-					&& (otherEntity.stopped()|| (otherEntity.squaredDistance(startNode.getX(), startNode.getY()) < COLLISION_DISTANCE_SQUARED))) {
-				final Rectangle2D area = otherEntity.getArea();
-				// Hack: Allow players to move onto portals as destination
-				if ((entity instanceof Player) && (otherEntity instanceof Portal) && area.contains(targetPoint)) {
-					continue;
-				}
-				int resistance = otherEntity.getResistance(entity);
-				resistanceMap.addResistance(area, resistance);
+			addResistance((Entity) obj);
+		}
+	}
+
+	/**
+	 * Creates resistance data for entities using the resistance data the
+	 * zone keeps of its stopped entities. That data is valid for entities
+	 * with full resistance, and needs only be corrected around the start
+	 * position, where moving entities count too, and at the target, where a
+	 * player may enter a portal.
+	 */
+	private void createLocalCollisionMap() {
+		resistanceMap.reset(zone.getWidth(), zone.getHeight(), zone.getResistanceGrid(), entity);
+
+		Rectangle2D region = null;
+		for (final Entity other : zone.getEntitiesIntersecting(getStartArea(getStartX(), getStartY()))) {
+			if (isMovingNeighbour(entity, other, getStartX(), getStartY())) {
+				region = union(region, other.getArea());
+			}
+		}
+		if (entity instanceof Player) {
+			for (final Portal portal : zone.getEntitiesAt(getGoalX(), getGoalY(), Portal.class)) {
+				region = union(region, portal.getArea());
+			}
+		}
+
+		if (region != null) {
+			resistanceMap.override(region);
+			for (final Entity other : zone.getEntitiesIntersecting(region)) {
+				addResistance(other);
 			}
 		}
 	}
 
-	@Override
-	public TreeNode createNode(int x, int y) {
-		return new PathTreeNode(x, y);
+	/**
+	 * Get the area where moving entities can be close enough to the start
+	 * position to count as obstacles.
+	 *
+	 * @param x start x
+	 * @param y start y
+	 * @return area around the start position
+	 */
+	private static Rectangle2D getStartArea(final int x, final int y) {
+		return new Rectangle2D.Double(x - 1, y - 1, 3, 3);
 	}
 
 	/**
-	 * Pathfinder node
+	 * Check if another entity is a moving obstacle next to the start position.
+	 *
+	 * @param entity the searching entity
+	 * @param other entity to check
+	 * @param x start x
+	 * @param y start y
+	 * @return <code>true</code> if the other entity is moving, but counts as
+	 * 	an obstacle
 	 */
-	private class PathTreeNode extends TreeNode {
-		private final double cost;
-
-		protected PathTreeNode(int x, int y) {
-			super(x, y);
-
-			/*
-			 * Modify movement cost by resistance
-			 */
-			if (resistanceMap != null) {
-				int resistance = resistanceMap.getResistance(x, y , entity.getWidth(), entity.getHeight());
-				cost = 100.0 / (100 - resistance);
-			} else {
-				cost = 1.0;
+	private static boolean isMovingNeighbour(final Entity entity, final Entity other, final int x, final int y) {
+		return (other != entity) && !other.stopped() && (other.getResistance() > 0)
+				&& (other.squaredDistance(x, y) < COLLISION_DISTANCE_SQUARED);
+	}
+
+	/**
+	 * Add the resistance of another entity to the resistance map, if it
+	 * is relevant for the searching entity.
+	 *
+	 * @param otherEntity entity to check
+	 */
+	private void addResistance(final Entity otherEntity) {
+		if (!entity.getID().equals(otherEntity.getID())
+				&& (otherEntity.stopped()|| (otherEntity.squaredDistance(getStartX(), getStartY()) < COLLISION_DISTANCE_SQUARED))) {
+			final Rectangle2D area = otherEntity.getArea();
+			// Hack: Allow players to move onto portals as destination
+			if ((entity instanceof Player) && (otherEntity instanceof Portal) && area.contains(getGoalX(), getGoalY())) {
+				return;
 			}
+			int resistance = otherEntity.getResistance(entity);
+			resistanceMap.addResistance(area, resistance);
 		}
+	}
 
-		@Override
-		protected double getCost() {
-			return cost;
+	/**
+	 * Get the union of two areas.
+	 *
+	 * @param region first area, or <code>null</code>
+	 * @param area second area
+	 * @return union of the areas
+	 */
+	private static Rectangle2D union(final Rectangle2D region, final Rectangle2D area) {
+		if (region == null) {
+			return new Rectangle2D.Double(area.getX(), area.getY(), area.getWidth(), area.getHeight());
 		}
+		region.add(area);
+		return region;
+	}
 
-		@Override
-		public TreeNode createNode(int x, int y) {
-			return new PathTreeNode(x, y);
-		}
+	@Override
+	protected int getWidth() {
+		return zone.getWidth();
+	}
 
-		@Override
-		protected int createNodeID(int x, int y) {
-			return x + y * zone.getWidth();
-		}
+	@Override
+	protected int getHeight() {
+		return zone.getHeight();
+	}
 
-		@Override
-		public boolean isValid(int x, int y) {
-			boolean result = !zone.simpleCollides(entity, x, y, entity.getWidth(), entity.getHeight());
-			if (checkEntities && result) {
-				result = !resistanceMap.collides(x, y, entity.getWidth(), entity.getHeight());
-			}
+	@Override
+	protected double getCost(int x, int y) {
+		/*
+		 * Modify movement cost by resistance
+		 */
+		if (resistanceMap != null) {
+			int resistance = resistanceMap.getResistance(x, y , entity.getWidth(), entity.getHeight());
+			return 100.0 / (100 - resistance);
+		}
+		return 1.0;
+	}
 
-			return result;
+	@Override
+	protected boolean isValid(int x, int y) {
+		boolean result = !zone.simpleCollides(entity, x, y, entity.getWidth(), entity.getHeight());
+		if (checkEntities && result) {
+			result = !resistanceMap.collides(x, y, entity.getWidth(), entity.getHeight());
 		}
+
+		return result;
 	}
 
 	/**
@@ -148,19 +226,76 @@ class EntityPathfinder extends games.stendhal.server.core.pathfinder.Pathfinder
 		/** Minimum resistance that is considered a collision */
 		private static final int COLLIDE_THRESHOLD = 95;
 
-		private final int width, height;
-		private final int[][] map;
+		private int width, height;
+		/** Resistance values, indexed by <code>x + y * width</code> */
+		private int[] map = new int[0];
+		/**
+		 * Generation in which each value was last written. Values of older
+		 * generations count as 0, so the map does not need to be cleared.
+		 */
+		private int[] stamp = new int[0];
+		private int generation;
+		/**
+		 * Resistance data of the zone used for positions that have not been
+		 * written, or <code>null</code>.
+		 */
+		private ResistanceGrid grid;
+		/** The searching entity, that is left out from the zone data. */
+		private Entity searcher;
+		/** The area <code>addResistance()</code> writes to. */
+		private int clipX1, clipY1, clipX2, clipY2;
 
 		/**
-		 * Create a new ResistanceMap.
+		 * Clear the map and prepare it for an area of the given size.
 		 *
 		 * @param width width of the area
 		 * @param height height of the area
+		 * @param grid resistance data of the zone used for all positions
+		 * 	outside an overridden area, or <code>null</code> if all
+		 * 	resistance is added to this map
+		 * @param searcher the searching entity
 		 */
-		public ResistanceMap(int width, int height) {
+		void reset(int width, int height, ResistanceGrid grid, Entity searcher) {
 			this.width = width;
 			this.height = height;
-			map = new int[width][height];
+			this.grid = grid;
+			this.searcher = searcher;
+			final int size = width * height;
+			if (map.length < size) {
+				map = new int[size];
+				stamp = new int[size];
+				generation = 0;
+			}
+			generation++;
+			if (generation == 0) {
+				Arrays.fill(stamp, 0);
+				generation = 1;
+			}
+			clipX1 = 0;
+			clipY1 = 0;
+			clipX2 = width;
+			clipY2 = height;
+		}
+
+		/**
+		 * Replace the zone data within an area. Only the resistance added
+		 * afterwards counts within the area, and it is not added outside of
+		 * it.
+		 *
+		 * @param area overridden area
+		 */
+		void override(Rectangle2D area) {
+			clipX1 = (int) Math.max(0, area.getX());
+			clipX2 = (int) Math.min(width, area.getX() + area.getWidth());
+			clipY1 = (int) Math.max(0, area.getY());
+			clipY2 = (int) Math.min(height, area.getY() + area.getHeight());
+			for (int k = clipX1; k < clipX2; k++) {
+				for (int i = clipY1; i < clipY2; i++) {
+					final int index = k + i * width;
+					map[index] = 0;
+					stamp[index] = generation;
+				}
+			}
 		}
 
 		/**
@@ -189,10 +324,10 @@ class EntityPathfinder extends games.stendhal.server.core.pathfinder.Pathfinder
 			double w = area.getWidth();
 			double h = area.getHeight();
 
-			final int startx = (int) Math.max(0, x);
-			final int endx = (int) Math.min(width, x + w);
-			final int starty = (int) Math.max(0, y);
-			final int endy = (int) Math.min(height, y + h);
+			final int startx = (int) Math.max(clipX1, x);
+			final int endx = (int) Math.min(clipX2, x + w);
+			final int starty = (int) Math.max(clipY1, y);
+			final int endy = (int) Math.min(clipY2, y + h);
 
 			// Fill the area
 			for (int k = startx; k < endx; k++) {
@@ -204,14 +339,16 @@ class EntityPathfinder extends games.stendhal.server.core.pathfinder.Pathfinder
 					 * want to give something like corpses some resistance to
 					 * make it harder to wade through a pile of bodies.
 					 */
-					int old = map[k][i];
+					final int index = k + i * width;
+					int old = (stamp[index] == generation) ? map[index] : 0;
 					/*
 					 * Add up like probabilities. Several slightly resistant
 					 * entities can still add up to a completely impassable
 					 * barrier, when the resistance grows over
 					 * COLLIDE_THRESHOLD.
 					 */
-					map[k][i] = 100 - ((100 - old) * (100 - resistance)) / 100;
+					map[index] = 100 - ((100 - old) * (100 - resistance)) / 100;
+					stamp[index] = generation;
 				}
 			}
 		}
@@ -243,7 +380,15 @@ class EntityPathfinder extends games.stendhal.server.core.pathfinder.Pathfinder
 			int resistance = 0;
 			for (int k = startx; k < endx; k++) {
 				for (int i = starty; i < endy; i++) {
-					int r = map[k][i];
+					final int index = k + i * width;
+					int r;
+					if (stamp[index] == generation) {
+						r = map[index];
+					} else if (grid != null) {
+						r = grid.getResistance(k, i, false, searcher);
+					} else {
+						continue;
+					}
 					if (r > COLLIDE_THRESHOLD) {
 						/*
 						 * A full collision is always collision, regardless of
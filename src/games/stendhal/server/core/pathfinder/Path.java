@@ -14,6 +14,7 @@ package games.stendhal.server.core.pathfinder;
 
 import java.awt.Rectangle;
 import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.log4j.Logger;
@@ -115,6 +116,15 @@ public abstract class Path {
 			zone = sourceEntity.getZone();
 		}
 
+		final ZoneNavigation navigation = zone.getNavigation();
+		if (!navigation.isReachable(sourceEntity.getWidth(), sourceEntity.getHeight(), x, y, destination)) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Pathfinding skipped, unreachable destination: " + zone.getID() + " "
+						+ sourceEntity.getTitle() + " (" + x + ", " + y + ") " + destination);
+			}
+			return new ArrayList<Node>(0);
+		}
+
 		//
 		// long startTimeNano = System.nanoTime();
 		final long startTime = System.currentTimeMillis();
@@ -122,7 +132,8 @@ public abstract class Path {
 		final EntityPathfinder pathfinder = new EntityPathfinder(sourceEntity, zone, x, y,
 				destination, maxDistance, withEntities);
 
-		final List<Node> resultPath = pathfinder.getPath();
+		final List<Node> resultPath = getPath(pathfinder, navigation.getCorridor(sourceEntity.getWidth(),
+				sourceEntity.getHeight(), x, y, destination));
 		if (logger.isDebugEnabled()
 				&& (pathfinder.getStatus() == Pathfinder.PATH_NOT_FOUND)) {
 			logger.debug("Pathfinding aborted: " + zone.getID() + " "
@@ -148,7 +159,33 @@ public abstract class Path {
 	 */
 	public static List<Node> searchPath(final StendhalRPZone zone, final int startX, final int startY, final int destX,
 			final int destY, final double maxDistance) {
-		final Pathfinder pathfinder = new SimplePathfinder(zone, startX, startY, new Rectangle(destX, destY, 1, 1), maxDistance);
+		final Rectangle destination = new Rectangle(destX, destY, 1, 1);
+		final ZoneNavigation navigation = zone.getNavigation();
+		if (!navigation.isReachable(1, 1, startX, startY, destination)) {
+			return new ArrayList<Node>(0);
+		}
+
+		final Pathfinder pathfinder = new SimplePathfinder(zone, startX, startY, destination, maxDistance);
+		return getPath(pathfinder, navigation.getCorridor(1, 1, startX, startY, destination));
+	}
+
+	/**
+	 * Run a path search, first limited to the clusters of a corridor. If
+	 * entities block the corridor, the search is repeated without the limit.
+	 *
+	 * @param pathfinder path finder
+	 * @param corridor expected clusters of the path, or <code>null</code>
+	 * @return found path, or an empty list if no path was found
+	 */
+	private static List<Node> getPath(final Pathfinder pathfinder, final ZoneNavigation.Corridor corridor) {
+		if (corridor != null) {
+			pathfinder.setCorridor(corridor);
+			final List<Node> path = pathfinder.getPath();
+			if (!path.isEmpty()) {
+				return path;
+			}
+			pathfinder.setCorridor(null);
+		}
 		return pathfinder.getPath();
 	}
 
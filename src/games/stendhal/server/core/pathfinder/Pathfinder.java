@@ -25,16 +25,17 @@ package games.stendhal.server.core.pathfinder;
 
 
 import java.awt.geom.Rectangle2D;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.PriorityQueue;
-import java.util.Stack;
 
 /**
- * Implements the A* algorithm. Pathing can be done on any class that implements
- * the <code>Navigable</code> interface. See org.generation5.ai.Navigable.
+ * Implements the A* algorithm. Subclasses define the searched area and which
+ * positions can be walked on.
+ * <p>
+ * The search state is kept in a per thread {@link SearchContext} that is
+ * reused between searches, so a search does not allocate node objects or
+ * collections other than the returned path.
  *
  * @author James Matthews
  *
@@ -74,37 +75,9 @@ public abstract class Pathfinder {
 	 * @see #IN_PROGRESS
 	 */
 	private int pathStatus = IN_PROGRESS;
-	/**
-	 * The open list.
-	 */
-	private final PriorityQueue<TreeNode> openList = new PriorityQueue<TreeNode>(16,
-			new Comparator<TreeNode>() {
-		@Override
-		public int compare(final TreeNode o1, final TreeNode o2) {
-			return (int) Math.signum(o1.weight - o2.weight);
-		}
-	});
-
-	private final HashMap<Integer, TreeNode> nodeRegistry = new HashMap<Integer, TreeNode>();
-
-	/**
-	 * The goal node.
-	 */
-	protected TreeNode goalNode;
-
-	/**
-	 * The start node.
-	 */
-	protected TreeNode startNode;
-
-	/**
-	 * The current best node. The best node is taken from the open list after
-	 * every iteration of <code>doStep</code>.
-	 */
-	private TreeNode bestNode;
 
 	/**
-	 * The maximum distance for the path. It is compared with the f value of the
+	 * The maximum distance for the path. It is compared with the g value of the
 	 * node. The minimum for working pathfinding is
 	 * heuristicFromStartNode + 1
 	 */
@@ -115,45 +88,47 @@ public abstract class Pathfinder {
 	 */
 	private final Rectangle2D goalArea;
 
-	/** Initialization data */
+	/** Start position */
 	private final int startX, startY;
-	/** Initialization data */
-	private final Rectangle2D destination;
+	/** Center of the goal area, used for the heuristic */
+	private int goalX, goalY;
 	/** Initialization data */
 	private final double initMaxDist;
 
+	/** Width of the searched area while the search is running. */
+	private int width;
+	/** Height of the searched area while the search is running. */
+	private int height;
+	/** Clusters the search is limited to, or <code>null</code>. */
+	private ZoneNavigation.Corridor corridor;
+
 	protected Pathfinder(final int startX, final int startY, final Rectangle2D destination, final double maxDist) {
 		this.goalArea = destination;
-
-		// Setup the initialization data needed for node creation
 		this.startX = startX;
 		this.startY = startY;
-		this.destination = destination;
 		this.initMaxDist = maxDist;
+	}
 
-		openList.clear();
-		nodeRegistry.clear();
-
-		bestNode = null;
-		pathStatus = IN_PROGRESS;
+	/**
+	 * Limit the following searches to the clusters of a corridor.
+	 *
+	 * @param corridor clusters that may be visited, or <code>null</code> to
+	 * 	search everywhere
+	 */
+	void setCorridor(final ZoneNavigation.Corridor corridor) {
+		this.corridor = corridor;
 	}
 
 	/**
 	 * Initialization that can not be done safely in the constructor.
 	 */
 	protected void init() {
-		/*
-		 * createNode is defined in child classes, so it may require
-		 * work in the child's constructor.
-		 */
-		startNode = createNode(startX, startY);
-		goalNode = createNode((int) (destination.getCenterX()),
-				(int) (destination.getCenterY()));
-		openList.offer(startNode);
-		nodeRegistry.put(startNode.nodeNumber, startNode);
+		goalX = (int) goalArea.getCenterX();
+		goalY = (int) goalArea.getCenterY();
+		pathStatus = IN_PROGRESS;
 
 		// calculate shortest distance and allow a variance of X percent
-		final double startF = 1.1 * startNode.getHeuristic(goalNode) + 1;
+		final double startF = 1.1 * getHeuristic(startX, startY) + 1;
 		this.maxDistance = Math.max(initMaxDist, startF);
 	}
 
@@ -167,73 +142,110 @@ public abstract class Pathfinder {
 		return pathStatus;
 	}
 
+	/**
+	 * Get the x coordinate of the start position.
+	 *
+	 * @return start x
+	 */
+	protected final int getStartX() {
+		return startX;
+	}
+
+	/**
+	 * Get the y coordinate of the start position.
+	 *
+	 * @return start y
+	 */
+	protected final int getStartY() {
+		return startY;
+	}
+
+	/**
+	 * Get the x coordinate of the goal node. It is the center of the
+	 * destination area.
+	 *
+	 * @return goal x
+	 */
+	protected final int getGoalX() {
+		return goalX;
+	}
+
+	/**
+	 * Get the y coordinate of the goal node. It is the center of the
+	 * destination area.
+	 *
+	 * @return goal y
+	 */
+	protected final int getGoalY() {
+		return goalY;
+	}
+
 	public final List<Node> getPath() {
 		init();
-		final List<Node> list = new LinkedList<Node>();
 
 		if (unreachableGoal()) {
-			return list;
+			return new ArrayList<Node>(0);
 		}
 
-		while (pathStatus == Pathfinder.IN_PROGRESS) {
-			doStep();
+		width = getWidth();
+		height = getHeight();
+		if (!inside(startX, startY)) {
+			pathStatus = PATH_NOT_FOUND;
+			return new ArrayList<Node>(0);
 		}
 
-		if (pathStatus == Pathfinder.PATH_FOUND) {
-			TreeNode node = bestNode;
-			while (node != null) {
-				list.add(0, new Node(node.getX(), node.getY()));
-				node = node.getParent();
+		final SearchContext context = SearchContext.acquire(width * height);
+		try {
+			final int start = startX + startY * width;
+			context.visit(start);
+			context.parent[start] = -1;
+			context.g[start] = 0.0;
+			context.weight[start] = 0.0;
+			context.cost[start] = 1.0;
+			context.offer(start);
+
+			int bestNode = -1;
+			while (pathStatus == IN_PROGRESS) {
+				bestNode = doStep(context);
+			}
+
+			if (pathStatus == PATH_FOUND) {
+				final List<Node> list = new ArrayList<Node>();
+				for (int node = bestNode; node != -1; node = context.parent[node]) {
+					list.add(new Node(node % width, node / width));
+				}
+				Collections.reverse(list);
+				return list;
 			}
+		} finally {
+			context.release();
 		}
-		/* */
 
-		return list;
+		return new ArrayList<Node>(0);
 	}
 
 	/**
 	 * Iterate the pathfinder through one step.
+	 *
+	 * @param context search context
+	 * @return the best node of this step
 	 */
-	private void doStep() {
-		bestNode = getBest();
-		if (bestNode == null) {
+	private int doStep(final SearchContext context) {
+		final int bestNode = context.poll();
+		if (bestNode == -1) {
 			pathStatus = PATH_NOT_FOUND;
-			return;
+			return bestNode;
 		}
 
-		if (reachedGoal(bestNode)) {
+		final int x = bestNode % width;
+		final int y = bestNode / width;
+		if (goalArea.contains(x, y)) {
 			pathStatus = PATH_FOUND;
-			return;
-		}
-
-		bestNode.createChildren();
-	}
-
-	/**
-	 * Assigns the best node from the open list.
-	 *
-	 * @return the best node.
-	 */
-	private TreeNode getBest() {
-		if (openList.isEmpty()) {
-			return null;
+			return bestNode;
 		}
 
-		final TreeNode first = openList.poll();
-		first.setOpen(false);
-
-		return first;
-	}
-
-	/**
-	 * Checks if the goal is reached.
-	 *
-	 * @param nodeBest
-	 *            the currently best node
-	 * @return true if the goal is reached
-	 */
-	private boolean reachedGoal(final TreeNode nodeBest) {
-		return goalArea.contains(nodeBest.getX(), nodeBest.getY());
+		createChildren(context, bestNode, x, y);
+		return bestNode;
 	}
 
 	/**
@@ -251,7 +263,7 @@ public abstract class Pathfinder {
 		for (int i = 0; i <= w; i++) {
 			for (int j = 0; j <= h; j++) {
 				if ((i == 0) || (j == 0) || (i == w) || (j == h)) {
-					if (createNode(x + i, y + j).isValid()) {
+					if (isValid(x + i, y + j)) {
 						return false;
 					}
 				}
@@ -262,15 +274,222 @@ public abstract class Pathfinder {
 	}
 
 	/**
-	 * Create a new TreeNode
+	 * Get the width of the searched area.
+	 *
+	 * @return width
+	 */
+	protected abstract int getWidth();
+
+	/**
+	 * Get the height of the searched area.
 	 *
+	 * @return height
+	 */
+	protected abstract int getHeight();
+
+	/**
+	 * Checks if the entity could stand on the given by the coordinates.
+	 * @param x coordinate of the position to be checked
+	 * @param y coordinate of the position to be checked
+	 *
+	 * @return true if the the entity could stand on the position
+	 */
+	protected abstract boolean isValid(int x, int y);
+
+	/**
+	 * The cost of moving to a position. It is queried once per visited
+	 * position and search.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return movement cost
+	 */
+	protected double getCost(final int x, final int y) {
+		return 1.0;
+	}
+
+	/**
+	 * Calculates the heuristic for the move from a position to the goal. <p> The right
+	 * heuristic is very important for A* - a over estimated heuristic will
+	 * turn A* in to bsf - a under estimated heuristic will turn A* in to
+	 * Dijkstra's so the manhattan distance seams to be the optimal
+	 * heuristic here. But it has one disadvantage. It will expand to much.
+	 * Several nodes will have the same f value It will search the area of
+	 * the size (abs(startX - goalX) + 1) * (abs(startY - goalY) + 1) So a
+	 * tie-breaker is needed. 1% square distace seems to work fine. A* will
+	 * prefer nodes closer to the goal.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return heuristic value for move
+	 */
+	private double getHeuristic(final int x, final int y) {
+		final double heuristic = manhattanDistance(x, y, goalX, goalY);
+		final double tieBreaking = 0.01 * squareDistance(x, y, goalX, goalY);
+
+		return heuristic + tieBreaking;
+	}
+
+	/**
+	 * Check if a position is within the searched area.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return <code>true</code> if the position is inside the area
+	 */
+	private boolean inside(final int x, final int y) {
+		return (x >= 0) && (y >= 0) && (x < width) && (y < height);
+	}
+
+	/**
+	 * Creates valid child nodes.
+	 * <p>
+	 * The child nodes have to be
+	 * <ul>
+	 * <li> a valid position
+	 * <li> a g value less than maxDistance (checked against the given node)
+	 * </ul>
+	 *
+	 * @param context search context
+	 * @param node expanded node
 	 * @param x x coordinate of the node
 	 * @param y y coordinate of the node
-	 * @return TreeNode
 	 */
-	// A workaround for java lacking proper generics
-	public abstract TreeNode createNode(final int x, final int y);
+	private void createChildren(final SearchContext context, final int node, final int x, final int y) {
+		if (context.g[node] < maxDistance) {
+			linkChild(context, node, x - 1, y + 0);
+			linkChild(context, node, x + 1, y + 0);
+			linkChild(context, node, x + 0, y - 1);
+			linkChild(context, node, x + 0, y + 1);
+		}
+	}
+
+	/**
+	 * Links the children to this parent node  and may also update the
+	 * parent path, if a shorter path is found.
+	 *
+	 * @param context search context
+	 * @param node parent node
+	 * @param x1 x coordinate of the child
+	 * @param y1 y coordinate of the child
+	 */
+	private void linkChild(final SearchContext context, final int node, final int x1, final int y1) {
+		if (!inside(x1, y1) || ((corridor != null) && !corridor.contains(x1, y1)) || !isValid(x1, y1)) {
+			return;
+		}
+
+		final int child = x1 + y1 * width;
+		if (!context.isVisited(child)) {
+			context.visit(child);
+			context.cost[child] = getCost(x1, y1);
+			updateChild(context, node, child);
+			context.offer(child);
+		} else {
+			// note:
+			// - working on closed nodes is stopped but they may own a better
+			// parent
+			// so they will also be added to this node (parent)
+			if (context.g[child] > (context.g[node] + context.cost[child])) {
+				updateChild(context, node, child);
+				context.decreased(child);
+			}
+
+			// update parents for closed nodes only
+			if (context.heapIndex[child] == SearchContext.CLOSED) {
+				updateSubTree(context, child);
+			}
+		}
+	}
+
+	/**
+	 * Make a node the parent of another node.
+	 *
+	 * @param context search context
+	 * @param node parent node
+	 * @param child child node
+	 */
+	private void updateChild(final SearchContext context, final int node, final int child) {
+		context.parent[child] = node;
+		context.g[child] = context.g[node] + context.cost[child];
+		context.weight[child] = calculateChildWeight(context, node, child);
+	}
+
+	/**
+	 * Calculate node weight for a child node.
+	 *
+	 * @param context search context
+	 * @param node parent node
+	 * @param child the child to be calculated
+	 * @return weight for the child node
+	 */
+	private double calculateChildWeight(final SearchContext context, final int node, final int child) {
+		final int childX = child % width;
+		final int childY = child / width;
+		double childweight = context.g[child] + getHeuristic(childX, childY);
+
+		// Prefer nodes that do not result in direction change
+		final int parent = context.parent[node];
+		if (parent != -1) {
+			final int x = node % width;
+			final int y = node / width;
+			final int incx = parent % width - x;
+			final int incy = parent / width - y;
+
+			final int incx2 = x - childX;
+			final int incy2 = y - childY;
+
+			if ((incx == incx2) && (incy == incy2)) {
+				childweight -= STRAIGHT_PATH_PREFERENCE_FACTOR;
+			}
+		}
 
+		return childweight;
+	}
+
+	/**
+	 * Update the parents for the new route.
+	 *
+	 * @param context search context
+	 * @param node the root node.
+	 */
+	private void updateSubTree(final SearchContext context, final int node) {
+		int size = 0;
+		context.push(size++, node);
+
+		while (size > 0) {
+			final int parent = context.stack[--size];
+			final int x = parent % width;
+			final int y = parent / width;
+			size = relax(context, parent, x - 1, y, size);
+			size = relax(context, parent, x + 1, y, size);
+			size = relax(context, parent, x, y - 1, size);
+			size = relax(context, parent, x, y + 1, size);
+		}
+	}
+
+	/**
+	 * Give a visited neighbour a new parent if that makes its route shorter.
+	 *
+	 * @param context search context
+	 * @param parent potential new parent
+	 * @param x x coordinate of the neighbour
+	 * @param y y coordinate of the neighbour
+	 * @param size current size of the work stack
+	 * @return new size of the work stack
+	 */
+	private int relax(final SearchContext context, final int parent, final int x, final int y, final int size) {
+		if (!inside(x, y)) {
+			return size;
+		}
+		final int child = x + y * width;
+		if (context.isVisited(child) && (context.g[parent] + context.cost[child] < context.g[child])) {
+			updateChild(context, parent, child);
+			context.decreased(child);
+			context.push(size, child);
+			return size + 1;
+		}
+		return size;
+	}
 
 	/**
 	 * Calculates the manhattan distance between to positions.
@@ -305,335 +524,4 @@ public abstract class Pathfinder {
 	private static int squareDistance(final int x1, final int y1, final int x2, final int y2) {
 		return (x1 - x2) * (x1 - x2) + (y1 - y2) * (y1 - y2);
 	}
-
-
-	/**
-	 * The pathfinder node.
-	 */
-	protected abstract class TreeNode {
-
-		/**
-		 * The f-value.
-		 */
-		private double weight;
-
-		/**
-		 * The g-value.
-		 */
-		private double g;
-
-		/**
-		 * The x-position of the node.
-		 */
-		private final int x;
-
-		/**
-		 * The y-position of the node.
-		 */
-		private final int y;
-
-		/**
-		 * The number of children the node has.
-		 */
-		private int numChildren;
-
-		/**
-		 * The node identifier.
-		 */
-		private final Integer nodeNumber;
-
-		/**
-		 * The parent of the node.
-		 */
-		private TreeNode parent;
-
-		private final TreeNode[] children = new TreeNode[4];
-
-		private boolean open = true;
-
-		/**
-		 * The default constructor with positional information.
-		 *
-		 * @param x
-		 *            the x-position of the node.
-		 * @param y
-		 *            the y-position of the node.
-		 */
-		protected TreeNode(final int x, final int y) {
-			this.x = x;
-			this.y = y;
-
-			this.nodeNumber = createNodeID(x, y);
-
-			init();
-		}
-
-		/**
-		 * Resets the node. This involves all f, g and h-values to 0 as well as
-		 * removing all children.
-		 */
-		private void init() {
-			this.weight = 0.0;
-			this.g = 0.0;
-			this.numChildren = 0;
-			for (int i = 0; i < 4; i++) {
-				this.children[i] = null;
-			}
-
-			this.open = true;
-		}
-
-		/**
-		 * Add a child to the node.
-		 *
-		 * @param child
-		 *            the child node.
-		 */
-		private void addChild(final TreeNode child) {
-			this.children[numChildren++] = child;
-
-			updateChild(child);
-		}
-
-		/**
-		 * Add a child to the node.
-		 *
-		 * @param child
-		 *            the child node.
-		 */
-		private void updateChild(final TreeNode child) {
-			child.parent = this;
-			child.g = this.g + child.getCost();
-
-			child.weight = calculateChildWeight(child);
-		}
-
-		/**
-		 * Calculate node weight for a child node.
-		 *
-		 * @param child the child to be calculated
-		 * @return weight for the child node
-		 */
-		private double calculateChildWeight(final TreeNode child) {
-			double childweight = child.g + child.getHeuristic(goalNode);
-
-			// Prefer nodes that do not result in direction change
-			if (parent != null) {
-				final int incx = parent.x - x;
-				final int incy = parent.y - y;
-
-				final int incx2 = x - child.x;
-				final int incy2 = y - child.y;
-
-				if ((incx == incx2) && (incy == incy2)) {
-					childweight -= STRAIGHT_PATH_PREFERENCE_FACTOR;
-				}
-			}
-
-			return childweight;
-		}
-
-		/**
-		 * Return the x-position of the node.
-		 *
-		 * @return the x-position of the node.
-		 */
-		public int getX() {
-			return x;
-		}
-
-		/**
-		 * Return the y-position of the node.
-		 *
-		 * @return the y-position of the node.
-		 */
-		public int getY() {
-			return y;
-		}
-
-		/**
-		 * Return the parent node.
-		 *
-		 * @return the parent node.
-		 */
-		public TreeNode getParent() {
-			return parent;
-		}
-
-		/**
-		 * The cost of moving to this node.
-		 *
-		 * @return movement cost
-		 */
-		protected double getCost() {
-			return 1.0;
-		}
-
-		/**
-		 * Calculates the heuristic for the move form node1 to node2. <p> The right
-		 * heuristic is very important for A* - a over estimated heuristic will
-		 * turn A* in to bsf - a under estimated heuristic will turn A* in to
-		 * Dijkstra's so the manhattan distance seams to be the optimal
-		 * heuristic here. But it has one disadvantage. It will expand to much.
-		 * Several nodes will have the same f value It will search the area of
-		 * the size (abs(startX - goalX) + 1) * (abs(startY - goalY) + 1) So a
-		 * tie-breaker is needed. 1% square distace seems to work fine. A* will
-		 * prefer nodes closer to the goal.
-		 * @param nodeGoal
-		 * @return heuristic value for move
-		 */
-		public double getHeuristic(final TreeNode nodeGoal) {
-			final double heuristic = manhattanDistance(x, y, nodeGoal.x, nodeGoal.y);
-			final double tieBreaking = 0.01 * squareDistance(x, y, nodeGoal.x,
-					nodeGoal.y);
-
-			return heuristic + tieBreaking;
-		}
-
-		/**
-		 * Checks if the entity could stand on the position of this node.
-		 *
-		 * @return true if the the entity could stand on the position
-		 */
-		public boolean isValid() {
-			return isValid(x, y);
-		}
-
-		/**
-		 * Checks if the entity could stand on the given by the coordinates.
-		 * @param x coordinate of the position to be checked
-		 * @param y coordinate of the position to be checked
-		 *
-		 * @return true if the the entity could stand on the position
-		 */
-		public abstract boolean isValid(int x, int y);
-
-		/**
-		 * Create a new <code>TreeNode</code>.
-		 *
-		 * @param x x coordinate of the created node
-		 * @param y y coordinate of the created node
-		 * @return a <code>TreeNode</code>
-		 */
-		// A workaround for java lacking proper generics
-		public abstract TreeNode createNode(int x, int y);
-
-		/**
-		 * Creates valid child nodes.
-		 * <p>
-		 * The child nodes have to be
-		 * <ul>
-		 * <li> a valid position
-		 * <li> a f value less than maxDistance (checked against the given node)
-		 * </ul>
-		 *
-		 */
-		public void createChildren() {
-			if (g < maxDistance) {
-				linkChild(x - 1, y + 0);
-				linkChild(x + 1, y + 0);
-				linkChild(x + 0, y - 1);
-				linkChild(x + 0, y + 1);
-			}
-		}
-
-		/**
-		 * Links the children to this parent node  and may also update the
-		 * parent path, if a shorter path is found.
-		 * @param x1
-		 * @param y1
-		 */
-		private void linkChild(final int x1, final int y1) {
-			if (!isValid(x1, y1)) {
-				return;
-			}
-
-			// search for original child node
-			TreeNode child = nodeRegistry.get(createNodeID(x1, y1));
-			if (child == null) {
-				// if not found original child node then create a new one
-				child = createNode(x1, y1);
-
-				addChild(child);
-
-				openList.offer(child);
-				child.setOpen(true);
-
-				nodeRegistry.put(child.nodeNumber, child);
-			} else {
-				// note:
-				// - working on closed nodes is stopped but they may own a better
-				// parent
-				// so they will also be added to this node (parent)
-				if (child.g > (this.g + child.getCost())) {
-					updateChild(child);
-				}
-
-				// update parents for closed nodes only
-				if (!child.isOpen()) {
-					updateSubTree(child);
-				}
-			}
-		}
-
-		/**
-		 * Update the parents for the new route.
-		 *
-		 * @param node
-		 *            the root node.
-		 */
-		private void updateSubTree(final TreeNode node) {
-			int c = node.numChildren;
-			final Stack<TreeNode> nodeStack = new Stack<TreeNode>();
-
-			nodeStack.push(node);
-
-			TreeNode parentTemp;
-			TreeNode child;
-			while (nodeStack.size() > 0) {
-				parentTemp = nodeStack.pop();
-				c = parentTemp.numChildren;
-				for (int i = 0; i < c; i++) {
-					child = parentTemp.children[i];
-
-					if (parentTemp.g + child.getCost() < child.g) {
-						parentTemp.updateChild(child);
-
-						nodeStack.push(child);
-					}
-				}
-			}
-		}
-
-		/**
-		 * Calculates the node id.
-		 * @param x of the node
-		 * @param y of the node
-		 *
-		 * @return the id of the node
-		 */
-		protected abstract int createNodeID(int x, int y);
-
-		public final boolean isOpen() {
-			return open;
-		}
-
-		public final void setOpen(final boolean open) {
-			this.open = open;
-		}
-
-		@Override
-		public boolean equals(final Object obj) {
-			if (obj instanceof TreeNode) {
-				final TreeNode treeN = (TreeNode) obj;
-				return this.nodeNumber.intValue() == treeN.nodeNumber.intValue();
-			}
-			return false;
-		}
-
-		@Override
-		public int hashCode() {
-			return nodeNumber.hashCode();
-		}
-	}
 }
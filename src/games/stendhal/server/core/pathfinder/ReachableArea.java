@@ -0,0 +1,185 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.pathfinder;
+
+import java.util.Arrays;
+
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.entity.Entity;
+
+/**
+ * The positions an entity can walk to from a start position, ignoring other
+ * entities. It is a breadth first flood fill over the collision map, which
+ * is expanded only as far as needed to answer the queries. Answering several
+ * queries about the same start position takes a single pass, instead of a
+ * path search for each position.
+ * <p>
+ * A position is reachable if {@link Path#searchPath(Entity, StendhalRPZone,
+ * int, int, java.awt.geom.Rectangle2D, double, boolean)} without entities
+ * would find a path to it that is at most <code>maxDistance</code> steps
+ * long. The start position itself need not be free.
+ * <p>
+ * The working memory is reused by the thread, like the memory of the A*
+ * search, so an area must be released after use.
+ */
+public final class ReachableArea {
+	/** Working memory of each thread. */
+	private static final ThreadLocal<ReachableArea> areas = new ThreadLocal<ReachableArea>() {
+		@Override
+		protected ReachableArea initialValue() {
+			return new ReachableArea();
+		}
+	};
+
+	private Entity entity;
+	private StendhalRPZone zone;
+	private int width;
+	private int height;
+	private int maxDistance;
+
+	/** Generation in which each node was reached. */
+	private int[] stamp = new int[0];
+	/** Walking distance of reached nodes from the start. */
+	private int[] distance = new int[0];
+	/** Reached nodes in the order they were reached. */
+	private int[] queue = new int[0];
+	/** Next node to expand in the queue. */
+	private int head;
+	/** End of the queue. */
+	private int tail;
+	private int generation;
+	private boolean inUse;
+
+	/**
+	 * Get an area for a new search on the current thread.
+	 *
+	 * @param entity entity that walks
+	 * @param zone zone to walk in
+	 * @param x start x
+	 * @param y start y
+	 * @param maxDistance maximum length of the paths
+	 * @return area. It must be released after use
+	 */
+	public static ReachableArea acquire(final Entity entity, final StendhalRPZone zone,
+			final int x, final int y, final int maxDistance) {
+		ReachableArea area = areas.get();
+		if (area.inUse) {
+			// Should not happen, but do not corrupt the outer search if it does.
+			area = new ReachableArea();
+		}
+		area.inUse = true;
+		area.begin(entity, zone, x, y, maxDistance);
+		return area;
+	}
+
+	/**
+	 * Release the area after use.
+	 */
+	public void release() {
+		inUse = false;
+		entity = null;
+		zone = null;
+	}
+
+	private void begin(final Entity entity, final StendhalRPZone zone, final int x,
+			final int y, final int maxDistance) {
+		this.entity = entity;
+		this.zone = zone;
+		this.maxDistance = maxDistance;
+		width = zone.getWidth();
+		height = zone.getHeight();
+		final int size = width * height;
+		if (stamp.length < size) {
+			stamp = new int[size];
+			distance = new int[size];
+			queue = new int[size];
+			generation = 0;
+		}
+		generation++;
+		if (generation == 0) {
+			// wrapped around; old stamps could match again
+			Arrays.fill(stamp, 0);
+			generation = 1;
+		}
+		head = 0;
+		tail = 0;
+		if (inside(x, y)) {
+			reach(x + y * width, 0);
+		}
+	}
+
+	/**
+	 * Check if a position can be reached from the start position.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return <code>true</code> if there is a path to the position
+	 */
+	public boolean isReachable(final int x, final int y) {
+		if (!inside(x, y)) {
+			return false;
+		}
+		final int node = x + y * width;
+		while (stamp[node] != generation) {
+			if (!expand()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Expand the next node in the queue.
+	 *
+	 * @return <code>false</code> if there are no more nodes to expand
+	 */
+	private boolean expand() {
+		if (head == tail) {
+			return false;
+		}
+		final int node = queue[head++];
+		final int next = distance[node] + 1;
+		if (next > maxDistance) {
+			// breadth first: all later nodes are as far away
+			head = tail;
+			return false;
+		}
+		final int x = node % width;
+		final int y = node / width;
+		tryReach(x - 1, y, next);
+		tryReach(x + 1, y, next);
+		tryReach(x, y - 1, next);
+		tryReach(x, y + 1, next);
+		return true;
+	}
+
+	private void tryReach(final int x, final int y, final int dist) {
+		if (!inside(x, y)) {
+			return;
+		}
+		final int node = x + y * width;
+		if ((stamp[node] != generation)
+				&& !zone.simpleCollides(entity, x, y, entity.getWidth(), entity.getHeight())) {
+			reach(node, dist);
+		}
+	}
+
+	private void reach(final int node, final int dist) {
+		stamp[node] = generation;
+		distance[node] = dist;
+		queue[tail++] = node;
+	}
+
+	private boolean inside(final int x, final int y) {
+		return (x >= 0) && (x < width) && (y >= 0) && (y < height);
+	}
+}
@@ -0,0 +1,225 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * Reusable working memory of the A* search.
+ *
+ * The nodes are identified by their index <code>x + y * width</code> in the
+ * zone and all node data is kept in primitive arrays. A node belongs to the
+ * current search only if its stamp matches the generation of the search, so
+ * starting a new search does not require clearing the arrays. The arrays only
+ * grow, and each thread keeps its own context, so after warming up a search
+ * does not allocate memory besides the resulting path.
+ */
+final class SearchContext {
+	/** Heap position of nodes that have been taken from the open list. */
+	static final int CLOSED = -1;
+
+	/** Context of each thread. */
+	private static final ThreadLocal<SearchContext> contexts = new ThreadLocal<SearchContext>() {
+		@Override
+		protected SearchContext initialValue() {
+			return new SearchContext();
+		}
+	};
+
+	/** Generation of the current search. */
+	int generation;
+	/** Generation of the search each node was last touched by. */
+	int[] stamp = new int[0];
+	/** The g-values. */
+	double[] g = new double[0];
+	/** The f-values. */
+	double[] weight = new double[0];
+	/** Movement costs of the nodes. */
+	double[] cost = new double[0];
+	/** Parent index of the nodes, or -1 for the start node. */
+	int[] parent = new int[0];
+	/** Position of the nodes in the open heap, or {@link #CLOSED}. */
+	int[] heapIndex = new int[0];
+
+	/** Binary heap of open node indices ordered by weight. */
+	int[] heap = new int[16];
+	int heapSize;
+
+	/** Work stack for updating the subtree of a node with a better parent. */
+	int[] stack = new int[16];
+
+	/** <code>true</code> while a search is using the context. */
+	private boolean inUse;
+
+	/**
+	 * Get the context for a new search on the current thread. The context must
+	 * be released after the search.
+	 *
+	 * @param size number of nodes in the searched area
+	 * @return search context
+	 */
+	static SearchContext acquire(final int size) {
+		SearchContext context = contexts.get();
+		if (context.inUse) {
+			// A search started from within another search. Should not happen,
+			// but do not corrupt the outer search if it does.
+			context = new SearchContext();
+		}
+		context.inUse = true;
+		context.begin(size);
+		return context;
+	}
+
+	/**
+	 * Release the context after a search.
+	 */
+	void release() {
+		inUse = false;
+	}
+
+	/**
+	 * Prepare the context for a new search.
+	 *
+	 * @param size number of nodes
+	 */
+	private void begin(final int size) {
+		if (stamp.length < size) {
+			stamp = new int[size];
+			g = new double[size];
+			weight = new double[size];
+			cost = new double[size];
+			parent = new int[size];
+			heapIndex = new int[size];
+			generation = 0;
+		}
+		generation++;
+		if (generation == 0) {
+			// wrapped around; old stamps could match again
+			Arrays.fill(stamp, 0);
+			generation = 1;
+		}
+		heapSize = 0;
+	}
+
+	/**
+	 * Check if a node has been reached by the current search.
+	 *
+	 * @param index node index
+	 * @return <code>true</code> if the node has been visited
+	 */
+	boolean isVisited(final int index) {
+		return stamp[index] == generation;
+	}
+
+	/**
+	 * Mark a node visited by the current search.
+	 *
+	 * @param index node index
+	 */
+	void visit(final int index) {
+		stamp[index] = generation;
+	}
+
+	/**
+	 * Add a node to the open list.
+	 *
+	 * @param index node index
+	 */
+	void offer(final int index) {
+		if (heapSize == heap.length) {
+			heap = Arrays.copyOf(heap, heapSize * 2);
+		}
+		siftUp(heapSize++, index);
+	}
+
+	/**
+	 * Take the node with the lowest weight from the open list and mark it
+	 * closed.
+	 *
+	 * @return node index, or -1 if the open list is empty
+	 */
+	int poll() {
+		if (heapSize == 0) {
+			return -1;
+		}
+		final int first = heap[0];
+		heapIndex[first] = CLOSED;
+		final int last = heap[--heapSize];
+		if (heapSize > 0) {
+			siftDown(0, last);
+		}
+		return first;
+	}
+
+	/**
+	 * Restore the heap order after the weight of an open node decreased.
+	 *
+	 * @param index node index
+	 */
+	void decreased(final int index) {
+		final int pos = heapIndex[index];
+		if (pos != CLOSED) {
+			siftUp(pos, index);
+		}
+	}
+
+	/**
+	 * Push a node to the work stack.
+	 *
+	 * @param size current stack size
+	 * @param index node index
+	 */
+	void push(final int size, final int index) {
+		if (size == stack.length) {
+			stack = Arrays.copyOf(stack, size * 2);
+		}
+		stack[size] = index;
+	}
+
+	private void siftUp(int pos, final int index) {
+		final double w = weight[index];
+		while (pos > 0) {
+			final int parentPos = (pos - 1) >>> 1;
+			final int p = heap[parentPos];
+			if (w >= weight[p]) {
+				break;
+			}
+			heap[pos] = p;
+			heapIndex[p] = pos;
+			pos = parentPos;
+		}
+		heap[pos] = index;
+		heapIndex[index] = pos;
+	}
+
+	private void siftDown(int pos, final int index) {
+		final double w = weight[index];
+		final int half = heapSize >>> 1;
+		while (pos < half) {
+			int childPos = (pos << 1) + 1;
+			int child = heap[childPos];
+			final int right = childPos + 1;
+			if ((right < heapSize) && (weight[child] > weight[heap[right]])) {
+				childPos = right;
+				child = heap[childPos];
+			}
+			if (w <= weight[child]) {
+				break;
+			}
+			heap[pos] = child;
+			heapIndex[child] = pos;
+			pos = childPos;
+		}
+		heap[pos] = index;
+		heapIndex[index] = pos;
+	}
+}
@@ -0,0 +1,800 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.pathfinder;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import games.stendhal.common.CollisionDetection;
+import games.stendhal.server.core.engine.ResistanceGrid;
+import games.stendhal.server.core.engine.StendhalRPZone;
+
+/**
+ * Navigation data of a zone that speeds up path searches.
+ * <p>
+ * For every entity size that searched a path in the zone, the walkable
+ * positions of the static collision map are divided into connected regions.
+ * Entities only add obstacles, so a search between different regions can be
+ * rejected immediately instead of exploring everything within the maximum
+ * distance.
+ * <p>
+ * Long searches between positions of the same region are guided by a
+ * hierarchical graph (HPA*). The zone is divided into clusters of
+ * {@value #CLUSTER_SIZE} by {@value #CLUSTER_SIZE} tiles. The nodes of the
+ * graph are the passages between neighbouring clusters, and the edges
+ * within a cluster hold the walking distance between its passages, avoiding
+ * the stopped entities that block completely. A search in this small graph
+ * gives the clusters a path goes through, and the A* search on the tiles is
+ * then limited to those clusters. Only searches that need a clear detour
+ * around obstacles are limited; the manhattan heuristic of the tile search
+ * already does well for nearly straight paths.
+ * <p>
+ * The regions and passages are computed when first needed and recomputed
+ * after the collision map changes. The distances within a cluster are
+ * recomputed when blocking entities in or next to the cluster have changed.
+ */
+public final class ZoneNavigation {
+	/** Goal areas larger than this are not checked for reachability. */
+	private static final int MAX_CHECKED_GOAL_TILES = 1024;
+	/** Width and height of the clusters of the hierarchical graph. */
+	static final int CLUSTER_SIZE = 16;
+	/**
+	 * Searches between positions closer than this are done without the
+	 * hierarchical graph.
+	 */
+	private static final int MIN_GUIDED_DISTANCE = 2 * CLUSTER_SIZE;
+	/**
+	 * Only searches where the walking distance found in the hierarchical
+	 * graph exceeds the manhattan distance by this percentage are guided.
+	 */
+	private static final int MIN_GUIDED_DETOUR = 125;
+	/** Distance of positions that can not be reached. */
+	private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	private final StendhalRPZone zone;
+
+	/** The collision map the regions were computed from. */
+	private CollisionDetection collisionMap;
+	/** Version of the collision map the regions were computed from. */
+	private int collisionVersion;
+	/**
+	 * Region labels of each position, by entity size. 0 is used for
+	 * positions where the entity does not fit.
+	 */
+	private final Map<Integer, int[]> regions = new HashMap<Integer, int[]>();
+	/** Hierarchical graphs, by entity size. */
+	private final Map<Integer, ClusterGraph> graphs = new HashMap<Integer, ClusterGraph>();
+
+	/** Distances of the breadth first searches within a cluster. */
+	private final int[] clusterDistances = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+	/** Queue of the breadth first searches within a cluster. */
+	private final int[] clusterQueue = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+
+	/**
+	 * The clusters a path search is limited to.
+	 */
+	static final class Corridor {
+		private final boolean[] clusters;
+		private final int columns;
+
+		private Corridor(final boolean[] clusters, final int columns) {
+			this.clusters = clusters;
+			this.columns = columns;
+		}
+
+		/**
+		 * Check if a position is within the corridor.
+		 *
+		 * @param x x coordinate
+		 * @param y y coordinate
+		 * @return <code>true</code> if the search may visit the position
+		 */
+		boolean contains(final int x, final int y) {
+			return clusters[x / CLUSTER_SIZE + (y / CLUSTER_SIZE) * columns];
+		}
+	}
+
+	/**
+	 * The hierarchical graph for one entity size.
+	 */
+	private static final class ClusterGraph {
+		private final int columns;
+		private final int rows;
+		/** Number of nodes. */
+		private int size;
+		/** Position of each node. */
+		private int[] nodeX = new int[64];
+		private int[] nodeY = new int[64];
+		/** The node on the other side of the passage of each node. */
+		private int[] partner = new int[64];
+		/** Nodes of each cluster. */
+		private final int[][] clusterNodes;
+		/**
+		 * Walking distances between the nodes of each cluster, indexed by
+		 * the positions of the nodes in <code>clusterNodes</code>.
+		 */
+		private final int[][] distances;
+		/** Blocker stamp the distances of each cluster were computed for. */
+		private final int[] stamps;
+
+		/** Search state, indexed by node. The goal is at index size. */
+		private int[] cost = new int[0];
+		private int[] parent = new int[0];
+		private boolean[] closed = new boolean[0];
+		/** Open list of the searches, as (weight << 32 | node). */
+		private long[] heap = new long[16];
+		private int heapSize;
+
+		private ClusterGraph(final int columns, final int rows) {
+			this.columns = columns;
+			this.rows = rows;
+			clusterNodes = new int[columns * rows][];
+			distances = new int[columns * rows][];
+			stamps = new int[columns * rows];
+		}
+
+		private int addNode(final int x, final int y) {
+			if (size == nodeX.length) {
+				nodeX = Arrays.copyOf(nodeX, 2 * size);
+				nodeY = Arrays.copyOf(nodeY, 2 * size);
+				partner = Arrays.copyOf(partner, 2 * size);
+			}
+			nodeX[size] = x;
+			nodeY[size] = y;
+			return size++;
+		}
+
+		private int getCluster(final int node) {
+			return nodeX[node] / CLUSTER_SIZE + (nodeY[node] / CLUSTER_SIZE) * columns;
+		}
+
+		private void push(final long entry) {
+			if (heapSize == heap.length) {
+				heap = Arrays.copyOf(heap, 2 * heapSize);
+			}
+			int i = heapSize++;
+			while (i > 0) {
+				final int up = (i - 1) >>> 1;
+				if (heap[up] <= entry) {
+					break;
+				}
+				heap[i] = heap[up];
+				i = up;
+			}
+			heap[i] = entry;
+		}
+
+		private long pop() {
+			final long top = heap[0];
+			final long last = heap[--heapSize];
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= heapSize) {
+					break;
+				}
+				if ((child + 1 < heapSize) && (heap[child + 1] < heap[child])) {
+					child++;
+				}
+				if (heap[child] >= last) {
+					break;
+				}
+				heap[i] = heap[child];
+				i = child;
+			}
+			heap[i] = last;
+			return top;
+		}
+	}
+
+	/**
+	 * Create a new ZoneNavigation.
+	 *
+	 * @param zone the zone
+	 */
+	public ZoneNavigation(final StendhalRPZone zone) {
+		this.zone = zone;
+	}
+
+	/**
+	 * Check if an entity of a given size could reach a destination area from
+	 * a start position, considering the static collision only.
+	 *
+	 * @param entityWidth width of the entity
+	 * @param entityHeight height of the entity
+	 * @param x start x
+	 * @param y start y
+	 * @param destination destination area
+	 * @return <code>false</code> if the destination certainly can not be
+	 * 	reached, <code>true</code> otherwise
+	 */
+	synchronized boolean isReachable(final double entityWidth, final double entityHeight, final int x, final int y,
+			final Rectangle2D destination) {
+		if ((destination.getWidth() * destination.getHeight() > MAX_CHECKED_GOAL_TILES)
+				|| (entityWidth > 0xFFFF) || (entityHeight > 0xFFFF)) {
+			return true;
+		}
+		final int[] labels = getRegions((int) Math.ceil(entityWidth), (int) Math.ceil(entityHeight));
+		final int width = collisionMap.getWidth();
+		final int height = collisionMap.getHeight();
+		if ((x < 0) || (y < 0) || (x >= width) || (y >= height)) {
+			return true;
+		}
+		final int region = labels[x + y * width];
+		if (region == 0) {
+			// The start position itself is blocked. Let the path finder decide.
+			return true;
+		}
+		return findGoal(labels, region, destination) != -1;
+	}
+
+	/**
+	 * Find the clusters a path between positions of the same region is
+	 * expected to go through.
+	 *
+	 * @param entityWidth width of the entity
+	 * @param entityHeight height of the entity
+	 * @param x start x
+	 * @param y start y
+	 * @param destination destination area
+	 * @return the clusters, or <code>null</code> if the search should not be
+	 * 	limited
+	 */
+	synchronized Corridor getCorridor(final double entityWidth, final double entityHeight, final int x, final int y,
+			final Rectangle2D destination) {
+		if ((destination.getWidth() * destination.getHeight() > MAX_CHECKED_GOAL_TILES)
+				|| (entityWidth > 0xFFFF) || (entityHeight > 0xFFFF)) {
+			return null;
+		}
+		final int w = (int) Math.ceil(entityWidth);
+		final int h = (int) Math.ceil(entityHeight);
+		final int[] labels = getRegions(w, h);
+		final int width = collisionMap.getWidth();
+		final int height = collisionMap.getHeight();
+		if ((x < 0) || (y < 0) || (x >= width) || (y >= height) || (labels[x + y * width] == 0)) {
+			return null;
+		}
+		final int goal = findGoal(labels, labels[x + y * width], destination);
+		if (goal == -1) {
+			return null;
+		}
+		final int goalX = goal % width;
+		final int goalY = goal / width;
+		final int distance = Math.abs(goalX - x) + Math.abs(goalY - y);
+		if ((distance < MIN_GUIDED_DISTANCE) || isOpenLine(labels, x, y, goalX, goalY)) {
+			return null;
+		}
+
+		final ClusterGraph graph = getGraph(w, h, labels);
+		final int startCluster = x / CLUSTER_SIZE + (y / CLUSTER_SIZE) * graph.columns;
+		final int goalCluster = goalX / CLUSTER_SIZE + (goalY / CLUSTER_SIZE) * graph.columns;
+		final int[] path = searchGraph(graph, w, h, labels, x, y, startCluster, goalX, goalY, goalCluster);
+		if (path == null) {
+			// Blocked by entities, or the start is cut off from the passages
+			return null;
+		}
+		if (graph.cost[graph.size] * 100L < distance * (long) MIN_GUIDED_DETOUR) {
+			/*
+			 * The path is nearly straight. The manhattan heuristic leads the
+			 * tile search well enough on its own, and the corridor would only
+			 * cost a second search if entities block it.
+			 */
+			return null;
+		}
+
+		final boolean[] clusters = new boolean[graph.columns * graph.rows];
+		clusters[startCluster] = true;
+		clusters[goalCluster] = true;
+		for (final int node : path) {
+			clusters[graph.getCluster(node)] = true;
+		}
+		// the search may end anywhere in the destination
+		final int minX = (int) Math.max(0, destination.getX()) / CLUSTER_SIZE;
+		final int minY = (int) Math.max(0, destination.getY()) / CLUSTER_SIZE;
+		final int maxX = (int) Math.min(width - 1, destination.getMaxX()) / CLUSTER_SIZE;
+		final int maxY = (int) Math.min(height - 1, destination.getMaxY()) / CLUSTER_SIZE;
+		for (int cy = minY; cy <= maxY; cy++) {
+			for (int cx = minX; cx <= maxX; cx++) {
+				clusters[cx + cy * graph.columns] = true;
+			}
+		}
+		return new Corridor(clusters, graph.columns);
+	}
+
+	/**
+	 * Check if an entity can walk straight from one position to another,
+	 * ignoring other entities. The tile search needs no guidance for such
+	 * paths.
+	 *
+	 * @param labels region labels
+	 * @param x start x
+	 * @param y start y
+	 * @param goalX goal x
+	 * @param goalY goal y
+	 * @return <code>true</code> if every position along the line is walkable
+	 */
+	private boolean isOpenLine(final int[] labels, final int x, final int y, final int goalX, final int goalY) {
+		final int width = collisionMap.getWidth();
+		final int dx = Math.abs(goalX - x);
+		final int dy = Math.abs(goalY - y);
+		final int stepX = Integer.signum(goalX - x);
+		final int stepY = Integer.signum(goalY - y);
+		int px = x;
+		int py = y;
+		// error term of the line; one axis is stepped at a time
+		int error = dx - dy;
+		while ((px != goalX) || (py != goalY)) {
+			if ((error > 0) || ((error == 0) && (px != goalX))) {
+				px += stepX;
+				error -= 2 * dy;
+			} else {
+				py += stepY;
+				error += 2 * dx;
+			}
+			if (labels[px + py * width] == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Find a position within the destination area that belongs to a region.
+	 * Positions near the center of the area are preferred.
+	 *
+	 * @param labels region labels
+	 * @param region region of the start position
+	 * @param destination destination area
+	 * @return index of the position, or -1 if there is none
+	 */
+	private int findGoal(final int[] labels, final int region, final Rectangle2D destination) {
+		final int width = collisionMap.getWidth();
+		final int height = collisionMap.getHeight();
+		final int startX = (int) Math.max(0, Math.ceil(destination.getX()));
+		final int startY = (int) Math.max(0, Math.ceil(destination.getY()));
+		final double endX = Math.min(width, destination.getX() + destination.getWidth());
+		final double endY = Math.min(height, destination.getY() + destination.getHeight());
+		final int centerX = (int) destination.getCenterX();
+		final int centerY = (int) destination.getCenterY();
+		int goal = -1;
+		int goalDistance = UNREACHABLE;
+		for (int gy = startY; gy < endY; gy++) {
+			for (int gx = startX; gx < endX; gx++) {
+				final int index = gx + gy * width;
+				final int distance = Math.abs(gx - centerX) + Math.abs(gy - centerY);
+				if ((labels[index] == region) && (distance < goalDistance)) {
+					goal = index;
+					goalDistance = distance;
+				}
+			}
+		}
+		return goal;
+	}
+
+	/**
+	 * Drop all data if the collision map has changed.
+	 */
+	private void checkCollisionMap() {
+		final CollisionDetection current = zone.collisionMap;
+		if ((current != collisionMap) || (current.getVersion() != collisionVersion)) {
+			regions.clear();
+			graphs.clear();
+			collisionMap = current;
+			collisionVersion = current.getVersion();
+		}
+	}
+
+	/**
+	 * Get the region labels for an entity size, computing them if needed.
+	 *
+	 * @param w entity width
+	 * @param h entity height
+	 * @return region labels indexed by <code>x + y * width</code>
+	 */
+	private int[] getRegions(final int w, final int h) {
+		checkCollisionMap();
+
+		final Integer size = Integer.valueOf((w << 16) | h);
+		int[] labels = regions.get(size);
+		if (labels == null) {
+			labels = computeRegions(w, h);
+			regions.put(size, labels);
+		}
+		return labels;
+	}
+
+	/**
+	 * Divide the positions where an entity of the given size fits into
+	 * connected regions.
+	 *
+	 * @param w entity width
+	 * @param h entity height
+	 * @return region labels
+	 */
+	private int[] computeRegions(final int w, final int h) {
+		final int width = collisionMap.getWidth();
+		final int height = collisionMap.getHeight();
+		// -1 marks positions that have been checked and do not fit the entity
+		final int[] labels = new int[width * height];
+		final int[] queue = new int[width * height];
+		int region = 0;
+		for (int start = 0; start < labels.length; start++) {
+			if ((labels[start] != 0) || !fits(start % width, start / width, w, h)) {
+				if (labels[start] == 0) {
+					labels[start] = -1;
+				}
+				continue;
+			}
+			region++;
+			labels[start] = region;
+			int head = 0;
+			int tail = 0;
+			queue[tail++] = start;
+			while (head < tail) {
+				final int index = queue[head++];
+				final int x = index % width;
+				final int y = index / width;
+				tail = expand(labels, queue, tail, x - 1, y, w, h, region);
+				tail = expand(labels, queue, tail, x + 1, y, w, h, region);
+				tail = expand(labels, queue, tail, x, y - 1, w, h, region);
+				tail = expand(labels, queue, tail, x, y + 1, w, h, region);
+			}
+		}
+		for (int i = 0; i < labels.length; i++) {
+			if (labels[i] < 0) {
+				labels[i] = 0;
+			}
+		}
+		return labels;
+	}
+
+	private int expand(final int[] labels, final int[] queue, final int tail, final int x, final int y,
+			final int w, final int h, final int region) {
+		final int width = collisionMap.getWidth();
+		if ((x < 0) || (y < 0) || (x >= width) || (y >= collisionMap.getHeight())) {
+			return tail;
+		}
+		final int index = x + y * width;
+		if (labels[index] != 0) {
+			return tail;
+		}
+		if (!fits(x, y, w, h)) {
+			labels[index] = -1;
+			return tail;
+		}
+		labels[index] = region;
+		queue[tail] = index;
+		return tail + 1;
+	}
+
+	private boolean fits(final int x, final int y, final int w, final int h) {
+		return !collisionMap.collides(x, y, w, h);
+	}
+
+	/**
+	 * Get the hierarchical graph for an entity size, creating it if needed.
+	 *
+	 * @param w entity width
+	 * @param h entity height
+	 * @param labels region labels of the entity size
+	 * @return graph
+	 */
+	private ClusterGraph getGraph(final int w, final int h, final int[] labels) {
+		final Integer size = Integer.valueOf((w << 16) | h);
+		ClusterGraph graph = graphs.get(size);
+		if (graph == null) {
+			graph = createGraph(labels);
+			graphs.put(size, graph);
+		}
+		return graph;
+	}
+
+	/**
+	 * Create the nodes of the hierarchical graph. There is a pair of nodes
+	 * in the middle of every passage between two neighbouring clusters.
+	 *
+	 * @param labels region labels of the entity size
+	 * @return graph
+	 */
+	private ClusterGraph createGraph(final int[] labels) {
+		final int width = collisionMap.getWidth();
+		final int height = collisionMap.getHeight();
+		final ClusterGraph graph = new ClusterGraph((width + CLUSTER_SIZE - 1) / CLUSTER_SIZE,
+				(height + CLUSTER_SIZE - 1) / CLUSTER_SIZE);
+
+		// Passages between a cluster and the one to the right. A passage
+		// ends where the open tiles end, or at the corner of the clusters.
+		for (int x = CLUSTER_SIZE - 1; x + 1 < width; x += CLUSTER_SIZE) {
+			int run = 0;
+			for (int y = 0; y <= height; y++) {
+				final boolean open = (y < height) && (labels[x + y * width] != 0)
+						&& (labels[x + 1 + y * width] != 0);
+				if (open && ((run == 0) || (y % CLUSTER_SIZE != 0))) {
+					run++;
+					continue;
+				}
+				if (run > 0) {
+					final int middle = y - 1 - run / 2;
+					link(graph, x, middle, x + 1, middle);
+				}
+				run = open ? 1 : 0;
+			}
+		}
+		// passages between a cluster and the one below
+		for (int y = CLUSTER_SIZE - 1; y + 1 < height; y += CLUSTER_SIZE) {
+			int run = 0;
+			for (int x = 0; x <= width; x++) {
+				final boolean open = (x < width) && (labels[x + y * width] != 0)
+						&& (labels[x + (y + 1) * width] != 0);
+				if (open && ((run == 0) || (x % CLUSTER_SIZE != 0))) {
+					run++;
+					continue;
+				}
+				if (run > 0) {
+					final int middle = x - 1 - run / 2;
+					link(graph, middle, y, middle, y + 1);
+				}
+				run = open ? 1 : 0;
+			}
+		}
+
+		final int[] counts = new int[graph.columns * graph.rows];
+		for (int node = 0; node < graph.size; node++) {
+			counts[graph.getCluster(node)]++;
+		}
+		for (int cluster = 0; cluster < counts.length; cluster++) {
+			graph.clusterNodes[cluster] = new int[counts[cluster]];
+			counts[cluster] = 0;
+		}
+		for (int node = 0; node < graph.size; node++) {
+			final int cluster = graph.getCluster(node);
+			graph.clusterNodes[cluster][counts[cluster]++] = node;
+		}
+		graph.cost = new int[graph.size + 1];
+		graph.parent = new int[graph.size + 1];
+		graph.closed = new boolean[graph.size + 1];
+		return graph;
+	}
+
+	/**
+	 * Add a pair of nodes on both sides of a passage.
+	 */
+	private static void link(final ClusterGraph graph, final int x1, final int y1, final int x2, final int y2) {
+		final int first = graph.addNode(x1, y1);
+		final int second = graph.addNode(x2, y2);
+		graph.partner[first] = second;
+		graph.partner[second] = first;
+	}
+
+	/**
+	 * Get the walking distances between the nodes of a cluster, computing
+	 * them if the blocking entities have changed.
+	 *
+	 * @param graph graph
+	 * @param cluster cluster index
+	 * @param w entity width
+	 * @param h entity height
+	 * @param labels region labels of the entity size
+	 * @return distances, indexed by <code>i * n + j</code> for the i:th and
+	 * 	j:th node of the cluster
+	 */
+	private int[] getDistances(final ClusterGraph graph, final int cluster, final int w, final int h,
+			final int[] labels) {
+		final int clusterX = (cluster % graph.columns) * CLUSTER_SIZE;
+		final int clusterY = (cluster / graph.columns) * CLUSTER_SIZE;
+		final ResistanceGrid grid = zone.getResistanceGrid();
+		// the entity reaches w - 1 and h - 1 tiles beyond the cluster
+		final int stamp = grid.getBlockerStamp(clusterX, clusterY, CLUSTER_SIZE + w - 1, CLUSTER_SIZE + h - 1);
+		int[] distances = graph.distances[cluster];
+		if ((distances != null) && (graph.stamps[cluster] == stamp)) {
+			return distances;
+		}
+
+		final int[] nodes = graph.clusterNodes[cluster];
+		final int n = nodes.length;
+		distances = new int[n * n];
+		for (int i = 0; i < n; i++) {
+			searchCluster(cluster, graph.columns, graph.nodeX[nodes[i]], graph.nodeY[nodes[i]], w, h, labels, true);
+			for (int j = 0; j < n; j++) {
+				distances[i * n + j] = getClusterDistance(clusterX, clusterY, graph.nodeX[nodes[j]],
+						graph.nodeY[nodes[j]]);
+			}
+		}
+		graph.distances[cluster] = distances;
+		graph.stamps[cluster] = stamp;
+		return distances;
+	}
+
+	/**
+	 * Compute the walking distances from a position to all positions of its
+	 * cluster. The results are in <code>clusterDistances</code>.
+	 *
+	 * @param cluster cluster index
+	 * @param columns number of clusters in a row
+	 * @param x start x
+	 * @param y start y
+	 * @param w entity width
+	 * @param h entity height
+	 * @param labels region labels of the entity size
+	 * @param avoidEntities if <code>true</code>, positions blocked by stopped
+	 * 	entities are not walked on
+	 */
+	private void searchCluster(final int cluster, final int columns, final int x, final int y, final int w,
+			final int h, final int[] labels, final boolean avoidEntities) {
+		final int clusterX = (cluster % columns) * CLUSTER_SIZE;
+		final int clusterY = (cluster / columns) * CLUSTER_SIZE;
+		final int endX = Math.min(collisionMap.getWidth(), clusterX + CLUSTER_SIZE);
+		final int endY = Math.min(collisionMap.getHeight(), clusterY + CLUSTER_SIZE);
+		Arrays.fill(clusterDistances, UNREACHABLE);
+		if (avoidEntities && isBlocked(x, y, w, h)) {
+			return;
+		}
+		int head = 0;
+		int tail = 0;
+		final int start = (x - clusterX) + (y - clusterY) * CLUSTER_SIZE;
+		clusterDistances[start] = 0;
+		clusterQueue[tail++] = start;
+		while (head < tail) {
+			final int local = clusterQueue[head++];
+			final int lx = local % CLUSTER_SIZE;
+			final int ly = local / CLUSTER_SIZE;
+			final int distance = clusterDistances[local] + 1;
+			for (int direction = 0; direction < 4; direction++) {
+				final int nx = clusterX + lx + ((direction == 0) ? -1 : (direction == 1) ? 1 : 0);
+				final int ny = clusterY + ly + ((direction == 2) ? -1 : (direction == 3) ? 1 : 0);
+				if ((nx < clusterX) || (ny < clusterY) || (nx >= endX) || (ny >= endY)) {
+					continue;
+				}
+				final int next = (nx - clusterX) + (ny - clusterY) * CLUSTER_SIZE;
+				if ((clusterDistances[next] != UNREACHABLE) || (labels[nx + ny * collisionMap.getWidth()] == 0)
+						|| (avoidEntities && isBlocked(nx, ny, w, h))) {
+					continue;
+				}
+				clusterDistances[next] = distance;
+				clusterQueue[tail++] = next;
+			}
+		}
+	}
+
+	/**
+	 * Get a result of the last <code>searchCluster()</code>.
+	 */
+	private int getClusterDistance(final int clusterX, final int clusterY, final int x, final int y) {
+		return clusterDistances[(x - clusterX) + (y - clusterY) * CLUSTER_SIZE];
+	}
+
+	/**
+	 * Check if stopped entities block an entity of the given size from
+	 * standing on a position.
+	 */
+	private boolean isBlocked(final int x, final int y, final int w, final int h) {
+		final ResistanceGrid grid = zone.getResistanceGrid();
+		for (int dy = 0; dy < h; dy++) {
+			for (int dx = 0; dx < w; dx++) {
+				if (grid.getResistance(x + dx, y + dy, false, null) >= ResistanceGrid.COLLISION) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Search the hierarchical graph from a start position to a goal position.
+	 * The start and goal positions are connected to the nodes of their
+	 * clusters on the static collision only, since the searching entity and
+	 * its target are often stopped entities themselves.
+	 *
+	 * @return nodes of the path, or <code>null</code> if none was found
+	 */
+	private int[] searchGraph(final ClusterGraph graph, final int w, final int h, final int[] labels,
+			final int startX, final int startY, final int startCluster, final int goalX, final int goalY,
+			final int goalCluster) {
+		final int goal = graph.size;
+		Arrays.fill(graph.cost, UNREACHABLE);
+		Arrays.fill(graph.closed, false);
+		graph.heapSize = 0;
+
+		final int startClusterX = (startCluster % graph.columns) * CLUSTER_SIZE;
+		final int startClusterY = (startCluster / graph.columns) * CLUSTER_SIZE;
+		searchCluster(startCluster, graph.columns, startX, startY, w, h, labels, false);
+		for (final int node : graph.clusterNodes[startCluster]) {
+			final int distance = getClusterDistance(startClusterX, startClusterY, graph.nodeX[node],
+					graph.nodeY[node]);
+			if (distance != UNREACHABLE) {
+				graph.cost[node] = distance;
+				graph.parent[node] = -1;
+				graph.push(weight(graph, node, distance, goalX, goalY));
+			}
+		}
+
+		// walking distances from the nodes of the goal cluster to the goal
+		final int goalClusterX = (goalCluster % graph.columns) * CLUSTER_SIZE;
+		final int goalClusterY = (goalCluster / graph.columns) * CLUSTER_SIZE;
+		final int[] goalNodes = graph.clusterNodes[goalCluster];
+		final int[] toGoal = new int[goalNodes.length];
+		searchCluster(goalCluster, graph.columns, goalX, goalY, w, h, labels, false);
+		for (int i = 0; i < goalNodes.length; i++) {
+			toGoal[i] = getClusterDistance(goalClusterX, goalClusterY, graph.nodeX[goalNodes[i]],
+					graph.nodeY[goalNodes[i]]);
+		}
+
+		while (graph.heapSize > 0) {
+			final int node = (int) graph.pop();
+			if (graph.closed[node]) {
+				continue;
+			}
+			graph.closed[node] = true;
+			if (node == goal) {
+				int length = 0;
+				for (int n = graph.parent[goal]; n != -1; n = graph.parent[n]) {
+					length++;
+				}
+				final int[] path = new int[length];
+				for (int n = graph.parent[goal]; n != -1; n = graph.parent[n]) {
+					path[--length] = n;
+				}
+				return path;
+			}
+
+			final int cost = graph.cost[node];
+			final int cluster = graph.getCluster(node);
+			if (cluster == goalCluster) {
+				for (int i = 0; i < goalNodes.length; i++) {
+					if ((goalNodes[i] == node) && (toGoal[i] != UNREACHABLE)) {
+						relax(graph, node, goal, cost + toGoal[i], goalX, goalY);
+					}
+				}
+			}
+			// through the passage
+			relax(graph, node, graph.partner[node], cost + 1, goalX, goalY);
+			// within the cluster
+			final int[] nodes = graph.clusterNodes[cluster];
+			final int[] distances = getDistances(graph, cluster, w, h, labels);
+			int index = 0;
+			while (nodes[index] != node) {
+				index++;
+			}
+			for (int j = 0; j < nodes.length; j++) {
+				final int distance = distances[index * nodes.length + j];
+				if (distance != UNREACHABLE) {
+					relax(graph, node, nodes[j], cost + distance, goalX, goalY);
+				}
+			}
+		}
+		return null;
+	}
+
+	private static void relax(final ClusterGraph graph, final int node, final int next, final int cost,
+			final int goalX, final int goalY) {
+		if (!graph.closed[next] && (cost < graph.cost[next])) {
+			graph.cost[next] = cost;
+			graph.parent[next] = node;
+			graph.push(weight(graph, next, cost, goalX, goalY));
+		}
+	}
+
+	/**
+	 * Get the open list entry of a node: its estimated path length through
+	 * the node in the upper half, and the node in the lower half.
+	 */
+	private static long weight(final ClusterGraph graph, final int node, final int cost, final int goalX,
+			final int goalY) {
+		int estimate = cost;
+		if (node < graph.size) {
+			estimate += Math.abs(graph.nodeX[node] - goalX) + Math.abs(graph.nodeY[node] - goalY);
+		}
+		return ((long) estimate << 32) | node;
+	}
+}
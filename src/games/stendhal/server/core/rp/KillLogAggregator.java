@@ -0,0 +1,108 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.rp;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import games.stendhal.server.core.engine.db.KillLogKey;
+import games.stendhal.server.core.engine.dbcommand.LogKillEventsCommand;
+import games.stendhal.server.core.events.TurnListener;
+import games.stendhal.server.core.events.TurnNotifier;
+import marauroa.server.db.command.DBCommandPriority;
+import marauroa.server.db.command.DBCommandQueue;
+
+/**
+ * Counts kills in memory and writes them to the kill log in batches.
+ * <p>
+ * Only the names and types of killer and victim are remembered, so recording
+ * a kill is cheap. The counts are flushed to the database every
+ * {@link #FLUSH_INTERVAL} seconds.
+ */
+public final class KillLogAggregator implements TurnListener {
+	/** Seconds between two flushes. */
+	static final int FLUSH_INTERVAL = 60;
+
+	private static KillLogAggregator instance;
+
+	private Map<KillLogKey, Integer> kills = new HashMap<KillLogKey, Integer>();
+	private boolean scheduled;
+
+	/**
+	 * Get the KillLogAggregator instance.
+	 *
+	 * @return instance
+	 */
+	public static synchronized KillLogAggregator get() {
+		if (instance == null) {
+			instance = new KillLogAggregator();
+		}
+		return instance;
+	}
+
+	private KillLogAggregator() {
+		// singleton
+	}
+
+	/**
+	 * Records a kill.
+	 *
+	 * @param killed name of the killed entity
+	 * @param killedType type of the killed entity
+	 * @param killer name of the killer
+	 * @param killerType type of the killer
+	 */
+	public void record(final String killed, final String killedType,
+			final String killer, final String killerType) {
+		final String day = new SimpleDateFormat("yyyy-MM-dd").format(new Date());
+		final KillLogKey key = new KillLogKey(killed, killedType, killer, killerType, day);
+		synchronized (this) {
+			final Integer count = kills.get(key);
+			kills.put(key, Integer.valueOf((count == null) ? 1 : count.intValue() + 1));
+			if (!scheduled) {
+				scheduled = true;
+				TurnNotifier.get().notifyInSeconds(FLUSH_INTERVAL, this);
+			}
+		}
+	}
+
+	@Override
+	public void onTurnReached(final int currentTurn) {
+		synchronized (this) {
+			scheduled = false;
+		}
+		flush();
+	}
+
+	/**
+	 * Writes the recorded kills to the database.
+	 */
+	public void flush() {
+		final Map<KillLogKey, Integer> pending = drain();
+		if (!pending.isEmpty()) {
+			DBCommandQueue.get().enqueue(new LogKillEventsCommand(pending), DBCommandPriority.LOW);
+		}
+	}
+
+	/**
+	 * Removes the recorded kills.
+	 *
+	 * @return kills recorded since the last flush
+	 */
+	synchronized Map<KillLogKey, Integer> drain() {
+		final Map<KillLogKey, Integer> res = kills;
+		kills = new HashMap<KillLogKey, Integer>();
+		return res;
+	}
+}
@@ -14,7 +14,6 @@ package games.stendhal.server.core.rp;
 import static games.stendhal.common.constants.Actions.MOVE_CONTINUOUS;
 
 import java.awt.Point;
-import java.awt.Rectangle;
 import java.awt.Shape;
 import java.util.ArrayList;
 import java.util.LinkedList;
@@ -27,13 +26,14 @@ import games.stendhal.common.constants.Testing;
 import games.stendhal.common.grammar.Grammar;
 import games.stendhal.server.core.engine.DataProvider;
 import games.stendhal.server.core.engine.GameEvent;
+import games.stendhal.server.core.engine.ParallelZoneLogic;
 import games.stendhal.server.core.engine.SingletonRepository;
 import games.stendhal.server.core.engine.StendhalRPZone;
 import games.stendhal.server.core.engine.db.StendhalKillLogDAO;
 import games.stendhal.server.core.events.TutorialNotifier;
 import games.stendhal.server.core.events.ZoneNotifier;
-import games.stendhal.server.core.pathfinder.Node;
 import games.stendhal.server.core.pathfinder.Path;
+import games.stendhal.server.core.pathfinder.ReachableArea;
 import games.stendhal.server.core.rp.group.Group;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.RPEntity;
@@ -606,6 +606,12 @@ public class StendhalRPAction {
 	 */
 	private static final int maxDisplacement = 36;
 
+	/**
+	 * Maximum length of the walkable path from the center to a new
+	 * placement.
+	 */
+	private static final int MAX_PLACEMENT_PATH_LENGTH = 400;
+
 	/**
 	 * Places an entity at a specified position in a specified zone. This will
 	 * remove the entity from any existing zone and add it to the target zone if
@@ -626,11 +632,48 @@ public class StendhalRPAction {
 	 *     <code>true</code> if it was possible to place the entity, false otherwise.
 	 */
 	public static boolean placeat(final StendhalRPZone zone, final Entity entity,
-			int x, int y, final Shape allowedArea) {
+			final int x, final int y, final Shape allowedArea) {
 		if (zone == null) {
 			return false;
 		}
 
+		final StendhalRPZone currentZone = entity.getZone();
+		if (ParallelZoneLogic.isForeignZone(zone)
+				|| ((currentZone != null) && ParallelZoneLogic.isForeignZone(currentZone))) {
+			// Another zone may be running its logic right now. Whatever
+			// leads to a zone change during parallel zone logic has to be
+			// done in a cross zone effect, so that the result is known
+			// before anything depends on it.
+			logger.error("Cannot place " + entity.getTitle() + " at "
+					+ zone.getName() + " during the logic of another zone",
+					new Throwable());
+			return false;
+		}
+
+		return placeatNow(zone, entity, x, y, allowedArea);
+	}
+
+	/**
+	 * Places an entity at a specified position in a specified zone. Does the
+	 * actual work of placeat().
+	 *
+	 * @param zone
+	 *     Zone to place the entity in.
+	 * @param entity
+	 *     The entity to place.
+	 * @param x
+	 *     Zone X coordinate.
+	 * @param y
+	 *     Zone Y coordinate.
+	 * @param allowedArea
+	 *     If not <code>null</code>, only search within this area for a possible
+	 *     new position.
+	 * @return
+	 *     <code>true</code> if it was possible to place the entity, false otherwise.
+	 */
+	private static boolean placeatNow(final StendhalRPZone zone, final Entity entity,
+			int x, int y, final Shape allowedArea) {
+
 		Player player = null;
 		if (entity instanceof Player) {
 			player = (Player) entity;
@@ -789,6 +832,46 @@ public class StendhalRPAction {
 	 */
 	private static Point findLocation(final StendhalRPZone zone, final Entity entity,
 			final Shape allowedArea, final int x, final int y, final boolean checkPath) {
+		// Positions with a walkable path to the center. They are found by a
+		// single flood fill, which is only expanded as far as needed.
+		ReachableArea reachable = null;
+		if (checkPath) {
+			reachable = ReachableArea.acquire(entity, zone, x, y, MAX_PLACEMENT_PATH_LENGTH);
+		}
+		try {
+			return findLocation(zone, entity, allowedArea, x, y, reachable);
+		} finally {
+			if (reachable != null) {
+				reachable.release();
+			}
+		}
+	}
+
+	/**
+	 * Finds a new place for entity, searching in the order of increasing
+	 * distance from the center.
+	 *
+	 * @param zone
+	 *     Zone to place the entity in.
+	 * @param entity
+	 *     The entity to place.
+	 * @param allowedArea
+	 *     Only search within this area for a possible new position,
+	 *     or <code>null</code> if the whole normal search area should
+	 *     be used.
+	 * @param x
+	 *     The x coordinate of the search center.
+	 * @param y
+	 *     The y coordinate of the search center.
+	 * @param reachable
+	 *     Positions with a path to the center, or <code>null</code> if the
+	 *     path should not be checked.
+	 * @return
+	 *     Location of the new placement, or <code>null</code> if no
+	 *     suitable place was found.
+	 */
+	private static Point findLocation(final StendhalRPZone zone, final Entity entity,
+			final Shape allowedArea, final int x, final int y, final ReachableArea reachable) {
 
 		// Minimum Euclidean distance within minimum walking distance
 		for (int totalShift = 1; totalShift <= maxDisplacement; totalShift++) {
@@ -797,19 +880,19 @@ public class StendhalRPAction {
 
 				int tmpx = x - tilt;
 				int tmpy = y - spread;
-				if (isValidPlacement(zone, entity, allowedArea, x, y, tmpx, tmpy, checkPath)) {
+				if (isValidPlacement(zone, entity, allowedArea, tmpx, tmpy, reachable)) {
 					return new Point(tmpx, tmpy);
 				}
 				tmpx = x + tilt;
-				if (isValidPlacement(zone, entity, allowedArea, x, y, tmpx, tmpy, checkPath)) {
+				if (isValidPlacement(zone, entity, allowedArea, tmpx, tmpy, reachable)) {
 					return new Point(tmpx, tmpy);
 				}
 				tmpy = y + spread;
-				if (isValidPlacement(zone, entity, allowedArea, x, y, tmpx, tmpy, checkPath)) {
+				if (isValidPlacement(zone, entity, allowedArea, tmpx, tmpy, reachable)) {
 					return new Point(tmpx, tmpy);
 				}
 				tmpx = x - tilt;
-				if (isValidPlacement(zone, entity, allowedArea, x, y, tmpx, tmpy, checkPath)) {
+				if (isValidPlacement(zone, entity, allowedArea, tmpx, tmpy, reachable)) {
 					return new Point(tmpx, tmpy);
 				}
 
@@ -820,19 +903,19 @@ public class StendhalRPAction {
 
 				tmpx = x - spread;
 				tmpy = y - tilt;
-				if (isValidPlacement(zone, entity, allowedArea, x, y, tmpx, tmpy, checkPath)) {
+				if (isValidPlacement(zone, entity, allowedArea, tmpx, tmpy, reachable)) {
 					return new Point(tmpx, tmpy);
 				}
 				tmpx = x + spread;
-				if (isValidPlacement(zone, entity, allowedArea, x, y, tmpx, tmpy, checkPath)) {
+				if (isValidPlacement(zone, entity, allowedArea, tmpx, tmpy, reachable)) {
 					return new Point(tmpx, tmpy);
 				}
 				tmpy = y + tilt;
-				if (isValidPlacement(zone, entity, allowedArea, x, y, tmpx, tmpy, checkPath)) {
+				if (isValidPlacement(zone, entity, allowedArea, tmpx, tmpy, reachable)) {
 					return new Point(tmpx, tmpy);
 				}
 				tmpx = x - spread;
-				if (isValidPlacement(zone, entity, allowedArea, x, y, tmpx, tmpy, checkPath)) {
+				if (isValidPlacement(zone, entity, allowedArea, tmpx, tmpy, reachable)) {
 					return new Point(tmpx, tmpy);
 				}
 			}
@@ -840,20 +923,20 @@ public class StendhalRPAction {
 			// Do tilt = 0 case here, since it takes only 4 checks
 			int tmpx = x;
 			int tmpy = y - totalShift;
-			if (isValidPlacement(zone, entity, allowedArea, x, y, tmpx, tmpy, checkPath)) {
+			if (isValidPlacement(zone, entity, allowedArea, tmpx, tmpy, reachable)) {
 				return new Point(tmpx, tmpy);
 			}
 			tmpy = y + totalShift;
-			if (isValidPlacement(zone, entity, allowedArea, x, y, tmpx, tmpy, checkPath)) {
+			if (isValidPlacement(zone, entity, allowedArea, tmpx, tmpy, reachable)) {
 				return new Point(tmpx, tmpy);
 			}
 			tmpy = y;
 			tmpx = x - totalShift;
-			if (isValidPlacement(zone, entity, allowedArea, x, y, tmpx, tmpy, checkPath)) {
+			if (isValidPlacement(zone, entity, allowedArea, tmpx, tmpy, reachable)) {
 				return new Point(tmpx, tmpy);
 			}
 			tmpx = x + totalShift;
-			if (isValidPlacement(zone, entity, allowedArea, x, y, tmpx, tmpy, checkPath)) {
+			if (isValidPlacement(zone, entity, allowedArea, tmpx, tmpy, reachable)) {
 				return new Point(tmpx, tmpy);
 			}
 		}
@@ -872,24 +955,20 @@ public class StendhalRPAction {
 	 *     Only search within this area for a possible new position,
 	 *     or <code>null</code> if the whole normal search area should
 	 *     be used.
-	 * @param oldX
-	 *     The X coordinate from where the entity was displaced.
-	 * @param oldY
-	 *     The Y coordinate from where the entity was displaced.
 	 * @param newX
 	 *     The X coordinate of the new placement.
 	 * @param newY
 	 *     The Y coordinate of the new placement.
-	 * @param checkPath
-	 *     If <code>true</code>, check that there is a path from
-	 *     <code>(newX, newY)</code> to <code>(oldX, oldY)</code>.
+	 * @param reachable
+	 *     If not <code>null</code>, check that there is a path from
+	 *     the position the entity was displaced from to
+	 *     <code>(newX, newY)</code>.
 	 * @return
 	 *     <code>true</code> if placing is possible,
 	 *     <code>false</code> otherwise.
 	 */
 	private static boolean isValidPlacement(final StendhalRPZone zone, final Entity entity,
-			final Shape allowedArea, final int oldX, final int oldY,
-			final int newX, final int newY, final boolean checkPath) {
+			final Shape allowedArea, final int newX, final int newY, final ReachableArea reachable) {
 
 		// allow admins in ghostmode to teleport to collision tiles
 		if (entity instanceof Player) {
@@ -899,26 +978,15 @@ public class StendhalRPAction {
 		}
 
 		if (!zone.collides(entity, newX, newY)) {
-			// Check the possibleArea now. This is a performance
-			// optimization because the pathfinding is very expensive.
 			if ((allowedArea != null) && (!allowedArea.contains(newX, newY))) {
 				return false;
 			}
-			if (!checkPath) {
-				return true;
-			}
 
 			// We verify that there is a walkable path between the original
 			// spot and the new destination. This is to prevent players to
 			// enter not allowed places by logging in on top of other players.
 			// Or monsters to spawn on the other side of a wall.
-			final List<Node> path = Path.searchPath(entity, zone,
-					oldX, oldY, new Rectangle(newX, newY, 1, 1),
-					400 /* maxDestination * maxDestination */, false);
-			if (!path.isEmpty()) {
-				// We found a place!
-				return true;
-			}
+			return (reachable == null) || reachable.isReachable(newX, newY);
 		}
 
 		return false;
@@ -12,6 +12,10 @@
  ***************************************************************************/
 package games.stendhal.server.core.rp.achievement;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
 import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
 /**
@@ -34,6 +38,9 @@ public class Achievement {
 	/** base score for extreme achievement */
 	public static final int EXTREME_BASE_SCORE = 7;
 
+	/** kill dependency for achievements that can only change when a creature is killed the first time */
+	public static final String FIRST_KILL = "*";
+
 	private final String identifier;
 
 	private final String title;
@@ -49,7 +56,8 @@ public class Achievement {
 
 	private final ChatCondition condition;
 
-
+	/** names of the creatures whose kills can fulfill the condition, <code>null</code> if unknown */
+	private final Set<String> killDependencies;
 
 	/**
 	 * create a new achievement
@@ -63,6 +71,24 @@ public class Achievement {
 	 * @param condition
 	 */
 	public Achievement(String identifier, String title, Category category, String description, int baseScore, boolean active, ChatCondition condition) {
+		this(identifier, title, category, description, baseScore, active, condition, null);
+	}
+
+	/**
+	 * create a new achievement, that declares which kills it depends on
+	 *
+	 * @param identifier
+	 * @param title
+	 * @param category
+	 * @param description
+	 * @param baseScore
+	 * @param active
+	 * @param condition
+	 * @param killDependencies names of the creatures whose kills can
+	 * 	fulfill the condition, {@link #FIRST_KILL} for the first kill of any
+	 * 	creature, or <code>null</code> if any kill can fulfill it
+	 */
+	public Achievement(String identifier, String title, Category category, String description, int baseScore, boolean active, ChatCondition condition, Collection<String> killDependencies) {
 		this.identifier = identifier;
 		this.title = title;
 		this.category = category;
@@ -70,6 +96,11 @@ public class Achievement {
 		this.description = description;
 		this.baseScore = baseScore;
 		this.active = active;
+		if (killDependencies == null) {
+			this.killDependencies = null;
+		} else {
+			this.killDependencies = new HashSet<String>(killDependencies);
+		}
 	}
 
 	/**
@@ -123,6 +154,14 @@ public class Achievement {
 		return condition.fire(p, null, null);
 	}
 
+	/**
+	 * @return names of the creatures whose kills can fulfill this
+	 * 	achievement, or <code>null</code> if any kill can
+	 */
+	Set<String> getKillDependencies() {
+		return killDependencies;
+	}
+
 	@Override
 	public String toString() {
 		return "Achievement<id: "+identifier+", title: "+title+">";
@@ -19,6 +19,7 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.log4j.Logger;
 
@@ -57,6 +58,14 @@ public final class AchievementNotifier {
 
 	final private Map<String, Integer> identifiersToIds;
 
+	/** fighting achievements by the names of the creatures they depend on */
+	final private Map<String, List<Achievement>> killDependents;
+
+	/** fighting achievements that depend on the first kill of any creature */
+	final private List<Achievement> firstKillDependents;
+
+	/** fighting achievements that may depend on any kill */
+	final private List<Achievement> anyKillDependents;
 
 	/**
 	 * singleton accessor method
@@ -78,6 +87,9 @@ public final class AchievementNotifier {
 	private AchievementNotifier() {
 		achievements = new EnumMap<Category, List<Achievement>>(Category.class);
 		identifiersToIds = new HashMap<String, Integer>();
+		killDependents = new HashMap<String, List<Achievement>>();
+		firstKillDependents = new ArrayList<Achievement>();
+		anyKillDependents = new ArrayList<Achievement>();
 	}
 
 	/**
@@ -92,6 +104,9 @@ public final class AchievementNotifier {
 				achievements.put(a.getCategory(), new LinkedList<Achievement>());
 			}
 			achievements.get(a.getCategory()).add(a);
+			if (a.getCategory() == Category.FIGHTING) {
+				indexKillDependencies(a);
+			}
 		}
 		//collect all identifiers from database
 		final Map<String, Integer> allIdentifiersInDatabase = collectAllIdentifiersFromDatabase();
@@ -130,6 +145,31 @@ public final class AchievementNotifier {
 		SingletonRepository.getLoginNotifier().addListener(new ReadAchievementsOnLogin());
 	}
 
+	/**
+	 * adds a fighting achievement to the lookup tables for kills
+	 *
+	 * @param achievement fighting achievement
+	 */
+	private void indexKillDependencies(final Achievement achievement) {
+		final Set<String> dependencies = achievement.getKillDependencies();
+		if (dependencies == null) {
+			anyKillDependents.add(achievement);
+			return;
+		}
+		for (final String creature : dependencies) {
+			if (Achievement.FIRST_KILL.equals(creature)) {
+				firstKillDependents.add(achievement);
+			} else {
+				List<Achievement> list = killDependents.get(creature);
+				if (list == null) {
+					list = new ArrayList<Achievement>(2);
+					killDependents.put(creature, list);
+				}
+				list.add(achievement);
+			}
+		}
+	}
+
 	/**
 	 * Checks if the achievement list has already been populated.
 	 */
@@ -182,6 +222,38 @@ public final class AchievementNotifier {
 		getAndCheckAchievementsInCategory(player, Category.FIGHTING);
 	}
 
+	/**
+	 * checks the achievements for a player that can be affected by a kill
+	 *
+	 * @param player the killer
+	 * @param creature name of the killed creature
+	 * @param firstKill <code>true</code> if this was the first solo kill or
+	 * 	the first shared kill of this creature by the player
+	 */
+	public void onKill(final Player player, final String creature, final boolean firstKill) {
+		notifyPlayerAboutReachedAchievements(player, checkAchievements(player, getKillDependents(creature, firstKill)));
+	}
+
+	/**
+	 * gets the fighting achievements that can be affected by a kill
+	 *
+	 * @param creature name of the killed creature
+	 * @param firstKill <code>true</code> if this was the first solo kill or
+	 * 	the first shared kill of this creature by the player
+	 * @return achievements to check
+	 */
+	List<Achievement> getKillDependents(final String creature, final boolean firstKill) {
+		final List<Achievement> toCheck = new ArrayList<Achievement>(anyKillDependents);
+		final List<Achievement> dependents = killDependents.get(creature);
+		if (dependents != null) {
+			toCheck.addAll(dependents);
+		}
+		if (firstKill) {
+			toCheck.addAll(firstKillDependents);
+		}
+		return toCheck;
+	}
+
 	/**
 	 * check all achievements for a player that are relevant on finishing a quest
 	 *
@@ -352,7 +424,8 @@ public final class AchievementNotifier {
 		}
 
 		for (Achievement achievement : toCheck) {
-			if(achievement.isFulfilled(player) && !player.hasReachedAchievement(achievement.getIdentifier())) {
+			// the reached check is cheap compared to most conditions
+			if(!player.hasReachedAchievement(achievement.getIdentifier()) && achievement.isFulfilled(player)) {
 				logReachingOfAnAchievement(player, achievement);
 				if (achievement.isActive()) {
 					reached.add(achievement);
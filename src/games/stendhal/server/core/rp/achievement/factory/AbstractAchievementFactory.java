@@ -12,6 +12,7 @@
  ***************************************************************************/
 package games.stendhal.server.core.rp.achievement.factory;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
@@ -54,6 +55,23 @@ public abstract class AbstractAchievementFactory {
 		return new Achievement(identifier, title, getCategory(),  description, score, active, condition);
 	}
 
+	/**
+	 * Creates a single achievement that can only be reached by killing
+	 * certain creatures
+	 * @param identifier
+	 * @param title
+	 * @param description
+	 * @param score
+	 * @param active
+	 * @param condition
+	 * @param killDependencies names of the creatures whose kills can fulfill
+	 * 	the condition, or {@link Achievement#FIRST_KILL}
+	 * @return the new Achievement
+	 */
+	protected Achievement createAchievement(String identifier, String title, String description, int score, boolean active, ChatCondition condition, String... killDependencies) {
+		return new Achievement(identifier, title, getCategory(),  description, score, active, condition, Arrays.asList(killDependencies));
+	}
+
 	/**
 	 * Create a list of all known achievement factories
 	 * @return the list of factories
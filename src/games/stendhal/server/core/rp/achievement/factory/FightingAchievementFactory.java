@@ -14,6 +14,7 @@ package games.stendhal.server.core.rp.achievement.factory;
 
 import java.util.Collection;
 import java.util.LinkedList;
+import java.util.Set;
 
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.constants.KillType;
@@ -109,6 +110,19 @@ public class FightingAchievementFactory extends AbstractAchievementFactory {
 		return Category.FIGHTING;
 	}
 
+	/**
+	 * Creates a fighting achievement. The kill dependencies of kill count
+	 * conditions are taken from the condition.
+	 */
+	@Override
+	protected Achievement createAchievement(String identifier, String title, String description, int score, boolean active, ChatCondition condition) {
+		if (condition instanceof PlayerHasKilledNumberOfCreaturesCondition) {
+			final Set<String> creatures = ((PlayerHasKilledNumberOfCreaturesCondition) condition).getCreatureNames();
+			return createAchievement(identifier, title, description, score, active, condition, creatures.toArray(new String[0]));
+		}
+		return super.createAchievement(identifier, title, description, score, active, condition);
+	}
+
 	@Override
 	public Collection<Achievement> createAchievements() {
 		final LinkedList<Achievement> achievements = new LinkedList<Achievement>();
@@ -156,7 +170,8 @@ public class FightingAchievementFactory extends AbstractAchievementFactory {
 			new AndCondition(
 				new PlayerHasKilledNumberOfCreaturesCondition("tiger", 30),
 				new PlayerHasKilledNumberOfCreaturesCondition("lion", 30),
-				new PlayerHasKilledNumberOfCreaturesCondition("elephant", 50))));
+				new PlayerHasKilledNumberOfCreaturesCondition("elephant", 50)),
+			"tiger", "lion", "elephant"));
 
 		achievements.add(createAchievement(
 			ID_ENTS, "Wood Cutter",
@@ -168,19 +183,22 @@ public class FightingAchievementFactory extends AbstractAchievementFactory {
 			ID_POACHER, "Poacher",
 			"Kill any rare creature",
 			Achievement.HARD_BASE_SCORE, true,
-			new KilledRareCreatureCondition()));
+			new KilledRareCreatureCondition(),
+			Achievement.FIRST_KILL));
 
 		achievements.add(createAchievement(
 			ID_LEGEND, "Legend",
 			"Kill all creatures solo",
 			Achievement.HARD_BASE_SCORE, true,
-			new KilledSoloAllCreaturesCondition()));
+			new KilledSoloAllCreaturesCondition(),
+			Achievement.FIRST_KILL));
 
 		achievements.add(createAchievement(
 			ID_TEAM_PLAYER, "Team Player",
 			"Kill all creatures in a team",
 			Achievement.HARD_BASE_SCORE, true,
-			new KilledSharedAllCreaturesCondition()));
+			new KilledSharedAllCreaturesCondition(),
+			Achievement.FIRST_KILL));
 
 		achievements.add(createAchievement(
 			ID_GIANTS, "David vs. Goliath",
@@ -214,7 +232,8 @@ public class FightingAchievementFactory extends AbstractAchievementFactory {
 
 					return kills >= 10000;
 				}
-			}));
+			},
+			ENEMIES_MERMAIDS));
 
 		achievements.add(createAchievement(
 			ID_DEEPSEA, "Deep Sea Fisherman",
@@ -236,7 +255,8 @@ public class FightingAchievementFactory extends AbstractAchievementFactory {
 
 					return kills >= 500;
 				}
-			}));
+			},
+			ENEMIES_ZOMBIES));
 
 		achievements.add(createAchievement(
 			ID_FOWL, "Chicken Nuggets",
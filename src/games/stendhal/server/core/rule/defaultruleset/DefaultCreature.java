@@ -112,6 +112,8 @@ public class DefaultCreature {
 	/** Status attack types */
 	private String statusAttack;
 	private double statusAttackProbability;
+	/** Status attacker compiled from statusAttack, shared by all instances */
+	private StatusAttacker statusAttacker;
 
 	/** Type of damage caused by the creature */
 	private Nature damageType;
@@ -368,15 +370,19 @@ public class DefaultCreature {
 
 		// Status attack types
 		if (statusAttack != null) {
-			Binding groovyBinding = new Binding();
-			final GroovyShell interp = new GroovyShell(groovyBinding);
-			try {
-				String code = "import games.stendhal.server.entity.status.*;\r\n" + statusAttack;
-				StatusAttacker attacker = new StatusAttacker((Status) interp.evaluate(code), statusAttackProbability);
-				creature.addStatusAttacker(attacker);
-			} catch (CompilationFailedException e) {
-				throw new IllegalArgumentException(e);
+			// compiling the script is expensive, and status attackers are
+			// immutable, so all creatures of this kind share one
+			if (statusAttacker == null) {
+				Binding groovyBinding = new Binding();
+				final GroovyShell interp = new GroovyShell(groovyBinding);
+				try {
+					String code = "import games.stendhal.server.entity.status.*;\r\n" + statusAttack;
+					statusAttacker = new StatusAttacker((Status) interp.evaluate(code), statusAttackProbability);
+				} catch (CompilationFailedException e) {
+					throw new IllegalArgumentException(e);
+				}
 			}
+			creature.addStatusAttacker(statusAttacker);
 		}
 
 		return creature;
@@ -452,6 +458,7 @@ public class DefaultCreature {
 	public void setStatusAttack(final String name, final double probability) {
 		statusAttack = name;
 		statusAttackProbability = probability;
+		statusAttacker = null;
 	}
 
 	/**
@@ -18,11 +18,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import org.apache.log4j.Logger;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableList.Builder;
+
 import games.stendhal.common.constants.Nature;
 import games.stendhal.server.core.rule.defaultruleset.creator.AbstractCreator;
 import games.stendhal.server.core.rule.defaultruleset.creator.AttributesItemCreator;
 import games.stendhal.server.core.rule.defaultruleset.creator.DefaultItemCreator;
 import games.stendhal.server.core.rule.defaultruleset.creator.FullItemCreator;
+import games.stendhal.server.core.rule.defaultruleset.creator.ItemCopier;
 import games.stendhal.server.entity.item.Item;
 import games.stendhal.server.entity.item.behavior.UseBehavior;
 import games.stendhal.server.entity.status.PoisonAttackerFactory;
@@ -37,10 +43,16 @@ import games.stendhal.server.entity.status.StatusType;
  * @author Matthias Totz, chad3f
  */
 public class DefaultItem {
+	private static final Logger logger = Logger.getLogger(DefaultItem.class);
 
 	/** Implementation creator. */
 	private AbstractCreator<Item> creator;
 
+	/** Copies a prototype item, see {@link #getItem()} */
+	private ItemCopier copier;
+	/** <code>true</code> once it was checked whether copying the prototype is possible */
+	private boolean copierChecked;
+
 	/** items class. */
 	private String clazz;
 
@@ -78,6 +90,9 @@ public class DefaultItem {
 
 	private String[] statusAttacks;
 
+	/** status attackers shared by all instances, built on first use */
+	private ImmutableList<StatusAttacker> statusAttackers;
+
 	/* Slots where SlotActivatedItem can be activated when equipped. */
 	private List<String> activeSlotsList;
 
@@ -110,6 +125,7 @@ public class DefaultItem {
 
 	public void setAttributes(final Map<String, String> attributes) {
 		this.attributes = attributes;
+		resetPrototype();
 	}
 
 	public void setEquipableSlots(final List<String> slots) {
@@ -150,6 +166,7 @@ public class DefaultItem {
 
 	public void setStatusAttacks(final String statusAttacks) {
 		this.statusAttacks = statusAttacks.split(";");
+		this.statusAttackers = null;
 	}
 
 	/**
@@ -187,6 +204,7 @@ public class DefaultItem {
 	public void setImplementation(final Class< ? > implementation) {
 		this.implementation = implementation;
 		creator = buildCreator(implementation);
+		resetPrototype();
 	}
 
 	/**
@@ -259,7 +277,9 @@ public class DefaultItem {
 	}
 
 	/**
-	 * Returns an item-instance.
+	 * Returns an item-instance. After the first call, items are created by
+	 * copying a prototype, if the copy constructor of the implementation
+	 * produces the same result as the creator.
 	 *
 	 * @return An item, or <code>null</code> on error.
 	 */
@@ -272,7 +292,78 @@ public class DefaultItem {
 		if (creator == null) {
 			return null;
 		}
-		final Item item = creator.create();
+		if (!copierChecked) {
+			copier = createCopier();
+			copierChecked = true;
+		}
+
+		final Item item;
+		if (copier != null) {
+			item = copier.copy();
+		} else {
+			item = creator.create();
+		}
+		configure(item);
+		return item;
+	}
+
+	/**
+	 * Checks if items can be created by copying a prototype.
+	 *
+	 * @return <code>true</code> if a prototype is used
+	 */
+	public boolean isCopyingPrototype() {
+		return copier != null;
+	}
+
+	/**
+	 * Forgets the prototype after a change of the item definition.
+	 */
+	private void resetPrototype() {
+		copier = null;
+		copierChecked = false;
+	}
+
+	/**
+	 * Creates a copier for a prototype, and verifies that it creates the
+	 * same items as the creator.
+	 *
+	 * @return ItemCopier, or <code>null</code> if the creator has to be used
+	 */
+	private ItemCopier createCopier() {
+		final Item prototype = creator.create();
+		if (prototype == null) {
+			return null;
+		}
+		final ItemCopier candidate = ItemCopier.create(prototype);
+		if (candidate == null) {
+			return null;
+		}
+
+		final Item created = creator.create();
+		configure(created);
+		final Item copy;
+		try {
+			copy = candidate.copy();
+		} catch (final RuntimeException e) {
+			logger.warn("Copying \"" + name + "\" failed", e);
+			return null;
+		}
+		configure(copy);
+		final String difference = candidate.findDifference(created, copy);
+		if (difference != null) {
+			logger.debug("Not copying \"" + name + "\": " + difference);
+			return null;
+		}
+		return candidate;
+	}
+
+	/**
+	 * Applies the settings which are not passed to the constructor.
+	 *
+	 * @param item new item, may be <code>null</code>
+	 */
+	private void configure(final Item item) {
 		if (item != null) {
 			item.setEquipableSlots(slots);
 			item.setDescription(description);
@@ -283,17 +374,7 @@ public class DefaultItem {
 
 			// status attackers
 			if (statusAttacks != null) {
-				for (final String statk: statusAttacks) {
-					StatusAttacker statusAttacker;
-					if (statk.contains("poison") || statk.contains("cobra venom") || statk.contains("fierywater")) {
-						statusAttacker = PoisonAttackerFactory.get(statk);
-					} else {
-						statusAttacker = StatusAttackerFactory.get(statk);
-					}
-					if (statusAttacker != null) {
-						item.addStatusAttacker(statusAttacker);
-					}
-				}
+				item.setStatusAttackers(getStatusAttackers());
 			}
 
 			/* Set a list of status resistances for StatusResistantItem. */
@@ -309,8 +390,41 @@ public class DefaultItem {
 
 			item.setUseBehavior(useBehavior);
 		}
+	}
 
-		return item;
+	/**
+	 * Gets the status attackers of this item. They are immutable, so they
+	 * are created only once and shared by all instances.
+	 *
+	 * @return status attackers
+	 */
+	private ImmutableList<StatusAttacker> getStatusAttackers() {
+		if (statusAttackers != null) {
+			return statusAttackers;
+		}
+
+		final Builder<StatusAttacker> builder = ImmutableList.builder();
+		boolean complete = true;
+		for (final String statk: statusAttacks) {
+			StatusAttacker statusAttacker;
+			if (statk.contains("poison") || statk.contains("cobra venom") || statk.contains("fierywater")) {
+				statusAttacker = PoisonAttackerFactory.get(statk);
+			} else {
+				statusAttacker = StatusAttackerFactory.get(statk);
+			}
+			if (statusAttacker != null) {
+				builder.add(statusAttacker);
+			} else {
+				complete = false;
+			}
+		}
+
+		final ImmutableList<StatusAttacker> list = builder.build();
+		// try again next time, if the status item was not available yet
+		if (complete) {
+			statusAttackers = list;
+		}
+		return list;
 	}
 
 	/** @return the tile id .*/
@@ -337,6 +451,7 @@ public class DefaultItem {
 
 	public void setItemClass(final String val) {
 		clazz = val;
+		resetPrototype();
 	}
 
 	/** @return the subclass. */
@@ -346,6 +461,7 @@ public class DefaultItem {
 
 	public void setItemSubclass(final String val) {
 		subclazz = val;
+		resetPrototype();
 	}
 
 	public String getItemName() {
@@ -354,6 +470,7 @@ public class DefaultItem {
 
 	public void setItemName(final String val) {
 		name = val;
+		resetPrototype();
 	}
 
 	public AbstractCreator<Item> getCreator() {
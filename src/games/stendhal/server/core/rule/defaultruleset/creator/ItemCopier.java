@@ -0,0 +1,143 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.rule.defaultruleset.creator;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Objects;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableMap;
+
+import games.stendhal.server.entity.item.Item;
+
+/**
+ * Creates items by copying a prototype with the copy constructor of its
+ * class. This skips parsing and validating the attributes of the item,
+ * which dominates the cost of the full arguments constructor.
+ */
+public final class ItemCopier {
+	private static final Logger logger = Logger.getLogger(ItemCopier.class);
+
+	/**
+	 * Signature of a copy constructor.
+	 */
+	interface CopyConstructor {
+		Item copy(Item item);
+	}
+
+	private final Item prototype;
+	private final CopyConstructor constructor;
+
+	private ItemCopier(final Item prototype, final CopyConstructor constructor) {
+		this.prototype = prototype;
+		this.constructor = constructor;
+	}
+
+	/**
+	 * Creates an ItemCopier for a prototype. The prototype must not be
+	 * modified or handed out afterwards.
+	 *
+	 * @param prototype item to copy
+	 * @return ItemCopier, or <code>null</code> if the class of the prototype
+	 * 	has no accessible copy constructor, or must not be copied
+	 */
+	public static ItemCopier create(final Item prototype) {
+		if (!prototype.isPrototypeCopyable()) {
+			return null;
+		}
+		final Class< ? > clazz = prototype.getClass();
+		try {
+			final Constructor< ? > construct = clazz.getConstructor(clazz);
+			final MethodHandles.Lookup lookup = MethodHandles.lookup();
+			final MethodHandle handle = lookup.unreflectConstructor(construct);
+			final CallSite site = LambdaMetafactory.metafactory(lookup, "copy",
+					MethodType.methodType(CopyConstructor.class),
+					MethodType.methodType(Item.class, Item.class), handle, handle.type());
+			return new ItemCopier(prototype, (CopyConstructor) site.getTarget().invoke());
+		} catch (final NoSuchMethodException e) {
+			return null;
+		} catch (final Throwable e) {
+			// MethodHandle.invoke() is declared to throw Throwable
+			logger.debug("Cannot use the copy constructor of " + clazz.getName() + ": " + e);
+			return null;
+		}
+	}
+
+	/**
+	 * Creates a copy of the prototype.
+	 *
+	 * @return new item
+	 */
+	public Item copy() {
+		return constructor.copy(prototype);
+	}
+
+	/**
+	 * Compares a copy of the prototype with an item created by the full
+	 * constructor, field by field in the whole class hierarchy. A copy
+	 * constructor is only trusted, if it produces equal values, and shares
+	 * mutable values with the prototype only where the constructor shares
+	 * them, too.
+	 *
+	 * @param created item created by the constructor
+	 * @param copy copy of the prototype
+	 * @return description of the first difference, or <code>null</code> if
+	 * 	the items are equivalent
+	 */
+	public String findDifference(final Item created, final Item copy) {
+		if (created.getClass() != copy.getClass()) {
+			return "class " + copy.getClass().getName();
+		}
+		for (Class< ? > clazz = created.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
+			for (final Field field : clazz.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers())) {
+					continue;
+				}
+				final Object expected;
+				final Object actual;
+				final Object original;
+				try {
+					field.setAccessible(true);
+					expected = field.get(created);
+					actual = field.get(copy);
+					original = field.get(prototype);
+				} catch (final RuntimeException | IllegalAccessException e) {
+					return clazz.getName() + "." + field.getName() + " is not accessible";
+				}
+				if (!Objects.equals(expected, actual)) {
+					return clazz.getName() + "." + field.getName() + ": " + actual + " instead of " + expected;
+				}
+				if ((actual != null) && (actual == original) && (expected != original)
+						&& !isImmutable(actual)) {
+					return clazz.getName() + "." + field.getName() + " is shared with the prototype";
+				}
+			}
+		}
+		return null;
+	}
+
+	private static boolean isImmutable(final Object value) {
+		return (value instanceof String) || (value instanceof Number)
+				|| (value instanceof Boolean) || (value instanceof Character)
+				|| (value instanceof Enum) || (value instanceof ImmutableCollection)
+				|| (value instanceof ImmutableMap);
+	}
+}
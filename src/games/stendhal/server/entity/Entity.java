@@ -184,10 +184,6 @@ public abstract class Entity extends RPObject implements Killer {
 			}
 		}
 
-		if (moved && (zone != null)) {
-			onMoved(oldX, oldY, x, y);
-		}
-
 		if (has("height")) {
 			area.height = getInt("height");
 		}
@@ -200,6 +196,12 @@ public abstract class Entity extends RPObject implements Killer {
 			resistance = getInt("resistance");
 		}
 
+		if (zone != null) {
+			zone.updateEntityArea(this);
+			if (moved) {
+				onMoved(oldX, oldY, x, y);
+			}
+		}
 	}
 
 	public boolean hasDescription() {
@@ -658,6 +660,7 @@ public abstract class Entity extends RPObject implements Killer {
 		}
 
 		if (moved && (zone != null)) {
+			zone.updateEntityArea(this);
 			onMoved(oldX, oldY, x, y);
 		}
 	}
@@ -679,6 +682,10 @@ public abstract class Entity extends RPObject implements Killer {
 	public final void setResistance(final int resistance) {
 		this.resistance = resistance;
 		put("resistance", resistance);
+
+		if (zone != null) {
+			zone.updateEntityResistance(this);
+		}
 	}
 
 	/**
@@ -695,6 +702,10 @@ public abstract class Entity extends RPObject implements Killer {
 
 		this.area.height = height;
 		put("height", height);
+
+		if (zone != null) {
+			zone.updateEntityArea(this);
+		}
 	}
 
 	/**
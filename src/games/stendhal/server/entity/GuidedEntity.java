@@ -21,6 +21,8 @@ import org.apache.log4j.Logger;
 
 import games.stendhal.common.Direction;
 import games.stendhal.common.Rand;
+import games.stendhal.server.core.engine.ResistanceGrid;
+import games.stendhal.server.core.engine.StendhalRPZone;
 import games.stendhal.server.core.events.TurnListener;
 import games.stendhal.server.core.events.TurnNotifier;
 import games.stendhal.server.core.pathfinder.EntityGuide;
@@ -469,6 +471,48 @@ public abstract class GuidedEntity extends ActiveEntity {
 	 * @return resistance
 	 */
 	private int getLocalResistance() {
+		final int ownResistance = getResistance();
+		if (ownResistance == 0) {
+			return 0;
+		}
+		if (ownResistance != ResistanceGrid.COLLISION) {
+			// The zone data is valid only for fully resistant entities
+			return scanLocalResistance();
+		}
+
+		final StendhalRPZone zone = getZone();
+		final ResistanceGrid grid = zone.getResistanceGrid();
+		final int size = (int) (getWidth() * getHeight());
+		if (size <= 0) {
+			return 0;
+		}
+		final int startX = Math.max(0, getX());
+		final int startY = Math.max(0, getY());
+		final int endX = Math.min(zone.getWidth(), getX() + (int) getWidth());
+		final int endY = Math.min(zone.getHeight(), getY() + (int) getHeight());
+
+		/*
+		 * Each tile counts by the proportion it covers of the area of this
+		 * entity. Allows large monsters trample over small obstacles faster
+		 * than a small one trying to run right through it.
+		 */
+		int resistance = 0;
+		for (int x = startX; x < endX; x++) {
+			for (int y = startY; y < endY; y++) {
+				resistance += grid.getResistance(x, y, true, this);
+			}
+		}
+
+		return Math.min(ResistanceGrid.COLLISION, resistance / size);
+	}
+
+	/**
+	 * Get resistance caused by other entities occupying the same, or part
+	 * of the same space by checking every entity of the zone.
+	 *
+	 * @return resistance
+	 */
+	private int scanLocalResistance() {
 		int resistance = 0;
 		double size = getWidth() * getHeight();
 
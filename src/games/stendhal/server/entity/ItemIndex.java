@@ -0,0 +1,367 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.entity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.common.constants.Testing;
+import games.stendhal.server.entity.item.Item;
+import games.stendhal.server.entity.slot.Slots;
+import marauroa.common.game.RPObject;
+import marauroa.common.game.RPSlot;
+
+/**
+ * Index of the items in the slots of an entity, including the content of
+ * containers, by item name. The index is built on the first lookup, and then
+ * kept up to date by {@link #add(Item, RPSlot)} and
+ * {@link #remove(Item, RPSlot)}, which are called when items enter or leave
+ * the slots of the entity.
+ */
+final class ItemIndex {
+	private static final Logger logger = Logger.getLogger(ItemIndex.class);
+
+	/** Compare every lookup with a scan of the slots. */
+	private static boolean verifying = Testing.INVENTORY;
+
+	/** entity owning the indexed slots */
+	private final RPEntity owner;
+	/** <code>true</code> to index all slots, <code>false</code> for the carrying slots only */
+	private final boolean allSlots;
+	/** entries by lower case item name, <code>null</code> until the first lookup */
+	private Map<String, Entry> entries;
+
+	/**
+	 * Items of one name.
+	 */
+	private static final class Entry {
+		/** items in the order they are found in the slots, once sorted */
+		private final List<Item> items = new ArrayList<>(2);
+		/** <code>false</code> if items were added since the last sort */
+		private boolean sorted = true;
+	}
+
+	/**
+	 * Creates a new ItemIndex.
+	 *
+	 * @param owner entity owning the slots
+	 * @param allSlots <code>true</code> to index all slots,
+	 * 	<code>false</code> for the slots listed in {@link Slots#CARRYING}
+	 */
+	ItemIndex(final RPEntity owner, final boolean allSlots) {
+		this.owner = owner;
+		this.allSlots = allSlots;
+	}
+
+	/**
+	 * Enables or disables the comparison of each lookup with a scan of the
+	 * slots. Inconsistencies are reported by an IllegalStateException.
+	 *
+	 * @param verify <code>true</code> to verify lookups
+	 */
+	static void setVerifying(final boolean verify) {
+		verifying = verify;
+	}
+
+	/**
+	 * Gets the entity owning the indexed slots.
+	 *
+	 * @return owner
+	 */
+	RPEntity getOwner() {
+		return owner;
+	}
+
+	/**
+	 * Adds an item, and the content of it, that entered the slots of the
+	 * owner.
+	 *
+	 * @param item item
+	 * @param slot slot of the owner holding the item or its container
+	 */
+	void add(final Item item, final RPSlot slot) {
+		if ((entries != null) && isIndexed(slot)) {
+			addItem(item);
+		}
+	}
+
+	/**
+	 * Removes an item, and the content of it, that left the slots of the
+	 * owner.
+	 *
+	 * @param item item
+	 * @param slot slot of the owner that held the item or its container
+	 */
+	void remove(final Item item, final RPSlot slot) {
+		if ((entries != null) && isIndexed(slot)) {
+			removeItem(item);
+		}
+	}
+
+	/**
+	 * Gets the total quantity of the items of a name.
+	 *
+	 * @param name item name, case insensitive
+	 * @return quantity
+	 */
+	int getQuantity(final String name) {
+		final Entry entry = lookup(name);
+		if (entry == null) {
+			return 0;
+		}
+		int quantity = 0;
+		for (int i = 0; i < entry.items.size(); i++) {
+			quantity += entry.items.get(i).getQuantity();
+		}
+		return quantity;
+	}
+
+	/**
+	 * Gets the first item of a name.
+	 *
+	 * @param name item name, case insensitive
+	 * @return item, or <code>null</code>
+	 */
+	Item getFirst(final String name) {
+		final Entry entry = lookup(name);
+		if ((entry == null) || entry.items.isEmpty()) {
+			return null;
+		}
+		if (!entry.sorted) {
+			sort(entry);
+		}
+		return entry.items.get(0);
+	}
+
+	/**
+	 * Gets all items of a name.
+	 *
+	 * @param name item name, case insensitive
+	 * @return a new list of the items
+	 */
+	List<Item> getAll(final String name) {
+		final Entry entry = lookup(name);
+		if (entry == null) {
+			return new ArrayList<>(0);
+		}
+		if (!entry.sorted) {
+			sort(entry);
+		}
+		return new ArrayList<>(entry.items);
+	}
+
+	private Entry lookup(final String name) {
+		if (entries == null) {
+			entries = new HashMap<>();
+			for (final RPSlot slot : getSlots()) {
+				addSlot(slot);
+			}
+		}
+		final Entry entry = entries.get(key(name));
+		if (verifying) {
+			verify(name, entry);
+		}
+		return entry;
+	}
+
+	private boolean isIndexed(final RPSlot slot) {
+		return allSlots || ((slot != null) && Slots.CARRYING.getNames().contains(slot.getName()));
+	}
+
+	private void addSlot(final RPSlot slot) {
+		for (final RPObject object : slot) {
+			if (object instanceof Item) {
+				addItem((Item) object);
+			}
+		}
+	}
+
+	private void addItem(final Item item) {
+		final String key = key(item.getName());
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			entry = new Entry();
+			entries.put(key, entry);
+		}
+		entry.items.add(item);
+		if (entry.items.size() > 1) {
+			entry.sorted = false;
+		}
+
+		for (final RPSlot content : item.slots()) {
+			addSlot(content);
+		}
+	}
+
+	private void removeItem(final Item item) {
+		final Entry entry = entries.get(key(item.getName()));
+		if (entry != null) {
+			// compare by identity, items of a name may be equal
+			for (int i = 0; i < entry.items.size(); i++) {
+				if (entry.items.get(i) == item) {
+					entry.items.remove(i);
+					break;
+				}
+			}
+		}
+
+		for (final RPSlot content : item.slots()) {
+			for (final RPObject object : content) {
+				if (object instanceof Item) {
+					removeItem((Item) object);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sorts the items of an entry in the order they are found in the slots.
+	 */
+	private void sort(final Entry entry) {
+		final Map<Item, int[]> positions = new IdentityHashMap<>();
+		for (final Item item : entry.items) {
+			positions.put(item, getPosition(item));
+		}
+		entry.items.sort(new Comparator<Item>() {
+			@Override
+			public int compare(final Item item1, final Item item2) {
+				final int[] position1 = positions.get(item1);
+				final int[] position2 = positions.get(item2);
+				final int length = Math.min(position1.length, position2.length);
+				for (int i = 0; i < length; i++) {
+					if (position1[i] != position2[i]) {
+						return Integer.compare(position1[i], position2[i]);
+					}
+				}
+				// a container comes before its content
+				return Integer.compare(position1.length, position2.length);
+			}
+		});
+		entry.sorted = true;
+	}
+
+	/**
+	 * Gets the position of an item in the slots. For each level of
+	 * containers, starting at the owner, the position holds the index of the
+	 * slot and the index of the object in the slot.
+	 */
+	private int[] getPosition(final Item item) {
+		int depth = 0;
+		for (RPObject object = item; (object != null) && (object != owner); object = object.getContainer()) {
+			depth++;
+		}
+		final int[] position = new int[2 * depth];
+		RPObject object = item;
+		for (int level = depth - 1; level >= 0; level--) {
+			final RPSlot slot = object.getContainerSlot();
+			final RPObject container = object.getContainer();
+			final List<RPSlot> slots;
+			if (container == owner) {
+				slots = getSlots();
+			} else {
+				slots = container.slots();
+			}
+			position[2 * level] = slots.indexOf(slot);
+			int index = 0;
+			for (final RPObject content : slot) {
+				if (content == object) {
+					break;
+				}
+				index++;
+			}
+			position[2 * level + 1] = index;
+			object = container;
+		}
+		return position;
+	}
+
+	private List<RPSlot> getSlots() {
+		if (allSlots) {
+			return owner.slots();
+		}
+		final List<RPSlot> slots = new ArrayList<>();
+		for (final String slotName : Slots.CARRYING.getNames()) {
+			final RPSlot slot = owner.getSlot(slotName);
+			if (slot != null) {
+				slots.add(slot);
+			}
+		}
+		return slots;
+	}
+
+	/**
+	 * Compares an indexed entry with a scan of the slots.
+	 */
+	private void verify(final String name, final Entry entry) {
+		final List<Item> expected = new ArrayList<>();
+		for (final RPSlot slot : getSlots()) {
+			collect(slot, name, expected);
+		}
+
+		final List<Item> indexed;
+		if (entry == null) {
+			indexed = Collections.emptyList();
+		} else {
+			if (!entry.sorted) {
+				sort(entry);
+			}
+			indexed = entry.items;
+		}
+		if (!expected.equals(indexed)) {
+			final String message = "Item index of " + owner.getName() + " is inconsistent for "
+					+ name + ": indexed " + indexed + ", found " + expected;
+			logger.error(message);
+			throw new IllegalStateException(message);
+		}
+	}
+
+	private static void collect(final RPSlot slot, final String name, final List<Item> items) {
+		for (final RPObject object : slot) {
+			if (object instanceof Item) {
+				final Item item = (Item) object;
+				if (name.equalsIgnoreCase(item.getName())) {
+					items.add(item);
+				}
+				for (final RPSlot content : item.slots()) {
+					collect(content, name, items);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the map key of an item name. Names are matched case insensitive.
+	 *
+	 * @param name item name
+	 * @return lower case name
+	 */
+	private static String key(final String name) {
+		if (name == null) {
+			return null;
+		}
+		// item names are usually lower case already, so avoid a copy
+		for (int i = 0; i < name.length(); i++) {
+			if (Character.isUpperCase(name.charAt(i))) {
+				return name.toLowerCase(Locale.ENGLISH);
+			}
+		}
+		return name;
+	}
+}
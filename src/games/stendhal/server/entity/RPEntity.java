@@ -43,9 +43,9 @@ import games.stendhal.server.core.engine.ItemLogger;
 import games.stendhal.server.core.engine.SingletonRepository;
 import games.stendhal.server.core.engine.StendhalRPZone;
 import games.stendhal.server.core.engine.db.StendhalKillLogDAO;
-import games.stendhal.server.core.engine.dbcommand.LogKillEventCommand;
 import games.stendhal.server.core.events.TurnListener;
 import games.stendhal.server.core.events.TutorialNotifier;
+import games.stendhal.server.core.rp.KillLogAggregator;
 import games.stendhal.server.entity.creature.Creature;
 import games.stendhal.server.entity.creature.Pet;
 import games.stendhal.server.entity.item.CaptureTheFlagFlag;
@@ -68,8 +68,6 @@ import marauroa.common.game.RPAction;
 import marauroa.common.game.RPObject;
 import marauroa.common.game.RPSlot;
 import marauroa.common.game.SyntaxException;
-import marauroa.server.db.command.DBCommandPriority;
-import marauroa.server.db.command.DBCommandQueue;
 import marauroa.server.game.Statistics;
 import marauroa.server.game.db.DAORegister;
 
@@ -121,6 +119,20 @@ public abstract class RPEntity extends CombatEntity {
 	protected CounterMap<Entity> damageReceived;
 	protected int totalDamageReceived;
 
+	/** Cached item based combat values, see {@link #invalidateCombatStats()}. */
+	private boolean combatStatsValid;
+	/** The turn the cached combat values were calculated in. */
+	private int combatStatsTurn;
+	private float itemAtkCache;
+	private float itemRatkCache;
+	private float itemDefCache;
+	private List<Item> defenseItemsCache;
+
+	/** Items in the carrying slots by name, created on first use. */
+	private ItemIndex carriedItems;
+	/** Items in all slots by name, created on first use. */
+	private ItemIndex allItems;
+
 	/**
 	 * To avoid using karma for damage calculations when the natural ability of
 	 * the fighters would mean they need no luck, we only use karma when the
@@ -485,6 +497,7 @@ public abstract class RPEntity extends CombatEntity {
 		}
 		if (has("level")) {
 			level = getInt("level");
+			invalidateCombatStats();
 		}
 		if (has("xp")) {
 			xp = getInt("xp");
@@ -724,6 +737,8 @@ public abstract class RPEntity extends CombatEntity {
 
 	public void setLevel(final int level) {
 		this.level = level;
+		// the defense of items depends on the level, see getItemLevelModifier()
+		invalidateCombatStats();
 		put("level", level);
 		this.updateModifiedAttributes();
 	}
@@ -1617,16 +1632,19 @@ public abstract class RPEntity extends CombatEntity {
 
 			if (killedName == null) {
 				logger.warn("This entity returns null as name: " + this);
+				SingletonRepository.getAchievementNotifier().onKill(killer);
 			} else {
+				final boolean firstKill;
 				if (damageDone == totalDamageReceived) {
 					killer.setSoloKill(killedName);
+					firstKill = killer.getSoloKill(killedName) == 1;
 				} else {
 					killer.setSharedKill(killedName);
+					firstKill = killer.getSharedKill(killedName) == 1;
 				}
+				SingletonRepository.getAchievementNotifier().onKill(killer, killedName, firstKill);
 			}
 
-			SingletonRepository.getAchievementNotifier().onKill(killer);
-
 			killer.notifyWorldAboutChanges();
 		}
 	}
@@ -1737,7 +1755,7 @@ public abstract class RPEntity extends CombatEntity {
 			new GameEvent(killerName, "killed", this.getName(), killLog.entityToType(killer), killLog.entityToType(this)).raise();
 		}
 
-		DBCommandQueue.get().enqueue(new LogKillEventCommand(this, killer), DBCommandPriority.LOW);
+		KillLogAggregator.get().record(getName(), killLog.entityToType(this), killerName, killLog.entityToType(killer));
 
 		die(killer, remove);
 	}
@@ -2138,7 +2156,10 @@ public abstract class RPEntity extends CombatEntity {
 	 * @return true iff dropping the desired amount was successful.
 	 */
 	public boolean drop(final String name, final int amount) {
-		return drop(Item.nameMatches(name), amount);
+		if (!isEquipped(name, amount)) {
+			return false;
+		}
+		return dropItems(getAllEquipped(name), amount);
 	}
 
 	protected boolean isEquipped(Predicate<Item> condition, int amount) {
@@ -2158,8 +2179,18 @@ public abstract class RPEntity extends CombatEntity {
 			return false;
 		}
 
+		return dropItems(equippedStream().filter(condition)::iterator, amount);
+	}
+
+	/**
+	 * Drops a specific amount from the given items.
+	 *
+	 * @param matchingItems items to drop from, known to hold at least amount
+	 * @param amount amount to drop
+	 * @return true iff dropping the desired amount was successful
+	 */
+	private boolean dropItems(Iterable<Item> matchingItems, int amount) {
 		int toDrop = amount;
-		Iterable<Item> matchingItems = equippedStream().filter(condition)::iterator;
 		for (Item item : matchingItems) {
 			toDrop -= dropItem(item, toDrop);
 			if (toDrop == 0) {
@@ -2277,7 +2308,8 @@ public abstract class RPEntity extends CombatEntity {
 	 *         number.
 	 */
 	public boolean isEquipped(final String name, final int amount) {
-		return isEquipped(Item.nameMatches(name), amount);
+		final int count = getNumberOfEquipped(name);
+		return (count > 0) && (count >= amount);
 	}
 
 	/**
@@ -2331,8 +2363,7 @@ public abstract class RPEntity extends CombatEntity {
 	 * @return The number of carried items
 	 */
 	public int getNumberOfEquipped(final String name) {
-		return equippedStream().filter(Item.nameMatches(name))
-				.mapToInt(Item::getQuantity).sum();
+		return getCarriedItems().getQuantity(name);
 	}
 
 	/**
@@ -2344,8 +2375,10 @@ public abstract class RPEntity extends CombatEntity {
 	 * @return The number of carried items
 	 */
 	public int getTotalNumberOf(final String name) {
-		Stream<Item> allItems = slots().stream().flatMap(this::slotStream);
-		return allItems.filter(Item.nameMatches(name)).mapToInt(Item::getQuantity).sum();
+		if ((allItems == null) || (allItems.getOwner() != this)) {
+			allItems = new ItemIndex(this, true);
+		}
+		return allItems.getQuantity(name);
 	}
 
 	/**
@@ -2358,7 +2391,7 @@ public abstract class RPEntity extends CombatEntity {
 	 *         found
 	 */
 	public Item getFirstEquipped(final String name) {
-		return equippedStream().filter(Item.nameMatches(name)).findFirst().orElse(null);
+		return getCarriedItems().getFirst(name);
 	}
 
 	/**
@@ -2371,7 +2404,47 @@ public abstract class RPEntity extends CombatEntity {
 	 *         found
 	 */
 	public List<Item> getAllEquipped(final String name) {
-		return getAllEquipped(Item.nameMatches(name));
+		return getCarriedItems().getAll(name);
+	}
+
+	private ItemIndex getCarriedItems() {
+		// a clone shares the index of the original entity until it gets its own
+		if ((carriedItems == null) || (carriedItems.getOwner() != this)) {
+			carriedItems = new ItemIndex(this, false);
+		}
+		return carriedItems;
+	}
+
+	/**
+	 * Updates the index of items by name after an item was added to the
+	 * slots of this entity or a container in them.
+	 *
+	 * @param item added item
+	 * @param slot slot of this entity holding the item or its container
+	 */
+	public void onItemAdded(final Item item, final RPSlot slot) {
+		if ((carriedItems != null) && (carriedItems.getOwner() == this)) {
+			carriedItems.add(item, slot);
+		}
+		if ((allItems != null) && (allItems.getOwner() == this)) {
+			allItems.add(item, slot);
+		}
+	}
+
+	/**
+	 * Updates the index of items by name after an item was removed from the
+	 * slots of this entity or a container in them.
+	 *
+	 * @param item removed item
+	 * @param slot slot of this entity that held the item or its container
+	 */
+	public void onItemRemoved(final Item item, final RPSlot slot) {
+		if ((carriedItems != null) && (carriedItems.getOwner() == this)) {
+			carriedItems.remove(item, slot);
+		}
+		if ((allItems != null) && (allItems.getOwner() == this)) {
+			allItems.remove(item, slot);
+		}
 	}
 
 	protected List<Item> getAllEquipped(Predicate<Item> condition) {
@@ -2753,6 +2826,14 @@ public abstract class RPEntity extends CombatEntity {
 	 * Retrieves total ATK value of held weapons.
 	 */
 	public float getItemAtk() {
+		validateCombatStats();
+		return itemAtkCache;
+	}
+
+	/**
+	 * Calculates the total ATK value of held weapons.
+	 */
+	private float computeItemAtk() {
 		int weapon = 0;
 		int ring = 0;
 
@@ -2763,7 +2844,7 @@ public abstract class RPEntity extends CombatEntity {
 
 		// calculate ammo when not using RATK stat
 		if (!Testing.COMBAT && weapons.size() > 0) {
-			if (getWeapons().get(0).isOfClass("ranged")) {
+			if (weapons.get(0).isOfClass("ranged")) {
 				weapon += getAmmoAtk();
 			}
 		}
@@ -2779,11 +2860,19 @@ public abstract class RPEntity extends CombatEntity {
 	 * Retrieves total range attack value of held weapon & ammunition.
 	 */
 	public float getItemRatk() {
+		validateCombatStats();
+		return itemRatkCache;
+	}
+
+	/**
+	 * Calculates the total range attack value of held weapon & ammunition.
+	 */
+	private float computeItemRatk() {
 		float ratk = 0;
 		final List<Item> weapons = getWeapons();
 
 		if (weapons.size() > 0) {
-			final Item held = getWeapons().get(0);
+			final Item held = weapons.get(0);
 			ratk += held.getRangedAttack();
 
 			if (held.isOfClass("ranged")) {
@@ -2812,7 +2901,18 @@ public abstract class RPEntity extends CombatEntity {
 		return ammo;
 	}
 
+	/**
+	 * Retrieves total DEF value of equipped items.
+	 */
 	public float getItemDef() {
+		validateCombatStats();
+		return itemDefCache;
+	}
+
+	/**
+	 * Calculates the total DEF value of equipped items.
+	 */
+	private float computeItemDef() {
 		int shield = 0;
 		int armor = 0;
 		int helmet = 0;
@@ -2870,10 +2970,20 @@ public abstract class RPEntity extends CombatEntity {
 	/**
 	 * get all items that affect a player's defensive value except the weapon
 	 *
-	 * @return a list of all equipped defensive items
+	 * @return an unmodifiable list of all equipped defensive items
 	 */
 	public List<Item> getDefenseItems() {
-		List<Item> items = new LinkedList<>();
+		validateCombatStats();
+		return defenseItemsCache;
+	}
+
+	/**
+	 * Collects all items that affect a player's defensive value except the weapon.
+	 *
+	 * @return a list of all equipped defensive items
+	 */
+	private List<Item> computeDefenseItems() {
+		final List<Item> items = new ArrayList<>(6);
 		if (hasShield()) {
 			items.add(getShield());
 		}
@@ -2893,13 +3003,65 @@ public abstract class RPEntity extends CombatEntity {
 		if (hasCloak()) {
 			items.add(getCloak());
 		}
-		return items;
+		return Collections.unmodifiableList(items);
+	}
+
+	/**
+	 * Marks the cached item based combat values as outdated. This has to be
+	 * called when equipped items, their stats, or the level of the entity
+	 * change. As a safety net the cache is also never reused across turns.
+	 */
+	public void invalidateCombatStats() {
+		combatStatsValid = false;
+	}
+
+	/**
+	 * Makes sure the cached item based combat values are up to date.
+	 */
+	private void validateCombatStats() {
+		final int turn = SingletonRepository.getRuleProcessor().getTurn();
+		if (combatStatsValid && (combatStatsTurn == turn)) {
+			if (Testing.COMBAT_STATS) {
+				verifyCombatStats();
+			}
+			return;
+		}
+
+		itemAtkCache = computeItemAtk();
+		itemRatkCache = computeItemRatk();
+		itemDefCache = computeItemDef();
+		defenseItemsCache = computeDefenseItems();
+		combatStatsTurn = turn;
+		combatStatsValid = true;
+	}
+
+	/**
+	 * Compares the cached combat values with a full recalculation, and logs
+	 * any difference. A difference means that an invalidation is missing.
+	 */
+	private void verifyCombatStats() {
+		final float atk = computeItemAtk();
+		final float ratk = computeItemRatk();
+		final float def = computeItemDef();
+		final List<Item> defenseItems = computeDefenseItems();
+		if ((atk != itemAtkCache) || (ratk != itemRatkCache) || (def != itemDefCache)
+				|| !defenseItems.equals(defenseItemsCache)) {
+			logger.error("Stale combat stats of " + getName() + ": cached atk=" + itemAtkCache
+					+ " ratk=" + itemRatkCache + " def=" + itemDefCache + " items=" + defenseItemsCache
+					+ ", calculated atk=" + atk + " ratk=" + ratk + " def=" + def
+					+ " items=" + defenseItems, new Throwable());
+			itemAtkCache = atk;
+			itemRatkCache = ratk;
+			itemDefCache = def;
+			defenseItemsCache = defenseItems;
+		}
 	}
 
 	/**
 	 * Recalculates item based atk and def.
 	 */
 	public void updateItemAtkDef() {
+		invalidateCombatStats();
 		put("atk_item", ((int) getItemAtk()));
 		if (Testing.COMBAT) {
 			put("ratk_item", ((int) getItemRatk()));
@@ -911,6 +911,18 @@ public class Creature extends NPC {
 		// do nothing
 	}
 
+	/**
+	 * Apply the effects of turns in which the logic of the creature did not
+	 * run, because its zone was dormant. Without players around, the logic
+	 * only heals the creature.
+	 *
+	 * @param firstTurn first skipped turn
+	 * @param lastTurn last skipped turn
+	 */
+	public void catchUp(final int firstTurn, final int lastTurn) {
+		healer.heal(this, firstTurn, lastTurn);
+	}
+
 	@Override
 	public void logic() {
 		healer.heal(this);
@@ -40,4 +40,16 @@ class Healer implements HealerBehavior {
 
 	}
 
+	@Override
+	public void heal(final Creature creature, final int firstTurn, final int lastTurn) {
+		if ((lastTurn < firstTurn) || (creature.getHP() <= 0)) {
+			return;
+		}
+		// number of turns in the range at which the creature would have healed
+		final long times = Math.floorDiv(lastTurn, frequency) - Math.floorDiv(firstTurn - 1, frequency);
+		if (times > 0) {
+			creature.heal((int) Math.min(Integer.MAX_VALUE, times * amount));
+		}
+	}
+
 }
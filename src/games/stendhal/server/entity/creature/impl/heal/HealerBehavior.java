@@ -18,4 +18,14 @@ public interface HealerBehavior {
 	void init(String healingProfile);
 	void heal(Creature creature);
 
+	/**
+	 * Apply the healing of turns in which the logic of the creature did not
+	 * run.
+	 *
+	 * @param creature creature to heal
+	 * @param firstTurn first skipped turn
+	 * @param lastTurn last skipped turn
+	 */
+	void heal(Creature creature, int firstTurn, int lastTurn);
+
 }
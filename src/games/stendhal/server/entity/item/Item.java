@@ -45,6 +45,7 @@ import marauroa.common.game.Definition.Type;
 import marauroa.common.game.RPClass;
 import marauroa.common.game.RPObject;
 import marauroa.common.game.RPSlot;
+import marauroa.common.game.SlotOwner;
 
 /**
  * This is an item.
@@ -152,6 +153,18 @@ public class Item extends PassiveEntity implements TurnListener, EquipListener,
 		susceptibilities = item.susceptibilities;
 	}
 
+	/**
+	 * Checks if new items of this kind may be created by copying a
+	 * prototype. Classes which randomize their state in the constructor
+	 * must return <code>false</code>.
+	 *
+	 * @return <code>true</code>, if copies of a new item are equivalent to
+	 * 	newly constructed items
+	 */
+	public boolean isPrototypeCopyable() {
+		return true;
+	}
+
 	public static void generateRPClass() {
 		final RPClass entity = new RPClass("item");
 		entity.isA("entity");
@@ -427,6 +440,54 @@ public class Item extends PassiveEntity implements TurnListener, EquipListener,
 	public void repair() {
 		if(has("deterioration")) {
 			put("deterioration", DEFAULT_DETERIORATION);
+			invalidateCombatStats(getContainerOwner());
+		}
+	}
+
+	@Override
+	public void setContainer(final SlotOwner container, final RPSlot slot) {
+		final SlotOwner previous = getContainerOwner();
+		final RPObject previousBase = getBaseContainer();
+		final RPSlot previousBaseSlot = getBaseSlot(this);
+		super.setContainer(container, slot);
+		invalidateCombatStats(previous);
+		invalidateCombatStats(container);
+		if (previousBase instanceof RPEntity) {
+			((RPEntity) previousBase).onItemRemoved(this, previousBaseSlot);
+		}
+		final RPObject base = getBaseContainer();
+		if (base instanceof RPEntity) {
+			((RPEntity) base).onItemAdded(this, getBaseSlot(this));
+		}
+	}
+
+	/**
+	 * Gets the slot of the base container that holds an object, directly
+	 * or in a container.
+	 *
+	 * @param object contained object
+	 * @return slot of the base container, or <code>null</code> if the
+	 * 	object is not contained
+	 */
+	private static RPSlot getBaseSlot(final RPObject object) {
+		RPSlot slot = null;
+		RPObject current = object;
+		while ((current != null) && current.isContained()) {
+			slot = current.getContainerSlot();
+			current = current.getContainer();
+		}
+		return slot;
+	}
+
+	/**
+	 * Tells an entity carrying this item that its item based attack and
+	 * defense values need to be recalculated.
+	 *
+	 * @param owner owner of the slot this item is or was in, may be <code>null</code>
+	 */
+	private static void invalidateCombatStats(final SlotOwner owner) {
+		if (owner instanceof RPEntity) {
+			((RPEntity) owner).invalidateCombatStats();
 		}
 	}
 
@@ -707,6 +768,15 @@ public class Item extends PassiveEntity implements TurnListener, EquipListener,
 		statusAttackers = builder.addAll(statusAttackers).add(statusAttacker).build();
 	}
 
+	/**
+	 * Replaces the status attackers of this item.
+	 *
+	 * @param statusAttackers status attackers, may be shared with other items
+	 */
+	public void setStatusAttackers(final ImmutableList<StatusAttacker> statusAttackers) {
+		this.statusAttackers = statusAttackers;
+	}
+
 	public List<StatusAttacker> getStatusAttackers() {
 		return statusAttackers;
 	}
@@ -63,6 +63,12 @@ public class Present extends Box {
 		super(item);
 	}
 
+	@Override
+	public boolean isPrototypeCopyable() {
+		// every present gets its own random content
+		return false;
+	}
+
 	@Override
 	protected boolean useMe(final Player player) {
 		this.removeOne();
@@ -16,6 +16,7 @@ import java.util.List;
 
 import org.apache.log4j.Logger;
 
+import games.stendhal.server.core.engine.ParallelZoneLogic;
 import games.stendhal.server.entity.RPEntity;
 import games.stendhal.server.entity.player.Player;
 
@@ -106,13 +107,19 @@ public class PasswordPortal extends Portal {
 
 		String text;
 
-		for (Player player : players) {
+		for (final Player player : players) {
 			text = player.get("text");
 			if (text.equals(requiredPassword)) {
 				if (acceptedMessage != null) {
 					player.sendPrivateText(acceptedMessage);
 				}
-				usePortal(player);
+				// the destination is in another zone
+				ParallelZoneLogic.runCrossZone(new Runnable() {
+					@Override
+					public void run() {
+						usePortal(player);
+					}
+				});
 			} else if (rejectedMessage != null) {
 				player.sendPrivateText(rejectedMessage);
 			}
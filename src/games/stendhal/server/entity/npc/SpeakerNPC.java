@@ -11,10 +11,12 @@
  ***************************************************************************/
 package games.stendhal.server.entity.npc;
 
+import java.awt.geom.Rectangle2D;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
@@ -29,8 +31,12 @@ import games.stendhal.common.parser.Expression;
 import games.stendhal.common.parser.ExpressionMatcher;
 import games.stendhal.common.parser.ExpressionType;
 import games.stendhal.common.parser.Sentence;
+import games.stendhal.server.core.engine.ParallelZoneLogic;
 import games.stendhal.server.core.engine.SingletonRepository;
 import games.stendhal.server.core.engine.StendhalRPWorld;
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.core.events.MovementListener;
+import games.stendhal.server.entity.ActiveEntity;
 import games.stendhal.server.entity.CollisionAction;
 import games.stendhal.server.entity.Killer;
 import games.stendhal.server.entity.RPEntity;
@@ -167,6 +173,18 @@ public class SpeakerNPC extends PassiveNPC {
 	 */
 	private RPEntity attending;
 
+	/**
+	 * Players who said something near the NPC since its last pre-logic. Filled
+	 * by the zone when a player speaks.
+	 */
+	private final List<Player> speakers = new LinkedList<Player>();
+
+	/**
+	 * Keeps track of the players near the NPC while there is an
+	 * initChatAction, or <code>null</code>.
+	 */
+	private GreetingArea greetingArea;
+
 	/**
 	 * a set of blue words used since the start of the conversation
 	 */
@@ -252,10 +270,10 @@ public class SpeakerNPC extends PassiveNPC {
 	}
 
 	/**
-	 * Gets all players that have recently (this turn?) talked and are standing
-	 * nearby the NPC. Nearby means that they are standing less than <i>range</i>
-	 * squares away horizontally and less than <i>range</i> squares away
-	 * vertically.
+	 * Gets all players that have talked since the last pre-logic and are
+	 * standing nearby the NPC. Nearby means that they are standing less than
+	 * <i>range</i> squares away horizontally and less than <i>range</i>
+	 * squares away vertically.
 	 *
 	 * @param npc
 	 * @param range
@@ -267,11 +285,11 @@ public class SpeakerNPC extends PassiveNPC {
 
 		final List<Player> players = new LinkedList<Player>();
 
-		for (final Player player : getZone().getPlayers()) {
+		for (final Player player : speakers) {
 			final int px = player.getX();
 			final int py = player.getY();
 
-			if (player.has("text")) {
+			if (player.has("text") && (player.getZone() == getZone())) {
 				int dx = px - x;
 				int dy = py - y;
 
@@ -281,10 +299,23 @@ public class SpeakerNPC extends PassiveNPC {
 				}
 			}
 		}
+		speakers.clear();
 
 		return players;
 	}
 
+	/**
+	 * Called by the zone when a player near the NPC said something.
+	 *
+	 * @param player
+	 *            The player who spoke
+	 */
+	public void onPlayerSpoke(final Player player) {
+		if (!speakers.contains(player)) {
+			speakers.add(player);
+		}
+	}
+
 	/**
 	 * Gets the player who is standing nearest to the NPC. Returns null if no
 	 * player is standing nearby. Nearby means that they are standing less than
@@ -304,7 +335,7 @@ public class SpeakerNPC extends PassiveNPC {
 
 		int squaredDistanceOfNearestPlayer = Integer.MAX_VALUE;
 
-		for (final Player player : getZone().getPlayers()) {
+		for (final Player player : greetingArea.getPlayers()) {
 			final int px = player.getX();
 			final int py = player.getY();
 
@@ -322,6 +353,107 @@ public class SpeakerNPC extends PassiveNPC {
 		return nearest;
 	}
 
+	/**
+	 * Keeps track of the players that are within perception range of the
+	 * NPC, so that greeting players does not need to check all players of the
+	 * zone every turn. Players are added and removed as they walk, enter and
+	 * leave the zone. When the NPC itself has moved, the players are collected
+	 * again.
+	 */
+	private final class GreetingArea implements MovementListener {
+		private final Set<Player> players = new LinkedHashSet<Player>();
+		private StendhalRPZone zone;
+		private int x;
+		private int y;
+		private int range;
+
+		@Override
+		public Rectangle2D getArea() {
+			final int r = getPerceptionRange();
+			return new Rectangle2D.Double(getX() - r, getY() - r, 2 * r + 1, 2 * r + 1);
+		}
+
+		@Override
+		public void onEntered(final ActiveEntity entity, final StendhalRPZone zone, final int newX, final int newY) {
+			if (entity instanceof Player) {
+				players.add((Player) entity);
+			}
+		}
+
+		@Override
+		public void onExited(final ActiveEntity entity, final StendhalRPZone zone, final int oldX, final int oldY) {
+			players.remove(entity);
+		}
+
+		@Override
+		public void beforeMove(final ActiveEntity entity, final StendhalRPZone zone, final int oldX, final int oldY,
+				final int newX, final int newY) {
+			// nothing to do
+		}
+
+		@Override
+		public void onMoved(final ActiveEntity entity, final StendhalRPZone zone, final int oldX, final int oldY,
+				final int newX, final int newY) {
+			// players placed without walking are picked up on their next step
+			onEntered(entity, zone, newX, newY);
+		}
+
+		/**
+		 * Get the players near the NPC.
+		 *
+		 * @return players that may be within perception range
+		 */
+		private Collection<Player> getPlayers() {
+			if ((zone != getZone()) || (x != getX()) || (y != getY()) || (range != getPerceptionRange())) {
+				zone = getZone();
+				x = getX();
+				y = getY();
+				range = getPerceptionRange();
+				players.clear();
+				final Rectangle2D area = getArea();
+				for (final Player player : zone.getPlayers()) {
+					if (area.intersects(player.getArea())) {
+						players.add(player);
+					}
+				}
+			}
+			return players;
+		}
+	}
+
+	/**
+	 * Start or stop tracking the players near the NPC, depending on whether
+	 * it has an initChatAction.
+	 *
+	 * @param zone the zone of the NPC, or <code>null</code>
+	 */
+	private void updateGreetingArea(final StendhalRPZone zone) {
+		final boolean needed = (zone != null) && (initChatAction != null);
+		if (needed && (greetingArea == null)) {
+			greetingArea = new GreetingArea();
+			zone.addMovementListener(greetingArea);
+		} else if (!needed && (greetingArea != null)) {
+			zone.removeMovementListener(greetingArea);
+			greetingArea = null;
+		}
+	}
+
+	@Override
+	public void onAdded(final StendhalRPZone zone) {
+		super.onAdded(zone);
+		updateGreetingArea(zone);
+	}
+
+	@Override
+	public void onRemoved(final StendhalRPZone zone) {
+		if (greetingArea != null) {
+			zone.removeMovementListener(greetingArea);
+			greetingArea = null;
+		}
+		speakers.clear();
+		super.onRemoved(zone);
+	}
+
 	/**
 	 * The entity who is currently talking to the NPC, or null if the NPC is
 	 * currently not taking part in a conversation.
@@ -428,6 +560,7 @@ public class SpeakerNPC extends PassiveNPC {
 	public void preLogic() {
 
 		if (this.getZone().getPlayerAndFriends().isEmpty() && !isTalking() && !actingAlone) {
+			speakers.clear();
 			return;
 		}
 
@@ -449,7 +582,53 @@ public class SpeakerNPC extends PassiveNPC {
 				}
 				applyMovement();
 			}
-		} else if (attending != null) {
+		}
+
+		if (ParallelZoneLogic.isZoneTask()) {
+			// Conversation actions may teleport, pay or change quests, and
+			// need the real outcome of that. They are run on the turn thread
+			// after the parallel phase.
+			if (hasConversationWork()) {
+				ParallelZoneLogic.runCrossZone(new Runnable() {
+					@Override
+					public void run() {
+						converse();
+						notifyWorldAboutChanges();
+					}
+				});
+			}
+		} else {
+			converse();
+		}
+
+		maybeMakeSound();
+		notifyWorldAboutChanges();
+	}
+
+	/**
+	 * Check if there is anything for the conversation logic to do in this
+	 * turn.
+	 *
+	 * @return <code>true</code> if the NPC is talking, someone spoke nearby,
+	 * 	or there is a player to greet
+	 */
+	private boolean hasConversationWork() {
+		if (isTalking() || !speakers.isEmpty()) {
+			return true;
+		}
+		if (initChatAction != null) {
+			updateGreetingArea(getZone());
+			return getNearestPlayer(getPerceptionRange()) != null;
+		}
+		return false;
+	}
+
+	/**
+	 * End conversations with players who left, greet players who came near,
+	 * and reply to the players who spoke.
+	 */
+	private void converse() {
+		if (isTalking() && (attending != null)) {
 			// If the player is too far away
 			if ((attending.squaredDistance(this) > squaredGoodByeRange)
 					|| ((attending instanceof Player) && (((Player) attending).isDisconnected()))
@@ -463,6 +642,7 @@ public class SpeakerNPC extends PassiveNPC {
 
 		// now look for nearest player only if there's an initChatAction
 		if (!isTalking() && (initChatAction != null)) {
+			updateGreetingArea(getZone());
 			final Player nearest = getNearestPlayer(getPerceptionRange());
 
 			if (nearest != null) {
@@ -480,9 +660,6 @@ public class SpeakerNPC extends PassiveNPC {
 		for (final Player speaker : speakers) {
 			tell(speaker, speaker.get("text"));
 		}
-
-		maybeMakeSound();
-		notifyWorldAboutChanges();
 	}
 
 	public void endConversation() {
@@ -613,6 +790,7 @@ public class SpeakerNPC extends PassiveNPC {
 	public void addInitChatMessage(final ChatCondition condition, final ChatAction action) {
 		initChatCondition = condition;
 		initChatAction = action;
+		updateGreetingArea(getZone());
 	}
 
 	/**
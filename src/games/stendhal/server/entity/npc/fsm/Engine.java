@@ -48,6 +48,9 @@ public class Engine {
 	// FSM state transition table
 	private final List<Transition> stateTransitionTable = new LinkedList<Transition>();
 
+	// index of the transition table, created when needed after changes
+	private TransitionIndex transitionIndex;
+
 	// current FSM state
 	private ConversationStates currentState = ConversationStates.IDLE;
 
@@ -289,6 +292,7 @@ public class Engine {
 			boolean secondary, final ConversationStates nextState, final String reply, final ChatAction action, final String label) {
 		if (triggerExpressions!=null && !triggerExpressions.isEmpty()) {
 			stateTransitionTable.add(new Transition(state, triggerExpressions, condition, secondary, nextState, reply, action, label));
+			transitionIndex = null;
 		}
 	}
 
@@ -314,6 +318,7 @@ public class Engine {
 			boolean secondary, final ConversationStates nextState, final String reply, final ChatAction action) {
 		if (triggerExpressions!=null && !triggerExpressions.isEmpty()) {
 			stateTransitionTable.add(new Transition(state, triggerExpressions, condition, secondary, nextState, reply, action));
+			transitionIndex = null;
 		}
 	}
 
@@ -338,6 +343,9 @@ public class Engine {
 				res = true;
 			}
 		}
+		if (res) {
+			transitionIndex = null;
+		}
 		return res;
 	}
 
@@ -355,6 +363,7 @@ public class Engine {
 		Transition transition = get(state, trigger, condition);
 		while (transition != null) {
 			stateTransitionTable.remove(transition);
+			transitionIndex = null;
 			transition = get(state, trigger, condition);
 		}
 		return stateTransitionTable.indexOf(transition) < 0;
@@ -467,17 +476,18 @@ public class Engine {
 			return false;
 		}
 
-		if (matchTransition(MatchType.EXACT_MATCH, player, sentence)) {
+		final Expression trigger = sentence.getTriggerExpression();
+		if (matchTransition(MatchType.EXACT_MATCH, player, sentence, trigger)) {
 			return true;
-		} else if (matchTransition(MatchType.NORMALIZED_MATCH, player, sentence)) {
+		} else if (matchTransition(MatchType.NORMALIZED_MATCH, player, sentence, trigger)) {
 			return true;
-		} else if (matchTransition(MatchType.SIMILAR_MATCH, player, sentence)) {
+		} else if (matchTransition(MatchType.SIMILAR_MATCH, player, sentence, trigger)) {
 			return true;
-		} else if (matchTransition(MatchType.ABSOLUTE_JUMP, player, sentence)) {
+		} else if (matchTransition(MatchType.ABSOLUTE_JUMP, player, sentence, trigger)) {
 			return true;
-		} else if (matchTransition(MatchType.NORMALIZED_JUMP, player, sentence)) {
+		} else if (matchTransition(MatchType.NORMALIZED_JUMP, player, sentence, trigger)) {
 			return true;
-		} else if (matchTransition(MatchType.SIMILAR_JUMP, player, sentence)) {
+		} else if (matchTransition(MatchType.SIMILAR_JUMP, player, sentence, trigger)) {
 			return true;
 		} else {
 			// Couldn't match the command with the current FSM state
@@ -543,14 +553,26 @@ public class Engine {
 		}
 	}
 
+	/**
+	 * Get the index of the transition table.
+	 *
+	 * @return up to date index
+	 */
+	private TransitionIndex getTransitionIndex() {
+		if (transitionIndex == null) {
+			transitionIndex = new TransitionIndex(stateTransitionTable);
+		}
+		return transitionIndex;
+	}
+
 	private boolean matchTransition(final MatchType type, final Player player,
-			final Sentence sentence) {
+			final Sentence sentence, final Expression trigger) {
 		// We are using sets instead of plain lists to merge identical transitions.
 		final TransitionSet preferredTransitions = new TransitionSet();
 		final TransitionSet secondaryTransitions = new TransitionSet();
 
-		// match with all the registered transitions
-		for (final Transition transition : stateTransitionTable) {
+		// match with the transitions that can match the input at all
+		for (final Transition transition : getTransitionIndex().getCandidates(type, currentState, trigger)) {
 			if (matchesTransition(type, sentence, transition)) {
 				if (transition.isConditionFulfilled(player, sentence, speakerNPC)) {
 					if (transition.isPreferred()) {
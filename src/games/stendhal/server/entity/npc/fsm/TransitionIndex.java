@@ -0,0 +1,195 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.entity.npc.fsm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import games.stendhal.common.parser.Expression;
+import games.stendhal.server.entity.npc.ConversationStates;
+
+/**
+ * Index of the transitions of an Engine by state and trigger.
+ * <p>
+ * For every state the transitions are grouped by the original and the
+ * normalized text of their plain triggers. Transitions with an
+ * ExpressionMatcher, and for similarity matching all transitions that can be
+ * matched by similarity, are kept in fallback lists, because they can not be
+ * looked up by text. The candidates returned for an input are in the order of
+ * the transition table, and still have to be checked with
+ * {@link MatchType#match}.
+ * <p>
+ * The index is immutable. Engine creates a new one after the transition table
+ * has changed.
+ */
+final class TransitionIndex {
+	private final Map<ConversationStates, StateTransitions> states =
+			new EnumMap<ConversationStates, StateTransitions>(ConversationStates.class);
+	/** Position of each transition in the table. */
+	private final Map<Transition, Integer> order = new IdentityHashMap<Transition, Integer>();
+
+	/**
+	 * The transitions starting at one state.
+	 */
+	private static final class StateTransitions {
+		private final Map<String, List<Transition>> byOriginal = new HashMap<String, List<Transition>>();
+		private final Map<String, List<Transition>> byNormalized = new HashMap<String, List<Transition>>();
+		/** Transitions with at least one trigger using an ExpressionMatcher. */
+		private final List<Transition> withMatcher = new ArrayList<Transition>();
+		/** Transitions that can be matched by similarity. */
+		private final List<Transition> similar = new ArrayList<Transition>();
+
+		private void add(final Transition transition) {
+			boolean matcher = false;
+			boolean plain = false;
+			for (final Expression trigger : transition.getTriggers()) {
+				if (trigger.getMatcher() == null) {
+					addTo(byOriginal, trigger.getOriginal(), transition);
+					addTo(byNormalized, trigger.getNormalized(), transition);
+					plain = true;
+				} else {
+					matcher = true;
+					// empty triggers match anything by similarity
+					plain |= trigger.getNormalized().length() == 0;
+				}
+			}
+			if (matcher) {
+				withMatcher.add(transition);
+			}
+			if (plain) {
+				similar.add(transition);
+			}
+		}
+
+		private static void addTo(final Map<String, List<Transition>> map, final String key,
+				final Transition transition) {
+			List<Transition> list = map.get(key);
+			if (list == null) {
+				list = new ArrayList<Transition>(2);
+				map.put(key, list);
+			}
+			// a transition may have several triggers with the same text
+			if (list.isEmpty() || (list.get(list.size() - 1) != transition)) {
+				list.add(transition);
+			}
+		}
+	}
+
+	/**
+	 * Create an index for a transition table.
+	 *
+	 * @param table transitions
+	 */
+	TransitionIndex(final List<Transition> table) {
+		int position = 0;
+		for (final Transition transition : table) {
+			order.put(transition, Integer.valueOf(position++));
+			StateTransitions transitions = states.get(transition.getState());
+			if (transitions == null) {
+				transitions = new StateTransitions();
+				states.put(transition.getState(), transitions);
+			}
+			transitions.add(transition);
+		}
+	}
+
+	/**
+	 * Get the transitions that may match an input.
+	 *
+	 * @param type match type
+	 * @param currentState current state of the engine
+	 * @param trigger trigger expression of the input
+	 * @return candidate transitions in table order
+	 */
+	List<Transition> getCandidates(final MatchType type, final ConversationStates currentState,
+			final Expression trigger) {
+		final ConversationStates state;
+		switch (type) {
+		case EXACT_MATCH:
+		case NORMALIZED_MATCH:
+		case SIMILAR_MATCH:
+			state = currentState;
+			break;
+		default:
+			if (currentState == ConversationStates.IDLE) {
+				return Collections.emptyList();
+			}
+			state = ConversationStates.ANY;
+			break;
+		}
+
+		final StateTransitions transitions = states.get(state);
+		if (transitions == null) {
+			return Collections.emptyList();
+		}
+
+		switch (type) {
+		case EXACT_MATCH:
+		case ABSOLUTE_JUMP:
+			return merge(transitions.byOriginal.get(trigger.getOriginal()), transitions.withMatcher);
+		case NORMALIZED_MATCH:
+		case NORMALIZED_JUMP:
+			return merge(transitions.byNormalized.get(trigger.getNormalized()), transitions.withMatcher);
+		default:
+			return transitions.similar;
+		}
+	}
+
+	/**
+	 * Merge two lists of transitions, keeping the table order.
+	 *
+	 * @param first first list, or <code>null</code>
+	 * @param second second list
+	 * @return merged list
+	 */
+	private List<Transition> merge(final List<Transition> first, final List<Transition> second) {
+		if ((first == null) || first.isEmpty()) {
+			return second;
+		}
+		if (second.isEmpty()) {
+			return first;
+		}
+
+		final List<Transition> result = new ArrayList<Transition>(first.size() + second.size());
+		int i = 0;
+		int j = 0;
+		while ((i < first.size()) && (j < second.size())) {
+			final Transition a = first.get(i);
+			final Transition b = second.get(j);
+			final int orderA = order.get(a).intValue();
+			final int orderB = order.get(b).intValue();
+			if (orderA < orderB) {
+				result.add(a);
+				i++;
+			} else if (orderB < orderA) {
+				result.add(b);
+				j++;
+			} else {
+				result.add(a);
+				i++;
+				j++;
+			}
+		}
+		while (i < first.size()) {
+			result.add(first.get(i++));
+		}
+		while (j < second.size()) {
+			result.add(second.get(j++));
+		}
+		return result;
+	}
+}
@@ -0,0 +1,175 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.entity.player;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counters by name, stored as an int array.
+ * <p>
+ * Names are interned to ids that are shared by all tables of the same kind,
+ * so reading or increasing a counter needs one map lookup, but no parsing
+ * and no new objects. Each kind of counter has its own ids, so that a table
+ * only grows to the number of names of its kind.
+ */
+final class CounterTable {
+	/** ids of creature names, for kill counters */
+	static final Names CREATURES = new Names();
+	/** ids of item names, for item counters */
+	static final Names ITEMS = new Names();
+
+	/**
+	 * The ids of the names of one kind of counter.
+	 */
+	static final class Names {
+		private final Map<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+		private String[] names = new String[64];
+
+		/**
+		 * Gets the id of a name, assigning a new one if needed.
+		 *
+		 * @param name name
+		 * @return id
+		 */
+		private synchronized int intern(final String name) {
+			final Integer id = ids.get(name);
+			if (id != null) {
+				return id.intValue();
+			}
+			final int newId = ids.size();
+			if (newId == names.length) {
+				names = Arrays.copyOf(names, newId * 2);
+			}
+			names[newId] = name;
+			ids.put(name, Integer.valueOf(newId));
+			return newId;
+		}
+
+		/**
+		 * Gets the id of a name.
+		 *
+		 * @param name name
+		 * @return id, or -1 if the name has never been counted
+		 */
+		private int find(final String name) {
+			final Integer id = ids.get(name);
+			if (id == null) {
+				return -1;
+			}
+			return id.intValue();
+		}
+
+		private synchronized String nameOf(final int id) {
+			return names[id];
+		}
+	}
+
+	private final Names names;
+	private int[] counts = new int[0];
+
+	/**
+	 * Creates a new CounterTable.
+	 *
+	 * @param names ids of the names of this kind of counter
+	 */
+	CounterTable(final Names names) {
+		this.names = names;
+	}
+
+	/**
+	 * Gets a counter.
+	 *
+	 * @param name name of the counter
+	 * @return value, 0 for unknown counters
+	 */
+	int get(final String name) {
+		final int id = names.find(name);
+		if ((id < 0) || (id >= counts.length)) {
+			return 0;
+		}
+		return counts[id];
+	}
+
+	/**
+	 * Sets a counter.
+	 *
+	 * @param name name of the counter
+	 * @param value new value
+	 */
+	void set(final String name, final int value) {
+		final int id = names.intern(name);
+		if (id >= counts.length) {
+			counts = Arrays.copyOf(counts, Math.max(id + 1, counts.length * 2));
+		}
+		counts[id] = value;
+	}
+
+	/**
+	 * Increases a counter.
+	 *
+	 * @param name name of the counter
+	 * @param delta amount to add
+	 * @return new value
+	 */
+	int add(final String name, final int delta) {
+		final int value = get(name) + delta;
+		set(name, value);
+		return value;
+	}
+
+	/**
+	 * Gets the sum of all counters.
+	 *
+	 * @return sum
+	 */
+	int sum() {
+		int sum = 0;
+		for (final int count : counts) {
+			sum += count;
+		}
+		return sum;
+	}
+
+	/**
+	 * Gets the counters with a value other than 0.
+	 *
+	 * @return map of name to value
+	 */
+	Map<String, Integer> toMap() {
+		final Map<String, Integer> res = new HashMap<String, Integer>();
+		for (int id = 0; id < counts.length; id++) {
+			if (counts[id] != 0) {
+				res.put(names.nameOf(id), Integer.valueOf(counts[id]));
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Gets the number of counters the table has room for.
+	 *
+	 * @return length of the counter array
+	 */
+	int capacity() {
+		return counts.length;
+	}
+
+	/**
+	 * Resets all counters to 0.
+	 */
+	void clear() {
+		Arrays.fill(counts, 0);
+	}
+}
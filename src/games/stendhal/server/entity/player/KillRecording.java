@@ -13,9 +13,15 @@
 package games.stendhal.server.entity.player;
 
 import games.stendhal.common.MathHelper;
+import marauroa.common.game.RPObject;
+import marauroa.common.game.RPSlot;
 
 /**
  * recording of killings.
+ * <p>
+ * The kill counts are kept in int tables, which are read from the "!kills"
+ * keyed slot once. Changes are written back into the slot, so that it stays
+ * the persistent representation.
  *
  * @author hendrik
  */
@@ -26,10 +32,82 @@ class KillRecording {
 
 	private final Player player;
 
+	private final CounterTable solo = new CounterTable(CounterTable.CREATURES);
+	private final CounterTable shared = new CounterTable(CounterTable.CREATURES);
+
+	/** the slot object the tables were read from */
+	private RPObject source;
+	private boolean loaded;
+
 	public KillRecording(final Player player) {
 		this.player = player;
 	}
 
+	/**
+	 * Gets the object of the kill slot.
+	 *
+	 * @return object, or <code>null</code> if the player has no kill slot
+	 */
+	private RPObject getSlotObject() {
+		if (!player.hasSlot(KILL_SLOT_NAME)) {
+			return null;
+		}
+		final RPSlot slot = player.getSlot(KILL_SLOT_NAME);
+		if (slot.size() == 0) {
+			return null;
+		}
+		return slot.getFirst();
+	}
+
+	/**
+	 * Reads the kill counts from the slot, unless they are up to date.
+	 *
+	 * @return the slot object
+	 */
+	private RPObject load() {
+		final RPObject object = getSlotObject();
+		if (loaded && (object == source)) {
+			return object;
+		}
+		solo.clear();
+		shared.clear();
+		if (object != null) {
+			for (final String key : object) {
+				if (key.startsWith(PREFIX_SOLO)) {
+					solo.set(key.substring(PREFIX_SOLO.length()), MathHelper.parseIntDefault(object.get(key), 0));
+				} else if (key.startsWith(PREFIX_SHARED)) {
+					shared.set(key.substring(PREFIX_SHARED.length()), MathHelper.parseIntDefault(object.get(key), 0));
+				}
+			}
+		}
+		source = object;
+		loaded = true;
+		return object;
+	}
+
+	/**
+	 * Marks the kill counts for reading them from the slot again. Needed after
+	 * the slot has been modified directly.
+	 */
+	void invalidate() {
+		loaded = false;
+	}
+
+	/**
+	 * Gets the table of a kill mode.
+	 *
+	 * @param mode either "solo" or "shared"
+	 * @return table, or <code>null</code> for unknown modes
+	 */
+	private CounterTable getTable(final String mode) {
+		if ("solo".equals(mode)) {
+			return solo;
+		} else if ("shared".equals(mode)) {
+			return shared;
+		}
+		return null;
+	}
+
 	/**
 	 * Checks if the player has ever killed a creature with the given name
 	 * without the help of any other player.
@@ -38,8 +116,7 @@ class KillRecording {
 	 * @return true if this player has ever killed this creature on his own.
 	 */
 	public boolean hasKilledSolo(final String name) {
-		final String count = player.getKeyedSlot(KILL_SLOT_NAME, PREFIX_SOLO + name);
-		return MathHelper.parseIntDefault(count, 0) > 0;
+		return getKill(name, "solo") > 0;
 	}
 
 	/**
@@ -50,8 +127,7 @@ class KillRecording {
 	 * @return true if this player has ever killed this creature in a team.
 	 */
 	public boolean hasKilledShared(final String name) {
-		final String count = player.getKeyedSlot(KILL_SLOT_NAME, PREFIX_SHARED + name);
-		return MathHelper.parseIntDefault(count, 0) > 0;
+		return getKill(name, "shared") > 0;
 	}
 	/**
 	 * Checks if the player has ever killed a creature, with or without the help
@@ -72,10 +148,7 @@ class KillRecording {
 	 *            either "solo", "shared", or null.
 	 */
 	private void setKill(final String name, final String mode) {
-		final String key = mode + "." + name;
-		final String count = player.getKeyedSlot(KILL_SLOT_NAME, key);
-		final int oldValue = MathHelper.parseIntDefault(count, 0);
-		player.setKeyedSlot(KILL_SLOT_NAME, key, Integer.toString(oldValue + 1));
+		setKillCount(name, mode, getKill(name, mode) + 1);
 	}
 
 	/**
@@ -106,7 +179,17 @@ class KillRecording {
 	 */
 	public void setKillCount(final String name, final String mode, final int count) {
 		final String key = mode + "." + name;
-		player.setKeyedSlot(KILL_SLOT_NAME, key, Integer.toString(count));
+		final RPObject object = load();
+		if (object == null) {
+			// report the missing slot
+			player.setKeyedSlot(KILL_SLOT_NAME, key, Integer.toString(count));
+			return;
+		}
+		object.put(key, Integer.toString(count));
+		final CounterTable table = getTable(mode);
+		if (table != null) {
+			table.set(name, count);
+		}
 	}
 
 	/**
@@ -136,9 +219,12 @@ class KillRecording {
 	 * @return number of killed creatures
 	 */
 	public int getKill(final String name, final String mode) {
-		final String key = mode + "." + name;
-		final int kills = MathHelper.parseIntDefault(player.getKeyedSlot(KILL_SLOT_NAME, key),0);
-		return(kills);
+		final CounterTable table = getTable(mode);
+		if (table == null) {
+			return MathHelper.parseIntDefault(player.getKeyedSlot(KILL_SLOT_NAME, mode + "." + name), 0);
+		}
+		load();
+		return table.get(name);
 	}
 
 	/**
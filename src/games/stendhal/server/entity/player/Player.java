@@ -912,6 +912,9 @@ public class Player extends DressedEntity implements UseListener {
 	 */
 	public boolean setKeyedSlot(final String name, final String key,
 			final String value) {
+		if ("!kills".equals(name)) {
+			killRec.invalidate();
+		}
 		return KeyedSlotUtil.setKeyedSlot(this, name, key, value);
 	}
 
@@ -2134,6 +2137,11 @@ public class Player extends DressedEntity implements UseListener {
 		} else if (has(GHOSTMODE)) {
 			remove(GHOSTMODE);
 		}
+
+		final StendhalRPZone zone = getZone();
+		if (zone != null) {
+			zone.updateEntityResistance(this);
+		}
 	}
 
 	/**
@@ -2516,6 +2524,9 @@ public class Player extends DressedEntity implements UseListener {
 				|| !getMap("buddies").containsKey(name);
 
 		put("buddies", name, online);
+		if (isNew) {
+			SingletonRepository.getRuleProcessor().getOnlinePlayers().onBuddyAdded(this, name);
+		}
 
 		return isNew;
 	}
@@ -2528,7 +2539,11 @@ public class Player extends DressedEntity implements UseListener {
 	 * @return true if a buddy was removed
 	 */
 	public boolean removeBuddy(String name) {
-		return remove("buddies", name) != null;
+		if (remove("buddies", name) != null) {
+			SingletonRepository.getRuleProcessor().getOnlinePlayers().onBuddyRemoved(this, name);
+			return true;
+		}
+		return false;
 	}
 
 	@Override
@@ -11,11 +11,15 @@
  ***************************************************************************/
 package games.stendhal.server.entity.player;
 
-import java.util.HashMap;
 import java.util.Map;
 
+import games.stendhal.common.MathHelper;
+
 /**
  * Handling for counting looted items of a player
+ * <p>
+ * The counters are read from the player object once and kept in int tables.
+ * Changes are written back into the player object.
  *
  * @author madmetzger
  */
@@ -24,23 +28,31 @@ public class PlayerLootedItemsHandler {
 	/** name of the map where the items and the corresponding numbers are stored */
 	public static final String LOOTED_ITEMS = "looted_items";
 
+	private static final String PREFIX_PRODUCED = "produced.";
+	private static final String PREFIX_OBTAINED = "obtained.";
+	private static final String PREFIX_MINED = "mined.";
+	private static final String PREFIX_SOWN = "sown";
+	private static final String PREFIX_HARVESTED = "harvested.";
+	private static final String PREFIX_BOUGHT = "bought.";
+	private static final String PREFIX_SOLD = "sold.";
+
 	private final Player player;
 
-	private final Map<String, Integer> looted;
+	private final CounterTable looted = new CounterTable(CounterTable.ITEMS);
 
-	private final Map<String, Integer> produced;
+	private final CounterTable produced = new CounterTable(CounterTable.ITEMS);
 
-	private final Map<String, Integer> obtained;
+	private final CounterTable obtained = new CounterTable(CounterTable.ITEMS);
 
-	private final Map<String, Integer> mined;
+	private final CounterTable mined = new CounterTable(CounterTable.ITEMS);
 
-	private final Map<String, Integer> sown;
+	private final CounterTable sown = new CounterTable(CounterTable.ITEMS);
 
-	private final Map<String, Integer> harvested;
+	private final CounterTable harvested = new CounterTable(CounterTable.ITEMS);
 
-	private final Map<String, Integer> bought;
+	private final CounterTable bought = new CounterTable(CounterTable.ITEMS);
 
-	private final Map<String, Integer> sold;
+	private final CounterTable sold = new CounterTable(CounterTable.ITEMS);
 
 	/**
 	 * Create a new PlayerLootedItemsHandler for a player
@@ -49,53 +61,46 @@ public class PlayerLootedItemsHandler {
 	 */
 	public PlayerLootedItemsHandler(Player player) {
 		this.player = player;
-		looted = new HashMap<String, Integer>();
-		produced = new HashMap<String, Integer>();
-		obtained = new HashMap<String, Integer>();
-		mined = new HashMap<String, Integer>();
-		sown = new HashMap<String, Integer>();
-		harvested = new HashMap<String, Integer>();
-		bought = new HashMap<String, Integer>();
-		sold = new HashMap<String, Integer>();
 		if(player.hasMap(LOOTED_ITEMS)) {
-			for(String item : player.getMap(LOOTED_ITEMS).keySet()) {
-				if(item.contains("produced.")) {
-					produced.put(item.replace("produced.", ""), player.getInt(LOOTED_ITEMS, item));
-				}
-				if(item.contains("obtained.")) {
-					obtained.put(item.replace("obtained.", ""), player.getInt(LOOTED_ITEMS, item));
-				}
-				if(item.contains("mined.")) {
-					mined.put(item.replace("mined.", ""), player.getInt(LOOTED_ITEMS, item));
-				}
-				if(item.contains("harvested.")) {
-					harvested.put(item.replace("harvested.", ""), player.getInt(LOOTED_ITEMS, item));
-				}
-				if(item.contains("bought.")) {
-					bought.put(item.replace("bought.", ""), player.getInt(LOOTED_ITEMS, item));
-				}
-				if(item.contains("sold.")) {
-					bought.put(item.replace("sold.", ""), player.getInt(LOOTED_ITEMS, item));
-				}
-				if(!item.contains("produced.") && !item.contains("obtained.") && !item.contains("mined.")
-						&& !item.contains("harvested.") && !item.contains("bought.") && !item.contains("sold.")) {
-					looted.put(item, player.getInt(LOOTED_ITEMS, item));
-				}
+			for(Map.Entry<String, String> entry : player.getMap(LOOTED_ITEMS).entrySet()) {
+				load(entry.getKey(), MathHelper.parseIntDefault(entry.getValue(), 0));
 			}
 		}
 	}
 
+	/**
+	 * puts a stored counter into the matching table
+	 *
+	 * @param key key in the player object
+	 * @param value counter value
+	 */
+	private void load(String key, int value) {
+		if (key.contains(PREFIX_PRODUCED)) {
+			produced.set(key.replace(PREFIX_PRODUCED, ""), value);
+		} else if (key.contains(PREFIX_OBTAINED)) {
+			obtained.set(key.replace(PREFIX_OBTAINED, ""), value);
+		} else if (key.contains(PREFIX_MINED)) {
+			mined.set(key.replace(PREFIX_MINED, ""), value);
+		} else if (key.contains(PREFIX_HARVESTED)) {
+			harvested.set(key.replace(PREFIX_HARVESTED, ""), value);
+		} else if (key.contains(PREFIX_BOUGHT)) {
+			bought.set(key.replace(PREFIX_BOUGHT, ""), value);
+		} else if (key.contains(PREFIX_SOLD)) {
+			sold.set(key.replace(PREFIX_SOLD, ""), value);
+		} else if (key.startsWith(PREFIX_SOWN)) {
+			sown.set(key.substring(PREFIX_SOWN.length()), value);
+		} else {
+			looted.set(key, value);
+		}
+	}
+
 	/**
 	 * Gets the how often this PlayerLootedItemsHandler's player has looted the given item
 	 * @param item the item name
 	 * @return the number of loots from corpses
 	 */
 	public int getNumberOfLootsForItem(String item) {
-		Integer lootedNumber = looted.get(item);
-		if(lootedNumber != null) {
-			return lootedNumber.intValue();
-		}
-		return 0;
+		return looted.get(item);
 	}
 
 	/**
@@ -105,10 +110,7 @@ public class PlayerLootedItemsHandler {
 	 * @return the produced quantity
 	 */
 	public int getQuantityOfProducedItems(String item) {
-		if(produced.containsKey(item)) {
-			return produced.get(item);
-		}
-		return 0;
+		return produced.get(item);
 	}
 
 	/**
@@ -120,10 +122,7 @@ public class PlayerLootedItemsHandler {
 	 *   Integer sown quanity.
 	 */
 	public int getQuantityOfSownItems(String item) {
-		if (sown.containsKey(item)) {
-			return sown.get(item);
-		}
-		return 0;
+		return sown.get(item);
 	}
 
 	/**
@@ -133,10 +132,7 @@ public class PlayerLootedItemsHandler {
 	 * @return the harvested quantity
 	 */
 	public int getQuantityOfHarvestedItems(String item) {
-		if(harvested.containsKey(item)) {
-			return harvested.get(item);
-		}
-		return 0;
+		return harvested.get(item);
 	}
 
 	/**
@@ -146,11 +142,7 @@ public class PlayerLootedItemsHandler {
 	 * @return the harvested quantity
 	 */
 	public int getQuantityOfBoughtItems(final String item) {
-		if (bought.containsKey(item)) {
-			return bought.get(item);
-		}
-
-		return 0;
+		return bought.get(item);
 	}
 
 	/**
@@ -159,11 +151,7 @@ public class PlayerLootedItemsHandler {
 	 * @return
 	 */
 	public int getQuantityOfSoldItems(final String item) {
-		if (sold.containsKey(item)) {
-			return sold.get(item);
-		}
-
-		return 0;
+		return sold.get(item);
 	}
 
 	/**
@@ -173,10 +161,7 @@ public class PlayerLootedItemsHandler {
 	 * @return the mined quantity
 	 */
 	public int getQuantityOfMinedItems(String item) {
-		if(mined.containsKey(item)) {
-			return mined.get(item);
-		}
-		return 0;
+		return mined.get(item);
 	}
 
 	/**
@@ -195,7 +180,7 @@ public class PlayerLootedItemsHandler {
 	 * @param count the amount to increase
 	 */
 	public void incProducedForItem(String item, int count) {
-		handlePrefixedCounting(item, count, "produced.", produced);
+		handlePrefixedCounting(item, count, PREFIX_PRODUCED, produced);
 	}
 
 	/**
@@ -205,7 +190,7 @@ public class PlayerLootedItemsHandler {
 	 * @param count the amount to increase
 	 */
 	public void incObtainedForItem(String item, int count) {
-		handlePrefixedCounting(item, count, "obtained.", obtained);
+		handlePrefixedCounting(item, count, PREFIX_OBTAINED, obtained);
 	}
 
 	/**
@@ -215,7 +200,7 @@ public class PlayerLootedItemsHandler {
 	 * @param count
 	 */
 	public void incMinedForItem(String item, int count) {
-		handlePrefixedCounting(item, count, "mined.", mined);
+		handlePrefixedCounting(item, count, PREFIX_MINED, mined);
 	}
 
 	/**
@@ -227,7 +212,7 @@ public class PlayerLootedItemsHandler {
 	 *   Increment amount.
 	 */
 	public void incSownForItem(String item, int count) {
-		handlePrefixedCounting(item, count, "sown", sown);
+		handlePrefixedCounting(item, count, PREFIX_SOWN, sown);
 	}
 
 	/**
@@ -237,7 +222,7 @@ public class PlayerLootedItemsHandler {
 	 * @param count
 	 */
 	public void incHarvestedForItem(String item, int count) {
-		handlePrefixedCounting(item, count, "harvested.", harvested);
+		handlePrefixedCounting(item, count, PREFIX_HARVESTED, harvested);
 	}
 
 	/**
@@ -247,7 +232,7 @@ public class PlayerLootedItemsHandler {
 	 * @param count
 	 */
 	public void incBoughtForItem(String item, int count) {
-		handlePrefixedCounting(item, count, "bought.", bought);
+		handlePrefixedCounting(item, count, PREFIX_BOUGHT, bought);
 	}
 
 	/**
@@ -257,40 +242,26 @@ public class PlayerLootedItemsHandler {
 	 * @param count
 	 */
 	public void incSoldForItem(String item, int count) {
-		handlePrefixedCounting(item, count, "sold.", sold);
+		handlePrefixedCounting(item, count, PREFIX_SOLD, sold);
 	}
 
 	/**
-	 * handles redundant storage of counted items in player object and a separate map
+	 * counts an item and stores the new value in the player object
 	 *
 	 * @param item the item to count
 	 * @param count how much to increment
 	 * @param prefix the prefix to use for the map withing the player object
-	 * @param redundantMap additional map for storing
+	 * @param table table of the counter
 	 */
-	private void handlePrefixedCounting(String item, int count, String prefix, Map<String, Integer> redundantMap) {
-		StringBuilder key = new StringBuilder(prefix);
-		key.append(item);
-		if(!player.has(LOOTED_ITEMS, key.toString())) {
-			player.put(LOOTED_ITEMS, key.toString(), 0);
-		}
-		if(!redundantMap.containsKey(item)) {
-			redundantMap.put(item, 0);
-		}
-		int current = player.getInt(LOOTED_ITEMS, key.toString());
-		int increased = current + count;
-		redundantMap.put(item, increased);
-		player.put(LOOTED_ITEMS, key.toString(), increased);
+	private void handlePrefixedCounting(String item, int count, String prefix, CounterTable table) {
+		int increased = table.add(item, count);
+		player.put(LOOTED_ITEMS, prefix + item, increased);
 	}
 
 	/**
 	 * @return the whole number of items a player has obtained from the well
 	 */
 	public int getQuantityOfObtainedItems() {
-		int sum = 0;
-		for(Integer count : obtained.values()) {
-			sum = sum + count.intValue();
-		}
-		return sum;
+		return obtained.sum();
 	}
 }
@@ -13,7 +13,10 @@
 package games.stendhal.server.entity.slot;
 
 import games.stendhal.server.entity.Entity;
+import games.stendhal.server.entity.RPEntity;
+import marauroa.common.game.RPObject;
 import marauroa.common.game.RPSlot;
+import marauroa.common.game.SlotOwner;
 
 /**
  * Stendhal specific information about this slot.
@@ -43,6 +46,32 @@ public class EntitySlot extends RPSlot implements Slot {
 		this.contentSlotName = contentSlotName;
 	}
 
+	@Override
+	public RPObject remove(final RPObject.ID id) {
+		final RPObject removed = super.remove(id);
+		if (removed != null) {
+			onContentRemoved();
+		}
+		return removed;
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		onContentRemoved();
+	}
+
+	/**
+	 * Tells the entity owning this slot that its item based attack and
+	 * defense values need to be recalculated.
+	 */
+	private void onContentRemoved() {
+		final SlotOwner owner = getOwner();
+		if (owner instanceof RPEntity) {
+			((RPEntity) owner).invalidateCombatStats();
+		}
+	}
+
 	@Override
 	public boolean isReachableForTakingThingsOutOfBy(final Entity entity) {
 		setErrorMessage("The " + getName() + " of " + ((Entity) getOwner()).getDescriptionName(true) + " is too far away.");
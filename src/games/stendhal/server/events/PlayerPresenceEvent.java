@@ -0,0 +1,59 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.events;
+
+import java.util.Collection;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.common.constants.Events;
+import marauroa.common.game.Definition.DefinitionClass;
+import marauroa.common.game.Definition.Type;
+import marauroa.common.game.RPClass;
+import marauroa.common.game.RPEvent;
+
+/**
+ * Players who logged on or off since the last presence event. Replaces
+ * separate PlayerLoggedOnEvents and PlayerLoggedOutEvents for clients that
+ * understand it.
+ */
+public class PlayerPresenceEvent extends RPEvent {
+	private static final String ONLINE_ATTRIBUTE = "online";
+	private static final String OFFLINE_ATTRIBUTE = "offline";
+	private static final Logger logger = Logger.getLogger(PlayerPresenceEvent.class);
+
+	public static void generateRPClass() {
+		try {
+			RPClass clazz = new RPClass(Events.PLAYER_PRESENCE);
+			clazz.add(DefinitionClass.ATTRIBUTE, ONLINE_ATTRIBUTE, Type.LONG_STRING);
+			clazz.add(DefinitionClass.ATTRIBUTE, OFFLINE_ATTRIBUTE, Type.LONG_STRING);
+		} catch (Exception e) {
+			logger.error("cannot generate RPClass", e);
+		}
+	}
+
+	/**
+	 * Create a new PlayerPresenceEvent.
+	 *
+	 * @param online names of players who logged on
+	 * @param offline names of players who logged off
+	 */
+	public PlayerPresenceEvent(Collection<String> online, Collection<String> offline) {
+		super(Events.PLAYER_PRESENCE);
+		if (!online.isEmpty()) {
+			put(ONLINE_ATTRIBUTE, String.join(",", online));
+		}
+		if (!offline.isEmpty()) {
+			put(OFFLINE_ATTRIBUTE, String.join(",", offline));
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.benchmark;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import games.stendhal.common.tiled.LayerDefinition;
+import games.stendhal.common.tiled.StendhalMapStructure;
+import games.stendhal.server.core.config.zone.TMXLoader;
+import games.stendhal.server.core.engine.RPClassGenerator;
+import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.core.engine.StendhalRPWorld;
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.core.engine.transformer.PlayerTransformer;
+import games.stendhal.server.core.rule.EntityManager;
+import games.stendhal.server.entity.creature.Creature;
+import games.stendhal.server.entity.player.Player;
+import marauroa.common.game.RPObject;
+
+/**
+ * Shared data of the benchmarks: the rules, and zones built from real maps.
+ */
+final class BenchmarkWorld {
+	/** Map used by the zone and path benchmarks. */
+	static final String CITY = "Level 0/semos/city.tmx";
+	/** Creatures placed in the zones, as a mix of sizes. */
+	private static final String[] CREATURES = { "rat", "wolf", "bear", "orc", "gnome" };
+
+	private static boolean rulesLoaded;
+	private static final Map<String, StendhalRPZone> zones = new HashMap<String, StendhalRPZone>();
+
+	private BenchmarkWorld() {
+		// static helpers only
+	}
+
+	/**
+	 * Load the RPClasses, items and creatures.
+	 *
+	 * @return entity manager
+	 */
+	static synchronized EntityManager getEntityManager() {
+		if (!rulesLoaded) {
+			new RPClassGenerator().createRPClasses();
+			rulesLoaded = true;
+		}
+		return SingletonRepository.getEntityManager();
+	}
+
+	/**
+	 * Create a player who is not logged in.
+	 *
+	 * @param name name of the player
+	 * @return player
+	 */
+	static Player createPlayer(final String name) {
+		getEntityManager();
+		final RPObject object = new RPObject();
+		object.put("name", name);
+		final Player player = (Player) new PlayerTransformer().transform(object);
+		player.setName(name);
+		return player;
+	}
+
+	/**
+	 * Get a zone with the collision and protection layers of a map, and
+	 * creatures placed at random positions. The creatures are not added to
+	 * the world, so their logic does not run.
+	 *
+	 * @param file map file relative to the maps folder
+	 * @param creatures number of creatures to place
+	 * @return zone
+	 * @throws IOException if the map cannot be loaded
+	 */
+	static synchronized StendhalRPZone getZone(final String file, final int creatures) throws IOException {
+		final String key = file + "#" + creatures;
+		StendhalRPZone zone = zones.get(key);
+		if (zone != null) {
+			return zone;
+		}
+		final EntityManager em = getEntityManager();
+		final StendhalMapStructure map;
+		try {
+			map = TMXLoader.load(StendhalRPWorld.MAPS_FOLDER + file);
+		} catch (final Exception e) {
+			throw new IOException("Failed to load " + file, e);
+		}
+		final LayerDefinition collision = map.getLayer("collision");
+		collision.build();
+		zone = new StendhalRPZone("benchmark_" + zones.size(), collision.getWidth(), collision.getHeight());
+		zone.addCollisionLayer(zone.getName() + ".collision", collision);
+		final LayerDefinition protection = map.getLayer("protection");
+		if (protection != null) {
+			protection.build();
+			zone.addProtectionLayer(zone.getName() + ".protection", protection);
+		}
+
+		final Random random = new Random(42);
+		int placed = 0;
+		for (int tries = 0; (placed < creatures) && (tries < 100 * creatures); tries++) {
+			final Creature creature = em.getCreature(CREATURES[placed % CREATURES.length]);
+			final int x = random.nextInt(zone.getWidth());
+			final int y = random.nextInt(zone.getHeight());
+			if (!zone.collides(creature, x, y)) {
+				creature.setPosition(x, y);
+				zone.add(creature);
+				placed++;
+			}
+		}
+		zones.put(key, zone);
+		return zone;
+	}
+}
@@ -0,0 +1,183 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.benchmark;
+
+import java.awt.Point;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import games.stendhal.common.CollisionMap;
+import games.stendhal.common.Line;
+import games.stendhal.common.tiled.LayerDefinition;
+import games.stendhal.server.core.config.zone.TMXLoader;
+import games.stendhal.server.core.engine.StendhalRPWorld;
+
+/**
+ * {@link CollisionMap#collides(int, int, int, int)} and
+ * {@link CollisionMap#collidesOnLine(int, int, int, int)} on the collision
+ * layer of a real map. The reference variants use the previous
+ * implementation, which kept a BitSet per column and tested lines of sight
+ * on a list of points. Both implementations must give the same results for
+ * the prepared queries.
+ */
+public class CollisionMapBenchmark extends ServerBenchmark {
+	/** Number of prepared queries. */
+	private static final int QUERIES = 4096;
+	/** Maximum distance of the ends of the lines of sight in both directions. */
+	private static final int MAX_OFFSET = 10;
+
+	/**
+	 * The previous collision map, for comparison.
+	 */
+	private static final class BitSetCollisionMap {
+		private final int width;
+		private final int height;
+		private final BitSet[] colls;
+
+		private BitSetCollisionMap(final LayerDefinition layer) {
+			width = layer.getWidth();
+			height = layer.getHeight();
+			colls = new BitSet[width];
+			for (int x = 0; x < width; x++) {
+				colls[x] = new BitSet();
+				for (int y = 0; y < height; y++) {
+					if (layer.getTileAt(x, y) != 0) {
+						colls[x].set(y);
+					}
+				}
+			}
+		}
+
+		private boolean collides(final int x, final int y, final int w, final int h) {
+			if (x < 0 || x - 1 + w >= width) {
+				return true;
+			}
+			if (y < 0 || y - 1 + h >= height) {
+				return true;
+			}
+			final BitSet result = new BitSet();
+			for (int i = x; i < x + w; i++) {
+				result.or(colls[i]);
+			}
+			return !result.get(y, y + h).isEmpty();
+		}
+
+		private boolean collidesOnLine(final int x1, final int y1, final int x2, final int y2) {
+			final List<Point> points = Line.renderLine(x1, y1, x2, y2);
+			for (final Point point : points) {
+				final int x = (int) point.getX();
+				final int y = (int) point.getY();
+				if ((x < 0) || (x >= width) || (y < 0) || (y >= height) || colls[x].get(y)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/** <code>true</code> to measure the previous implementation. */
+	@Param({ "false", "true" })
+	public boolean reference;
+
+	private CollisionMap map;
+	private BitSetCollisionMap oldMap;
+	/** Rectangles as x, y, width, height. */
+	private final int[] rectangles = new int[4 * QUERIES];
+	/** Lines as x1, y1, x2, y2. */
+	private final int[] lines = new int[4 * QUERIES];
+	/** Index of the next query. */
+	private int next;
+
+	/**
+	 * Load the collision layer and prepare the queries.
+	 *
+	 * @throws Exception if the map cannot be loaded
+	 */
+	@Setup
+	public void setUp() throws Exception {
+		final LayerDefinition layer = TMXLoader.load(StendhalRPWorld.MAPS_FOLDER + BenchmarkWorld.CITY)
+				.getLayer("collision");
+		layer.build();
+		map = new CollisionMap(layer);
+		oldMap = new BitSetCollisionMap(layer);
+
+		final Random random = new Random(42);
+		for (int i = 0; i < 4 * QUERIES; i += 4) {
+			// entity sized rectangles, and some larger ones like spawn areas
+			final int size = (i % 16 == 0) ? 6 : 2;
+			rectangles[i + 2] = 1 + random.nextInt(size);
+			rectangles[i + 3] = 1 + random.nextInt(size);
+			rectangles[i] = random.nextInt(layer.getWidth() - rectangles[i + 2] + 1);
+			rectangles[i + 1] = random.nextInt(layer.getHeight() - rectangles[i + 3] + 1);
+
+			// lines of sight within the range of ranged attacks
+			lines[i] = random.nextInt(layer.getWidth());
+			lines[i + 1] = random.nextInt(layer.getHeight());
+			lines[i + 2] = clamp(lines[i] + random.nextInt(2 * MAX_OFFSET + 1) - MAX_OFFSET, layer.getWidth());
+			lines[i + 3] = clamp(lines[i + 1] + random.nextInt(2 * MAX_OFFSET + 1) - MAX_OFFSET, layer.getHeight());
+		}
+
+		for (int i = 0; i < QUERIES; i++) {
+			if ((rectangle(i, false) != rectangle(i, true)) || (line(i, false) != line(i, true))) {
+				throw new IllegalStateException("The implementations give different results for query " + i);
+			}
+		}
+	}
+
+	private static int clamp(final int value, final int size) {
+		return Math.max(0, Math.min(size - 1, value));
+	}
+
+	private boolean rectangle(final int query, final boolean old) {
+		final int i = 4 * query;
+		if (old) {
+			return oldMap.collides(rectangles[i], rectangles[i + 1], rectangles[i + 2], rectangles[i + 3]);
+		}
+		return map.collides(rectangles[i], rectangles[i + 1], rectangles[i + 2], rectangles[i + 3]);
+	}
+
+	private boolean line(final int query, final boolean old) {
+		final int i = 4 * query;
+		// the old implementation cannot render lines of a single point
+		if (old && ((lines[i] != lines[i + 2]) || (lines[i + 1] != lines[i + 3]))) {
+			return oldMap.collidesOnLine(lines[i], lines[i + 1], lines[i + 2], lines[i + 3]);
+		}
+		return map.collidesOnLine(lines[i], lines[i + 1], lines[i + 2], lines[i + 3]);
+	}
+
+	/**
+	 * Check if the next rectangle collides.
+	 *
+	 * @return result of the query
+	 */
+	@Benchmark
+	public boolean collides() {
+		next = (next + 1) & (QUERIES - 1);
+		return rectangle(next, reference);
+	}
+
+	/**
+	 * Check if the next line of sight collides.
+	 *
+	 * @return result of the query
+	 */
+	@Benchmark
+	public boolean collidesOnLine() {
+		next = (next + 1) & (QUERIES - 1);
+		return line(next, reference);
+	}
+}
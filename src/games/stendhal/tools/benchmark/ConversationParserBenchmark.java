@@ -0,0 +1,60 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Setup;
+
+import games.stendhal.common.parser.ConversationParser;
+import games.stendhal.common.parser.Sentence;
+
+/**
+ * {@link ConversationParser#parse(String)} on typical player sentences.
+ */
+public class ConversationParserBenchmark extends ServerBenchmark {
+	private static final String[] SENTENCES = {
+		"hi",
+		"job",
+		"buy 5 bottles of beer",
+		"sell 3 carrots",
+		"I would like to buy a big healing potion",
+		"yes",
+		"quest",
+		"tell me about the dungeon",
+		"sell 10 pieces of chicken",
+		"done",
+		"how much is a leather armor?",
+		"bye"
+	};
+
+	/** Index of the next sentence. */
+	private int next;
+
+	/**
+	 * Load the word list.
+	 */
+	@Setup
+	public void setUp() {
+		ConversationParser.parse("hi");
+	}
+
+	/**
+	 * Parse the next sentence.
+	 *
+	 * @return parsed sentence
+	 */
+	@Benchmark
+	public Sentence parse() {
+		next = (next + 1) % SENTENCES.length;
+		return ConversationParser.parse(SENTENCES[next]);
+	}
+}
@@ -0,0 +1,94 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Setup;
+
+import games.stendhal.common.parser.ConversationParser;
+import games.stendhal.common.parser.Sentence;
+import games.stendhal.server.entity.npc.ConversationPhrases;
+import games.stendhal.server.entity.npc.ConversationStates;
+import games.stendhal.server.entity.npc.SpeakerNPC;
+import games.stendhal.server.entity.npc.condition.QuestNotStartedCondition;
+import games.stendhal.server.entity.npc.fsm.Engine;
+import games.stendhal.server.entity.player.Player;
+
+/**
+ * {@link Engine#step(Player, Sentence)}: matching the transitions of an NPC
+ * with the usual replies and a few dozen topics. The sentences are parsed in
+ * advance, as parsing is measured by {@link ConversationParserBenchmark}.
+ */
+public class EngineBenchmark extends ServerBenchmark {
+	private static final String[] TOPICS = {
+		"dungeon", "cave", "mine", "tower", "castle", "forest", "lake", "river",
+		"beer", "wine", "bread", "cheese", "meat", "ham", "fish", "apple",
+		"sword", "axe", "club", "dagger", "shield", "armor", "helmet", "boots",
+		"king", "queen", "soldier", "guard", "priest", "wizard", "thief", "farmer",
+		"semos", "ados", "fado", "kalavan", "kirdneh", "nalwor", "orril", "deniran"
+	};
+	/** A conversation, repeated by the benchmark. */
+	private static final String[] CONVERSATION = {
+		"hi", "job", "help", "dungeon", "offer", "wizard", "quest", "no", "fado", "bye"
+	};
+
+	private Engine engine;
+	private Player player;
+	private Sentence[] sentences;
+	/** Position in the conversation. */
+	private int next;
+
+	/**
+	 * Create the NPC and parse the conversation.
+	 */
+	@Setup
+	public void setUp() {
+		player = BenchmarkWorld.createPlayer("benchmark");
+		final SpeakerNPC npc = new SpeakerNPC("Benchmark");
+		npc.addGreeting("Greetings.");
+		npc.addJob("I answer questions.");
+		npc.addHelp("Ask me about anything.");
+		npc.addOffer("I have nothing to sell.");
+		for (final String topic : TOPICS) {
+			npc.addReply(topic, "Let me tell you about " + topic + ".");
+		}
+		npc.add(ConversationStates.ATTENDING, ConversationPhrases.QUEST_MESSAGES,
+				new QuestNotStartedCondition("benchmark"), ConversationStates.QUEST_OFFERED,
+				"Will you help me?", null);
+		npc.add(ConversationStates.QUEST_OFFERED, ConversationPhrases.NO_MESSAGES, null,
+				ConversationStates.ATTENDING, "Too bad.", null);
+		npc.add(ConversationStates.QUEST_OFFERED, ConversationPhrases.YES_MESSAGES, null,
+				ConversationStates.ATTENDING, "Thank you.", null);
+		npc.addGoodbye("Farewell.");
+		engine = npc.getEngine();
+
+		sentences = new Sentence[CONVERSATION.length];
+		for (int i = 0; i < CONVERSATION.length; i++) {
+			sentences[i] = ConversationParser.parse(CONVERSATION[i]);
+		}
+	}
+
+	/**
+	 * Process the next sentence of the conversation.
+	 *
+	 * @return <code>true</code> if a transition matched
+	 */
+	@Benchmark
+	public boolean step() {
+		next = (next + 1) % sentences.length;
+		if (next == 0) {
+			// do not let the replies pile up
+			player.clearEvents();
+		}
+		return engine.step(player, sentences[next]);
+	}
+}
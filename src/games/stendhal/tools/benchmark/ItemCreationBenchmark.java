@@ -0,0 +1,78 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Setup;
+
+import games.stendhal.server.core.rule.EntityManager;
+import games.stendhal.server.core.rule.defaultruleset.DefaultItem;
+import games.stendhal.server.entity.item.Item;
+
+/**
+ * {@link DefaultItem#getItem()}: the creation of items by copying a
+ * prototype, for all item kinds that support it. The reflective variant
+ * calls the constructors instead, and skips the configuration of slots,
+ * descriptions and status attackers that the prototype copy includes.
+ */
+public class ItemCreationBenchmark extends ServerBenchmark {
+	private final List<DefaultItem> items = new ArrayList<DefaultItem>();
+	/** Index of the next item kind. */
+	private int next;
+
+	/**
+	 * Find the item kinds that are created by copying a prototype.
+	 */
+	@Setup
+	public void setUp() {
+		final EntityManager em = BenchmarkWorld.getEntityManager();
+		items.clear();
+		for (final DefaultItem item : em.getDefaultItems()) {
+			// the first call decides whether a prototype can be used
+			item.getItem();
+			if (item.isCopyingPrototype()) {
+				items.add(item);
+			}
+		}
+		if (items.isEmpty()) {
+			throw new IllegalStateException("No items are created by copying a prototype");
+		}
+	}
+
+	private DefaultItem nextItem() {
+		next = (next + 1) % items.size();
+		return items.get(next);
+	}
+
+	/**
+	 * Create an item by copying the prototype.
+	 *
+	 * @return item
+	 */
+	@Benchmark
+	public Item getItem() {
+		return nextItem().getItem();
+	}
+
+	/**
+	 * Create an item by calling its constructor.
+	 *
+	 * @return item
+	 */
+	@Benchmark
+	public Item getItemReflective() {
+		return nextItem().getCreator().create();
+	}
+}
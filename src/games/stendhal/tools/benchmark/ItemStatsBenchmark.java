@@ -0,0 +1,86 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import games.stendhal.server.core.rule.EntityManager;
+import games.stendhal.server.entity.RPEntity;
+import games.stendhal.server.entity.player.Player;
+
+/**
+ * {@link RPEntity#getItemAtk()} and {@link RPEntity#getItemDef()} of a fully
+ * equipped player.
+ */
+public class ItemStatsBenchmark extends ServerBenchmark {
+	/** Equipment as pairs of slot and item name. */
+	private static final String[][] EQUIPMENT = {
+		{ "rhand", "ice sword" },
+		{ "lhand", "wooden shield" },
+		{ "armor", "chain armor" },
+		{ "head", "chain helmet" },
+		{ "legs", "chain legs" },
+		{ "feet", "chain boots" },
+		{ "cloak", "elf cloak" },
+		{ "finger", "emerald ring" }
+	};
+
+	/**
+	 * <code>true</code> if the values cached for the current turn are used.
+	 * Otherwise the cache is invalidated before each call, as happens when
+	 * the equipment changes.
+	 */
+	@Param({ "true", "false" })
+	public boolean cached;
+
+	private Player player;
+
+	/**
+	 * Create the equipped player.
+	 */
+	@Setup
+	public void setUp() {
+		final EntityManager em = BenchmarkWorld.getEntityManager();
+		player = BenchmarkWorld.createPlayer("benchmark");
+		for (final String[] equipment : EQUIPMENT) {
+			player.equip(equipment[0], em.getItem(equipment[1]));
+		}
+	}
+
+	/**
+	 * Get the attack value of the equipment.
+	 *
+	 * @return attack value
+	 */
+	@Benchmark
+	public float getItemAtk() {
+		if (!cached) {
+			player.invalidateCombatStats();
+		}
+		return player.getItemAtk();
+	}
+
+	/**
+	 * Get the defense value of the equipment.
+	 *
+	 * @return defense value
+	 */
+	@Benchmark
+	public float getItemDef() {
+		if (!cached) {
+			player.invalidateCombatStats();
+		}
+		return player.getItemDef();
+	}
+}
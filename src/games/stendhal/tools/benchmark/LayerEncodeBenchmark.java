@@ -0,0 +1,61 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Setup;
+
+import games.stendhal.common.tiled.LayerDefinition;
+import games.stendhal.common.tiled.StendhalMapStructure;
+import games.stendhal.server.core.config.zone.TMXLoader;
+import games.stendhal.server.core.engine.StendhalRPWorld;
+
+/**
+ * {@link LayerDefinition#encode()}: compressing the layers of a real map for
+ * the transfer to the clients. An operation encodes one layer, going through
+ * all layers of the map in turn.
+ */
+public class LayerEncodeBenchmark extends ServerBenchmark {
+	private LayerDefinition[] layers;
+	/** Index of the next layer. */
+	private int next;
+
+	/**
+	 * Load the layers of the map.
+	 *
+	 * @throws Exception if the map cannot be loaded
+	 */
+	@Setup
+	public void setUp() throws Exception {
+		final StendhalMapStructure map = TMXLoader.load(StendhalRPWorld.MAPS_FOLDER + BenchmarkWorld.CITY);
+		final List<LayerDefinition> mapLayers = map.getLayers();
+		layers = mapLayers.toArray(new LayerDefinition[mapLayers.size()]);
+		for (final LayerDefinition layer : layers) {
+			layer.build();
+		}
+	}
+
+	/**
+	 * Encode the next layer.
+	 *
+	 * @return encoded layer
+	 * @throws IOException if encoding fails
+	 */
+	@Benchmark
+	public byte[] encode() throws IOException {
+		next = (next + 1) % layers.length;
+		return layers[next].encode();
+	}
+}
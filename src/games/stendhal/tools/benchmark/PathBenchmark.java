@@ -0,0 +1,130 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.benchmark;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.core.pathfinder.Node;
+import games.stendhal.server.core.pathfinder.Path;
+import games.stendhal.server.core.pathfinder.SimplePathfinder;
+import games.stendhal.server.entity.Entity;
+
+/**
+ * Path finding on a zone of a real map with creatures. The queries are pairs
+ * of points at most {@value #MAX_OFFSET} tiles apart in both directions,
+ * either connected by a path or not.
+ */
+public class PathBenchmark extends ServerBenchmark {
+	/** Creatures in the zone. */
+	private static final int CREATURES = 200;
+	/** Number of prepared queries. */
+	private static final int QUERIES = 512;
+	/** Limit for the random tries to find the queries. */
+	private static final int MAX_TRIES = 1000 * QUERIES;
+	private static final int MAX_OFFSET = 20;
+	private static final double MAX_DISTANCE = 80;
+
+	/**
+	 * <code>true</code> for pairs connected by a path, <code>false</code>
+	 * for pairs that are not. The unconnected pairs show the cost of failed
+	 * searches, which explore everything within the maximum distance unless
+	 * the pairs are in different regions of the zone.
+	 */
+	@Param({ "true", "false" })
+	public boolean reachable;
+
+	private StendhalRPZone zone;
+	private Entity entity;
+	/** Queries as start x, start y, destination x, destination y. */
+	private final int[] queries = new int[4 * QUERIES];
+	/** Number of queries found. */
+	private int found;
+	/** Index of the next query. */
+	private int next;
+
+	/**
+	 * Load the zone and find the queries.
+	 *
+	 * @throws IOException if the map cannot be loaded
+	 */
+	@Setup
+	public void setUp() throws IOException {
+		zone = BenchmarkWorld.getZone(BenchmarkWorld.CITY, CREATURES);
+		entity = BenchmarkWorld.getEntityManager().getCreature("rat");
+		final Random random = new Random(42);
+		found = 0;
+		for (int tries = 0; (found < QUERIES) && (tries < MAX_TRIES); tries++) {
+			final int x = random.nextInt(zone.getWidth());
+			final int y = random.nextInt(zone.getHeight());
+			final int dx = clamp(x + random.nextInt(2 * MAX_OFFSET + 1) - MAX_OFFSET, zone.getWidth());
+			final int dy = clamp(y + random.nextInt(2 * MAX_OFFSET + 1) - MAX_OFFSET, zone.getHeight());
+			if (zone.collides(x, y) || zone.collides(dx, dy)) {
+				continue;
+			}
+			if (new SimplePathfinder(zone, x, y, new Rectangle(dx, dy, 1, 1), MAX_DISTANCE).getPath().isEmpty() != reachable) {
+				queries[4 * found] = x;
+				queries[4 * found + 1] = y;
+				queries[4 * found + 2] = dx;
+				queries[4 * found + 3] = dy;
+				found++;
+			}
+		}
+		if (found == 0) {
+			throw new IllegalStateException("No queries found with reachable=" + reachable);
+		}
+	}
+
+	private static int clamp(final int value, final int size) {
+		return Math.max(0, Math.min(size - 1, value));
+	}
+
+	private int nextQuery() {
+		next = (next + 1) % found;
+		return 4 * next;
+	}
+
+	/**
+	 * {@link games.stendhal.server.core.pathfinder.Pathfinder}: the A* search
+	 * on the collision map alone.
+	 *
+	 * @return path
+	 */
+	@Benchmark
+	public List<Node> pathfinder() {
+		final int index = nextQuery();
+		return new SimplePathfinder(zone, queries[index], queries[index + 1],
+				new Rectangle(queries[index + 2], queries[index + 3], 1, 1), MAX_DISTANCE).getPath();
+	}
+
+	/**
+	 * {@link Path#searchPath(Entity, StendhalRPZone, int, int, java.awt.geom.Rectangle2D,
+	 * double, boolean)}:
+	 * the search for a creature, avoiding the other entities. This includes
+	 * the reachability check against the regions of the zone.
+	 *
+	 * @return path
+	 */
+	@Benchmark
+	public List<Node> searchPath() {
+		final int index = nextQuery();
+		return Path.searchPath(entity, zone, queries[index], queries[index + 1],
+				new Rectangle(queries[index + 2], queries[index + 3], 1, 1), MAX_DISTANCE, true);
+	}
+}
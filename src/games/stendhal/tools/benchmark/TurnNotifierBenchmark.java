@@ -0,0 +1,104 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.benchmark;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Setup;
+
+import games.stendhal.server.core.events.TurnListener;
+import games.stendhal.server.core.events.TurnNotification;
+import games.stendhal.server.core.events.TurnNotifier;
+
+/**
+ * Scheduling with the {@link TurnNotifier}, with a steady population of
+ * {@value #PENDING} pending notifications spread over the next
+ * {@value #MAX_DELAY} turns, like the respawn timers and NPC actions of a
+ * running server.
+ */
+public class TurnNotifierBenchmark extends ServerBenchmark {
+	private static final int PENDING = 10000;
+	private static final int MAX_DELAY = 3000;
+	/** Number of listeners used by the scheduling benchmark. */
+	private static final int LISTENERS = 1024;
+
+	/**
+	 * A listener that schedules itself again when notified.
+	 */
+	private static final class Repeating implements TurnListener {
+		private final TurnNotifier notifier;
+		private final Random random;
+
+		Repeating(final TurnNotifier notifier, final Random random) {
+			this.notifier = notifier;
+			this.random = random;
+		}
+
+		@Override
+		public void onTurnReached(final int currentTurn) {
+			notifier.notifyInTurns(random.nextInt(MAX_DELAY), this);
+		}
+	}
+
+	private final Random random = new Random(42);
+	private final TurnListener[] listeners = new TurnListener[LISTENERS];
+	private TurnNotifier notifier;
+	private int turn;
+	/** Index of the next listener. */
+	private int next;
+
+	/**
+	 * Replace the pending notifications with repeating listeners.
+	 */
+	@Setup
+	public void setUp() {
+		notifier = TurnNotifier.get();
+		notifier.getEventListForDebugging().clear();
+		for (int i = 0; i < PENDING; i++) {
+			notifier.notifyInTurns(random.nextInt(MAX_DELAY), new Repeating(notifier, random));
+		}
+		for (int i = 0; i < LISTENERS; i++) {
+			listeners[i] = new Repeating(notifier, random);
+		}
+		turn = notifier.getCurrentTurnForDebugging();
+	}
+
+	/**
+	 * {@link TurnNotifier#notifyInTurns(int, TurnListener)} and
+	 * {@link TurnNotification#cancel()}: scheduling a notification and
+	 * cancelling it again, as done when a player leaves a zone or a creature
+	 * dies.
+	 *
+	 * @return turn of the notification
+	 */
+	@Benchmark
+	public int schedule() {
+		next = (next + 1) & (LISTENERS - 1);
+		final TurnNotification notification = notifier.notifyInTurns(random.nextInt(MAX_DELAY), listeners[next]);
+		notification.cancel();
+		return notification.getTurn();
+	}
+
+	/**
+	 * {@link TurnNotifier#logic(int)}: one turn, notifying the due listeners
+	 * which schedule themselves again.
+	 *
+	 * @return number of notified listeners
+	 */
+	@Benchmark
+	public int logic() {
+		turn++;
+		notifier.logic(turn);
+		return notifier.getListenersFiredLastTurn();
+	}
+}
@@ -0,0 +1,84 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.benchmark;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Setup;
+
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.entity.Entity;
+
+/**
+ * Collision and entity queries on a zone of a real map with creatures, at
+ * random positions on the map.
+ */
+public class ZoneBenchmark extends ServerBenchmark {
+	/** Creatures in the zone. */
+	private static final int CREATURES = 200;
+	/** Number of prepared query positions. */
+	private static final int POSITIONS = 4096;
+
+	private StendhalRPZone zone;
+	private Entity entity;
+	private final int[] xs = new int[POSITIONS];
+	private final int[] ys = new int[POSITIONS];
+	/** Index of the next query position. */
+	private int next;
+
+	/**
+	 * Load the zone and prepare the positions.
+	 *
+	 * @throws IOException if the map cannot be loaded
+	 */
+	@Setup
+	public void setUp() throws IOException {
+		zone = BenchmarkWorld.getZone(BenchmarkWorld.CITY, CREATURES);
+		entity = BenchmarkWorld.getEntityManager().getCreature("wolf");
+		final Random random = new Random(42);
+		for (int i = 0; i < POSITIONS; i++) {
+			xs[i] = random.nextInt(zone.getWidth());
+			ys[i] = random.nextInt(zone.getHeight());
+		}
+	}
+
+	private int nextPosition() {
+		next = (next + 1) & (POSITIONS - 1);
+		return next;
+	}
+
+	/**
+	 * {@link StendhalRPZone#collides(Entity, double, double)}: can a creature
+	 * stand at a position, checking both the map and the other entities.
+	 *
+	 * @return result of the query
+	 */
+	@Benchmark
+	public boolean collides() {
+		final int index = nextPosition();
+		return zone.collides(entity, xs[index], ys[index]);
+	}
+
+	/**
+	 * {@link StendhalRPZone#getEntitiesAt(double, double)}: the entities at a
+	 * point, as used for clicks and item drops.
+	 *
+	 * @return number of found entities
+	 */
+	@Benchmark
+	public int getEntitiesAt() {
+		final int index = nextPosition();
+		return zone.getEntitiesAt(xs[index] + 0.5, ys[index] + 0.5).size();
+	}
+}
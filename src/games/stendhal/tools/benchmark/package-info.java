@@ -0,0 +1,4 @@
+/**
+ * Microbenchmarks of server hot paths, written for JMH. Run them with <code>ant benchmark</code>.
+ */
+package games.stendhal.tools.benchmark;
@@ -345,7 +345,10 @@ export class Client {
 					this.onDataMap(items[i]["data"]);
 				}
 			}
-			stendhal.data.map.onTransfer(zoneName, data);
+			// attribute updates of the current zone come without the layers
+			if (data["0_floor"] || zoneName !== stendhal.data.map.currentZoneName) {
+				stendhal.data.map.onTransfer(zoneName, data);
+			}
 		};
 
 		// update user interface on perceptions
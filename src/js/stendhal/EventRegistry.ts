@@ -22,6 +22,7 @@ import { GroupChangeEvent } from "./event/GroupChangeEvent";
 import { GroupInviteEvent } from "./event/GroupInviteEvent";
 import { PlayerLoggedOnEvent } from "./event/PlayerLoggedOnEvent";
 import { PlayerLoggedOutEvent } from "./event/PlayerLoggedOutEvent";
+import { PlayerPresenceEvent } from "./event/PlayerPresenceEvent";
 import { ProgressStatusEvent } from "./event/ProgressStatusEvent";
 import { RPEvent } from "./event/RPEvent";
 import { SoundEvent } from "./event/SoundEvent";
@@ -114,6 +115,7 @@ export class EventRegistry {
 
 		this.register("player_logged_on", new PlayerLoggedOnEvent());
 		this.register("player_logged_out", new PlayerLoggedOutEvent());
+		this.register("player_presence", new PlayerPresenceEvent());
 
 		this.register("private_text", {
 			soundTextEvents: {
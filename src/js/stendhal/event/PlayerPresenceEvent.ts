@@ -0,0 +1,45 @@
+/***************************************************************************
+ *                    Copyright © 2024 - Faiumoni e. V.                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU Affero General Public License as        *
+ *   published by the Free Software Foundation; either version 3 of the    *
+ *   License, or (at your option) any later version.                       *
+ *                                                                         *
+ ***************************************************************************/
+
+declare var stendhal: any;
+
+import { RPEvent } from "./RPEvent";
+
+
+/**
+ * Players who logged on or off since the last presence event.
+ */
+export class PlayerPresenceEvent extends RPEvent {
+
+	public online?: string;
+	public offline?: string;
+
+
+	override execute(entity: any) {
+		if (this.online) {
+			for (const name of this.online.split(",")) {
+				if (stendhal.players.indexOf(name) < 0) {
+					stendhal.players.push(name);
+				}
+			}
+			stendhal.players = stendhal.players.sort();
+		}
+		if (this.offline) {
+			for (const name of this.offline.split(",")) {
+				const idx = stendhal.players.indexOf(name);
+				if (idx > -1) {
+					stendhal.players.splice(idx, 1);
+				}
+			}
+		}
+	}
+}
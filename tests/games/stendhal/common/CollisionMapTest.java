@@ -16,8 +16,10 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import java.awt.Point;
 import java.awt.geom.Rectangle2D;
 import java.util.BitSet;
+import java.util.Random;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -128,6 +130,40 @@ public class CollisionMapTest {
 		assertTrue("edge", map.collides(3, 3, 2, 2));
 	}
 
+	/**
+	 * Tests that nodes outside the map have no collision, and that setting
+	 * them does not change nodes inside the map.
+	 */
+	@Test
+	public void testGetOutside() {
+		final CollisionMap map = new CollisionMap(3, 2);
+		map.set(0, 0);
+		map.set(0, 1);
+		map.set(2, 1);
+		assertTrue(map.get(0, 0));
+		assertTrue(map.get(2, 1));
+		assertFalse(map.get(3, 0));
+		assertFalse(map.get(63, 0));
+		assertFalse(map.get(64, 0));
+		assertFalse(map.get(0, 2));
+		assertFalse(map.get(2, 2));
+		assertFalse(map.get(-1, 0));
+		assertFalse(map.get(0, -1));
+
+		map.set(3, 0);
+		map.set(64, 0);
+		map.set(0, 2);
+		map.unset(64, 1);
+		map.unset(-1, 1);
+		assertFalse(map.get(3, 0));
+		assertFalse(map.get(0, 2));
+		assertFalse(map.get(1, 0));
+		assertTrue(map.get(0, 1));
+		assertTrue(map.get(2, 1));
+		assertTrue(map.collides(0, 0, 3, 1));
+		assertFalse(map.collides(1, 0, 2, 1));
+	}
+
 	/**
 	 * Tests for bitsetlogic.
 	 */
@@ -353,4 +389,63 @@ public class CollisionMapTest {
 				.getWidth(), (int) bob.getHeight()));
 	}
 
+	/**
+	 * Tests rectangles across the word boundaries of the bitmap against a
+	 * node by node check.
+	 */
+	@Test
+	public void testCollidesWide() {
+		final CollisionMap map = new CollisionMap(150, 5);
+		final Random random = new Random(1);
+		for (int i = 0; i < 40; i++) {
+			map.set(random.nextInt(150), random.nextInt(5));
+		}
+		for (int x = 0; x < 150; x++) {
+			for (int w = 1; x + w <= 150; w += 7) {
+				for (int y = 0; y < 5; y++) {
+					for (int h = 1; y + h <= 5; h++) {
+						boolean expected = false;
+						for (int i = x; i < x + w; i++) {
+							for (int j = y; j < y + h; j++) {
+								expected |= map.get(i, j);
+							}
+						}
+						assertThat(x + ";" + y + ";" + w + ";" + h, map.collides(x, y, w, h), is(expected));
+					}
+				}
+			}
+		}
+		map.unset(63, 2);
+		map.set(64, 2);
+		assertFalse(map.get(63, 2));
+		assertTrue(map.get(64, 2));
+	}
+
+	/**
+	 * Tests that lines of sight check the points of Line.renderLine.
+	 */
+	@Test
+	public void testCollidesOnLine() {
+		final CollisionMap map = new CollisionMap(20, 20);
+		final Random random = new Random(2);
+		for (int i = 0; i < 40; i++) {
+			map.set(random.nextInt(20), random.nextInt(20));
+		}
+		for (int i = 0; i < 1000; i++) {
+			final int x1 = random.nextInt(20);
+			final int y1 = random.nextInt(20);
+			final int x2 = random.nextInt(20);
+			final int y2 = random.nextInt(20);
+			if ((x1 == x2) && (y1 == y2)) {
+				assertThat(map.collidesOnLine(x1, y1, x2, y2), is(map.get(x1, y1)));
+				continue;
+			}
+			boolean expected = false;
+			for (final Point point : Line.renderLine(x1, y1, x2, y2)) {
+				expected |= map.get(point.x, point.y);
+			}
+			assertThat(map.collidesOnLine(x1, y1, x2, y2), is(expected));
+		}
+		assertTrue("outside", map.collidesOnLine(-1, 0, 5, 0));
+	}
 }
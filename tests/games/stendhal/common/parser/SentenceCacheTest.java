@@ -0,0 +1,88 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.common.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * Tests for SentenceCache.
+ */
+public class SentenceCacheTest {
+
+	/**
+	 * Tests that repeated input is answered from the cache.
+	 */
+	@Test
+	public void testHits() {
+		final SentenceCache cache = new SentenceCache(10);
+		final Sentence first = cache.parse("buy 3 cookies", new ConversationContext());
+		assertEquals(0, cache.getHits());
+		assertEquals(1, cache.getMisses());
+
+		final Sentence second = cache.parse("buy 3 cookies", new ConversationContext());
+		assertSame(first, second);
+		assertEquals(1, cache.getHits());
+		assertEquals("cookie", second.getObjectName());
+		assertEquals(3, second.getObject(0).getAmount());
+
+		// a different context gives a different result
+		final ConversationContext ctx = new ConversationContext();
+		ctx.setMergeExpressions(false);
+		assertNotSame(first, cache.parse("buy 3 cookies", ctx));
+		assertEquals(2, cache.getSize());
+
+		// contexts for matching are not cached
+		cache.parse("buy 3 cookies", new ConvCtxForMatcher());
+		assertEquals(2, cache.getSize());
+	}
+
+	/**
+	 * Tests that the cache size is bounded.
+	 */
+	@Test
+	public void testCapacity() {
+		final SentenceCache cache = new SentenceCache(2);
+		final Sentence hello = cache.parse("hello", new ConversationContext());
+		cache.parse("job", new ConversationContext());
+		cache.parse("hello", new ConversationContext());
+		cache.parse("offer", new ConversationContext());
+		assertEquals(2, cache.getSize());
+		// "job" was the least recently used entry
+		assertSame(hello, cache.parse("hello", new ConversationContext()));
+		cache.parse("job", new ConversationContext());
+		assertEquals(2, cache.getHits());
+		assertEquals(4, cache.getMisses());
+	}
+
+	/**
+	 * Tests that sentences are parsed again after the word list changed.
+	 */
+	@Test
+	public void testWordListChange() {
+		final SentenceCache cache = new SentenceCache(10);
+		final Sentence before = cache.parse("buy blorbian cheese", new ConversationContext());
+
+		final WordList wl = WordList.getInstance();
+		wl.registerSubjectName("blorbian cheese", ExpressionType.OBJECT);
+		try {
+			final Sentence after = cache.parse("buy blorbian cheese", new ConversationContext());
+			assertNotSame(before, after);
+			assertEquals("blorbian cheese", after.getObjectName());
+		} finally {
+			wl.unregisterSubjectName("blorbian cheese");
+		}
+	}
+}
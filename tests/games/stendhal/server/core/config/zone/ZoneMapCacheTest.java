@@ -0,0 +1,120 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.config.zone;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import org.junit.Test;
+
+import games.stendhal.common.tiled.LayerDefinition;
+
+/**
+ * Tests for ZoneMapCache.
+ */
+public class ZoneMapCacheTest {
+	private static final String MAP = "data/maps/interiors/abstract/myling_well.tmx";
+
+	/**
+	 * Tests that a cached map equals the parsed map, and that damaged cache
+	 * files are replaced.
+	 */
+	@Test
+	public void testCache() throws Exception {
+		final File dir = Files.createTempDirectory("zone-cache-test").toFile();
+		final ZoneMapCache cache = new ZoneMapCache(dir);
+		final ZoneMapData parsed = cache.load(MAP);
+		final File[] files = dir.listFiles();
+		assertEquals(1, files.length);
+
+		final ZoneMapData cached = cache.load(MAP);
+		assertSameMap(parsed, cached);
+		assertSameMap(parsed, new ZoneMapCache(null).load(MAP));
+
+		try (FileOutputStream out = new FileOutputStream(files[0])) {
+			out.write(new byte[] { 1, 0, 0, 0, 5 });
+		}
+		assertSameMap(parsed, cache.load(MAP));
+		assertTrue(files[0].length() > 5);
+
+		for (final File file : dir.listFiles()) {
+			file.delete();
+		}
+		dir.delete();
+	}
+
+	/**
+	 * Tests that the cache directory is created accessible by the owner only,
+	 * and that directories writable by others are not trusted.
+	 */
+	@Test
+	public void testPermissions() throws Exception {
+		assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+		final File parent = Files.createTempDirectory("zone-cache-test").toFile();
+		final File dir = new File(parent, "zones");
+		final String oldValue = System.getProperty("stendhal.zone.cache");
+		System.setProperty("stendhal.zone.cache", dir.getPath());
+		try {
+			ZoneMapCache.create();
+			assertTrue(dir.isDirectory());
+			assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(dir.toPath())));
+			assertTrue(ZoneMapCache.isPrivate(dir.toPath()));
+
+			Files.setPosixFilePermissions(dir.toPath(), PosixFilePermissions.fromString("rwxrwxrwx"));
+			assertFalse(ZoneMapCache.isPrivate(dir.toPath()));
+			Files.setPosixFilePermissions(dir.toPath(), PosixFilePermissions.fromString("rwxrwx---"));
+			assertFalse(ZoneMapCache.isPrivate(dir.toPath()));
+		} finally {
+			if (oldValue == null) {
+				System.clearProperty("stendhal.zone.cache");
+			} else {
+				System.setProperty("stendhal.zone.cache", oldValue);
+			}
+			dir.delete();
+			parent.delete();
+		}
+	}
+
+	private void assertSameMap(final ZoneMapData expected, final ZoneMapData actual) {
+		assertArrayEquals(expected.getEncodedTilesets(), actual.getEncodedTilesets());
+		assertEquals(expected.getClientLayers(), actual.getClientLayers());
+		for (final String name : expected.getClientLayers()) {
+			assertArrayEquals(expected.getEncodedLayer(name), actual.getEncodedLayer(name));
+		}
+		for (final String name : new String[] { "collision", "protection", "objects" }) {
+			assertArrayEquals(expected.getEncodedLayer(name), actual.getEncodedLayer(name));
+			final LayerDefinition expectedLayer = expected.getServerLayer(name);
+			final LayerDefinition actualLayer = actual.getServerLayer(name);
+			assertNotNull(actualLayer);
+			assertArrayEquals(expectedLayer.expose(), actualLayer.expose());
+		}
+		// tilesets are needed for placing the objects
+		final LayerDefinition objects = actual.getServerLayer("objects");
+		for (int i = 0; i < objects.expose().length; i++) {
+			final int value = objects.expose()[i];
+			if (value != 0) {
+				assertEquals(expected.getServerLayer("objects").getTilesetFor(value).getSource(),
+						objects.getTilesetFor(value).getSource());
+			}
+		}
+	}
+}
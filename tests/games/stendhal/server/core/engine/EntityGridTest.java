@@ -0,0 +1,172 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.entity.Entity;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import utilities.PlayerTestHelper;
+
+/**
+ * Tests for EntityGrid.
+ */
+public class EntityGridTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		MockStendlRPWorld.get();
+		PlayerTestHelper.generatePlayerRPClasses();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		MockStendlRPWorld.reset();
+	}
+
+	private static Entity createEntity(final int x, final int y, final int width, final int height) {
+		final Entity entity = new Entity() { };
+		entity.setPosition(x, y);
+		entity.setSize(width, height);
+		return entity;
+	}
+
+	/**
+	 * Tests for finding entities at a position.
+	 */
+	@Test
+	public void testGetEntityAt() {
+		final EntityGrid grid = new EntityGrid();
+		final Entity small = createEntity(3, 5, 1, 1);
+		final Entity big = createEntity(10, 10, 9, 7);
+		grid.add(small);
+		grid.add(big);
+
+		assertSame(small, grid.getEntityAt(3, 5));
+		assertSame(small, grid.getEntityAt(3.5, 5.9));
+		assertNull(grid.getEntityAt(4, 5));
+		assertSame(big, grid.getEntityAt(10, 10));
+		assertSame(big, grid.getEntityAt(18, 16));
+		assertNull(grid.getEntityAt(19, 16));
+		assertNull(grid.getEntityAt(18, 17));
+
+		final List<Entity> found = new ArrayList<Entity>();
+		grid.collectEntitiesAt(12, 12, Entity.class, found);
+		assertEquals(1, found.size());
+		assertSame(big, found.get(0));
+	}
+
+	/**
+	 * Tests that moved and removed entities are tracked.
+	 */
+	@Test
+	public void testUpdateAndRemove() {
+		final EntityGrid grid = new EntityGrid();
+		final Entity entity = createEntity(1, 1, 1, 1);
+		grid.add(entity);
+		assertTrue(grid.contains(entity));
+
+		entity.setPosition(40, 30);
+		grid.update(entity);
+		assertNull(grid.getEntityAt(1, 1));
+		assertSame(entity, grid.getEntityAt(40, 30));
+
+		entity.setSize(2, 2);
+		grid.update(entity);
+		assertSame(entity, grid.getEntityAt(41, 31));
+
+		grid.remove(entity);
+		assertFalse(grid.contains(entity));
+		assertNull(grid.getEntityAt(40, 30));
+		assertEquals(0, grid.size());
+	}
+
+	/**
+	 * Tests entities outside the regular grid range.
+	 */
+	@Test
+	public void testOverflow() {
+		final EntityGrid grid = new EntityGrid();
+		grid.ensureCapacity(16, 16);
+		final Entity negative = createEntity(-3, -2, 2, 2);
+		final Entity far = createEntity(100000, 5, 1, 1);
+		grid.add(negative);
+		grid.add(far);
+
+		assertSame(negative, grid.getEntityAt(-2, -1));
+		assertSame(far, grid.getEntityAt(100000, 5));
+
+		negative.setPosition(2, 2);
+		grid.update(negative);
+		assertSame(negative, grid.getEntityAt(3, 3));
+		assertNull(grid.getEntityAt(-2, -1));
+	}
+
+	/**
+	 * Tests intersection and obstacle queries for entities spanning several cells.
+	 */
+	@Test
+	public void testIntersecting() {
+		final EntityGrid grid = new EntityGrid();
+		final Entity wall = createEntity(0, 0, 20, 2);
+		final Entity walker = createEntity(5, 5, 1, 1);
+		grid.add(wall);
+		grid.add(walker);
+
+		final List<Entity> found = new ArrayList<Entity>();
+		grid.collectIntersecting(new Rectangle2D.Double(0, 0, 30, 30), found);
+		assertEquals(2, found.size());
+
+		found.clear();
+		grid.collectIntersecting(new Rectangle2D.Double(15, 1, 1, 1), found);
+		assertEquals(1, found.size());
+		assertSame(wall, found.get(0));
+
+		assertSame(wall, grid.getObstacle(walker, new Rectangle2D.Double(15, 1, 1, 1)));
+		assertNull(grid.getObstacle(walker, new Rectangle2D.Double(15, 2, 1, 1)));
+		assertNull(grid.getObstacle(wall, new Rectangle2D.Double(15, 1, 1, 1)));
+	}
+
+	/**
+	 * Tests that the zone keeps the index up to date when entities move.
+	 */
+	@Test
+	public void testZoneQueries() {
+		final StendhalRPZone zone = new StendhalRPZone("grid_test", 32, 32);
+		final Entity entity = createEntity(4, 4, 1, 1);
+		zone.add(entity);
+
+		assertSame(entity, zone.getEntityAt(4, 4));
+		assertTrue(zone.collides(createEntity(0, 0, 1, 1), 4, 4));
+
+		entity.setPosition(20, 25);
+		assertNull(zone.getEntityAt(4, 4));
+		assertSame(entity, zone.getEntityAt(20, 25));
+		assertEquals(1, zone.getEntitiesAt(20, 25).size());
+		assertFalse(zone.collides(createEntity(0, 0, 1, 1), 4, 4));
+
+		zone.remove(entity);
+		assertNull(zone.getEntityAt(20, 25));
+	}
+}
@@ -0,0 +1,251 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.common.parser.Sentence;
+import games.stendhal.server.core.rp.StendhalRPAction;
+import games.stendhal.server.entity.Entity;
+import games.stendhal.server.entity.npc.ChatAction;
+import games.stendhal.server.entity.npc.ConversationStates;
+import games.stendhal.server.entity.npc.EventRaiser;
+import games.stendhal.server.entity.npc.SpeakerNPC;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import marauroa.common.game.IRPZone;
+import utilities.PlayerTestHelper;
+
+/**
+ * Tests for ParallelZoneLogic.
+ */
+public class ParallelZoneLogicTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		MockStendlRPWorld.get();
+		PlayerTestHelper.generatePlayerRPClasses();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		MockStendlRPWorld.reset();
+	}
+
+	/**
+	 * Tests that cross zone effects are applied after the parallel phase in
+	 * zone order.
+	 */
+	@Test
+	public void testEffectOrder() {
+		final List<IRPZone> zones = new ArrayList<IRPZone>();
+		for (int i = 0; i < 8; i++) {
+			zones.add(new StendhalRPZone("parallel_" + i, 10, 10));
+		}
+
+		final List<String> visited = Collections.synchronizedList(new ArrayList<String>());
+		final List<String> effects = new ArrayList<String>();
+		final ParallelZoneLogic logic = new ParallelZoneLogic(4);
+		try {
+			logic.execute(zones, new Task<StendhalRPZone>() {
+				@Override
+				public void execute(final StendhalRPZone zone) {
+					assertTrue(ParallelZoneLogic.isZoneTask());
+					assertFalse(ParallelZoneLogic.isForeignZone(zone));
+					visited.add(zone.getName());
+					ParallelZoneLogic.runCrossZone(new Runnable() {
+						@Override
+						public void run() {
+							// all zones are done when the effects run
+							assertEquals(8, visited.size());
+							effects.add(zone.getName());
+						}
+					});
+				}
+			});
+		} finally {
+			logic.shutdown();
+		}
+
+		assertEquals(8, effects.size());
+		for (int i = 0; i < 8; i++) {
+			assertEquals("parallel_" + i, effects.get(i));
+		}
+		assertFalse(ParallelZoneLogic.isZoneTask());
+	}
+
+	/**
+	 * Tests that moving an entity to another zone is done in a cross zone
+	 * effect, and refused directly from a zone task.
+	 */
+	@Test
+	public void testZoneChange() {
+		final StendhalRPZone source = new StendhalRPZone("parallel_source", 10, 10);
+		final StendhalRPZone destination = new StendhalRPZone("parallel_destination", 10, 10);
+		final Entity entity = new Entity() { };
+		source.add(entity);
+
+		final List<IRPZone> zones = new ArrayList<IRPZone>();
+		zones.add(source);
+		zones.add(destination);
+
+		final List<Boolean> results = new ArrayList<Boolean>();
+		final ParallelZoneLogic logic = new ParallelZoneLogic(2);
+		try {
+			logic.execute(zones, new Task<StendhalRPZone>() {
+				@Override
+				public void execute(final StendhalRPZone zone) {
+					if (zone == source) {
+						assertFalse(StendhalRPAction.placeat(destination, entity, 5, 5));
+						assertSame(source, entity.getZone());
+						ParallelZoneLogic.runCrossZone(new Runnable() {
+							@Override
+							public void run() {
+								results.add(StendhalRPAction.placeat(destination, entity, 5, 5));
+							}
+						});
+					}
+				}
+			});
+		} finally {
+			logic.shutdown();
+		}
+
+		assertEquals(Collections.singletonList(Boolean.TRUE), results);
+		assertSame(destination, entity.getZone());
+		assertEquals(5, entity.getX());
+		assertEquals(5, entity.getY());
+	}
+
+	/**
+	 * Tests that a conversation action teleporting a player gets the real
+	 * result when the placement in the other zone fails, and that nothing
+	 * depending on it is done.
+	 */
+	@Test
+	public void testFailedPlacementInConversation() {
+		final StendhalRPZone source = new StendhalRPZone("parallel_npc_source", 10, 10);
+		final StendhalRPZone destination = new StendhalRPZone("parallel_npc_destination", 10, 10);
+		// no free spot
+		for (int x = 0; x < 10; x++) {
+			for (int y = 0; y < 10; y++) {
+				destination.collisionMap.setCollide(x, y);
+			}
+		}
+
+		final Player player = PlayerTestHelper.createPlayer("parallel_traveller");
+		PlayerTestHelper.equipWithMoney(player, 100);
+		player.setPosition(5, 5);
+		source.add(player);
+
+		final List<Boolean> results = new ArrayList<Boolean>();
+		final SpeakerNPC npc = new SpeakerNPC("parallel_ferryman");
+		npc.setPosition(5, 3);
+		npc.add(ConversationStates.IDLE, "travel", null, ConversationStates.IDLE, null, new ChatAction() {
+			@Override
+			public void fire(final Player player, final Sentence sentence, final EventRaiser raiser) {
+				assertFalse(ParallelZoneLogic.isZoneTask());
+				final boolean placed = player.teleport(destination, 5, 5, null, null);
+				if (placed) {
+					player.drop("money", 10);
+				}
+				results.add(placed);
+			}
+		});
+		source.add(npc);
+
+		player.put("text", "travel");
+		npc.onPlayerSpoke(player);
+
+		final List<IRPZone> zones = new ArrayList<IRPZone>();
+		zones.add(source);
+		zones.add(destination);
+		final ParallelZoneLogic logic = new ParallelZoneLogic(2);
+		try {
+			logic.execute(zones, new Task<StendhalRPZone>() {
+				@Override
+				public void execute(final StendhalRPZone zone) {
+					zone.speakerNPCPreLogic();
+					// the conversation waits for the parallel phase to end
+					assertTrue(results.isEmpty());
+				}
+			});
+		} finally {
+			logic.shutdown();
+		}
+
+		assertEquals(Collections.singletonList(Boolean.FALSE), results);
+		assertSame(source, player.getZone());
+		assertEquals(100, player.getNumberOfEquipped("money"));
+	}
+
+	/**
+	 * Tests adding and removing objects in another zone during the parallel
+	 * phase.
+	 */
+	@Test
+	public void testCrossZoneAddAndRemove() {
+		final StendhalRPZone source = new StendhalRPZone("parallel_add_source", 10, 10);
+		final StendhalRPZone destination = new StendhalRPZone("parallel_add_destination", 10, 10);
+		final Entity added = new Entity() { };
+		added.setPosition(2, 2);
+		final Entity removed = new Entity() { };
+		removed.setPosition(7, 7);
+		destination.add(removed);
+
+		final List<IRPZone> zones = new ArrayList<IRPZone>();
+		zones.add(source);
+		zones.add(destination);
+
+		final ParallelZoneLogic logic = new ParallelZoneLogic(2);
+		try {
+			logic.execute(zones, new Task<StendhalRPZone>() {
+				@Override
+				public void execute(final StendhalRPZone zone) {
+					if (zone != source) {
+						return;
+					}
+					destination.add(added);
+					// the ID is assigned at once, the object is added later
+					assertEquals(destination.getID().getID(), added.getID().getZoneID());
+					assertFalse(destination.has(added.getID()));
+					assertTrue(destination.getEntitiesAt(2.5, 2.5).isEmpty());
+
+					// the removal is deferred, and reported as such
+					assertNull(destination.remove(removed.getID()));
+					assertTrue(destination.has(removed.getID()));
+					assertEquals(1, destination.getEntitiesAt(7.5, 7.5).size());
+				}
+			});
+		} finally {
+			logic.shutdown();
+		}
+
+		assertTrue(destination.has(added.getID()));
+		assertSame(destination, added.getZone());
+		assertSame(added, destination.getEntityAt(2.5, 2.5));
+		assertFalse(destination.has(removed.getID()));
+		assertTrue(destination.getEntitiesAt(7.5, 7.5).isEmpty());
+	}
+}
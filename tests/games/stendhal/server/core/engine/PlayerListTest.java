@@ -20,6 +20,10 @@ import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -142,4 +146,46 @@ public class PlayerListTest {
 		assertSame(jack, list.getOnlinePlayer("jAck"));
 	}
 
+	/**
+	 * Tests for forBuddyWatchersExecute.
+	 */
+	@Test
+	public void testForBuddyWatchersExecute() {
+		final PlayerList list = new PlayerList();
+		final Player jack = PlayerTestHelper.createPlayer("jack");
+		jack.put("buddies", "hugo", true);
+		final Player bob = PlayerTestHelper.createPlayer("bob");
+		list.add(jack);
+		list.add(bob);
+
+		final List<Player> found = new ArrayList<Player>();
+		final Task<Player> collect = new Task<Player>() {
+			@Override
+			public void execute(final Player player) {
+				found.add(player);
+			}
+		};
+		list.forBuddyWatchersExecute("hugo", collect);
+		assertEquals(Arrays.asList(jack), found);
+
+		// buddies added while online
+		bob.put("buddies", "hugo", true);
+		list.onBuddyAdded(bob, "hugo");
+		found.clear();
+		list.forBuddyWatchersExecute("hugo", collect);
+		assertEquals(2, found.size());
+
+		// removed buddies and players
+		jack.remove("buddies", "hugo");
+		list.onBuddyRemoved(jack, "hugo");
+		list.remove(bob);
+		found.clear();
+		list.forBuddyWatchersExecute("hugo", collect);
+		assertTrue(found.isEmpty());
+
+		// not online
+		list.onBuddyAdded(bob, "hugo");
+		list.forBuddyWatchersExecute("hugo", collect);
+		assertTrue(found.isEmpty());
+	}
 }
@@ -0,0 +1,192 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.common.Version;
+import games.stendhal.common.constants.Events;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import marauroa.common.game.RPEvent;
+import utilities.PlayerTestHelper;
+
+/**
+ * Tests for PresenceNotifier.
+ */
+public class PresenceNotifierTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		MockStendlRPWorld.get();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		MockStendlRPWorld.reset();
+	}
+
+	/**
+	 * Tests that the changes of a turn are sent as one event.
+	 */
+	@Test
+	public void testFlush() {
+		final PlayerList players = new PlayerList();
+		final PresenceNotifier notifier = new PresenceNotifier();
+
+		final Player resident = createPlayer(players, "resident", Version.VERSION);
+		final Player oldClient = createPlayer(players, "oldclient", "1.48");
+		final Player ghost = createPlayer(players, "ghost", Version.VERSION);
+		ghost.setGhost(true);
+		notifier.flush(players);
+		assertTrue(resident.events().isEmpty());
+
+		final Player alice = createPlayer(players, "alice", Version.VERSION);
+		notifier.onLogin(alice);
+		final Player hidden = createPlayer(players, "hidden", Version.VERSION);
+		hidden.setGhost(true);
+		notifier.onLogin(hidden);
+		final Player leaving = PlayerTestHelper.createPlayer("leaving");
+		notifier.onLogin(leaving);
+		notifier.onLogout(leaving);
+		notifier.flush(players);
+
+		// one event for the changes
+		assertEquals(1, resident.events().size());
+		RPEvent event = resident.events().get(0);
+		assertEquals(Events.PLAYER_PRESENCE, event.getName());
+		assertEquals("alice", event.get("online"));
+		assertEquals("leaving", event.get("offline"));
+
+		// ghosts see ghosts
+		event = ghost.events().get(0);
+		assertEquals("alice,hidden", event.get("online"));
+
+		// old clients get the separate events
+		final List<String> names = new ArrayList<String>();
+		for (final RPEvent oldEvent : oldClient.events()) {
+			names.add(oldEvent.getName() + ":" + oldEvent.get("name"));
+		}
+		assertEquals(2, names.size());
+		assertTrue(names.contains(Events.PLAYER_LOGGED_ON + ":alice"));
+		assertTrue(names.contains(Events.PLAYER_LOGGED_OUT + ":leaving"));
+
+		// new players get everyone visible to them
+		event = alice.events().get(0);
+		final List<String> online = splitNames(event.get("online"));
+		assertEquals(3, online.size());
+		assertTrue(online.contains("alice"));
+		assertTrue(online.contains("resident"));
+		assertFalse(online.contains("ghost"));
+		assertFalse(online.contains("hidden"));
+		assertFalse(event.has("offline"));
+		assertEquals(5, splitNames(hidden.events().get(0).get("online")).size());
+
+		// nothing more to send
+		resident.clearEvents();
+		notifier.flush(players);
+		assertTrue(resident.events().isEmpty());
+	}
+
+	/**
+	 * Tests that new players whose client has not told its version yet get
+	 * the online list as one event once the version is known.
+	 */
+	@Test
+	public void testFlushBeforeVersion() {
+		final PlayerList players = new PlayerList();
+		final PresenceNotifier notifier = new PresenceNotifier();
+
+		final Player resident = createPlayer(players, "resident", Version.VERSION);
+		final Player alice = createPlayer(players, "alice", null);
+		notifier.onLogin(alice);
+		notifier.flush(players);
+		assertEquals(1, resident.events().size());
+		assertEquals("alice", resident.events().get(0).get("online"));
+		// the version is not known yet
+		assertTrue(alice.events().isEmpty());
+
+		final Player bob = createPlayer(players, "bob", Version.VERSION);
+		notifier.onLogin(bob);
+		notifier.flush(players);
+		assertTrue(alice.events().isEmpty());
+
+		alice.setClientVersion(Version.VERSION);
+		notifier.flush(players);
+		assertEquals(1, alice.events().size());
+		final RPEvent event = alice.events().get(0);
+		assertEquals(Events.PLAYER_PRESENCE, event.getName());
+		assertEquals(3, splitNames(event.get("online")).size());
+
+		// nothing more to send
+		alice.clearEvents();
+		notifier.flush(players);
+		assertTrue(alice.events().isEmpty());
+	}
+
+	/**
+	 * Tests that clients that never tell their version get the old events.
+	 */
+	@Test
+	public void testFlushWithoutVersion() {
+		final PlayerList players = new PlayerList();
+		final PresenceNotifier notifier = new PresenceNotifier();
+
+		createPlayer(players, "resident", Version.VERSION);
+		final Player alice = createPlayer(players, "alice", null);
+		notifier.onLogin(alice);
+		for (int i = 0; i <= PresenceNotifier.VERSION_WAIT_TURNS; i++) {
+			notifier.flush(players);
+			assertTrue(alice.events().isEmpty());
+		}
+		notifier.flush(players);
+		assertEquals(2, alice.events().size());
+		for (final RPEvent event : alice.events()) {
+			assertEquals(Events.PLAYER_LOGGED_ON, event.getName());
+		}
+
+		// a player leaving while waiting is forgotten
+		final Player bob = createPlayer(players, "bob", null);
+		notifier.onLogin(bob);
+		notifier.flush(players);
+		players.remove(bob);
+		notifier.onLogout(bob);
+		notifier.flush(players);
+		alice.clearEvents();
+		notifier.flush(players);
+		assertTrue(alice.events().isEmpty());
+	}
+
+	private Player createPlayer(final PlayerList players, final String name, final String version) {
+		final Player player = PlayerTestHelper.createPlayer(name);
+		player.setClientVersion(version);
+		players.add(player);
+		return player;
+	}
+
+	private List<String> splitNames(final String names) {
+		final List<String> list = new ArrayList<String>();
+		for (final String name : names.split(",")) {
+			list.add(name);
+		}
+		return list;
+	}
+}
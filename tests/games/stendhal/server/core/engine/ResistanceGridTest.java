@@ -0,0 +1,149 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.entity.ActiveEntity;
+import games.stendhal.server.entity.Entity;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import utilities.PlayerTestHelper;
+
+/**
+ * Tests for ResistanceGrid.
+ */
+public class ResistanceGridTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		MockStendlRPWorld.get();
+		PlayerTestHelper.generatePlayerRPClasses();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		MockStendlRPWorld.reset();
+	}
+
+	private static Entity createEntity(final int x, final int y, final int resistance) {
+		final Entity entity = new Entity() { };
+		entity.setPosition(x, y);
+		entity.setResistance(resistance);
+		return entity;
+	}
+
+	/**
+	 * Tests that resistance of several entities adds up like probabilities
+	 * and follows additions, removals and moves.
+	 */
+	@Test
+	public void testCombinedResistance() {
+		final StendhalRPZone zone = new StendhalRPZone("resistance_test", 10, 10);
+		final ResistanceGrid grid = zone.getResistanceGrid();
+		final Entity first = createEntity(2, 2, 50);
+		final Entity second = createEntity(2, 2, 50);
+		final Entity wall = createEntity(5, 5, 100);
+		zone.add(first);
+		zone.add(second);
+		zone.add(wall);
+
+		assertEquals(75, grid.getResistance(2, 2, false, null));
+		assertEquals(50, grid.getResistance(2, 2, false, first));
+		assertEquals(0, grid.getResistance(3, 2, false, null));
+		assertEquals(100, grid.getResistance(5, 5, false, null));
+		assertEquals(0, grid.getResistance(5, 5, false, wall));
+		assertEquals(0, grid.getResistance(-1, 5, false, null));
+
+		zone.remove(second);
+		assertEquals(50, grid.getResistance(2, 2, false, null));
+
+		wall.setPosition(6, 5);
+		assertEquals(0, grid.getResistance(5, 5, false, null));
+		assertEquals(100, grid.getResistance(6, 5, false, null));
+
+		wall.setResistance(0);
+		assertEquals(0, grid.getResistance(6, 5, false, null));
+	}
+
+	/**
+	 * Tests that a resistance change applied through update() reaches the
+	 * grid.
+	 */
+	@Test
+	public void testResistanceUpdate() {
+		final StendhalRPZone zone = new StendhalRPZone("resistance_update_test", 10, 10);
+		final ResistanceGrid grid = zone.getResistanceGrid();
+		final Entity entity = createEntity(3, 3, 100);
+		zone.add(entity);
+		assertEquals(100, grid.getResistance(3, 3, false, null));
+		final int version = grid.getStoppedVersion();
+
+		entity.put("resistance", 40);
+		entity.update();
+		assertEquals(40, entity.getResistance());
+		assertEquals(40, grid.getResistance(3, 3, false, null));
+		assertTrue(grid.getStoppedVersion() != version);
+	}
+
+	/**
+	 * Tests that moving entities are kept apart from stopped ones.
+	 */
+	@Test
+	public void testMovingEntities() {
+		final StendhalRPZone zone = new StendhalRPZone("resistance_moving", 10, 10);
+		final ResistanceGrid grid = zone.getResistanceGrid();
+		final ActiveEntity walker = new ActiveEntity() { };
+		walker.setPosition(4, 4);
+		zone.add(walker);
+		assertEquals(100, grid.getResistance(4, 4, false, null));
+
+		walker.setSpeed(1.0);
+		assertEquals(0, grid.getResistance(4, 4, false, null));
+		assertEquals(100, grid.getResistance(4, 4, true, null));
+		assertEquals(0, grid.getResistance(4, 4, true, walker));
+
+		walker.stop();
+		assertEquals(100, grid.getResistance(4, 4, false, null));
+	}
+
+	/**
+	 * Tests that blocker stamps change only near changed blocking entities.
+	 */
+	@Test
+	public void testBlockerStamp() {
+		final StendhalRPZone zone = new StendhalRPZone("resistance_stamp_test", 40, 40);
+		final ResistanceGrid grid = zone.getResistanceGrid();
+		final int near = grid.getBlockerStamp(0, 0, 16, 16);
+		final int far = grid.getBlockerStamp(32, 32, 8, 8);
+
+		zone.add(createEntity(20, 3, 50));
+		assertEquals(near, grid.getBlockerStamp(0, 0, 16, 16));
+
+		final Entity wall = createEntity(3, 3, 100);
+		zone.add(wall);
+		final int added = grid.getBlockerStamp(0, 0, 16, 16);
+		assertNotEquals(near, added);
+		// areas reaching into the block see the change too
+		assertEquals(added, grid.getBlockerStamp(10, 10, 20, 20));
+		assertEquals(far, grid.getBlockerStamp(32, 32, 8, 8));
+
+		zone.remove(wall);
+		assertNotEquals(added, grid.getBlockerStamp(0, 0, 16, 16));
+		assertEquals(far, grid.getBlockerStamp(32, 32, 8, 8));
+	}
+}
@@ -0,0 +1,95 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.entity.creature.Creature;
+import games.stendhal.server.entity.creature.Sheep;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendhalRPRuleProcessor;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import utilities.PlayerTestHelper;
+import utilities.RPClass.SheepTestHelper;
+
+/**
+ * Tests for the activity states of zones.
+ */
+public class ZoneActivityTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		MockStendlRPWorld.get();
+		PlayerTestHelper.generatePlayerRPClasses();
+		PlayerTestHelper.generateCreatureRPClasses();
+		SheepTestHelper.generateRPClasses();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		MockStendhalRPRuleProcessor.get().setTurn(0);
+		MockStendlRPWorld.reset();
+	}
+
+	/**
+	 * Tests that an empty zone falls asleep, wakes up when a player enters,
+	 * and catches up the healing of its creatures.
+	 */
+	@Test
+	public void testDormancy() {
+		final MockStendhalRPRuleProcessor processor = MockStendhalRPRuleProcessor.get();
+		final StendhalRPZone zone = new StendhalRPZone("activity_test", 20, 20);
+		final Creature creature = new Creature();
+		creature.setBaseHP(1000);
+		creature.setHP(100);
+		creature.setHealer("5,10");
+		zone.add(creature);
+
+		int turn = 1000;
+		zone.updateActivity(turn);
+		assertEquals(ZoneActivity.COOLING_DOWN, zone.getActivity());
+		for (int i = 0; i < StendhalRPZone.COOL_DOWN_TURNS; i++) {
+			zone.updateActivity(++turn);
+		}
+		assertEquals(ZoneActivity.DORMANT, zone.getActivity());
+
+		// turns 1101 to 1199 are skipped, and contain 9 healing turns
+		processor.setTurn(1200);
+		final Player player = PlayerTestHelper.createPlayer("visitor");
+		zone.add(player);
+		assertEquals(ZoneActivity.ACTIVE, zone.getActivity());
+		assertEquals(145, creature.getHP());
+
+		zone.updateActivity(1200);
+		assertEquals(ZoneActivity.ACTIVE, zone.getActivity());
+		zone.remove(player);
+		zone.updateActivity(1201);
+		assertEquals(ZoneActivity.COOLING_DOWN, zone.getActivity());
+	}
+
+	/**
+	 * Tests that zones with entities acting on their own stay awake.
+	 */
+	@Test
+	public void testSheepKeepZoneAwake() {
+		final StendhalRPZone zone = new StendhalRPZone("activity_sheep", 20, 20);
+		zone.add(new Sheep());
+		for (int turn = 0; turn <= StendhalRPZone.COOL_DOWN_TURNS + 1; turn++) {
+			zone.updateActivity(turn);
+		}
+		assertEquals(ZoneActivity.COOLING_DOWN, zone.getActivity());
+	}
+}
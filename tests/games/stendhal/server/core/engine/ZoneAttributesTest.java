@@ -0,0 +1,115 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.reportMatcher;
+import static org.easymock.classextension.EasyMock.createMock;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.easymock.classextension.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.easymock.IAnswer;
+import org.easymock.IArgumentMatcher;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.common.Version;
+import games.stendhal.server.core.rp.StendhalRPAction;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import marauroa.common.net.message.TransferContent;
+import marauroa.server.game.rp.RPServerManager;
+import utilities.PlayerTestHelper;
+
+/**
+ * Tests for sending zone attributes.
+ */
+public class ZoneAttributesTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		MockStendlRPWorld.get();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		StendhalRPAction.initialize(null);
+		MockStendlRPWorld.reset();
+	}
+
+	/**
+	 * Expects any list as the transferred contents.
+	 *
+	 * @return <code>null</code>
+	 */
+	private static List<TransferContent> anyContents() {
+		reportMatcher(new IArgumentMatcher() {
+			@Override
+			public boolean matches(final Object argument) {
+				return argument instanceof List;
+			}
+
+			@Override
+			public void appendTo(final StringBuffer buffer) {
+				buffer.append("anyContents()");
+			}
+		});
+		return null;
+	}
+
+	/**
+	 * Tests that attribute changes send only the attributes to new clients.
+	 */
+	@Test
+	public void testNotifyAttributesChanged() throws Exception {
+		final StendhalRPZone zone = new StendhalRPZone("attribute_zone", 10, 10);
+		MockStendlRPWorld.get().addRPZone(zone);
+		zone.addLayer("attribute_zone.0_floor", new byte[] { 1, 2, 3 });
+		final ZoneAttributes attributes = new ZoneAttributes(zone);
+		attributes.put("weather", "rain");
+		zone.setAttributes(attributes);
+
+		final Player newClient = PlayerTestHelper.createPlayer("newclient");
+		newClient.setClientVersion(Version.VERSION);
+		zone.add(newClient);
+		final Player oldClient = PlayerTestHelper.createPlayer("oldclient");
+		oldClient.setClientVersion("1.48");
+		zone.add(oldClient);
+
+		final List<TransferContent> attributeContents = zone.getAttributeContents();
+		assertEquals(1, attributeContents.size());
+		assertEquals("attribute_zone.data_map", attributeContents.get(0).name);
+
+		final RPServerManager rpman = createMock(RPServerManager.class);
+		rpman.transferContent(eq(newClient), eq(attributeContents));
+		rpman.transferContent(eq(oldClient), anyContents());
+		expectLastCall().andAnswer(new IAnswer<Object>() {
+			@Override
+			public Object answer() {
+				final List<?> contents = (List<?>) getCurrentArguments()[1];
+				assertEquals(2, contents.size());
+				return null;
+			}
+		});
+		replay(rpman);
+		StendhalRPAction.initialize(rpman);
+
+		zone.notifyAttributesChanged();
+		verify(rpman);
+	}
+}
@@ -0,0 +1,114 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.Test;
+
+import games.stendhal.common.CRC;
+import games.stendhal.common.tiled.LayerDefinition;
+import marauroa.common.net.message.TransferContent;
+
+/**
+ * Tests for ZoneContentStore.
+ */
+public class ZoneContentStoreTest {
+
+	private static byte[] createData(final int length, final int seed) {
+		final byte[] data = new byte[length];
+		for (int i = 0; i < length; i++) {
+			data[i] = (byte) (i * 31 + seed);
+		}
+		return data;
+	}
+
+	/**
+	 * Tests reading layers back from the cache file, also after they have
+	 * been dropped from the cache of recently used layers.
+	 */
+	@Test
+	public void testFileStore() throws Exception {
+		final File file = File.createTempFile("stendhal-zones-test", ".cache");
+		final ZoneContentStore store = new ZoneContentStore(file, 150);
+		final byte[] first = createData(100, 1);
+		final byte[] second = createData(100, 2);
+		final ZoneContentStore.Entry firstEntry = store.put("test.first", first);
+		final ZoneContentStore.Entry secondEntry = store.put("test.second", second);
+		assertFalse(firstEntry.isInMemory());
+		assertEquals(0, store.getCachedBytes());
+
+		assertArrayEquals(first, store.read(firstEntry));
+		assertEquals(100, store.getCachedBytes());
+		// reading the second layer drops the first one from the cache
+		assertArrayEquals(second, store.read(secondEntry));
+		assertEquals(100, store.getCachedBytes());
+
+		final TransferContent content = store.createTransferContent(firstEntry);
+		assertEquals("test.first", content.name);
+		assertEquals(CRC.cmpCRC(first), content.timestamp);
+		assertTrue(content.cacheable);
+		assertArrayEquals(first, content.data);
+	}
+
+	/**
+	 * Tests keeping layers in memory.
+	 */
+	@Test
+	public void testMemoryStore() throws Exception {
+		final ZoneContentStore store = new ZoneContentStore(null, 0);
+		final byte[] data = createData(10, 3);
+		final ZoneContentStore.Entry entry = store.put("test.memory", data);
+		assertTrue(entry.isInMemory());
+		assertArrayEquals(data, store.read(entry));
+		assertEquals(0, store.getCachedBytes());
+	}
+
+	/**
+	 * Tests the contents of a zone.
+	 */
+	@Test
+	public void testZoneContents() throws Exception {
+		final StendhalRPZone zone = new StendhalRPZone("content_test", 10, 10);
+		final ZoneAttributes attributes = new ZoneAttributes(zone);
+		attributes.put("color_method", "multiply");
+		zone.setAttributes(attributes);
+		final LayerDefinition layer = new LayerDefinition(10, 10);
+		layer.build();
+		layer.setName("0_floor");
+		layer.set(2, 3, 1);
+		zone.addLayer("content_test.0_floor", layer);
+		// replaces the previous layer
+		layer.set(4, 5, 1);
+		zone.addLayer("content_test.0_floor", layer);
+
+		List<TransferContent> contents = zone.getContents();
+		assertEquals(2, contents.size());
+		assertEquals("content_test.data_map", contents.get(0).name);
+		assertEquals("content_test.0_floor", contents.get(1).name);
+		assertArrayEquals(layer.encode(), contents.get(1).data);
+
+		// a copy gets the layers, and its own attributes
+		final StendhalRPZone copy = new StendhalRPZone("content_copy", zone);
+		copy.setAttributes(new ZoneAttributes(copy));
+		contents = copy.getContents();
+		assertEquals(2, contents.size());
+		assertEquals("content_test.0_floor", contents.get(1).name);
+		assertArrayEquals(zone.getContents().get(1).data, contents.get(1).data);
+	}
+}
@@ -0,0 +1,125 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.dbcommand;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.core.engine.ItemLogWriter;
+import games.stendhal.server.core.engine.db.StendhalItemDAO;
+import marauroa.common.Log4J;
+import marauroa.common.game.RPObject;
+import marauroa.server.db.DBTransaction;
+import marauroa.server.db.TransactionPool;
+import marauroa.server.game.db.DatabaseFactory;
+
+/**
+ * Tests for LogItemEventBatchCommand.
+ */
+public class LogItemEventBatchCommandTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Log4J.init();
+		new DatabaseFactory().initializeDatabase();
+	}
+
+	private static RPObject createItem(final String name) {
+		final RPObject item = new RPObject();
+		item.put("name", name);
+		return item;
+	}
+
+	private static AbstractLogItemEventCommand event(final RPObject item, final String event, final String param) {
+		final AbstractLogItemEventCommand command = new LogSimpleItemEventCommand(item, null, event, param, null, null, null);
+		command.setEnqueueTime(new Timestamp(System.currentTimeMillis()));
+		return command;
+	}
+
+	/**
+	 * Tests that a batch registers new items and keeps the order of events.
+	 *
+	 * @throws SQLException in case of a database error
+	 */
+	@Test
+	public void testBatch() throws SQLException {
+		final RPObject sword = createItem("batch test sword");
+		final RPObject shield = createItem("batch test shield");
+		final List<AbstractLogItemEventCommand> commands = Arrays.asList(
+				event(sword, "create", "1"),
+				event(shield, "create", "2"),
+				event(sword, "slot-to-slot", "3"),
+				event(sword, "destroy", "4"));
+		final int depth = ItemLogWriter.get().getQueueDepth();
+
+		final DBTransaction transaction = TransactionPool.get().beginWork();
+		try {
+			new LogItemEventBatchCommand(commands, ItemLogWriter.get()).execute(transaction);
+
+			final int swordId = sword.getInt(StendhalItemDAO.ATTR_ITEM_LOGID);
+			final int shieldId = shield.getInt(StendhalItemDAO.ATTR_ITEM_LOGID);
+			assertEquals(swordId + 1, shieldId);
+			assertEquals(1, transaction.querySingleCellInt("SELECT count(*) FROM item WHERE id=" + swordId
+					+ " AND name='batch test sword'", null));
+
+			final ResultSet resultSet = transaction.query("SELECT event, param1 FROM itemlog WHERE itemid="
+					+ swordId + " ORDER BY id", null);
+			final String[] expected = { "register", "create", "slot-to-slot", "destroy" };
+			for (final String event : expected) {
+				resultSet.next();
+				assertEquals(event, resultSet.getString(1));
+			}
+			assertFalse(resultSet.next());
+			resultSet.close();
+		} finally {
+			TransactionPool.get().rollback(transaction);
+		}
+		assertEquals(depth, ItemLogWriter.get().getQueueDepth());
+	}
+
+	/**
+	 * Tests that items rows written by others do not collide with the ids of
+	 * newly registered items.
+	 *
+	 * @throws SQLException in case of a database error
+	 */
+	@Test
+	public void testOtherWriter() throws SQLException {
+		final RPObject first = createItem("batch test first");
+		final RPObject second = createItem("batch test second");
+
+		final DBTransaction transaction = TransactionPool.get().beginWork();
+		try {
+			new LogItemEventBatchCommand(Arrays.asList(event(first, "create", "1")), ItemLogWriter.get()).execute(transaction);
+			transaction.execute("INSERT INTO item (name, timedate) VALUES ('batch test other', NULL)", null);
+			final int otherId = transaction.getLastInsertId("item", "id");
+			new LogItemEventBatchCommand(Arrays.asList(event(second, "create", "2")), ItemLogWriter.get()).execute(transaction);
+
+			final int secondId = second.getInt(StendhalItemDAO.ATTR_ITEM_LOGID);
+			assertTrue(secondId != otherId);
+			assertEquals(1, transaction.querySingleCellInt("SELECT count(*) FROM item WHERE id=" + secondId
+					+ " AND name='batch test second'", null));
+		} finally {
+			TransactionPool.get().rollback(transaction);
+		}
+	}
+}
@@ -0,0 +1,128 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.profiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for TickProfiler.
+ */
+public class TickProfilerTest {
+	private static final long MS = 1000000L;
+
+	private TickProfiler profiler;
+
+	@Before
+	public void setUp() {
+		profiler = TickProfiler.get();
+		profiler.enable(100, 2);
+		profiler.reset();
+	}
+
+	@After
+	public void tearDown() {
+		profiler.disable();
+		profiler.reset();
+	}
+
+	private void turn(final int turn, final long zoneMillis, final long listenerMillis) {
+		profiler.beginTurn(turn);
+		profiler.recordPhase(TickPhase.PLAYER_LOGIC, 10 * MS);
+		profiler.recordListener("SlowListener", listenerMillis * MS);
+		profiler.recordListener("FastListener", MS);
+		profiler.recordPhase(TickPhase.TURN_NOTIFIER, (listenerMillis + 1) * MS);
+		profiler.recordZone("0_semos_city", zoneMillis * MS);
+		profiler.recordZone("int_semos_bank", 2 * MS);
+		profiler.recordPhase(TickPhase.ZONE_LOGIC, (zoneMillis + 2) * MS);
+		profiler.endTurn();
+	}
+
+	/**
+	 * Tests the statistics and the slow turn history.
+	 */
+	@Test
+	public void testStatistics() {
+		turn(1, 5, 3);
+		turn(2, 150, 3);
+		turn(3, 5, 200);
+		turn(4, 300, 3);
+
+		assertEquals(4, profiler.getTurns());
+		assertEquals(3, profiler.getOverruns());
+		assertEquals(316.0, profiler.getMaxTurnMillis(), 0.001);
+
+		// only the two latest slow turns are kept, oldest first
+		final String[] slow = profiler.getSlowTurns();
+		assertEquals(2, slow.length);
+		assertTrue(slow[0], slow[0].contains("turn 3:"));
+		assertTrue(slow[0], slow[0].contains("turn listeners: SlowListener 200.000 ms, FastListener 1.000 ms"));
+		assertTrue(slow[1], slow[1].contains("turn 4:"));
+		assertTrue(slow[1], slow[1].contains("zones: 0_semos_city 300.000 ms, int_semos_bank 2.000 ms"));
+
+		assertTrue(profiler.getSlowestZones()[0].startsWith("0_semos_city"));
+		assertTrue(profiler.getSlowestTurnListeners()[0].startsWith("SlowListener"));
+		assertTrue(profiler.getPhases()[0].startsWith("turn"));
+
+		profiler.reset();
+		assertEquals(0, profiler.getTurns());
+		assertEquals(0, profiler.getSlowTurns().length);
+	}
+
+	/**
+	 * Tests that nothing is recorded while disabled.
+	 */
+	@Test
+	public void testDisabled() {
+		profiler.disable();
+		assertEquals(0, profiler.beginTurn(1));
+		assertEquals(0, profiler.phase(TickPhase.ZONE_LOGIC, 0));
+		profiler.endTurn();
+		assertEquals(0, profiler.getTurns());
+	}
+
+	/**
+	 * Tests the HTTP report.
+	 */
+	@Test
+	public void testHttpServer() throws Exception {
+		turn(1, 150, 3);
+		final TickProfilerHttpServer server = new TickProfilerHttpServer(profiler, 0);
+		try {
+			final InputStream in = new URL("http://127.0.0.1:" + server.getPort() + "/").openStream();
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			try {
+				final byte[] buffer = new byte[4096];
+				int read;
+				while ((read = in.read(buffer)) > 0) {
+					out.write(buffer, 0, read);
+				}
+			} finally {
+				in.close();
+			}
+			final String report = new String(out.toByteArray(), StandardCharsets.UTF_8);
+			assertTrue(report, report.startsWith("Turns: 1, slower than 100 ms: 1"));
+			assertTrue(report, report.contains("0_semos_city"));
+		} finally {
+			server.stop();
+		}
+	}
+}
@@ -0,0 +1,182 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for TurnNotifier.
+ */
+public class TurnNotifierTest {
+
+	private TurnNotifier notifier;
+
+	/**
+	 * A listener remembering the turns it was notified at.
+	 */
+	private static class RecordingListener implements TurnListener {
+		private final List<Integer> turns = new ArrayList<Integer>();
+
+		@Override
+		public void onTurnReached(final int currentTurn) {
+			turns.add(Integer.valueOf(currentTurn));
+		}
+	}
+
+	@Before
+	public void setUp() {
+		notifier = TurnNotifier.get();
+		notifier.getEventListForDebugging().clear();
+	}
+
+	private void runTurns(final int count) {
+		final int turn = notifier.getCurrentTurnForDebugging();
+		for (int i = 1; i <= count; i++) {
+			notifier.logic(turn + i);
+		}
+	}
+
+	/**
+	 * Tests that listeners are notified exactly at the requested turn.
+	 */
+	@Test
+	public void testNotifyInTurns() {
+		final int start = notifier.getCurrentTurnForDebugging();
+		final RecordingListener listener = new RecordingListener();
+		final TurnNotification handle = notifier.notifyInTurns(3, listener);
+		assertTrue(handle.isPending());
+		assertEquals(start + 4, handle.getTurn());
+		assertEquals(4, notifier.getRemainingTurns(listener));
+
+		runTurns(3);
+		assertTrue(listener.turns.isEmpty());
+		runTurns(1);
+		assertEquals(1, listener.turns.size());
+		assertEquals(start + 4, listener.turns.get(0).intValue());
+		assertFalse(handle.isPending());
+		assertEquals(-1, notifier.getRemainingTurns(listener));
+		assertEquals(1, notifier.getListenersFiredLastTurn());
+	}
+
+	/**
+	 * Tests that a listener registered twice for the same turn is notified once.
+	 */
+	@Test
+	public void testDuplicateRegistration() {
+		final int start = notifier.getCurrentTurnForDebugging();
+		final RecordingListener listener = new RecordingListener();
+		final TurnNotification first = notifier.notifyAtTurn(start + 2, listener);
+		final TurnNotification second = notifier.notifyAtTurn(start + 2, listener);
+		assertSame(first, second);
+		assertEquals(1, notifier.getPendingCount());
+
+		runTurns(2);
+		assertEquals(1, listener.turns.size());
+	}
+
+	/**
+	 * Tests notifications far enough in the future to use the higher wheel levels.
+	 */
+	@Test
+	public void testLongDelays() {
+		final int start = notifier.getCurrentTurnForDebugging();
+		final RecordingListener listener = new RecordingListener();
+		notifier.notifyInTurns(300, listener);
+		notifier.notifyInTurns(70000, listener);
+
+		runTurns(70001);
+		assertEquals(2, listener.turns.size());
+		assertEquals(start + 301, listener.turns.get(0).intValue());
+		assertEquals(start + 70001, listener.turns.get(1).intValue());
+		assertEquals(0, notifier.getPendingCount());
+	}
+
+	/**
+	 * Tests cancellation by handle and by listener.
+	 */
+	@Test
+	public void testCancel() {
+		final RecordingListener listener = new RecordingListener();
+		final TurnNotification early = notifier.notifyInTurns(1, listener);
+		notifier.notifyInTurns(5, listener);
+		early.cancel();
+		assertFalse(early.isPending());
+		assertEquals(6, notifier.getRemainingTurns(listener));
+
+		notifier.dontNotify(listener);
+		assertEquals(-1, notifier.getRemainingTurns(listener));
+		runTurns(10);
+		assertTrue(listener.turns.isEmpty());
+	}
+
+	/**
+	 * Tests that past turns are rejected.
+	 */
+	@Test
+	public void testPastTurn() {
+		final int start = notifier.getCurrentTurnForDebugging();
+		assertNull(notifier.notifyAtTurn(start, new RecordingListener()));
+		assertEquals(0, notifier.getPendingCount());
+	}
+
+	/**
+	 * Tests that the turn counter may jump.
+	 */
+	@Test
+	public void testTurnJump() {
+		final int start = notifier.getCurrentTurnForDebugging();
+		final RecordingListener listener = new RecordingListener();
+		notifier.notifyAtTurn(start + 1000, listener);
+		notifier.logic(start + 999);
+		assertTrue(listener.turns.isEmpty());
+		notifier.logic(start + 1000);
+		assertEquals(1, listener.turns.size());
+
+		notifier.notifyAtTurn(start + 1010, listener);
+		notifier.logic(start + 500);
+		notifier.logic(start + 1010);
+		assertEquals(2, listener.turns.size());
+	}
+
+	/**
+	 * Tests that notifications of skipped turns are delivered at the turn the
+	 * counter jumped to.
+	 */
+	@Test
+	public void testSkippedTurns() {
+		final int start = notifier.getCurrentTurnForDebugging();
+		final RecordingListener listener = new RecordingListener();
+		notifier.notifyAtTurn(start + 5, listener);
+		notifier.notifyAtTurn(start + 300, listener);
+		notifier.notifyAtTurn(start + 1000, listener);
+
+		notifier.logic(start + 400);
+		assertEquals(2, listener.turns.size());
+		assertEquals(start + 400, listener.turns.get(0).intValue());
+		assertEquals(1, notifier.getPendingCount());
+
+		runTurns(600);
+		assertEquals(3, listener.turns.size());
+		assertEquals(start + 1000, listener.turns.get(2).intValue());
+		assertEquals(0, notifier.getPendingCount());
+	}
+}
@@ -13,6 +13,8 @@
 package games.stendhal.server.core.pathfinder;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.util.LinkedList;
 import java.util.List;
@@ -74,4 +76,35 @@ public class PathTest {
 
 		assertArrayEquals(expected.toArray(), Path.searchPath(zone, 0, 0, 6, 6, 20).toArray());
 	}
+
+	/**
+	 * Tests that repeated searches reusing the search state see only the
+	 * data of their own zone.
+	 */
+	@Test
+	public void testRepeatedSearch() {
+		final StendhalRPZone blocked = new StendhalRPZone("blocked", 10, 10);
+		// wall with a gap at the bottom
+		for (int y = 0; y < 9; y++) {
+			blocked.collisionMap.setCollide(3, y);
+		}
+		final List<Node> around = Path.searchPath(blocked, 0, 0, 6, 0, 40);
+		assertEquals(new Node(0, 0), around.get(0));
+		assertEquals(new Node(6, 0), around.get(around.size() - 1));
+		assertTrue(around.contains(new Node(3, 9)));
+		for (int i = 1; i < around.size(); i++) {
+			final Node a = around.get(i - 1);
+			final Node b = around.get(i);
+			assertEquals(1, Math.abs(a.getX() - b.getX()) + Math.abs(a.getY() - b.getY()));
+		}
+
+		final StendhalRPZone small = new StendhalRPZone("small", 5, 5);
+		assertTrue(Path.searchPath(small, 0, 0, 9, 9, 20).isEmpty());
+
+		final StendhalRPZone open = new StendhalRPZone("open", 10, 10);
+		for (int i = 0; i < 3; i++) {
+			assertArrayEquals(expected.toArray(), Path.searchPath(open, 0, 0, 6, 6, 20).toArray());
+			assertEquals(around, Path.searchPath(blocked, 0, 0, 6, 0, 40));
+		}
+	}
 }
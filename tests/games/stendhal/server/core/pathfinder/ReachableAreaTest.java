@@ -0,0 +1,105 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.pathfinder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Rectangle;
+import java.util.Random;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.entity.Entity;
+import games.stendhal.server.maps.MockStendlRPWorld;
+
+/**
+ * Tests for ReachableArea.
+ */
+public class ReachableAreaTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		MockStendlRPWorld.get();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		MockStendlRPWorld.reset();
+	}
+
+	/**
+	 * Tests that the flood fill agrees with the path search.
+	 */
+	@Test
+	public void testAgreesWithPathSearch() {
+		final StendhalRPZone zone = new StendhalRPZone("reachable_random", 30, 30);
+		final Random random = new Random(3);
+		for (int i = 0; i < 300; i++) {
+			zone.collisionMap.setCollide(random.nextInt(30), random.nextInt(30));
+		}
+		final Entity entity = new Entity() { };
+		// the start may be blocked
+		zone.collisionMap.setCollide(15, 15);
+
+		final ReachableArea area = ReachableArea.acquire(entity, zone, 15, 15, 400);
+		try {
+			for (int x = 0; x < 30; x++) {
+				for (int y = 0; y < 30; y++) {
+					if ((x == 15) && (y == 15)) {
+						continue;
+					}
+					final boolean expected = !Path.searchPath(entity, zone, 15, 15,
+							new Rectangle(x, y, 1, 1), 400, false).isEmpty();
+					assertEquals(x + ";" + y, expected, area.isReachable(x, y));
+				}
+			}
+		} finally {
+			area.release();
+		}
+	}
+
+	/**
+	 * Tests the limit of the path length.
+	 */
+	@Test
+	public void testMaxDistance() {
+		final StendhalRPZone zone = new StendhalRPZone("reachable_distance", 10, 10);
+		// wall with a gap at the bottom
+		for (int y = 0; y < 9; y++) {
+			zone.collisionMap.setCollide(5, y);
+		}
+		final Entity entity = new Entity() { };
+
+		ReachableArea area = ReachableArea.acquire(entity, zone, 4, 0, 20);
+		try {
+			// 9 steps down, 2 right, 9 up
+			assertTrue(area.isReachable(6, 0));
+			assertFalse(area.isReachable(5, 0));
+			assertFalse(area.isReachable(-1, 0));
+		} finally {
+			area.release();
+		}
+
+		area = ReachableArea.acquire(entity, zone, 4, 0, 19);
+		try {
+			assertFalse(area.isReachable(6, 0));
+			assertTrue(area.isReachable(6, 1));
+		} finally {
+			area.release();
+		}
+	}
+}
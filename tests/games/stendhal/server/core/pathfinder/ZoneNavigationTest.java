@@ -0,0 +1,177 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.pathfinder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Rectangle;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.entity.Entity;
+import games.stendhal.server.maps.MockStendlRPWorld;
+
+/**
+ * Tests for ZoneNavigation.
+ */
+public class ZoneNavigationTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		MockStendlRPWorld.get();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		MockStendlRPWorld.reset();
+	}
+
+	/**
+	 * Tests that destinations in separated regions are recognized.
+	 */
+	@Test
+	public void testReachability() {
+		final StendhalRPZone zone = new StendhalRPZone("navigation_regions", 10, 10);
+		for (int y = 0; y < 10; y++) {
+			zone.collisionMap.setCollide(5, y);
+		}
+		final ZoneNavigation navigation = zone.getNavigation();
+		assertTrue(navigation.isReachable(1, 1, 0, 0, new Rectangle(4, 9, 1, 1)));
+		assertFalse(navigation.isReachable(1, 1, 0, 0, new Rectangle(6, 0, 1, 1)));
+		// a goal area reaching into the start region is fine
+		assertTrue(navigation.isReachable(1, 1, 0, 0, new Rectangle(4, 0, 3, 1)));
+		assertTrue(Path.searchPath(zone, 0, 0, 6, 0, 100).isEmpty());
+	}
+
+	/**
+	 * Tests that regions depend on the entity size.
+	 */
+	@Test
+	public void testEntitySize() {
+		final StendhalRPZone zone = new StendhalRPZone("navigation_sizes", 10, 10);
+		// wall with a gap only one tile wide
+		for (int x = 0; x < 9; x++) {
+			zone.collisionMap.setCollide(x, 5);
+		}
+		final ZoneNavigation navigation = zone.getNavigation();
+		assertTrue(navigation.isReachable(1, 1, 0, 0, new Rectangle(0, 9, 1, 1)));
+		assertFalse(navigation.isReachable(2, 1, 0, 0, new Rectangle(0, 9, 1, 1)));
+	}
+
+	/**
+	 * Tests that searches follow changes of the collision map.
+	 */
+	@Test
+	public void testCollisionChange() {
+		final StendhalRPZone zone = new StendhalRPZone("navigation_collision", 10, 10);
+		final List<Node> first = Path.searchPath(zone, 0, 0, 6, 0, 20);
+		assertEquals(7, first.size());
+		assertEquals(first, Path.searchPath(zone, 0, 0, 6, 0, 20));
+
+		zone.collisionMap.setCollide(3, 0);
+		final List<Node> around = Path.searchPath(zone, 0, 0, 6, 0, 20);
+		assertFalse(around.contains(new Node(3, 0)));
+		assertEquals(9, around.size());
+	}
+
+	/**
+	 * Tests that searches considering entities follow stopped entities.
+	 */
+	@Test
+	public void testEntityInvalidation() {
+		final StendhalRPZone zone = new StendhalRPZone("navigation_entities", 10, 10);
+		final Entity walker = new Entity() { };
+		zone.add(walker);
+		assertEquals(7, Path.searchPath(walker, 6, 0).size());
+
+		final Entity obstacle = new Entity() { };
+		obstacle.setPosition(3, 0);
+		zone.add(obstacle);
+		final List<Node> around = Path.searchPath(walker, 6, 0);
+		assertFalse(around.contains(new Node(3, 0)));
+		assertEquals(9, around.size());
+	}
+
+	/**
+	 * Tests that long searches around obstacles are guided by the
+	 * hierarchical graph.
+	 */
+	@Test
+	public void testCorridor() {
+		final StendhalRPZone zone = createWallZone("navigation_corridor");
+		final ZoneNavigation navigation = zone.getNavigation();
+		// straight paths need no guidance
+		assertNull(navigation.getCorridor(1, 1, 2, 2, new Rectangle(60, 2, 1, 1)));
+
+		final ZoneNavigation.Corridor corridor = navigation.getCorridor(1, 1, 2, 2, new Rectangle(2, 60, 1, 1));
+		assertNotNull(corridor);
+		assertTrue(corridor.contains(2, 2));
+		assertTrue(corridor.contains(63, 32));
+		assertTrue(corridor.contains(2, 60));
+
+		final List<Node> path = Path.searchPath(zone, 2, 2, 2, 60, 400);
+		assertEquals(new Node(2, 60), last(path));
+		Node previous = path.get(0);
+		for (final Node node : path.subList(1, path.size())) {
+			assertEquals(1, Math.abs(node.getX() - previous.getX()) + Math.abs(node.getY() - previous.getY()));
+			assertFalse(zone.collisionMap.collides(node.getX(), node.getY()));
+			previous = node;
+		}
+	}
+
+	/**
+	 * Tests that the distances within a cluster follow blocking entities.
+	 */
+	@Test
+	public void testCorridorBlocked() {
+		final StendhalRPZone zone = createWallZone("navigation_corridor_blocked");
+		final ZoneNavigation navigation = zone.getNavigation();
+		final Rectangle destination = new Rectangle(2, 60, 1, 1);
+		assertNotNull(navigation.getCorridor(1, 1, 2, 2, destination));
+
+		final Entity obstacle = new Entity() { };
+		obstacle.setPosition(63, 32);
+		zone.add(obstacle);
+		assertNull(navigation.getCorridor(1, 1, 2, 2, destination));
+		// the unguided search decides
+		assertEquals(new Node(2, 60), last(Path.searchPath(zone, 2, 2, 2, 60, 400)));
+
+		zone.remove(obstacle);
+		assertNotNull(navigation.getCorridor(1, 1, 2, 2, destination));
+	}
+
+	/**
+	 * Create a zone with a wall that has a gap only at the east edge.
+	 *
+	 * @param name zone name
+	 * @return zone
+	 */
+	private static StendhalRPZone createWallZone(final String name) {
+		final StendhalRPZone zone = new StendhalRPZone(name, 64, 64);
+		for (int x = 0; x < 63; x++) {
+			zone.collisionMap.setCollide(x, 32);
+		}
+		return zone;
+	}
+
+	private static Node last(final List<Node> path) {
+		return path.get(path.size() - 1);
+	}
+}
@@ -0,0 +1,51 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.rp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Map;
+
+import org.junit.Test;
+
+import games.stendhal.server.core.engine.db.KillLogKey;
+
+/**
+ * Tests for KillLogAggregator.
+ */
+public class KillLogAggregatorTest {
+
+	/**
+	 * Tests that kills of the same combination are counted together.
+	 */
+	@Test
+	public void testAggregation() {
+		final KillLogAggregator aggregator = KillLogAggregator.get();
+		aggregator.drain();
+
+		aggregator.record("rat", "C", "hero", "P");
+		aggregator.record("rat", "C", "hero", "P");
+		aggregator.record("rat", "C", "hero", "P");
+		aggregator.record("hero", "P", "rat", "C");
+
+		final String day = new SimpleDateFormat("yyyy-MM-dd").format(new Date());
+		final Map<KillLogKey, Integer> kills = aggregator.drain();
+		assertEquals(2, kills.size());
+		assertEquals(Integer.valueOf(3), kills.get(new KillLogKey("rat", "C", "hero", "P", day)));
+		assertEquals(Integer.valueOf(1), kills.get(new KillLogKey("hero", "P", "rat", "C", day)));
+
+		assertTrue(aggregator.drain().isEmpty());
+	}
+}
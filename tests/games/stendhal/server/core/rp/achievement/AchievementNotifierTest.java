@@ -0,0 +1,77 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.rp.achievement;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.core.rp.achievement.factory.FightingAchievementFactory;
+import utilities.AchievementTestHelper;
+
+/**
+ * Tests for AchievementNotifier.
+ */
+public class AchievementNotifierTest extends AchievementTestHelper {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		AchievementTestHelper.setUpBeforeClass();
+		init(createPlayer("player"));
+	}
+
+	private static boolean contains(final List<Achievement> achievements, final String id) {
+		for (final Achievement achievement : achievements) {
+			if (id.equals(achievement.getIdentifier())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Tests that a kill only checks the achievements depending on it.
+	 */
+	@Test
+	public void testKillDependents() {
+		List<Achievement> toCheck = an.getKillDependents("rat", false);
+		assertTrue(contains(toCheck, FightingAchievementFactory.ID_RATS));
+		assertFalse(contains(toCheck, FightingAchievementFactory.ID_SAFARI));
+		assertFalse(contains(toCheck, FightingAchievementFactory.ID_LEGEND));
+
+		toCheck = an.getKillDependents("rat", true);
+		assertTrue(contains(toCheck, FightingAchievementFactory.ID_RATS));
+		assertTrue(contains(toCheck, FightingAchievementFactory.ID_LEGEND));
+
+		toCheck = an.getKillDependents("deer", true);
+		assertFalse(contains(toCheck, FightingAchievementFactory.ID_RATS));
+
+		assertTrue(contains(an.getKillDependents("lion", false), FightingAchievementFactory.ID_SAFARI));
+		assertTrue(contains(an.getKillDependents("rotten zombie", false), FightingAchievementFactory.ID_ZOMBIES));
+
+		// every dependent is a fighting achievement, and not all of them are checked
+		for (final Achievement achievement : toCheck) {
+			assertTrue(achievement.getCategory() == Category.FIGHTING);
+		}
+		int fighting = 0;
+		for (final Achievement achievement : an.getAchievements()) {
+			if (achievement.getCategory() == Category.FIGHTING) {
+				fighting++;
+			}
+		}
+		assertTrue(toCheck.size() < fighting);
+	}
+}
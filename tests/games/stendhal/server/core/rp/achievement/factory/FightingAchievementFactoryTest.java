@@ -319,4 +319,21 @@ public class FightingAchievementFactoryTest extends AchievementTestHelper {
 		checkKillAnyEach("fight.general.pachyderm", 100,
 				FightingAchievementFactory.ENEMIES_PACHYDERM);
 	}
+
+	@Test
+	public void testKillDependencies() {
+		// kills of other creatures do not check the achievement
+		for (int i = 0; i < 15; i++) {
+			player.incSoloKillCount("rat");
+		}
+		an.onKill(player, "deer", false);
+		assertFalse(achievementReached(player, FightingAchievementFactory.ID_RATS));
+		an.onKill(player, "rat", false);
+		assertTrue(achievementReached(player, FightingAchievementFactory.ID_RATS));
+
+		final String rare = getRareCreatureNames()[0];
+		player.incSharedKillCount(rare);
+		an.onKill(player, rare, true);
+		assertTrue(achievementReached(player, FightingAchievementFactory.ID_POACHER));
+	}
 }
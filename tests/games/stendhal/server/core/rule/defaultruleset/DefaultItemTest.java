@@ -0,0 +1,89 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.rule.defaultruleset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.core.rule.EntityManager;
+import games.stendhal.server.entity.item.Item;
+import games.stendhal.server.entity.item.StackableItem;
+import games.stendhal.server.maps.MockStendlRPWorld;
+
+/**
+ * Tests for the creation of items from their definitions.
+ */
+public class DefaultItemTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		MockStendlRPWorld.get();
+	}
+
+	private static DefaultItem getDefaultItem(final String name) {
+		final EntityManager em = SingletonRepository.getEntityManager();
+		for (final DefaultItem item : em.getDefaultItems()) {
+			if (item.getItemName().equals(name)) {
+				return item;
+			}
+		}
+		throw new IllegalArgumentException(name);
+	}
+
+	/**
+	 * Tests that copies of the prototype are independent items.
+	 */
+	@Test
+	public void testPrototypeCopies() {
+		final DefaultItem defaultItem = getDefaultItem("money");
+		final StackableItem first = (StackableItem) defaultItem.getItem();
+		assertTrue(defaultItem.isCopyingPrototype());
+
+		first.setQuantity(20);
+		first.put("bound", "someone");
+		final StackableItem second = (StackableItem) defaultItem.getItem();
+		assertNotSame(first, second);
+		assertEquals(1, second.getQuantity());
+		assertFalse(second.has("bound"));
+		assertEquals(first.getDescription(), second.getDescription());
+		assertEquals(first.getPossibleSlots(), second.getPossibleSlots());
+	}
+
+	/**
+	 * Tests that items with status attacks share one list of attackers.
+	 */
+	@Test
+	public void testSharedStatusAttackers() {
+		final DefaultItem defaultItem = getDefaultItem("venom whip");
+		final Item first = defaultItem.getItem();
+		final Item second = defaultItem.getItem();
+		assertEquals(1, first.getStatusAttackers().size());
+		assertSame(first.getStatusAttackers(), second.getStatusAttackers());
+	}
+
+	/**
+	 * Tests that presents keep their random content.
+	 */
+	@Test
+	public void testPresentsAreConstructed() {
+		final DefaultItem defaultItem = getDefaultItem("present");
+		defaultItem.getItem();
+		assertFalse(defaultItem.isCopyingPrototype());
+	}
+}
@@ -21,6 +21,7 @@ import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
@@ -38,6 +39,7 @@ import games.stendhal.server.entity.item.CaptureTheFlagFlag;
 import games.stendhal.server.entity.item.Container;
 import games.stendhal.server.entity.item.Corpse;
 import games.stendhal.server.entity.item.Item;
+import games.stendhal.server.entity.item.StackableItem;
 import games.stendhal.server.entity.player.Player;
 import games.stendhal.server.entity.slot.PlayerSlot;
 import games.stendhal.server.events.AttackEvent;
@@ -244,6 +246,102 @@ public class RPEntityTest {
 		assertThat(entity.getItemAtk(), is(0f));
 	}
 
+	/**
+	 * Tests that the item based combat values are cached until invalidated.
+	 */
+	@Test
+	public void testCombatStatsCache() {
+		final RPEntity entity = new MockRPEntity();
+		entity.addSlot(new PlayerSlot("lhand"));
+		entity.addSlot(new PlayerSlot("armor"));
+
+		final Item dagger = SingletonRepository.getEntityManager().getItem("dagger");
+		entity.getSlot("lhand").add(dagger);
+		final int atk = dagger.getAttack();
+		assertThat(entity.getItemAtk(), is((float) atk));
+
+		// direct attribute changes are only seen after an invalidation
+		dagger.put("atk", atk + 5);
+		assertThat(entity.getItemAtk(), is((float) atk));
+		entity.invalidateCombatStats();
+		assertThat(entity.getItemAtk(), is((float) atk + 5));
+
+		final Item armor = SingletonRepository.getEntityManager().getItem("leather armor");
+		armor.put("min_level", 50);
+		entity.getSlot("armor").add(armor);
+		assertEquals(Collections.singletonList(armor), entity.getDefenseItems());
+		final float lowLevelDef = entity.getItemDef();
+		entity.setLevel(50);
+		assertThat(entity.getItemDef(), greaterThan(lowLevelDef));
+
+		entity.getSlot("armor").remove(armor.getID());
+		assertTrue(entity.getDefenseItems().isEmpty());
+	}
+
+	/**
+	 * Tests that the item index follows changes of the slots.
+	 */
+	@Test
+	public void testItemIndex() {
+		ItemIndex.setVerifying(true);
+		try {
+			final RPEntity entity = new MockRPEntity();
+			entity.addSlot(new PlayerSlot("bag"));
+			entity.addSlot(new PlayerSlot("bank"));
+			assertEquals(0, entity.getNumberOfEquipped("money"));
+			assertFalse(entity.isEquipped("money", 0));
+
+			final StackableItem money = (StackableItem) SingletonRepository.getEntityManager().getItem("money");
+			money.setQuantity(10);
+			entity.getSlot("bag").add(money);
+			assertEquals(10, entity.getNumberOfEquipped("Money"));
+			assertTrue(entity.isEquipped("money", 10));
+			assertFalse(entity.isEquipped("money", 11));
+			assertSame(money, entity.getFirstEquipped("money"));
+
+			final Item keyring = SingletonRepository.getEntityManager().getItem("keyring");
+			entity.getSlot("bag").add(keyring);
+			final StackableItem moreMoney = (StackableItem) SingletonRepository.getEntityManager().getItem("money");
+			moreMoney.setQuantity(5);
+			keyring.getSlot("content").add(moreMoney);
+			assertEquals(15, entity.getNumberOfEquipped("money"));
+			assertEquals(Arrays.asList(money, moreMoney), entity.getAllEquipped("money"));
+
+			money.sub(3);
+			assertEquals(12, entity.getNumberOfEquipped("money"));
+
+			assertTrue(entity.drop("money", 9));
+			assertEquals(3, entity.getNumberOfEquipped("money"));
+			assertSame(moreMoney, entity.getFirstEquipped("money"));
+
+			// the bank is not carried
+			final Item bankMoney = SingletonRepository.getEntityManager().getItem("money");
+			entity.getSlot("bank").add(bankMoney);
+			assertEquals(3, entity.getNumberOfEquipped("money"));
+			assertEquals(4, entity.getTotalNumberOf("money"));
+
+			// items are found in slot order, not in the order they were added
+			entity.addSlot(new PlayerSlot("pouch"));
+			final Item pouchMoney = SingletonRepository.getEntityManager().getItem("money");
+			entity.getSlot("pouch").add(pouchMoney);
+			assertSame(pouchMoney, entity.getFirstEquipped("money"));
+			assertEquals(Arrays.asList(pouchMoney, moreMoney), entity.getAllEquipped("money"));
+
+			// removing a container removes its content
+			entity.getSlot("bag").remove(keyring.getID());
+			assertEquals(1, entity.getNumberOfEquipped("money"));
+			assertEquals(2, entity.getTotalNumberOf("money"));
+			assertEquals(Arrays.asList(pouchMoney), entity.getAllEquipped("money"));
+
+			// and adding it again adds the content
+			entity.getSlot("bank").add(keyring);
+			assertEquals(1, entity.getNumberOfEquipped("money"));
+			assertEquals(5, entity.getTotalNumberOf("money"));
+		} finally {
+			ItemIndex.setVerifying(false);
+		}
+	}
+
 	/**
 	 * Tests for getItemAtkforLeftandRightweaponCorrectlyWorn.
 	 */
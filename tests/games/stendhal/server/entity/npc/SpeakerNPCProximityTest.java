@@ -0,0 +1,126 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.entity.npc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static utilities.SpeakerNPCTestHelper.getReply;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.common.parser.Sentence;
+import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendhalRPRuleProcessor;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import utilities.PlayerTestHelper;
+
+/**
+ * Tests that SpeakerNPCs notice the players near them.
+ */
+public class SpeakerNPCProximityTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		MockStendlRPWorld.get();
+		MockStendhalRPRuleProcessor.get();
+		PlayerTestHelper.generateNPCRPClasses();
+		PlayerTestHelper.generatePlayerRPClasses();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		MockStendlRPWorld.reset();
+	}
+
+	private static void say(final Player player, final String text) {
+		player.put("text", text);
+		SingletonRepository.getRuleProcessor().removePlayerText(player);
+	}
+
+	/**
+	 * Tests that only players within perception range are heard.
+	 */
+	@Test
+	public void testSpeech() {
+		final StendhalRPZone zone = new StendhalRPZone("proximity_speech", 40, 40);
+		final SpeakerNPC npc = new SpeakerNPC("listener");
+		npc.add(ConversationStates.IDLE, "hi", null, ConversationStates.ATTENDING, "Hello!", null);
+		npc.setPosition(10, 10);
+		zone.add(npc);
+
+		final Player far = PlayerTestHelper.createPlayer("far");
+		far.setPosition(30, 30);
+		zone.add(far);
+		say(far, "hi");
+		npc.preLogic();
+		assertNull(getReply(npc));
+
+		final Player near = PlayerTestHelper.createPlayer("near");
+		near.setPosition(12, 11);
+		zone.add(near);
+		say(near, "hi");
+		npc.preLogic();
+		assertEquals("Hello!", getReply(npc));
+		assertEquals(near, npc.getAttending());
+
+		// nothing is heard again in the next turn
+		npc.getEngine().setCurrentState(ConversationStates.IDLE);
+		npc.preLogic();
+		assertNull(getReply(npc));
+	}
+
+	/**
+	 * Tests that players are greeted when they walk into perception range.
+	 */
+	@Test
+	public void testGreeting() {
+		final StendhalRPZone zone = new StendhalRPZone("proximity_greeting", 40, 40);
+		final SpeakerNPC npc = new SpeakerNPC("greeter");
+		final List<Player> greeted = new LinkedList<Player>();
+		npc.addInitChatMessage(null, new ChatAction() {
+			@Override
+			public void fire(final Player player, final Sentence sentence, final EventRaiser raiser) {
+				greeted.add(player);
+			}
+		});
+		npc.setPosition(10, 10);
+		zone.add(npc);
+
+		final Player player = PlayerTestHelper.createPlayer("walker");
+		player.setPosition(20, 10);
+		zone.add(player);
+		npc.preLogic();
+		assertEquals(0, greeted.size());
+
+		player.setPosition(13, 10);
+		zone.notifyMovement(player, 20, 10, 13, 10);
+		npc.preLogic();
+		assertEquals(1, greeted.size());
+
+		player.setPosition(20, 10);
+		zone.notifyMovement(player, 13, 10, 20, 10);
+		npc.preLogic();
+		assertEquals(1, greeted.size());
+
+		// the NPC walking up to the player
+		npc.setPosition(17, 10);
+		npc.preLogic();
+		assertEquals(2, greeted.size());
+	}
+}
@@ -16,6 +16,7 @@ import static games.stendhal.server.entity.npc.ConversationStates.ATTENDING;
 import static games.stendhal.server.entity.npc.ConversationStates.IDLE;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static utilities.SpeakerNPCTestHelper.getReply;
@@ -23,6 +24,8 @@ import static utilities.SpeakerNPCTestHelper.getReply;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import games.stendhal.common.parser.Expression;
+import games.stendhal.common.parser.JokerExprMatcher;
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.npc.ChatAction;
@@ -209,4 +212,39 @@ public class EngineTest {
 		assertEquals(reply, getReply(bob));
 	}
 
+	/**
+	 * Tests that transitions are found by state and trigger, including
+	 * matcher fallbacks and changes of the transition table.
+	 */
+	@Test
+	public void testTransitionLookup() {
+		final SpeakerNPC bob = new SpeakerNPC("bob");
+		final Engine en = new Engine(bob);
+		final Player pete = PlayerTestHelper.createPlayer("player");
+
+		en.add(IDLE, "hello", null, false, ATTENDING, "welcome", null);
+		en.add(ATTENDING, "job", null, false, ConversationStates.QUESTION_1, "want one?", null);
+		en.add(ConversationStates.ANY, "bye", null, false, IDLE, "goodbye", null);
+		en.addMatching(ConversationStates.QUESTION_1, Expression.JOKER, new JokerExprMatcher(), null, false, ATTENDING, "anything", null);
+
+		assertFalse(en.step(pete, "job"));
+		assertTrue(en.step(pete, "hello"));
+		assertEquals("welcome", getReply(bob));
+		assertTrue(en.step(pete, "job"));
+		assertEquals("want one?", getReply(bob));
+		assertTrue(en.step(pete, "banana"));
+		assertEquals("anything", getReply(bob));
+		assertEquals(ATTENDING, en.getCurrentState());
+		assertTrue(en.step(pete, "bye"));
+		assertEquals(IDLE, en.getCurrentState());
+		assertEquals("goodbye", getReply(bob));
+
+		en.add(IDLE, "offer", null, false, ATTENDING, "special offer", null, "offer");
+		assertTrue(en.step(pete, "offer"));
+		assertEquals("special offer", getReply(bob));
+		assertTrue(en.step(pete, "bye"));
+		assertTrue(en.remove("offer"));
+		assertFalse(en.step(pete, "offer"));
+	}
+
 }
@@ -0,0 +1,67 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.entity.player;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for CounterTable.
+ */
+public class CounterTableTest {
+
+	/**
+	 * Tests reading, increasing and listing counters.
+	 */
+	@Test
+	public void testCounters() {
+		final CounterTable table = new CounterTable(new CounterTable.Names());
+		assertEquals(0, table.get("rat"));
+		assertEquals(3, table.add("rat", 3));
+		assertEquals(4, table.add("rat", 1));
+		table.set("wolf", 2);
+		assertEquals(6, table.sum());
+
+		final Map<String, Integer> map = table.toMap();
+		assertEquals(2, map.size());
+		assertEquals(Integer.valueOf(4), map.get("rat"));
+		assertEquals(Integer.valueOf(2), map.get("wolf"));
+
+		table.clear();
+		assertEquals(0, table.get("rat"));
+		assertTrue(table.toMap().isEmpty());
+	}
+
+	/**
+	 * Tests that names of other kinds of counters do not make a table grow.
+	 */
+	@Test
+	public void testSeparateKinds() {
+		final CounterTable.Names creatures = new CounterTable.Names();
+		final CounterTable.Names items = new CounterTable.Names();
+		final CounterTable kills = new CounterTable(creatures);
+		for (int i = 0; i < 1000; i++) {
+			kills.add("creature " + i, 1);
+		}
+		final CounterTable looted = new CounterTable(items);
+		looted.add("money", 10);
+		looted.add("creature 999", 1);
+		assertEquals(1000, kills.sum());
+		assertEquals(11, looted.sum());
+		assertEquals(1, kills.get("creature 999"));
+		assertTrue(looted.capacity() <= 2);
+	}
+}
@@ -0,0 +1,62 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.entity.player;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import marauroa.common.game.RPObject;
+import utilities.PlayerTestHelper;
+
+/**
+ * Tests for KillRecording.
+ */
+public class KillRecordingTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		PlayerTestHelper.generatePlayerRPClasses();
+	}
+
+	/**
+	 * Tests that kills are counted and stored in the kill slot.
+	 */
+	@Test
+	public void testCounting() {
+		final Player player = PlayerTestHelper.createPlayer("killer");
+		player.setKeyedSlot("!kills", "solo.rat", "3");
+		assertTrue(player.hasKilledSolo("rat"));
+		assertFalse(player.hasKilledShared("rat"));
+		assertFalse(player.hasKilled("deer"));
+
+		player.setSoloKill("rat");
+		player.setSharedKill("rat");
+		player.setSharedKill("deer");
+		assertEquals(4, player.getSoloKill("rat"));
+		assertEquals(1, player.getSharedKill("rat"));
+		assertEquals(1, player.getSharedKill("deer"));
+		assertEquals("4", player.getKeyedSlot("!kills", "solo.rat"));
+		assertEquals("1", player.getKeyedSlot("!kills", "shared.deer"));
+
+		// changes of the slot are noticed
+		player.setKeyedSlot("!kills", "solo.rat", "10");
+		assertEquals(10, player.getSoloKill("rat"));
+		// a replaced slot object is read again
+		player.getSlot("!kills").clear();
+		player.getSlot("!kills").add(new RPObject());
+		assertEquals(0, player.getSoloKill("rat"));
+	}
+}
@@ -0,0 +1,58 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2024 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.entity.player;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import utilities.PlayerTestHelper;
+
+/**
+ * Tests for PlayerLootedItemsHandler.
+ */
+public class PlayerLootedItemsHandlerTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		PlayerTestHelper.generatePlayerRPClasses();
+	}
+
+	/**
+	 * Tests that counters survive storing and loading the player.
+	 */
+	@Test
+	public void testCounters() {
+		final Player player = PlayerTestHelper.createPlayer("looter");
+		player.incLootForItem("money", 5);
+		player.incLootForItem("money", 2);
+		player.incSoldForItem("cheese", 3);
+		player.incSownForItem("seed", 4);
+		player.incObtainedForItem("gold bar", 1);
+		player.incObtainedForItem("emerald", 2);
+		assertEquals(7, player.getNumberOfLootsForItem("money"));
+		assertEquals(3, player.getQuantityOfSoldItems("cheese"));
+		assertEquals(0, player.getQuantityOfBoughtItems("cheese"));
+		assertEquals(3, player.getQuantityOfObtainedItems());
+		assertEquals("7", player.get(PlayerLootedItemsHandler.LOOTED_ITEMS, "money"));
+		assertEquals("3", player.get(PlayerLootedItemsHandler.LOOTED_ITEMS, "sold.cheese"));
+
+		final PlayerLootedItemsHandler loaded = new PlayerLootedItemsHandler(player);
+		assertEquals(7, loaded.getNumberOfLootsForItem("money"));
+		assertEquals(3, loaded.getQuantityOfSoldItems("cheese"));
+		assertEquals(0, loaded.getQuantityOfBoughtItems("cheese"));
+		assertEquals(4, loaded.getQuantityOfSownItems("seed"));
+		assertEquals(0, loaded.getNumberOfLootsForItem("sownseed"));
+		assertEquals(3, loaded.getQuantityOfObtainedItems());
+	}
+}